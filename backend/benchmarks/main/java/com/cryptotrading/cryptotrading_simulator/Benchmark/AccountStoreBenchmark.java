@@ -0,0 +1,119 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.PersistenceService;
+import com.cryptotrading.cryptotrading_simulator.Service.RiskService;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap and the off-heap account store of {@link CryptoService} with millions of accounts.
+ * <p>
+ * Setup creates the accounts and gives each a position in a few symbols. Every invocation then trades a buy and a
+ * sell on a random account, so the working set is the whole account population. Heap accounts retain only their
+ * latest transaction, off-heap accounts none. Run with {@code -prof gc} to see the GC count and time per iteration
+ * next to the trade throughput, e.g. {@code java -jar benchmarks.jar AccountStoreBenchmark -prof gc}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+@State(Scope.Benchmark)
+public class AccountStoreBenchmark {
+
+    /* Symbols every account holds after setup */
+    private static final String[] SYMBOLS = {"BTC", "ETH", "SOL", "XRP"};
+
+    @Param({"1000000", "10000000"})
+    int accounts;
+
+    @Param({"heap", "off-heap"})
+    String store;
+
+    CryptoService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TradingProperties properties = new TradingProperties();
+        properties.getHistory().setCapacity(1);
+        properties.getPersistence().setEnabled(false);
+        properties.getAccounts().getOffHeap().setEnabled("off-heap".equals(store));
+        service = new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletableFuture<?>[] loaders = new CompletableFuture<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            loaders[t] = CompletableFuture.runAsync(() -> {
+                for (int i = first; i < accounts; i += threads) {
+                    for (String symbol : SYMBOLS) {
+                        service.executeTrade(accountId(i), request("buy", symbol));
+                    }
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(loaders).join();
+        executor.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    /**
+     * A trader picking random accounts and symbols.
+     */
+    @State(Scope.Thread)
+    public static class Trader {
+
+        SplittableRandom random;
+        TradeRequest[] buys;
+        TradeRequest[] sells;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            buys = new TradeRequest[SYMBOLS.length];
+            sells = new TradeRequest[SYMBOLS.length];
+            for (int i = 0; i < SYMBOLS.length; i++) {
+                buys[i] = request("buy", SYMBOLS[i]);
+                sells[i] = request("sell", SYMBOLS[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void randomAccountRoundTrip(Trader trader, Blackhole blackhole) {
+        String accountId = accountId(trader.random.nextInt(accounts));
+        int symbol = trader.random.nextInt(SYMBOLS.length);
+        blackhole.consume(service.executeTrade(accountId, trader.buys[symbol]));
+        blackhole.consume(service.executeTrade(accountId, trader.sells[symbol]));
+    }
+
+    private static String accountId(int index) {
+        return "trader-" + index;
+    }
+
+    private static TradeRequest request(String type, String symbol) {
+        TradeRequest request = new TradeRequest();
+        request.setType(type);
+        request.setSymbol(symbol);
+        request.setAmount(0.0001);
+        return request;
+    }
+}
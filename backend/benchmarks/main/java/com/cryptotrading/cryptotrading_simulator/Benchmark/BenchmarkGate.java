@@ -0,0 +1,100 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json} and fails if a benchmark regressed.
+ * <p>
+ * Benchmarks are matched by name and parameters. A benchmark regressed if its score got worse than the baseline by
+ * more than the tolerance and by more than the combined error of both scores; for throughput a lower score is worse,
+ * for all other modes a higher one. Benchmarks missing from either file are reported but do not fail the gate.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.cryptotrading.cryptotrading_simulator.Benchmark.BenchmarkGate
+ * baseline.json current.json [tolerancePercent]}. Exits with status 1 if any benchmark regressed.
+ * </p>
+ */
+public class BenchmarkGate {
+
+    /* Allowed slowdown in percent unless given on the command line */
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the baseline file, the current file and optionally the tolerance in percent
+     * @throws IOException if a result file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkGate <baseline.json> <current.json> [tolerancePercent]");
+            System.exit(2);
+        }
+        double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT) / 100;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            JsonNode now = entry.getValue();
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double nowScore = now.path("primaryMetric").path("score").asDouble();
+            double error = finite(base.path("primaryMetric").path("scoreError").asDouble())
+                    + finite(now.path("primaryMetric").path("scoreError").asDouble());
+            boolean higherIsBetter = "thrpt".equals(now.path("mode").asText());
+            double worsening = higherIsBetter ? baseScore - nowScore : nowScore - baseScore;
+            boolean regressed = worsening > baseScore * tolerance && worsening > error;
+            double changePercent = baseScore == 0 ? 0 : (nowScore - baseScore) / baseScore * 100;
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), baseScore, nowScore, now.path("primaryMetric").path("scoreUnit").asText(),
+                    changePercent);
+            if (regressed) {
+                regressions++;
+            }
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("MISSING    %s%n", key);
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + tolerance * 100 + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH result file into a map of results keyed by benchmark name and parameters.
+     *
+     * @param file the JSON result file
+     * @return the results in file order
+     * @throws IOException if the file cannot be read
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.path("params");
+            params.fieldNames().forEachRemaining(name ->
+                    key.append(' ').append(name).append('=').append(params.path(name).asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double finite(double value) {
+        return Double.isFinite(value) ? value : 0;
+    }
+}
@@ -0,0 +1,213 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.FeedPipeline;
+import com.cryptotrading.cryptotrading_simulator.Service.KrakenTickerDecoder;
+import com.cryptotrading.cryptotrading_simulator.Service.PersistenceService;
+import com.cryptotrading.cryptotrading_simulator.Service.PriceSnapshotStore;
+import com.cryptotrading.cryptotrading_simulator.Service.RiskService;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks the price feed: decoding Kraken ticker frames, decoding and publishing them as the stages of the
+ * {@link FeedPipeline} do, and publishing simulated prices through {@link CryptoService#updatePrices()}.
+ * <p>
+ * The frames are read from {@code kraken-frames.txt}, one frame per line, and replayed in order; besides ticker
+ * frames the file holds the status, subscription and heartbeat frames Kraken interleaves with them. Run with
+ * {@code -prof gc} to check that decoding does not allocate; {@code decodeTree} parses the same frames into a
+ * {@link JsonNode} tree as the feed client did before the {@link KrakenTickerDecoder}, as the baseline.
+ * </p>
+ * <p>
+ * {@code decodeAndApply} runs the work of both pipeline stages on the benchmark thread instead of going through
+ * the pipeline's rings: handed to a pipeline without running stages, every frame beyond the frame ring would be
+ * dropped, and with running stages the benchmark would only measure the hand-off.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FeedBenchmark {
+
+    /* Kraken pairs of the recorded frames, by symbol */
+    private static final Map<String, String> PAIRS = Map.ofEntries(
+            Map.entry("BTC", "XBT/USD"), Map.entry("ETH", "ETH/USD"), Map.entry("BNB", "BNB/USD"),
+            Map.entry("SOL", "SOL/USD"), Map.entry("XRP", "XRP/USD"), Map.entry("ADA", "ADA/USD"),
+            Map.entry("DOGE", "DOGE/USD"), Map.entry("DOT", "DOT/USD"), Map.entry("AVAX", "AVAX/USD"),
+            Map.entry("LINK", "LINK/USD"), Map.entry("LTC", "LTC/USD"), Map.entry("MATIC", "MATIC/USD"),
+            Map.entry("UNI", "UNI/USD"), Map.entry("ATOM", "ATOM/USD"), Map.entry("XLM", "XLM/USD"),
+            Map.entry("XMR", "XMR/USD"), Map.entry("TRX", "TRX/USD"), Map.entry("VET", "VET/USD"),
+            Map.entry("FIL", "FIL/USD"), Map.entry("ALGO", "ALGO/USD"));
+
+    /**
+     * The recorded frames and a cursor cycling through them, together with a decoder publishing to its own service.
+     */
+    @State(Scope.Thread)
+    public static class Feed {
+
+        String[] frames;
+        int cursor;
+        CryptoService service;
+        KrakenTickerDecoder decoder;
+        ObjectMapper objectMapper;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            frames = loadFrames();
+            service = newService();
+            decoder = new KrakenTickerDecoder(pairIndex(service.getPriceStore()));
+            objectMapper = new ObjectMapper();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.shutdown();
+        }
+
+        String next() {
+            String frame = frames[cursor];
+            cursor = cursor + 1 == frames.length ? 0 : cursor + 1;
+            return frame;
+        }
+    }
+
+    /**
+     * A service publishing simulated prices to a number of accounts holding every symbol.
+     */
+    @State(Scope.Thread)
+    public static class Simulator {
+
+        @Param({"0", "1000"})
+        int holders;
+
+        CryptoService service;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = newService();
+            TradeRequest buy = new TradeRequest();
+            buy.setType("buy");
+            buy.setAmount(0.001);
+            for (int i = 0; i < holders; i++) {
+                for (String symbol : PAIRS.keySet()) {
+                    buy.setSymbol(symbol);
+                    service.executeTrade("holder-" + i, buy);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void decode(Feed feed, Blackhole blackhole) {
+        blackhole.consume(feed.decoder.decode(feed.next()));
+        blackhole.consume(feed.decoder.getPrice());
+    }
+
+    /**
+     * Parses a frame the way the feed client did before the {@link KrakenTickerDecoder}: into a {@link JsonNode}
+     * tree, with the symbol found by scanning the pairs.
+     */
+    @Benchmark
+    public void decodeTree(Feed feed, Blackhole blackhole) throws IOException {
+        JsonNode root = feed.objectMapper.readTree(feed.next());
+        if (root.isArray() && root.size() > 1 && root.get(1).isObject() && root.get(2).isArray()) {
+            String pair = root.get(3).asText();
+            JsonNode tickerData = root.get(1);
+            String symbol = null;
+            for (Map.Entry<String, String> entry : PAIRS.entrySet()) {
+                if (entry.getValue().equals(pair)) {
+                    symbol = entry.getKey();
+                    break;
+                }
+            }
+            if (symbol != null) {
+                blackhole.consume(symbol);
+                blackhole.consume(tickerData.get("c").get(0).asDouble());
+                blackhole.consume(tickerData.get("o").get(0).asDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeAndApply(Feed feed) {
+        KrakenTickerDecoder decoder = feed.decoder;
+        if (decoder.decode(feed.next())) {
+            double price = decoder.getPrice();
+            double open24h = decoder.getOpen();
+            feed.service.updateCryptoPrice(decoder.getSymbolId(), price, ((price - open24h) / open24h) * 100,
+                    decoder.getVolume(), System.currentTimeMillis());
+        }
+    }
+
+    @Benchmark
+    public void updatePrices(Simulator simulator) {
+        simulator.service.updatePrices();
+    }
+
+    /**
+     * Reads the recorded frames from the classpath.
+     *
+     * @return the frames in recording order
+     * @throws IOException if the frames cannot be read
+     */
+    static String[] loadFrames() throws IOException {
+        try (InputStream in = FeedBenchmark.class.getResourceAsStream("/kraken-frames.txt")) {
+            if (in == null) {
+                throw new IOException("kraken-frames.txt not found on the classpath");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<String> frames = reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+            return frames.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Creates a service with one shard per processor and persistence disabled.
+     *
+     * @return the service
+     */
+    private static CryptoService newService() {
+        TradingProperties properties = new TradingProperties();
+        properties.getPersistence().setEnabled(false);
+        return new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+    }
+
+    /**
+     * Builds the index from Kraken pairs to symbol ids the feed client builds for its decoder.
+     *
+     * @param priceStore the store resolving symbols
+     * @return map of Kraken pair names to symbol ids
+     */
+    private static Map<String, Integer> pairIndex(PriceSnapshotStore priceStore) {
+        Map<String, Integer> pairIndex = new HashMap<>();
+        for (Map.Entry<String, String> entry : PAIRS.entrySet()) {
+            pairIndex.put(entry.getValue(), priceStore.idOf(entry.getKey()));
+        }
+        return pairIndex;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.PersistenceService;
+import com.cryptotrading.cryptotrading_simulator.Service.RiskService;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON responses of the account endpoints as the transaction history of the account grows: reading
+ * and serializing the account, serializing a trade response, and reading and serializing the newest page of the
+ * history. The object mapper is configured like the one of the application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /* Account whose history is grown before the run */
+    private static final String ACCOUNT_ID = "history";
+
+    /* Transactions per history page, as requested by the frontend */
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"0", "100", "1000", "10000"})
+    int historySize;
+
+    CryptoService service;
+    ObjectMapper objectMapper;
+    TradeResponse tradeResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TradingProperties properties = new TradingProperties();
+        properties.getEngine().setShards(1);
+        properties.getPersistence().setEnabled(false);
+        service = new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        TradeRequest buy = request("buy");
+        TradeRequest sell = request("sell");
+        service.resetAccount(ACCOUNT_ID);
+        for (int i = 0; i < historySize; i++) {
+            service.executeTrade(ACCOUNT_ID, i % 2 == 0 ? buy : sell);
+        }
+        tradeResponse = service.executeTrade("response", buy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public byte[] account() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(service.getAccount(ACCOUNT_ID));
+    }
+
+    @Benchmark
+    public byte[] tradeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tradeResponse);
+    }
+
+    @Benchmark
+    public byte[] transactionPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(service.getTransactions(ACCOUNT_ID, null, PAGE_SIZE));
+    }
+
+    private static TradeRequest request(String type) {
+        TradeRequest request = new TradeRequest();
+        request.setType(type);
+        request.setSymbol("ETH");
+        request.setAmount(0.01);
+        return request;
+    }
+}
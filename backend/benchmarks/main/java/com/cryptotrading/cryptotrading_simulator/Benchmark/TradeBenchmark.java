@@ -0,0 +1,106 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.PersistenceService;
+import com.cryptotrading.cryptotrading_simulator.Service.RiskService;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks {@link CryptoService#executeTrade(String, TradeRequest)}.
+ * <p>
+ * Every invocation is a buy followed by a sell of the same amount, so the account keeps its balance and the trades
+ * never start failing. Prices do not move during a run. The contended variant has all threads trade on one account,
+ * and therefore on one shard; the uncontended variants give every thread its own account.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TradeBenchmark {
+
+    /* Account traded on by every thread of the contended benchmark */
+    private static final String SHARED_ACCOUNT_ID = "shared";
+
+    /**
+     * The trading engine, shared by all benchmark threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        CryptoService service;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            TradingProperties properties = new TradingProperties();
+            properties.getPersistence().setEnabled(false);
+            service = new CryptoService(properties, new PersistenceService(properties),
+                    new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * A trader with its own account and pre-built requests.
+     */
+    @State(Scope.Thread)
+    public static class Trader {
+
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        String accountId;
+        TradeRequest buy;
+        TradeRequest sell;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            accountId = "trader-" + NEXT_ID.getAndIncrement();
+            buy = request("buy");
+            sell = request("sell");
+        }
+
+        private static TradeRequest request(String type) {
+            TradeRequest request = new TradeRequest();
+            request.setType(type);
+            request.setSymbol("ETH");
+            request.setAmount(0.01);
+            return request;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void roundTripSingleThread(Engine engine, Trader trader, Blackhole blackhole) {
+        roundTrip(engine, trader, trader.accountId, blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void roundTripOwnAccounts(Engine engine, Trader trader, Blackhole blackhole) {
+        roundTrip(engine, trader, trader.accountId, blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void roundTripSharedAccount(Engine engine, Trader trader, Blackhole blackhole) {
+        roundTrip(engine, trader, SHARED_ACCOUNT_ID, blackhole);
+    }
+
+    private static void roundTrip(Engine engine, Trader trader, String accountId, Blackhole blackhole) {
+        blackhole.consume(engine.service.executeTrade(accountId, trader.buy));
+        blackhole.consume(engine.service.executeTrade(accountId, trader.sell));
+    }
+}
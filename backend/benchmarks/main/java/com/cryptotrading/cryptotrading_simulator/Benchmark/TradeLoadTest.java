@@ -0,0 +1,214 @@
+package com.cryptotrading.cryptotrading_simulator.Benchmark;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.PersistenceService;
+import com.cryptotrading.cryptotrading_simulator.Service.RiskService;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Compares the latency of trades under many concurrent clients for three ways of handling requests.
+ * <p>
+ * The models are:
+ * </p>
+ * <ul>
+ *     <li>blocking: a pool of 200 request threads, as many as Tomcat has by default. Each thread runs
+ *     {@link CryptoService#executeTrade(String, TradeRequest)} and is held until the shard has executed the trade
+ *     and the journal has made it durable.</li>
+ *     <li>async: the same pool, but each thread runs {@link CryptoService#executeTradeAsync(String, TradeRequest)}
+ *     and is released right away. The response is completed by the journal's flush.</li>
+ *     <li>virtual: one virtual thread per request, running the blocking call. Only on Java 21 or later.</li>
+ * </ul>
+ * <p>
+ * Every client has its own account and sends its next trade as soon as the previous one is answered, alternating
+ * buys and sells. Persistence is enabled in a temporary directory, so every trade waits for a group commit like in
+ * production. For every model and number of clients, the test reports the throughput, the latency percentiles from
+ * handing the request to the pool to the response, and the peak number of live platform threads.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.cryptotrading.cryptotrading_simulator.Benchmark.TradeLoadTest
+ * [seconds per run] [client counts...]}, e.g. {@code TradeLoadTest 10 100 1000 10000}.
+ * </p>
+ */
+public class TradeLoadTest {
+
+    /* Default maximum number of Tomcat request threads */
+    private static final int REQUEST_THREADS = 200;
+
+    /* Most latencies kept per run; later responses are counted but not sampled */
+    private static final int MAX_SAMPLES = 1 << 23;
+
+    /**
+     * Runs every model with every number of clients.
+     *
+     * @param args the seconds per run and the client counts
+     * @throws Exception if the journal directory cannot be created or a run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int[] clientCounts = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{100, 1000, 10000};
+        System.out.printf("%-9s %8s %12s %10s %10s %10s %8s%n",
+                "model", "clients", "trades/s", "p50 ms", "p99 ms", "p99.9 ms", "threads");
+        for (String model : new String[]{"blocking", "async", "virtual"}) {
+            ExecutorService requests = requestExecutor(model);
+            if (requests == null) {
+                System.out.printf("%-9s needs Java 21 or later%n", model);
+                continue;
+            }
+            for (int clients : clientCounts) {
+                run(model, requests, clients, seconds);
+            }
+            requests.shutdownNow();
+        }
+    }
+
+    private static ExecutorService requestExecutor(String model) {
+        if (!"virtual".equals(model)) {
+            return Executors.newFixedThreadPool(REQUEST_THREADS);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static void run(String model, ExecutorService requests, int clients, int seconds) throws Exception {
+        Path directory = Files.createTempDirectory("trade-load-test");
+        TradingProperties properties = new TradingProperties();
+        properties.getHistory().setCapacity(100);
+        properties.getPersistence().setDirectory(directory.toString());
+        PersistenceService persistence = new PersistenceService(properties);
+        CryptoService service = new CryptoService(properties, persistence,
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        try {
+            Run run = new Run(model, service, requests, clients, TimeUnit.SECONDS.toNanos(seconds));
+            run.execute();
+            run.report();
+        } finally {
+            service.shutdown();
+            persistence.close();
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * One run of a model with a fixed number of closed-loop clients.
+     */
+    private static final class Run {
+
+        private final String model;
+        private final CryptoService service;
+        private final ExecutorService requests;
+        private final int clients;
+        private final long durationNanos;
+        private final TradeRequest buy = request("buy");
+        private final TradeRequest sell = request("sell");
+        private final long[] samples = new long[MAX_SAMPLES];
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile long measureFrom;
+        private volatile long stopAt;
+
+        Run(String model, CryptoService service, ExecutorService requests, int clients, long durationNanos) {
+            this.model = model;
+            this.service = service;
+            this.requests = requests;
+            this.clients = clients;
+            this.durationNanos = durationNanos;
+        }
+
+        void execute() throws InterruptedException {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long start = System.nanoTime();
+            // The first fifth of the run warms up and is not measured
+            measureFrom = start + durationNanos / 5;
+            stopAt = measureFrom + durationNanos;
+            threads.resetPeakThreadCount();
+            running.set(clients);
+            for (int client = 0; client < clients; client++) {
+                send("client-" + client, 0);
+            }
+            while (running.get() > 0) {
+                Thread.sleep(10);
+            }
+        }
+
+        /* Hands the next trade of a client to the request executor */
+        private void send(String accountId, long trade) {
+            long sent = System.nanoTime();
+            if (sent >= stopAt) {
+                running.decrementAndGet();
+                return;
+            }
+            TradeRequest request = trade % 2 == 0 ? buy : sell;
+            if ("async".equals(model)) {
+                requests.execute(() -> service.executeTradeAsync(accountId, request)
+                        .thenAccept(response -> answered(accountId, trade, sent, response)));
+            } else {
+                requests.execute(() -> answered(accountId, trade, sent, service.executeTrade(accountId, request)));
+            }
+        }
+
+        private void answered(String accountId, long trade, long sent, TradeResponse response) {
+            long now = System.nanoTime();
+            if (sent >= measureFrom && response.isSuccess()) {
+                int index = completed.getAndIncrement();
+                if (index < samples.length) {
+                    samples[index] = now - sent;
+                }
+            }
+            send(accountId, trade + 1);
+        }
+
+        void report() {
+            int count = completed.get();
+            long[] sorted = Arrays.copyOf(samples, Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            System.out.printf("%-9s %8d %12.0f %10.2f %10.2f %10.2f %8d%n", model, clients,
+                    count / (durationNanos / 1e9), percentile(sorted, 0.5), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * quantile))] / 1e6;
+        }
+
+        private static TradeRequest request(String type) {
+            TradeRequest request = new TradeRequest();
+            request.setType(type);
+            request.setSymbol("ETH");
+            request.setAmount(0.0001);
+            return request;
+        }
+    }
+}
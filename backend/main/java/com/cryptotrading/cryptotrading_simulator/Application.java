@@ -1,11 +1,14 @@
 package com.cryptotrading.cryptotrading_simulator;
 
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableConfigurationProperties(TradingProperties.class)
 public class Application {
 	public static void main(String[] args) {
 		SpringApplication.run(Application.class, args);
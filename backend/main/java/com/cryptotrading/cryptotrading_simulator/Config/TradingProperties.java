@@ -0,0 +1,264 @@
+package com.cryptotrading.cryptotrading_simulator.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The {@code trading.*} settings of the account engine: shards, history, persistence, off-heap accounts, risk
+ * limits and the client order id cache. Every setting has a default, so a new instance is a valid configuration
+ * for tools, benchmarks and tests.
+ */
+@ConfigurationProperties(prefix = "trading")
+public class TradingProperties {
+
+    private final Engine engine = new Engine();
+    private final History history = new History();
+    private final Persistence persistence = new Persistence();
+    private final Accounts accounts = new Accounts();
+    private final Risk risk = new Risk();
+    private final ClientOrders clientOrders = new ClientOrders();
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public Persistence getPersistence() {
+        return persistence;
+    }
+
+    public Accounts getAccounts() {
+        return accounts;
+    }
+
+    public Risk getRisk() {
+        return risk;
+    }
+
+    public ClientOrders getClientOrders() {
+        return clientOrders;
+    }
+
+    /** Settings of the account shards */
+    public static class Engine {
+
+        /* Number of account shards, 0 for one shard per available processor */
+        private int shards;
+
+        public int getShards() {
+            return shards;
+        }
+
+        public void setShards(int shards) {
+            this.shards = shards;
+        }
+    }
+
+    /** Settings of the transaction history */
+    public static class History {
+
+        /* Maximum number of transactions retained per account */
+        private int capacity = 10000;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /** Settings of the journals and snapshots */
+    public static class Persistence {
+
+        /* Whether accounts are journaled and snapshotted */
+        private boolean enabled = true;
+
+        /* Directory holding the journal and snapshot files */
+        private String directory = "data";
+
+        /* Size of a journal segment in megabytes */
+        private int segmentSizeMb = 64;
+
+        /* Group commit interval in milliseconds */
+        private long flushIntervalMs = 2;
+
+        /* Interval between account snapshots in milliseconds, read by the snapshot schedule */
+        private long snapshotIntervalMs = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentSizeMb() {
+            return segmentSizeMb;
+        }
+
+        public void setSegmentSizeMb(int segmentSizeMb) {
+            this.segmentSizeMb = segmentSizeMb;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public long getSnapshotIntervalMs() {
+            return snapshotIntervalMs;
+        }
+
+        public void setSnapshotIntervalMs(long snapshotIntervalMs) {
+            this.snapshotIntervalMs = snapshotIntervalMs;
+        }
+    }
+
+    /** Settings of the account storage */
+    public static class Accounts {
+
+        private final OffHeap offHeap = new OffHeap();
+
+        public OffHeap getOffHeap() {
+            return offHeap;
+        }
+    }
+
+    /** Settings of the off-heap account stores, which are not persisted */
+    public static class OffHeap {
+
+        /* Whether the accounts are kept in off-heap stores */
+        private boolean enabled;
+
+        /* Directory of the memory-mapped stores, empty for direct memory */
+        private String directory = "";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    /** Pre-trade risk limits; a limit of 0 disables its check */
+    public static class Risk {
+
+        /* Largest notional of a single order */
+        private double maxOrderNotional;
+
+        /* Largest notional of the position in one symbol after a buy */
+        private double maxPositionNotional;
+
+        /* Number of orders an account may submit per second */
+        private double maxOrdersPerSecond;
+
+        /* Drop of an account's total value from its peak, in percent, that blocks further buys */
+        private double maxDrawdownPercent;
+
+        /* Largest distance of a limit or stop price from the last tick, in percent */
+        private double priceBandPercent;
+
+        public double getMaxOrderNotional() {
+            return maxOrderNotional;
+        }
+
+        public void setMaxOrderNotional(double maxOrderNotional) {
+            this.maxOrderNotional = maxOrderNotional;
+        }
+
+        public double getMaxPositionNotional() {
+            return maxPositionNotional;
+        }
+
+        public void setMaxPositionNotional(double maxPositionNotional) {
+            this.maxPositionNotional = maxPositionNotional;
+        }
+
+        public double getMaxOrdersPerSecond() {
+            return maxOrdersPerSecond;
+        }
+
+        public void setMaxOrdersPerSecond(double maxOrdersPerSecond) {
+            this.maxOrdersPerSecond = maxOrdersPerSecond;
+        }
+
+        public double getMaxDrawdownPercent() {
+            return maxDrawdownPercent;
+        }
+
+        public void setMaxDrawdownPercent(double maxDrawdownPercent) {
+            this.maxDrawdownPercent = maxDrawdownPercent;
+        }
+
+        public double getPriceBandPercent() {
+            return priceBandPercent;
+        }
+
+        public void setPriceBandPercent(double priceBandPercent) {
+            this.priceBandPercent = priceBandPercent;
+        }
+    }
+
+    /** Settings of the cache remembering the trades of client order ids */
+    public static class ClientOrders {
+
+        /* Time the trade executed for a client order id is remembered, in milliseconds */
+        private long ttlMs = 600000;
+
+        /* Most client order ids remembered per account */
+        private int maxPerAccount = 1000;
+
+        /* Most client order ids remembered per shard */
+        private int maxPerShard = 100000;
+
+        public long getTtlMs() {
+            return ttlMs;
+        }
+
+        public void setTtlMs(long ttlMs) {
+            this.ttlMs = ttlMs;
+        }
+
+        public int getMaxPerAccount() {
+            return maxPerAccount;
+        }
+
+        public void setMaxPerAccount(int maxPerAccount) {
+            this.maxPerAccount = maxPerAccount;
+        }
+
+        public int getMaxPerShard() {
+            return maxPerShard;
+        }
+
+        public void setMaxPerShard(int maxPerShard) {
+            this.maxPerShard = maxPerShard;
+        }
+    }
+}
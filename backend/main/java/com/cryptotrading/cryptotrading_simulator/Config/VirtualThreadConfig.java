@@ -0,0 +1,51 @@
+package com.cryptotrading.cryptotrading_simulator.Config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every Tomcat request on its own virtual thread when the {@code virtual-threads} profile is active, instead of
+ * on the fixed pool of platform threads.
+ * <p>
+ * The application is built for Java 11, so the configuration is opt-in through its profile and the virtual thread
+ * executor is looked up at runtime. On a Java runtime without virtual threads the profile is ignored with a warning
+ * and Tomcat keeps its pool.
+ * </p>
+ */
+@Configuration
+@Profile(VirtualThreadConfig.PROFILE)
+public class VirtualThreadConfig {
+
+    /* Profile enabling virtual threads */
+    public static final String PROFILE = "virtual-threads";
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutor() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+                log.info("Handling web requests on virtual threads");
+            }
+        };
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads need Java 21 or later, using the Tomcat thread pool");
+            return null;
+        }
+    }
+}
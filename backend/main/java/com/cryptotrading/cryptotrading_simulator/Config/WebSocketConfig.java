@@ -0,0 +1,23 @@
+package com.cryptotrading.cryptotrading_simulator.Config;
+
+import com.cryptotrading.cryptotrading_simulator.Controller.PriceStreamHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final PriceStreamHandler priceStreamHandler;
+
+    public WebSocketConfig(PriceStreamHandler priceStreamHandler) {
+        this.priceStreamHandler = priceStreamHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(priceStreamHandler, "/ws/prices")
+                .setAllowedOrigins("*");
+    }
+}
@@ -3,16 +3,20 @@ package com.cryptotrading.cryptotrading_simulator.Controller;
 import com.cryptotrading.cryptotrading_simulator.Model.*;
 import com.cryptotrading.cryptotrading_simulator.Service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The CryptoController class provides the RESTful API endpoints for managing cryptocurrency trades
  * and interacting with the user's account in the crypto trading simulator.
  * <p>
- * It exposes endpoints to get the list of cryptocurrencies, execute trades, reset accounts, and
- * retrieve account information.
+ * It exposes endpoints to get the list of cryptocurrencies, execute trades, reset accounts,
+ * retrieve account information and manage resting orders. The {@code /accounts/{id}} endpoints address any
+ * account by id; the original single-account endpoints operate on the default account. The leaderboard endpoints
+ * rank all accounts by total value or realized profit or loss.
  * </p>
  */
 @RestController
@@ -20,15 +24,18 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class CryptoController {
     private final CryptoService cryptoService;
+    private final OrderService orderService;
 
     /**
-     * Constructor to initialize the CryptoController with the CryptoService.
+     * Constructor to initialize the CryptoController with the CryptoService and the OrderService.
      *
      * @param cryptoService the service used to interact with cryptocurrency data and perform trades
+     * @param orderService the service placing and cancelling resting orders
      */
     @Autowired
-    public CryptoController(CryptoService cryptoService) {
+    public CryptoController(CryptoService cryptoService, OrderService orderService) {
         this.cryptoService = cryptoService;
+        this.orderService = orderService;
     }
 
     /**
@@ -42,14 +49,50 @@ public class CryptoController {
     }
 
     /**
-     * Endpoint to execute a trade based on the provided trade request.
+     * Endpoint to retrieve the OHLCV candles of a cryptocurrency, oldest first.
+     *
+     * @param symbol the symbol of the cryptocurrency
+     * @param interval the candle interval: 1s, 1m, 5m or 1h
+     * @param from the inclusive start of the range in epoch milliseconds
+     * @param to the inclusive end of the range in epoch milliseconds
+     * @param limit the maximum number of candles; the newest ones are returned if the range holds more
+     * @return the candles, 400 if the interval is not supported, or 404 if the symbol is unknown
+     */
+    @GetMapping("/cryptos/{symbol}/candles")
+    public ResponseEntity<List<Candle>> getCandles(@PathVariable String symbol,
+                                                  @RequestParam(defaultValue = "1m") String interval,
+                                                  @RequestParam(defaultValue = "0") long from,
+                                                  @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+                                                  @RequestParam(defaultValue = "500") int limit) {
+        if (!CandleStore.isSupported(interval)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Candle> candles = cryptoService.getCandles(symbol, interval, from, to, limit);
+        return candles == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(candles);
+    }
+
+    /**
+     * Endpoint to execute a trade based on the provided trade request. The request thread is released while the
+     * trade waits for its shard and the journal.
      *
      * @param request the trade request containing the details of the trade to be executed
      * @return a TradeResponse object containing the details of the executed trade
      */
     @PostMapping("/trade")
-    public TradeResponse executeTrade(@RequestBody TradeRequest request) {
-        return cryptoService.executeTrade(request);
+    public CompletableFuture<TradeResponse> executeTrade(@RequestBody TradeRequest request) {
+        return cryptoService.executeTradeAsync(CryptoService.DEFAULT_ACCOUNT_ID, request);
+    }
+
+    /**
+     * Endpoint to execute a batch of trades on the default account. The legs are priced against one snapshot and
+     * applied all-or-nothing.
+     *
+     * @param legs the trades of the batch, executed in order
+     * @return a BatchTradeResponse with the changes to the account, or naming the leg that failed
+     */
+    @PostMapping("/trades/batch")
+    public BatchTradeResponse executeBatch(@RequestBody List<TradeRequest> legs) {
+        return cryptoService.executeBatch(CryptoService.DEFAULT_ACCOUNT_ID, legs);
     }
 
     /**
@@ -71,4 +114,198 @@ public class CryptoController {
     public Account getAccount() {
         return cryptoService.getAccount();
     }
+
+    /**
+     * Endpoint to execute a trade on the given account. The request thread is released while the trade waits for
+     * its shard and the journal.
+     *
+     * @param id the id of the account to trade on
+     * @param request the trade request containing the details of the trade to be executed
+     * @return a TradeResponse object containing the details of the executed trade
+     */
+    @PostMapping("/accounts/{id}/trade")
+    public CompletableFuture<TradeResponse> executeTrade(@PathVariable String id, @RequestBody TradeRequest request) {
+        return cryptoService.executeTradeAsync(id, request);
+    }
+
+    /**
+     * Endpoint to execute a batch of trades on the given account, all-or-nothing.
+     *
+     * @param id the id of the account to trade on
+     * @param legs the trades of the batch, executed in order
+     * @return a BatchTradeResponse with the changes to the account, or naming the leg that failed
+     */
+    @PostMapping("/accounts/{id}/trades/batch")
+    public BatchTradeResponse executeBatch(@PathVariable String id, @RequestBody List<TradeRequest> legs) {
+        return cryptoService.executeBatch(id, legs);
+    }
+
+    /**
+     * Endpoint to reset the given account and return the updated account information.
+     *
+     * @param id the id of the account to reset
+     * @return the updated Account object after the reset
+     */
+    @PostMapping("/accounts/{id}/reset")
+    public Account resetAccount(@PathVariable String id) {
+        return cryptoService.resetAccount(id);
+    }
+
+    /**
+     * Endpoint to retrieve the account information of the given account.
+     * Accounts are created by their first trade, order or reset, never by reading them.
+     *
+     * @param id the account id
+     * @return the Account object containing the account details, or 404 if the account does not exist
+     */
+    @GetMapping("/accounts/{id}")
+    public ResponseEntity<Account> getAccount(@PathVariable String id) {
+        Account account = cryptoService.getAccount(id);
+        return account == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(account);
+    }
+
+    /**
+     * Endpoint to retrieve the best ranked accounts.
+     *
+     * @param metric the score accounts are ranked by: totalValue or realizedProfitLoss
+     * @param limit the maximum number of accounts to return
+     * @return the best accounts with their ranks, best first, or 400 if the metric is not supported
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<LeaderboardEntry>> getLeaderboard(
+            @RequestParam(defaultValue = Leaderboard.TOTAL_VALUE) String metric,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!Leaderboard.isSupported(metric)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(cryptoService.getLeaderboard(metric, limit));
+    }
+
+    /**
+     * Endpoint to retrieve the rank of the given account.
+     *
+     * @param id the account id
+     * @param metric the score accounts are ranked by: totalValue or realizedProfitLoss
+     * @return the rank and scores of the account, 400 if the metric is not supported, or 404 if the account does not
+     *         exist or accounts are not ranked because they are kept off-heap
+     */
+    @GetMapping("/accounts/{id}/rank")
+    public ResponseEntity<LeaderboardEntry> getRank(@PathVariable String id,
+                                                    @RequestParam(defaultValue = Leaderboard.TOTAL_VALUE)
+                                                    String metric) {
+        if (!Leaderboard.isSupported(metric)) {
+            return ResponseEntity.badRequest().build();
+        }
+        LeaderboardEntry entry = cryptoService.getRank(metric, id);
+        return entry == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(entry);
+    }
+
+    /**
+     * Endpoint to retrieve a page of the default account's transaction history, newest first.
+     *
+     * @param before the cursor returned with the previous page, or absent for the newest transactions
+     * @param limit the maximum number of transactions to return
+     * @return the page of transactions and the cursor of the next page
+     */
+    @GetMapping("/transactions")
+    public TransactionPage getTransactions(@RequestParam(required = false) Long before,
+                                           @RequestParam(defaultValue = "50") int limit) {
+        return cryptoService.getTransactions(CryptoService.DEFAULT_ACCOUNT_ID, before, limit);
+    }
+
+    /**
+     * Endpoint to retrieve a page of the given account's transaction history, newest first.
+     *
+     * @param id the account id
+     * @param before the cursor returned with the previous page, or absent for the newest transactions
+     * @param limit the maximum number of transactions to return
+     * @return the page of transactions and the cursor of the next page, or 404 if the account does not exist
+     */
+    @GetMapping("/accounts/{id}/transactions")
+    public ResponseEntity<TransactionPage> getTransactions(@PathVariable String id,
+                                                           @RequestParam(required = false) Long before,
+                                                           @RequestParam(defaultValue = "50") int limit) {
+        TransactionPage page = cryptoService.getTransactions(id, before, limit);
+        return page == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(page);
+    }
+
+    /**
+     * Endpoint to place a resting limit, stop or stop-limit order on the default account.
+     *
+     * @param request the order details (type, symbol, amount, order type, limit and stop price)
+     * @return the placed order, with status "rejected" and a message if the request is invalid
+     */
+    @PostMapping("/orders")
+    public Order placeOrder(@RequestBody TradeRequest request) {
+        return orderService.placeOrder(CryptoService.DEFAULT_ACCOUNT_ID, request);
+    }
+
+    /**
+     * Endpoint to retrieve the open orders of the default account.
+     *
+     * @return the open orders in placement order
+     */
+    @GetMapping("/orders")
+    public List<Order> getOpenOrders() {
+        return orderService.getOpenOrders(CryptoService.DEFAULT_ACCOUNT_ID);
+    }
+
+    /**
+     * Endpoint to cancel an open order of the default account.
+     *
+     * @param orderId the id of the order
+     * @return the cancelled order, or 404 if there is no open order with that id
+     */
+    @DeleteMapping("/orders/{orderId}")
+    public ResponseEntity<Order> cancelOrder(@PathVariable long orderId) {
+        return cancelOrder(CryptoService.DEFAULT_ACCOUNT_ID, orderId);
+    }
+
+    /**
+     * Endpoint to place a resting limit, stop or stop-limit order on the given account.
+     *
+     * @param id the account id
+     * @param request the order details (type, symbol, amount, order type, limit and stop price)
+     * @return the placed order, with status "rejected" and a message if the request is invalid
+     */
+    @PostMapping("/accounts/{id}/orders")
+    public Order placeOrder(@PathVariable String id, @RequestBody TradeRequest request) {
+        return orderService.placeOrder(id, request);
+    }
+
+    /**
+     * Endpoint to retrieve the open orders of the given account.
+     *
+     * @param id the account id
+     * @return the open orders in placement order, or 404 if the account does not exist
+     */
+    @GetMapping("/accounts/{id}/orders")
+    public ResponseEntity<List<Order>> getOpenOrders(@PathVariable String id) {
+        List<Order> orders = orderService.getOpenOrders(id);
+        return orders == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(orders);
+    }
+
+    /**
+     * Endpoint to cancel an open order of the given account.
+     *
+     * @param id the account id
+     * @param orderId the id of the order
+     * @return the cancelled order, or 404 if the account has no open order with that id
+     */
+    @DeleteMapping("/accounts/{id}/orders/{orderId}")
+    public ResponseEntity<Order> cancelOrder(@PathVariable String id, @PathVariable long orderId) {
+        Order order = orderService.cancelOrder(id, orderId);
+        return order == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(order);
+    }
+
+    /**
+     * Answers requests the service rejects as invalid, such as a reset of an account whose id is too long.
+     *
+     * @param e the exception thrown by the service
+     * @return 400 with the reason
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
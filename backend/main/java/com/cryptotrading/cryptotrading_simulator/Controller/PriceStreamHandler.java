@@ -0,0 +1,242 @@
+package com.cryptotrading.cryptotrading_simulator.Controller;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Cryptocurrency;
+import com.cryptotrading.cryptotrading_simulator.Model.LeaderboardEntry;
+import com.cryptotrading.cryptotrading_simulator.Model.PortfolioValuation;
+import com.cryptotrading.cryptotrading_simulator.Service.CryptoService;
+import com.cryptotrading.cryptotrading_simulator.Service.Leaderboard;
+import com.cryptotrading.cryptotrading_simulator.Service.PriceListener;
+import com.cryptotrading.cryptotrading_simulator.Service.PriceSnapshotStore;
+import com.cryptotrading.cryptotrading_simulator.Service.ValuationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PriceStreamHandler pushes price updates to WebSocket clients connected to {@code /ws/prices}.
+ * <p>
+ * A client first receives the full snapshot, then only the symbols that changed, as compact delta frames.
+ * Every client has its own {@link PriceStreamSubscriber} that conflates ticks per symbol, so a slow client receives
+ * the latest prices rather than a growing backlog and never holds up the feed thread or other clients.
+ * </p>
+ * <p>
+ * A client connecting with {@code ?account=<id>} also receives the valuation of that account whenever it changes.
+ * A client connecting with {@code ?leaderboard=<metric>&top=<n>} also receives the top n accounts by that metric;
+ * the leaderboards are read at most once per interval, and only if a score changed, and every client is sent only
+ * the ranks whose account or score changed since its previous frame.
+ * </p>
+ */
+@Component
+public class PriceStreamHandler extends TextWebSocketHandler implements PriceListener, ValuationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceStreamHandler.class);
+
+    /* Time limit for a single send before a client is considered stuck */
+    private static final int SEND_TIME_LIMIT_MILLIS = 10000;
+
+    /* Maximum bytes buffered for a client while a send is in progress */
+    private static final int BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    /* Number of leaderboard ranks pushed to a client that does not ask for a number */
+    private static final int DEFAULT_LEADERBOARD_SIZE = 10;
+
+    /* Largest number of leaderboard ranks pushed to a client */
+    private static final int MAX_LEADERBOARD_SIZE = 100;
+
+    /* Service providing the account valuations */
+    private final CryptoService cryptoService;
+
+    /* Store providing the snapshot and the ticks */
+    private final PriceSnapshotStore priceStore;
+
+    /* Connected clients, keyed by session id */
+    private final Map<String, PriceStreamSubscriber> subscribers = new ConcurrentHashMap<>();
+
+    /* Clients watching an account, keyed by account id */
+    private final Map<String, Set<PriceStreamSubscriber>> accountSubscribers = new ConcurrentHashMap<>();
+
+    /* Clients watching a leaderboard, keyed by session id */
+    private final Map<String, PriceStreamSubscriber> leaderboardSubscribers = new ConcurrentHashMap<>();
+
+    /* Leaderboard version of the last push (push task only) */
+    private long pushedLeaderboardVersion = -1;
+
+    /* Threads sending the delta frames */
+    private final ScheduledExecutorService flushExecutor;
+
+    /* Delay used to batch ticks into one frame */
+    private final long flushDelayMillis;
+
+    /**
+     * Constructs a PriceStreamHandler and subscribes it to the price store and the account valuations.
+     *
+     * @param cryptoService the service owning the price store
+     * @param flushThreads the number of threads sending frames to clients
+     * @param flushDelayMillis the delay used to batch ticks into one frame
+     * @param leaderboardIntervalMillis the interval between reads of the leaderboards pushed to clients
+     */
+    public PriceStreamHandler(CryptoService cryptoService,
+                              @Value("${price-stream.flush-threads:2}") int flushThreads,
+                              @Value("${price-stream.flush-delay-ms:100}") long flushDelayMillis,
+                              @Value("${price-stream.leaderboard-interval-ms:1000}") long leaderboardIntervalMillis) {
+        this.cryptoService = cryptoService;
+        this.priceStore = cryptoService.getPriceStore();
+        this.flushDelayMillis = flushDelayMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flushExecutor = Executors.newScheduledThreadPool(flushThreads, runnable -> {
+            Thread thread = new Thread(runnable, "price-stream-flush-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        priceStore.addListener(this);
+        cryptoService.addValuationListener(this);
+        flushExecutor.scheduleWithFixedDelay(this::pushLeaderboards, leaderboardIntervalMillis,
+                leaderboardIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a new client and queues the full snapshot for it, the valuation of the account it watches and the
+     * leaderboard it watches.
+     *
+     * @param session the WebSocket session of the client
+     */
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MILLIS, BUFFER_SIZE_LIMIT);
+        Map<String, String> query = session.getUri() == null ? Map.of()
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().toSingleValueMap();
+        String accountId = query.get("account");
+        String leaderboard = Leaderboard.isSupported(query.get("leaderboard")) ? query.get("leaderboard") : null;
+        int leaderboardSize = DEFAULT_LEADERBOARD_SIZE;
+        try {
+            if (query.containsKey("top")) {
+                leaderboardSize = Math.max(1, Math.min(Integer.parseInt(query.get("top")), MAX_LEADERBOARD_SIZE));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid leaderboard size {} of {}", query.get("top"), session.getId());
+        }
+        PriceStreamSubscriber subscriber = new PriceStreamSubscriber(concurrentSession, accountId, leaderboard,
+                leaderboardSize, priceStore.size(), flushExecutor, flushDelayMillis, cryptoService.getMetrics());
+        subscribers.put(session.getId(), subscriber);
+        subscriber.offerSnapshot(priceStore.snapshot());
+        if (accountId != null) {
+            accountSubscribers.computeIfAbsent(accountId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            cryptoService.watchAccount(accountId);
+        }
+        if (leaderboard != null) {
+            leaderboardSubscribers.put(session.getId(), subscriber);
+            subscriber.offerLeaderboard(cryptoService.getLeaderboard(leaderboard, leaderboardSize));
+        }
+    }
+
+    /**
+     * Removes a disconnected client.
+     *
+     * @param session the WebSocket session of the client
+     * @param status the close status
+     */
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        PriceStreamSubscriber subscriber = subscribers.remove(session.getId());
+        leaderboardSubscribers.remove(session.getId());
+        String accountId = subscriber == null ? null : subscriber.getAccountId();
+        if (accountId != null) {
+            accountSubscribers.computeIfPresent(accountId, (id, watchers) -> {
+                watchers.remove(subscriber);
+                return watchers.isEmpty() ? null : watchers;
+            });
+            cryptoService.unwatchAccount(accountId);
+        }
+    }
+
+    /**
+     * Passes a published tick to every connected client.
+     *
+     * @param symbolId the id of the symbol
+     * @param tick the published tick
+     */
+    @Override
+    public void onTick(int symbolId, Cryptocurrency tick) {
+        for (PriceStreamSubscriber subscriber : subscribers.values()) {
+            subscriber.offer(symbolId, tick);
+        }
+    }
+
+    /**
+     * Passes a valuation to the clients watching the account.
+     *
+     * @param accountId the id of the account
+     * @param valuation the new valuation
+     */
+    @Override
+    public void onValuation(String accountId, PortfolioValuation valuation) {
+        Set<PriceStreamSubscriber> watchers = accountSubscribers.get(accountId);
+        if (watchers != null) {
+            for (PriceStreamSubscriber subscriber : watchers) {
+                subscriber.offerValuation(valuation);
+            }
+        }
+    }
+
+    /**
+     * Reads the leaderboards the clients watch and passes them on, if any score changed since the previous push. Every
+     * leaderboard is read once, at the largest size any of its clients asked for. Runs on the flush executor.
+     */
+    private void pushLeaderboards() {
+        try {
+            if (leaderboardSubscribers.isEmpty()) {
+                return;
+            }
+            long version = cryptoService.getLeaderboardVersion();
+            if (version == pushedLeaderboardVersion) {
+                return;
+            }
+            pushedLeaderboardVersion = version;
+            Map<String, Integer> sizes = new HashMap<>();
+            for (PriceStreamSubscriber subscriber : leaderboardSubscribers.values()) {
+                sizes.merge(subscriber.getLeaderboard(), subscriber.getLeaderboardSize(), Math::max);
+            }
+            Map<String, List<LeaderboardEntry>> leaderboards = new HashMap<>();
+            for (Map.Entry<String, Integer> size : sizes.entrySet()) {
+                leaderboards.put(size.getKey(), cryptoService.getLeaderboard(size.getKey(), size.getValue()));
+            }
+            for (PriceStreamSubscriber subscriber : leaderboardSubscribers.values()) {
+                List<LeaderboardEntry> top = leaderboards.get(subscriber.getLeaderboard());
+                if (top != null) {
+                    subscriber.offerLeaderboard(top.subList(0, Math.min(top.size(), subscriber.getLeaderboardSize())));
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic push
+            log.error("Error pushing leaderboards", e);
+        }
+    }
+
+    /**
+     * Unsubscribes from the price store and closes all clients when the application is shutting down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        priceStore.removeListener(this);
+        subscribers.values().forEach(PriceStreamSubscriber::close);
+        flushExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,329 @@
+package com.cryptotrading.cryptotrading_simulator.Controller;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Cryptocurrency;
+import com.cryptotrading.cryptotrading_simulator.Model.LeaderboardEntry;
+import com.cryptotrading.cryptotrading_simulator.Model.PortfolioValuation;
+import com.cryptotrading.cryptotrading_simulator.Service.Leaderboard;
+import com.cryptotrading.cryptotrading_simulator.Service.TradingMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A PriceStreamSubscriber conflates price ticks for one WebSocket client.
+ * <p>
+ * The subscriber keeps one pending slot per symbol. A new tick overwrites the pending tick of its symbol, so no
+ * matter how slowly the client reads, it never has more than one undelivered tick per symbol and always receives
+ * the latest price. At most one flush per subscriber is scheduled or running at any time; the flush sends all
+ * pending ticks as a single compact delta frame:
+ * {@code {"t":[["BTC",43256.78,1.23,17,1700000000000],...]}} with symbol, price, 24h change, sequence and
+ * timestamp.
+ * </p>
+ * <p>
+ * A client watching an account additionally receives the account's latest valuation, conflated the same way, as
+ * {@code "v":{"balance":...,"marketValue":...,"unrealizedProfitLoss":...,"realizedProfitLoss":...,"totalValue":...}}
+ * in the same frame.
+ * </p>
+ * <p>
+ * A client watching a leaderboard receives the ranks whose account or score changed since its previous frame as
+ * {@code "l":[[1,"alice",12345.67],...]} with rank, account id and score. Only the latest offered leaderboard is
+ * kept, and it is compared with the last one sent, so a slow client skips intermediate leaderboards but always ends
+ * up with the current one.
+ * </p>
+ */
+class PriceStreamSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceStreamSubscriber.class);
+
+    /* WebSocket session of the client */
+    private final WebSocketSession session;
+
+    /* Executor running the flushes */
+    private final ScheduledExecutorService flushExecutor;
+
+    /* Delay between the first pending tick and the flush, used to batch bursts into one frame */
+    private final long flushDelayMillis;
+
+    /* Latest undelivered tick per symbol id, null if nothing is pending */
+    private final AtomicReferenceArray<Cryptocurrency> pending;
+
+    /* Number of non-null pending slots */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /* Id of the watched account, null if the client watches none */
+    private final String accountId;
+
+    /* Latest undelivered valuation of the watched account, null if nothing is pending */
+    private final AtomicReference<PortfolioValuation> pendingValuation = new AtomicReference<>();
+
+    /* Metric of the watched leaderboard, null if the client watches none */
+    private final String leaderboard;
+
+    /* Number of ranks of the watched leaderboard */
+    private final int leaderboardSize;
+
+    /* Latest undelivered leaderboard, null if nothing is pending */
+    private final AtomicReference<List<LeaderboardEntry>> pendingLeaderboard = new AtomicReference<>();
+
+    /* Leaderboard as last sent to the client (flush only) */
+    private List<LeaderboardEntry> sentLeaderboard = Collections.emptyList();
+
+    /* Whether a flush is scheduled or running */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /* Metrics recording the time from publishing a tick to sending it */
+    private final TradingMetrics metrics;
+
+    /* Time the client connected, in epoch milliseconds; older ticks belong to the snapshot and are not timed */
+    private final long connectedMillis = System.currentTimeMillis();
+
+    /* Publish timestamps of the ticks in the frame being sent (flush only) */
+    private final long[] drainedTimestamps;
+    private int drainedCount;
+
+    /**
+     * Constructs a PriceStreamSubscriber.
+     *
+     * @param session the WebSocket session of the client
+     * @param accountId the id of the account the client watches, or null
+     * @param leaderboard the metric of the leaderboard the client watches, or null
+     * @param leaderboardSize the number of ranks of the watched leaderboard
+     * @param symbolCount the number of symbols in the price store
+     * @param flushExecutor the executor running the flushes
+     * @param flushDelayMillis the delay used to batch ticks into one frame
+     * @param metrics the metrics recording the time from publishing a tick to sending it
+     */
+    PriceStreamSubscriber(WebSocketSession session, String accountId, String leaderboard, int leaderboardSize,
+                          int symbolCount, ScheduledExecutorService flushExecutor, long flushDelayMillis,
+                          TradingMetrics metrics) {
+        this.session = session;
+        this.accountId = accountId;
+        this.leaderboard = leaderboard;
+        this.leaderboardSize = leaderboardSize;
+        this.pending = new AtomicReferenceArray<>(symbolCount);
+        this.drainedTimestamps = new long[symbolCount];
+        this.flushExecutor = flushExecutor;
+        this.flushDelayMillis = flushDelayMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Queues the full price snapshot, sent as the first frame after connecting.
+     *
+     * @param snapshot the latest tick of every symbol, indexed by symbol id
+     */
+    void offerSnapshot(List<Cryptocurrency> snapshot) {
+        for (int id = 0; id < snapshot.size(); id++) {
+            offer(id, snapshot.get(id));
+        }
+    }
+
+    /**
+     * Records a tick for delivery, replacing any undelivered tick of the same symbol.
+     *
+     * @param symbolId the id of the symbol
+     * @param tick the tick
+     */
+    void offer(int symbolId, Cryptocurrency tick) {
+        Cryptocurrency previous;
+        do {
+            previous = pending.get(symbolId);
+            if (previous != null && previous.getSequence() >= tick.getSequence()) {
+                return; // an equal or newer tick is already pending
+            }
+        } while (!pending.compareAndSet(symbolId, previous, tick));
+        if (previous == null) {
+            pendingCount.incrementAndGet();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Records a valuation of the watched account for delivery, replacing any undelivered one. Valuations of an
+     * account are produced in order by its shard, so the latest offer is always the newest.
+     *
+     * @param valuation the valuation
+     */
+    void offerValuation(PortfolioValuation valuation) {
+        pendingValuation.set(valuation);
+        scheduleFlush();
+    }
+
+    /**
+     * Records the current top of the watched leaderboard for delivery, replacing any undelivered one.
+     *
+     * @param top the best accounts with their ranks, best first
+     */
+    void offerLeaderboard(List<LeaderboardEntry> top) {
+        pendingLeaderboard.set(top);
+        scheduleFlush();
+    }
+
+    private boolean hasPending() {
+        return pendingCount.get() > 0 || pendingValuation.get() != null || pendingLeaderboard.get() != null;
+    }
+
+    private void scheduleFlush() {
+        if (scheduled.compareAndSet(false, true)) {
+            flushExecutor.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends all pending ticks as one delta frame. Runs on the flush executor, never concurrently for the same
+     * subscriber.
+     */
+    private void flush() {
+        try {
+            if (session.isOpen() && hasPending()) {
+                String frame = drain();
+                if (frame != null) {
+                    session.sendMessage(new TextMessage(frame));
+                    long sentMillis = System.currentTimeMillis();
+                    for (int i = 0; i < drainedCount; i++) {
+                        metrics.recordTickToPublish(sentMillis - drainedTimestamps[i]);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Usually a client that went away, so the stack trace is left out
+            log.warn("Error sending price update to {}: {}", session.getId(), e.toString());
+            close();
+            return;
+        } finally {
+            scheduled.set(false);
+        }
+        // Ticks that arrived while sending are flushed by a new run
+        if (hasPending()) {
+            scheduleFlush();
+        }
+    }
+
+    private String drain() {
+        StringBuilder frame = new StringBuilder(64 * pendingCount.get() + 8).append("{\"t\":[");
+        boolean first = true;
+        drainedCount = 0;
+        for (int id = 0; id < pending.length(); id++) {
+            Cryptocurrency tick = pending.getAndSet(id, null);
+            if (tick == null) {
+                continue;
+            }
+            pendingCount.decrementAndGet();
+            if (tick.getTimestamp() >= connectedMillis) {
+                drainedTimestamps[drainedCount++] = tick.getTimestamp();
+            }
+            if (!first) {
+                frame.append(',');
+            }
+            first = false;
+            frame.append("[\"").append(tick.getSymbol()).append("\",")
+                    .append(tick.getPrice()).append(',')
+                    .append(tick.getChange24h()).append(',')
+                    .append(tick.getSequence()).append(',')
+                    .append(tick.getTimestamp()).append(']');
+        }
+        frame.append(']');
+        PortfolioValuation valuation = pendingValuation.getAndSet(null);
+        if (valuation != null) {
+            frame.append(",\"v\":{\"balance\":").append(valuation.getBalance())
+                    .append(",\"marketValue\":").append(valuation.getMarketValue())
+                    .append(",\"unrealizedProfitLoss\":").append(valuation.getUnrealizedProfitLoss())
+                    .append(",\"realizedProfitLoss\":").append(valuation.getRealizedProfitLoss())
+                    .append(",\"totalValue\":").append(valuation.getTotalValue()).append('}');
+        }
+        boolean ranksChanged = drainLeaderboard(frame);
+        if (first && valuation == null && !ranksChanged) {
+            return null;
+        }
+        return frame.append('}').toString();
+    }
+
+    /**
+     * Appends the ranks of the pending leaderboard that differ from the last sent one.
+     *
+     * @param frame the frame being built
+     * @return true if any rank was appended
+     */
+    private boolean drainLeaderboard(StringBuilder frame) {
+        List<LeaderboardEntry> top = pendingLeaderboard.getAndSet(null);
+        if (top == null) {
+            return false;
+        }
+        int length = frame.length();
+        frame.append(",\"l\":[");
+        boolean first = true;
+        for (int i = 0; i < top.size(); i++) {
+            LeaderboardEntry entry = top.get(i);
+            LeaderboardEntry sent = i < sentLeaderboard.size() ? sentLeaderboard.get(i) : null;
+            double score = Leaderboard.score(leaderboard, entry);
+            if (sent != null && sent.getAccountId().equals(entry.getAccountId())
+                    && Double.compare(Leaderboard.score(leaderboard, sent), score) == 0) {
+                continue;
+            }
+            if (!first) {
+                frame.append(',');
+            }
+            first = false;
+            frame.append('[').append(entry.getRank()).append(',');
+            appendString(frame, entry.getAccountId());
+            frame.append(',').append(score).append(']');
+        }
+        sentLeaderboard = top;
+        if (first) {
+            frame.setLength(length);
+            return false;
+        }
+        frame.append(']');
+        return true;
+    }
+
+    /* Appends a JSON string; account ids are chosen by clients and may contain any character */
+    private static void appendString(StringBuilder frame, String value) {
+        frame.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                frame.append('\\').append(c);
+            } else if (c < 0x20) {
+                frame.append(String.format("\\u%04x", (int) c));
+            } else {
+                frame.append(c);
+            }
+        }
+        frame.append('"');
+    }
+
+    String getAccountId() {
+        return accountId;
+    }
+
+    String getLeaderboard() {
+        return leaderboard;
+    }
+
+    int getLeaderboardSize() {
+        return leaderboardSize;
+    }
+
+    /**
+     * Closes the client session, e.g. after a failed send.
+     */
+    void close() {
+        try {
+            session.close();
+        } catch (IOException e) {
+            log.warn("Error closing price stream session {}", session.getId(), e);
+        }
+    }
+}
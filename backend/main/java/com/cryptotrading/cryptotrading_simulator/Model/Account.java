@@ -1,9 +1,9 @@
 package com.cryptotrading.cryptotrading_simulator.Model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -14,63 +14,294 @@ import java.util.Map;
  * the details of transactions made, and the average buy prices for each cryptocurrency,
  * which can be used for profit and loss calculations.
  * </p>
+ * <p>
+ * The transaction history is bounded and is not part of the serialized account; it is read page by page
+ * through the transaction endpoints.
+ * </p>
+ * <p>
+ * The balance is kept in exact fixed-point units (see {@link FixedPoint}); holdings are kept on the same grid of
+ * 10^-8 coins by the trade path, so neither drifts over many trades.
+ * </p>
+ * <p>
+ * Positions are stored in primitive arrays indexed by the symbol ids of a {@link SymbolTable}: the held quantity in
+ * units and the cost of the position. Trading does not allocate or hash; the arrays are created on the first trade
+ * and only grow when a symbol with a higher id is traded. The holdings and average buy prices maps of the JSON
+ * representation are built from the arrays when read.
+ * </p>
+ * <p>
+ * Market value and cost basis are kept up to date by the owning shard as prices move, so the account's total value
+ * and unrealized profit or loss are available without pricing its holdings. The counters of the risk limits, its
+ * order bucket and peak total value, live on the account as well, so they go away with it; they are not snapshotted.
+ * </p>
  */
 public class Account {
 
-    /* Current balance */
-    private double balance;
+    /* Current balance in fixed-point units, see FixedPoint */
+    private long balance;
+
+    /* Symbols naming the position slots */
+    private final SymbolTable symbols;
+
+    /* Held quantity in fixed-point units per symbol id, null until the first trade */
+    private long[] quantities;
+
+    /* Cost of the held quantity at its buy prices per symbol id, null until the first trade */
+    private double[] costs;
+
+    /* Bounded transaction history */
+    private TransactionHistory history;
+
+    /* Market value of the holdings at the latest prices, maintained by the owning shard */
+    private double marketValue;
 
-    /* List of the currently held cryptocurrencies */
-    private Map<String, Double> holdings;
+    /* Cost of the holdings at their average buy prices */
+    private double costBasis;
 
-    /* List of transaction */
-    private List<Transaction> transactions;
+    /* Profit or loss realized by all sales */
+    private double realizedProfitLoss;
 
-    /* List of the average buy prices */
-    private Map<String, Double> averageBuyPrices;
+    /* Resting orders keyed by order id, in placement order */
+    private final Map<Long, Order> openOrders;
+
+    /* Time the order rate bucket of the risk limits is full again, Long.MIN_VALUE before the first order */
+    private long orderBucketNanos = Long.MIN_VALUE;
+
+    /* Highest total value since the account was created or reset, moved while a drawdown limit is enabled */
+    private double peakTotalValue;
 
     /**
      * Constructor to initialize the account with an initial balance.
      *
      * @param initialBalance the initial balance to set in the account
+     * @param historyCapacity the maximum number of transactions retained in the history
+     * @param symbols the symbols the positions are indexed by
+     */
+    public Account(double initialBalance, int historyCapacity, SymbolTable symbols) {
+        this.balance = FixedPoint.toUnits(initialBalance);
+        this.peakTotalValue = initialBalance;
+        this.symbols = symbols;
+        this.history = new TransactionHistory(historyCapacity);
+        this.openOrders = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates a copy of this account. Positions are copied so that the snapshot can be read (e.g. serialized) while
+     * the original keeps being updated by its owning shard. The copy carries the transaction count but none of the
+     * transactions and none of the open orders.
+     *
+     * @return a snapshot of this account
      */
-    public Account(double initialBalance) {
-        this.balance = initialBalance;
-        this.holdings = new HashMap<>();
-        this.transactions = new ArrayList<>();
-        this.averageBuyPrices = new HashMap<>();
+    public Account copy() {
+        Account copy = new Account(0, 0, symbols);
+        copy.balance = balance;
+        if (quantities != null) {
+            copy.quantities = quantities.clone();
+            copy.costs = costs.clone();
+        }
+        copy.history = history.countOnly();
+        copy.marketValue = marketValue;
+        copy.costBasis = costBasis;
+        copy.realizedProfitLoss = realizedProfitLoss;
+        copy.peakTotalValue = peakTotalValue;
+        return copy;
     }
 
     /* Getters and setters */
     public double getBalance() {
-        return balance;
+        return FixedPoint.toDouble(balance);
     }
 
     public void setBalance(double balance) {
+        this.balance = FixedPoint.toUnits(balance);
+    }
+
+    /**
+     * Gets the exact balance.
+     *
+     * @return the balance in fixed-point units
+     */
+    @JsonIgnore
+    public long getBalanceUnits() {
+        return balance;
+    }
+
+    /**
+     * Sets the exact balance.
+     *
+     * @param balance the balance in fixed-point units
+     */
+    public void setBalanceUnits(long balance) {
         this.balance = balance;
     }
 
+    /**
+     * Gets the held quantity of every symbol with a position.
+     *
+     * @return a new map of symbol to held quantity
+     */
     public Map<String, Double> getHoldings() {
+        Map<String, Double> holdings = new LinkedHashMap<>();
+        for (int id = 0; quantities != null && id < quantities.length; id++) {
+            if (quantities[id] > 0) {
+                holdings.put(symbols.symbolOf(id), FixedPoint.toDouble(quantities[id]));
+            }
+        }
         return holdings;
     }
 
-    public void setHoldings(Map<String, Double> holdings) {
-        this.holdings = holdings;
-    }
-
-    public List<Transaction> getTransactions() {
-        return transactions;
+    @JsonIgnore
+    public TransactionHistory getHistory() {
+        return history;
     }
 
-    public void setTransactions(List<Transaction> transactions) {
-        this.transactions = transactions;
+    public long getTransactionCount() {
+        return history.getNextSequence();
     }
 
+    /**
+     * Gets the average buy price of every symbol with a position.
+     *
+     * @return a new map of symbol to average buy price
+     */
     public Map<String, Double> getAverageBuyPrices() {
+        Map<String, Double> averageBuyPrices = new LinkedHashMap<>();
+        for (int id = 0; quantities != null && id < quantities.length; id++) {
+            if (quantities[id] > 0) {
+                averageBuyPrices.put(symbols.symbolOf(id), getAverageBuyPrice(id));
+            }
+        }
         return averageBuyPrices;
     }
 
-    public void setAverageBuyPrices(Map<String, Double> averageBuyPrices) {
-        this.averageBuyPrices = averageBuyPrices;
+    /**
+     * Gets the held quantity of a symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the quantity in fixed-point units, 0 if there is no position
+     */
+    public long getQuantityUnits(int symbolId) {
+        return quantities != null && symbolId >= 0 && symbolId < quantities.length ? quantities[symbolId] : 0;
+    }
+
+    /**
+     * Gets the held quantity of a symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the quantity, 0 if there is no position
+     */
+    public double getQuantity(int symbolId) {
+        return FixedPoint.toDouble(getQuantityUnits(symbolId));
+    }
+
+    /**
+     * Gets the cost of the position in a symbol, i.e. the held quantity at its buy prices.
+     *
+     * @param symbolId the symbol id
+     * @return the cost, 0 if there is no position
+     */
+    public double getPositionCost(int symbolId) {
+        return getQuantityUnits(symbolId) > 0 ? costs[symbolId] : 0;
+    }
+
+    /**
+     * Gets the average buy price of the position in a symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the average buy price, 0 if there is no position
+     */
+    public double getAverageBuyPrice(int symbolId) {
+        long quantity = getQuantityUnits(symbolId);
+        return quantity > 0 ? costs[symbolId] / FixedPoint.toDouble(quantity) : 0;
+    }
+
+    /**
+     * Sets the position in a symbol. A quantity of 0 or less closes the position.
+     *
+     * @param symbolId the symbol id
+     * @param quantity the held quantity in fixed-point units
+     * @param cost the cost of the held quantity
+     */
+    public void setPosition(int symbolId, long quantity, double cost) {
+        if (quantities == null || symbolId >= quantities.length) {
+            if (quantity <= 0) {
+                return;
+            }
+            int length = quantities == null ? 0 : quantities.length;
+            int grown = Math.max(symbolId + 1, Math.min(length + (length >> 1), symbols.size()));
+            quantities = quantities == null ? new long[grown] : Arrays.copyOf(quantities, grown);
+            costs = costs == null ? new double[grown] : Arrays.copyOf(costs, grown);
+        }
+        quantities[symbolId] = Math.max(quantity, 0);
+        costs[symbolId] = quantity > 0 ? cost : 0;
+    }
+
+    /**
+     * Gets the number of position slots; symbol ids from 0 to the count - 1 may have a position.
+     *
+     * @return the number of position slots
+     */
+    @JsonIgnore
+    public int getPositionSlots() {
+        return quantities == null ? 0 : quantities.length;
+    }
+
+    public double getMarketValue() {
+        return marketValue;
+    }
+
+    public void setMarketValue(double marketValue) {
+        this.marketValue = marketValue;
+    }
+
+    public double getCostBasis() {
+        return costBasis;
+    }
+
+    public void setCostBasis(double costBasis) {
+        this.costBasis = costBasis;
+    }
+
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public void setRealizedProfitLoss(double realizedProfitLoss) {
+        this.realizedProfitLoss = realizedProfitLoss;
+    }
+
+    public double getUnrealizedProfitLoss() {
+        return marketValue - costBasis;
+    }
+
+    public double getTotalValue() {
+        return getBalance() + marketValue;
+    }
+
+    @JsonIgnore
+    public Map<Long, Order> getOpenOrders() {
+        return openOrders;
+    }
+
+    /**
+     * Gets the time the order rate bucket of the account is full again.
+     *
+     * @return the {@link System#nanoTime()} the bucket is full again, or Long.MIN_VALUE before the first order
+     */
+    @JsonIgnore
+    public long getOrderBucketNanos() {
+        return orderBucketNanos;
+    }
+
+    public void setOrderBucketNanos(long orderBucketNanos) {
+        this.orderBucketNanos = orderBucketNanos;
+    }
+
+    @JsonIgnore
+    public double getPeakTotalValue() {
+        return peakTotalValue;
+    }
+
+    public void setPeakTotalValue(double peakTotalValue) {
+        this.peakTotalValue = peakTotalValue;
     }
 }
\ No newline at end of file
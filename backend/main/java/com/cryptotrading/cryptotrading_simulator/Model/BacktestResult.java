@@ -0,0 +1,107 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+/**
+ * The BacktestResult class represents the outcome of running one strategy, with one set of parameters, over
+ * recorded ticks.
+ */
+public final class BacktestResult {
+
+    /* Description of the parameters the strategy ran with */
+    private final String parameters;
+
+    /* Starting balance and final equity (balance plus holdings at the last prices) */
+    private final double initialBalance;
+    private final double finalEquity;
+
+    /* Profit or loss realized by all sales */
+    private final double realizedProfitLoss;
+
+    /* Largest drop of the equity from its previous high, as a fraction */
+    private final double maxDrawdown;
+
+    /* Executed and rejected trades */
+    private final long trades;
+    private final long rejected;
+
+    /* Replayed ticks and the time the run took */
+    private final long ticks;
+    private final long elapsedMillis;
+
+    /**
+     * Constructor to initialize a BacktestResult.
+     *
+     * @param parameters the description of the parameters the strategy ran with
+     * @param initialBalance the starting balance
+     * @param finalEquity the balance plus the value of the holdings at the last prices
+     * @param realizedProfitLoss the profit or loss realized by all sales
+     * @param maxDrawdown the largest drop of the equity from its previous high, as a fraction
+     * @param trades the number of executed trades
+     * @param rejected the number of rejected trades
+     * @param ticks the number of replayed ticks
+     * @param elapsedMillis the time the run took in milliseconds
+     */
+    public BacktestResult(String parameters, double initialBalance, double finalEquity, double realizedProfitLoss,
+                          double maxDrawdown, long trades, long rejected, long ticks, long elapsedMillis) {
+        this.parameters = parameters;
+        this.initialBalance = initialBalance;
+        this.finalEquity = finalEquity;
+        this.realizedProfitLoss = realizedProfitLoss;
+        this.maxDrawdown = maxDrawdown;
+        this.trades = trades;
+        this.rejected = rejected;
+        this.ticks = ticks;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the return of the run relative to the starting balance.
+     *
+     * @return the return percentage
+     */
+    public double getReturnPercent() {
+        return initialBalance == 0 ? 0 : (finalEquity - initialBalance) / initialBalance * 100;
+    }
+
+    /* Getters */
+    public String getParameters() {
+        return parameters;
+    }
+
+    public double getInitialBalance() {
+        return initialBalance;
+    }
+
+    public double getFinalEquity() {
+        return finalEquity;
+    }
+
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: return %.2f%%, max drawdown %.2f%%, %d trades, %d rejected",
+                parameters, getReturnPercent(), maxDrawdown * 100, trades, rejected);
+    }
+}
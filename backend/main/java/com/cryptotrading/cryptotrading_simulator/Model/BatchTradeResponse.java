@@ -0,0 +1,115 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BatchTradeResponse class represents the response returned after executing a batch of trades.
+ * <p>
+ * A batch is applied all-or-nothing: either every leg succeeded and the response carries the new balance, the
+ * resulting holdings of the traded symbols and the recorded transactions in leg order, or the account is unchanged
+ * and the response names the first leg that could not be executed.
+ * </p>
+ */
+public class BatchTradeResponse {
+
+    /* Success indicator */
+    private boolean success;
+
+    /* Result */
+    private String message;
+
+    /* Index of the first leg that failed, null if the batch succeeded */
+    private Integer failedLeg;
+
+    /* Account balance after the batch */
+    private double balance;
+
+    /* Change of the account balance caused by the batch */
+    private double balanceDelta;
+
+    /* Holdings of the traded symbols after the batch */
+    private Map<String, Double> holdings;
+
+    /* Recorded transactions in leg order, empty if the batch failed */
+    private List<Transaction> transactions;
+
+    /**
+     * Constructor to initialize a BatchTradeResponse.
+     *
+     * @param success indicates whether the batch was applied (true) or rejected (false)
+     * @param message a message describing the outcome of the batch
+     * @param failedLeg the index of the first leg that failed, or null if the batch succeeded
+     * @param balance the account balance after the batch
+     * @param balanceDelta the change of the account balance caused by the batch
+     * @param holdings the holdings of the traded symbols after the batch
+     * @param transactions the recorded transactions in leg order
+     */
+    public BatchTradeResponse(boolean success, String message, Integer failedLeg, double balance, double balanceDelta,
+                              Map<String, Double> holdings, List<Transaction> transactions) {
+        this.success = success;
+        this.message = message;
+        this.failedLeg = failedLeg;
+        this.balance = balance;
+        this.balanceDelta = balanceDelta;
+        this.holdings = holdings;
+        this.transactions = transactions;
+    }
+
+    /* Getters and setters */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Integer getFailedLeg() {
+        return failedLeg;
+    }
+
+    public void setFailedLeg(Integer failedLeg) {
+        this.failedLeg = failedLeg;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    public double getBalanceDelta() {
+        return balanceDelta;
+    }
+
+    public void setBalanceDelta(double balanceDelta) {
+        this.balanceDelta = balanceDelta;
+    }
+
+    public Map<String, Double> getHoldings() {
+        return holdings;
+    }
+
+    public void setHoldings(Map<String, Double> holdings) {
+        this.holdings = holdings;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+}
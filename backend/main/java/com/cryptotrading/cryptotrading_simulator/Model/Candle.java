@@ -0,0 +1,64 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+/**
+ * The Candle class represents one OHLCV bar of a cryptocurrency: the first, highest, lowest and last price and the
+ * traded volume of all ticks within one interval.
+ */
+public final class Candle {
+
+    /* Start of the interval in epoch milliseconds */
+    private final long time;
+
+    /* First, highest, lowest and last price */
+    private final double open;
+    private final double high;
+    private final double low;
+    private final double close;
+
+    /* Traded volume, 0 for simulated prices */
+    private final double volume;
+
+    /**
+     * Constructor to initialize a Candle.
+     *
+     * @param time the start of the interval in epoch milliseconds
+     * @param open the first price of the interval
+     * @param high the highest price of the interval
+     * @param low the lowest price of the interval
+     * @param close the last price of the interval
+     * @param volume the traded volume of the interval
+     */
+    public Candle(long time, double open, double high, double low, double close, double volume) {
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /* Getters */
+    public long getTime() {
+        return time;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+}
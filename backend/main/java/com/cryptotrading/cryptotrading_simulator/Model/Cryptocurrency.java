@@ -4,22 +4,28 @@ package com.cryptotrading.cryptotrading_simulator.Model;
  * The Cryptocurrency class represents a cryptocurrency and its associated details,
  * such as its name, symbol, price, and the change in price over the last 24 hours.
  * <p>
- * This class is used to store information about individual cryptocurrencies,
- * providing properties to track their current price and the price fluctuation.
+ * Instances are immutable price ticks: every price update publishes a new instance carrying a per-symbol
+ * sequence number and a timestamp, so a reader holding a reference always sees a consistent price/change pair.
  * </p>
  */
-public class Cryptocurrency {
+public final class Cryptocurrency {
     /* Name of the cryptocurrency */
-    private String name;
+    private final String name;
 
     /* Symbol of the cryptocurrency */
-    private String symbol;
+    private final String symbol;
 
     /* Price of the cryptocurrency */
-    private double price;
+    private final double price;
 
     /* Change in the price of the cryptocurrency in the last 24h */
-    private double change24h;
+    private final double change24h;
+
+    /* Sequence number of this tick, increasing by one with every update of the symbol */
+    private final long sequence;
+
+    /* Time this tick was published, in epoch milliseconds */
+    private final long timestamp;
 
     /**
      * Constructor to initialize a cryptocurrency with its name, symbol, price, and
@@ -31,42 +37,62 @@ public class Cryptocurrency {
      * @param change24h the percentage change in the price of the cryptocurrency over the last 24 hours
      */
     public Cryptocurrency(String name, String symbol, double price, double change24h) {
+        this(name, symbol, price, change24h, 0, System.currentTimeMillis());
+    }
+
+    /**
+     * Constructor to initialize a cryptocurrency tick with all of its fields.
+     *
+     * @param name the name of the cryptocurrency (e.g., Bitcoin)
+     * @param symbol the symbol of the cryptocurrency (e.g., BTC)
+     * @param price the current price of the cryptocurrency
+     * @param change24h the percentage change in the price of the cryptocurrency over the last 24 hours
+     * @param sequence the per-symbol sequence number of this tick
+     * @param timestamp the time the tick was published, in epoch milliseconds
+     */
+    public Cryptocurrency(String name, String symbol, double price, double change24h, long sequence, long timestamp) {
         this.name = name;
         this.symbol = symbol;
         this.price = price;
         this.change24h = change24h;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
     }
 
-    /* Getters and setters */
-    public String getName() {
-        return name;
+    /**
+     * Creates the tick following this one with a new price and 24-hour change.
+     *
+     * @param price the new price
+     * @param change24h the new 24-hour change percentage
+     * @param timestamp the time the new tick is published, in epoch milliseconds
+     * @return the next tick for this cryptocurrency
+     */
+    public Cryptocurrency next(double price, double change24h, long timestamp) {
+        return new Cryptocurrency(name, symbol, price, change24h, sequence + 1, timestamp);
     }
 
-    public void setName(String name) {
-        this.name = name;
+    /* Getters */
+    public String getName() {
+        return name;
     }
 
     public String getSymbol() {
         return symbol;
     }
 
-    public void setSymbol(String symbol) {
-        this.symbol = symbol;
-    }
-
     public double getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
-        this.price = price;
-    }
-
     public double getChange24h() {
         return change24h;
     }
 
-    public void setChange24h(double change24h) {
-        this.change24h = change24h;
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
     }
 }
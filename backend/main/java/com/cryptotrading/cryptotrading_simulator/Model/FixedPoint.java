@@ -0,0 +1,66 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+/**
+ * FixedPoint converts cash amounts, prices and quantities to and from exact fixed-point {@code long}s and multiplies
+ * them without rounding drift.
+ * <p>
+ * All values use the same scale of {@value #SCALE} units per whole dollar or coin, i.e. eight decimals: cash is
+ * counted in 10^-8 dollars and quantities in 10^-8 coins (satoshis), the finest precision of any listed symbol.
+ * Balances and holdings kept in units add and subtract exactly, so they reconcile with the journaled trades and a
+ * position sold in full is exactly zero. Doubles at the API boundary are rounded to the nearest unit.
+ * </p>
+ */
+public final class FixedPoint {
+
+    /* Units per whole dollar or coin */
+    public static final long SCALE = 100_000_000L;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a value to units, rounding to the nearest unit. Values beyond the range of a long saturate.
+     *
+     * @param value the value in dollars or coins
+     * @return the value in units
+     */
+    public static long toUnits(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    /**
+     * Converts units to a value.
+     *
+     * @param units the value in units
+     * @return the value in dollars or coins
+     */
+    public static double toDouble(long units) {
+        return (double) units / SCALE;
+    }
+
+    /**
+     * Multiplies a price by a quantity, giving the cash total rounded half away from zero to the nearest unit. The
+     * product is split so that no intermediate overflows while the result fits into a long; larger totals saturate.
+     *
+     * @param price the price in units per coin
+     * @param quantity the quantity in units
+     * @return the total in units
+     */
+    public static long multiply(long price, long quantity) {
+        long priceWhole = price / SCALE;
+        long priceFraction = price % SCALE;
+        long quantityWhole = quantity / SCALE;
+        long quantityFraction = quantity % SCALE;
+        try {
+            // (pw S + pf)(qw S + qf) / S = pw qw S + pw qf + pf qw + pf qf / S, with pf qf < S^2 fitting a long
+            long total = Math.multiplyExact(Math.multiplyExact(priceWhole, quantityWhole), SCALE);
+            total = Math.addExact(total, Math.multiplyExact(priceWhole, quantityFraction));
+            total = Math.addExact(total, Math.multiplyExact(priceFraction, quantityWhole));
+            long fraction = priceFraction * quantityFraction;
+            long rounded = fraction >= 0 ? (fraction + SCALE / 2) / SCALE : (fraction - SCALE / 2) / SCALE;
+            return Math.addExact(total, rounded);
+        } catch (ArithmeticException e) {
+            return (price < 0) == (quantity < 0) ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+}
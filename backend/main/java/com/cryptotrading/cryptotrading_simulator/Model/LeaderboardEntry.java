@@ -0,0 +1,52 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+/**
+ * The LeaderboardEntry class is an immutable snapshot of the rank of one account on a leaderboard, with both scores
+ * an account can be ranked by.
+ */
+public final class LeaderboardEntry {
+
+    /* Rank of the account, 1 for the leader */
+    private final long rank;
+
+    /* Id of the account */
+    private final String accountId;
+
+    /* Cash balance plus the market value of the holdings */
+    private final double totalValue;
+
+    /* Profit or loss realized by all sales */
+    private final double realizedProfitLoss;
+
+    /**
+     * Constructor to initialize a LeaderboardEntry.
+     *
+     * @param rank the rank of the account, 1 for the leader
+     * @param accountId the id of the account
+     * @param totalValue the cash balance plus the market value of the holdings
+     * @param realizedProfitLoss the profit or loss realized by all sales
+     */
+    public LeaderboardEntry(long rank, String accountId, double totalValue, double realizedProfitLoss) {
+        this.rank = rank;
+        this.accountId = accountId;
+        this.totalValue = totalValue;
+        this.realizedProfitLoss = realizedProfitLoss;
+    }
+
+    /* Getters */
+    public long getRank() {
+        return rank;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+}
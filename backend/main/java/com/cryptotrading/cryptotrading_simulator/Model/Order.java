@@ -0,0 +1,193 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * The Order class represents a resting order in the cryptocurrency trading simulator: a buy or sell that is only
+ * executed once the market price crosses its limit or stop price.
+ * <p>
+ * Supported order types are {@code limit} (fills at the market price once it is at or better than the limit price),
+ * {@code stop} (becomes a market order once the price reaches the stop price) and {@code stop_limit} (becomes a limit
+ * order once the price reaches the stop price).
+ * </p>
+ * <p>
+ * The order details are fixed when the order is placed. Status, message, fill price and the trigger of a stop-limit
+ * order are only changed by the shard owning the account and may be read from any thread.
+ * </p>
+ */
+public class Order {
+
+    /* Order types */
+    public static final String TYPE_LIMIT = "limit";
+    public static final String TYPE_STOP = "stop";
+    public static final String TYPE_STOP_LIMIT = "stop_limit";
+
+    /* Order statuses */
+    public static final String STATUS_OPEN = "open";
+    public static final String STATUS_FILLED = "filled";
+    public static final String STATUS_CANCELLED = "cancelled";
+    public static final String STATUS_REJECTED = "rejected";
+
+    /* Order ID */
+    private final long id;
+
+    /* ID of the account that placed the order */
+    private final String accountId;
+
+    /* Side: buy/sell */
+    private final String side;
+
+    /* Cryptocurrency symbol */
+    private final String symbol;
+
+    /* Amount to trade */
+    private final double amount;
+
+    /* Order type: limit/stop/stop_limit */
+    private final String orderType;
+
+    /* Limit price, null for stop orders */
+    private final Double limitPrice;
+
+    /* Stop price, null for limit orders */
+    private final Double stopPrice;
+
+    /* Time the order was placed in epoch nanoseconds */
+    private final long createdNanos;
+
+    /* Whether the stop price of a stop-limit order has been reached */
+    private volatile boolean triggered;
+
+    /* Order status */
+    private volatile String status = STATUS_OPEN;
+
+    /* Result of the order, null while it is open */
+    private volatile String message;
+
+    /* Execution price, null unless the order is filled */
+    private volatile Double fillPrice;
+
+    /**
+     * Constructor to initialize an open Order.
+     *
+     * @param id the order id
+     * @param accountId the id of the account placing the order
+     * @param side "buy" or "sell"
+     * @param symbol the symbol of the cryptocurrency to trade
+     * @param amount the amount to trade
+     * @param orderType {@link #TYPE_LIMIT}, {@link #TYPE_STOP} or {@link #TYPE_STOP_LIMIT}
+     * @param limitPrice the limit price, or null for stop orders
+     * @param stopPrice the stop price, or null for limit orders
+     * @param createdNanos the time the order was placed in epoch nanoseconds
+     */
+    public Order(long id, String accountId, String side, String symbol, double amount, String orderType,
+                 Double limitPrice, Double stopPrice, long createdNanos) {
+        this.id = id;
+        this.accountId = accountId;
+        this.side = side;
+        this.symbol = symbol;
+        this.amount = amount;
+        this.orderType = orderType;
+        this.limitPrice = limitPrice;
+        this.stopPrice = stopPrice;
+        this.createdNanos = createdNanos;
+    }
+
+    /**
+     * Checks whether the order still rests in the order book.
+     *
+     * @return true if the order is open
+     */
+    @JsonIgnore
+    public boolean isOpen() {
+        return STATUS_OPEN.equals(status);
+    }
+
+    /**
+     * Checks whether the order is waiting for its stop price, i.e. it is a stop order or an untriggered stop-limit
+     * order.
+     *
+     * @return true if the order is triggered by its stop price
+     */
+    @JsonIgnore
+    public boolean isWaitingForStop() {
+        return TYPE_STOP.equals(orderType) || (TYPE_STOP_LIMIT.equals(orderType) && !triggered);
+    }
+
+    /**
+     * Closes the order.
+     *
+     * @param status the final status
+     * @param message a message describing the result
+     * @param fillPrice the execution price, or null if the order was not filled
+     */
+    public void close(String status, String message, Double fillPrice) {
+        this.message = message;
+        this.fillPrice = fillPrice;
+        this.status = status;
+    }
+
+    /* Getters and setters */
+    public long getId() {
+        return id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public Double getLimitPrice() {
+        return limitPrice;
+    }
+
+    public Double getStopPrice() {
+        return stopPrice;
+    }
+
+    @JsonIgnore
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return TransactionHistory.toLocalDateTime(createdNanos);
+    }
+
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    public void setTriggered(boolean triggered) {
+        this.triggered = triggered;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Double getFillPrice() {
+        return fillPrice;
+    }
+}
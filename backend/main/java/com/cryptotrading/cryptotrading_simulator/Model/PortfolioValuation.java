@@ -0,0 +1,71 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+/**
+ * The PortfolioValuation class is an immutable snapshot of the value of an account: cash, the market value of its
+ * holdings at the latest prices, and the realized and unrealized profit or loss.
+ */
+public final class PortfolioValuation {
+
+    /* Cash balance */
+    private final double balance;
+
+    /* Market value of the holdings */
+    private final double marketValue;
+
+    /* Cost of the holdings at their average buy prices */
+    private final double costBasis;
+
+    /* Profit or loss realized by all sales */
+    private final double realizedProfitLoss;
+
+    /**
+     * Constructor to initialize a PortfolioValuation.
+     *
+     * @param balance the cash balance
+     * @param marketValue the market value of the holdings
+     * @param costBasis the cost of the holdings at their average buy prices
+     * @param realizedProfitLoss the profit or loss realized by all sales
+     */
+    public PortfolioValuation(double balance, double marketValue, double costBasis, double realizedProfitLoss) {
+        this.balance = balance;
+        this.marketValue = marketValue;
+        this.costBasis = costBasis;
+        this.realizedProfitLoss = realizedProfitLoss;
+    }
+
+    /**
+     * Creates a valuation of an account's current state.
+     *
+     * @param account the account
+     * @return the valuation
+     */
+    public static PortfolioValuation of(Account account) {
+        return new PortfolioValuation(account.getBalance(), account.getMarketValue(), account.getCostBasis(),
+                account.getRealizedProfitLoss());
+    }
+
+    /* Getters */
+    public double getBalance() {
+        return balance;
+    }
+
+    public double getMarketValue() {
+        return marketValue;
+    }
+
+    public double getCostBasis() {
+        return costBasis;
+    }
+
+    public double getUnrealizedProfitLoss() {
+        return marketValue - costBasis;
+    }
+
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public double getTotalValue() {
+        return balance + marketValue;
+    }
+}
@@ -0,0 +1,72 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A SymbolTable interns cryptocurrency symbols to dense int ids, 0 for the first symbol, 1 for the next and so on.
+ * <p>
+ * Symbols are interned once at startup; afterwards the table is only read, and lookups by id are a plain array
+ * access. Accounts store their positions in arrays indexed by these ids and use the table to name them.
+ * </p>
+ */
+public final class SymbolTable {
+
+    /* Symbols by id */
+    private volatile String[] symbols = new String[0];
+
+    /* Ids by symbol */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Interns a symbol.
+     *
+     * @param symbol the cryptocurrency symbol (e.g., "BTC")
+     * @return the id of the symbol, a new one if it was not interned before
+     */
+    public synchronized int intern(String symbol) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = symbols;
+        int id = current.length;
+        String[] grown = Arrays.copyOf(current, id + 1);
+        grown[id] = symbol;
+        ids.put(symbol, id);
+        symbols = grown;
+        return id;
+    }
+
+    /**
+     * Gets the id of a symbol.
+     *
+     * @param symbol the cryptocurrency symbol
+     * @return the symbol id, or -1 if the symbol is not interned
+     */
+    public int idOf(String symbol) {
+        Integer id = symbol == null ? null : ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the symbol of an id.
+     *
+     * @param id the symbol id
+     * @return the symbol, or null if no symbol has the id
+     */
+    public String symbolOf(int id) {
+        String[] current = symbols;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Gets the number of interned symbols. Ids range from 0 to size - 1.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return symbols.length;
+    }
+}
@@ -28,6 +28,18 @@ public class TradeRequest {
     /* Current holdings */
     private Map<String, Double> holdings;
 
+    /* Order type of a resting order: limit/stop/stop_limit */
+    private String orderType;
+
+    /* Limit price of a limit or stop-limit order */
+    private Double limitPrice;
+
+    /* Stop price of a stop or stop-limit order */
+    private Double stopPrice;
+
+    /* Optional id chosen by the client; a retried trade with the same id is not executed twice */
+    private String clientOrderId;
+
     /* Getters and setters */
     public String getType() {
         return type;
@@ -68,4 +80,36 @@ public class TradeRequest {
     public void setHoldings(Map<String, Double> holdings) {
         this.holdings = holdings;
     }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(String orderType) {
+        this.orderType = orderType;
+    }
+
+    public Double getLimitPrice() {
+        return limitPrice;
+    }
+
+    public void setLimitPrice(Double limitPrice) {
+        this.limitPrice = limitPrice;
+    }
+
+    public Double getStopPrice() {
+        return stopPrice;
+    }
+
+    public void setStopPrice(Double stopPrice) {
+        this.stopPrice = stopPrice;
+    }
+
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public void setClientOrderId(String clientOrderId) {
+        this.clientOrderId = clientOrderId;
+    }
 }
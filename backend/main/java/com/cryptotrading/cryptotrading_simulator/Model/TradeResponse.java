@@ -3,35 +3,88 @@ package com.cryptotrading.cryptotrading_simulator.Model;
 /**
  * The TradeResponse class represents the response returned after executing a trade in the cryptocurrency trading simulator.
  * It contains information about whether the trade was successful, a message describing the result,
- * and the updated account information after the trade.
+ * and the changes the trade made to the account.
  * <p>
- * This class is used to encapsulate the result of a trade operation, allowing the application
- * to provide feedback to the user and update their account details accordingly.
+ * Rather than the whole account, the response carries the new balance, the balance delta, the resulting holding of
+ * the traded symbol and the recorded transaction, so its size does not grow with the account's history.
+ * </p>
+ * <p>
+ * A rejected trade carries one of the {@code REASON_} codes, so clients can tell rejections apart without parsing
+ * the message.
  * </p>
  */
 public class TradeResponse {
 
+    /* Reason codes of rejected trades */
+    public static final String REASON_INVALID_ACCOUNT = "INVALID_ACCOUNT";
+    public static final String REASON_INVALID_CLIENT_ORDER_ID = "INVALID_CLIENT_ORDER_ID";
+    public static final String REASON_INVALID_AMOUNT = "INVALID_AMOUNT";
+    public static final String REASON_INVALID_TYPE = "INVALID_TYPE";
+    public static final String REASON_UNKNOWN_SYMBOL = "UNKNOWN_SYMBOL";
+    public static final String REASON_INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
+    public static final String REASON_INSUFFICIENT_HOLDINGS = "INSUFFICIENT_HOLDINGS";
+    public static final String REASON_ORDER_RATE = "ORDER_RATE";
+    public static final String REASON_MAX_ORDER_NOTIONAL = "MAX_ORDER_NOTIONAL";
+    public static final String REASON_MAX_POSITION = "MAX_POSITION";
+    public static final String REASON_MAX_DRAWDOWN = "MAX_DRAWDOWN";
+    public static final String REASON_PRICE_BAND = "PRICE_BAND";
+
     /* Success indicator */
     private boolean success;
 
     /* Result */
     private String message;
 
-    /* Updated account */
-    private Account account;
+    /* Reason code of a rejected trade, null if the trade succeeded */
+    private String reasonCode;
+
+    /* Account balance after the trade */
+    private double balance;
+
+    /* Change of the account balance caused by the trade (negative for buys) */
+    private double balanceDelta;
+
+    /* Holding of the traded symbol after the trade */
+    private double holding;
+
+    /* Recorded transaction, null if the trade failed or the history retains no transactions */
+    private Transaction transaction;
+
+    /* Client order id of the request, null if it had none */
+    private String clientOrderId;
+
+    /**
+     * Constructor to initialize a TradeResponse for a rejected trade.
+     *
+     * @param reasonCode the reason code of the rejection, one of the {@code REASON_} constants
+     * @param message a message describing why the trade was rejected
+     * @param balance the unchanged account balance
+     * @param holding the unchanged holding of the requested symbol
+     */
+    public TradeResponse(String reasonCode, String message, double balance, double holding) {
+        this(false, message, balance, 0.0, holding, null);
+        this.reasonCode = reasonCode;
+    }
 
     /**
      * Constructor to initialize a TradeResponse with the success status, message,
-     * and updated account details.
+     * and the changes made to the account.
      *
      * @param success indicates whether the trade was successful (true) or not (false)
      * @param message a message describing the outcome of the trade (e.g., error message or success message)
-     * @param account the updated account information after the trade is executed
+     * @param balance the account balance after the trade
+     * @param balanceDelta the change of the account balance caused by the trade
+     * @param holding the holding of the traded symbol after the trade
+     * @param transaction the recorded transaction, or null if the trade failed
      */
-    public TradeResponse(boolean success, String message, Account account) {
+    public TradeResponse(boolean success, String message, double balance, double balanceDelta, double holding,
+                         Transaction transaction) {
         this.success = success;
         this.message = message;
-        this.account = account;
+        this.balance = balance;
+        this.balanceDelta = balanceDelta;
+        this.holding = holding;
+        this.transaction = transaction;
     }
 
     /* Getters and setters */
@@ -51,12 +104,51 @@ public class TradeResponse {
         this.message = message;
     }
 
-    public Account getAccount() {
-        return account;
+    public String getReasonCode() {
+        return reasonCode;
     }
 
-    public void setAccount(Account account) {
-        this.account = account;
+    public void setReasonCode(String reasonCode) {
+        this.reasonCode = reasonCode;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    public double getBalanceDelta() {
+        return balanceDelta;
+    }
+
+    public void setBalanceDelta(double balanceDelta) {
+        this.balanceDelta = balanceDelta;
+    }
+
+    public double getHolding() {
+        return holding;
+    }
+
+    public void setHolding(double holding) {
+        this.holding = holding;
     }
-}
 
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public void setClientOrderId(String clientOrderId) {
+        this.clientOrderId = clientOrderId;
+    }
+}
@@ -12,6 +12,9 @@ import java.time.LocalDateTime;
  */
 public class Transaction {
 
+    /* Sequence number of the transaction within its account, used as pagination cursor */
+    private long sequence;
+
     /* Trade type: BUY/SEL */
     private String type;
 
@@ -54,7 +57,38 @@ public class Transaction {
         this.timestamp = LocalDateTime.now();
     }
 
+    /**
+     * Constructor to initialize a recorded transaction with all of its details.
+     *
+     * @param sequence the sequence number of the transaction within its account
+     * @param type the type of the transaction ("buy" or "sell")
+     * @param symbol the symbol of the cryptocurrency involved in the transaction (e.g., "BTC")
+     * @param amount the amount of cryptocurrency involved in the transaction
+     * @param price the price at which the cryptocurrency is bought or sold
+     * @param profitLoss the profit or loss from the transaction (null for buy, calculated for sell)
+     * @param timestamp the time the transaction was executed
+     */
+    public Transaction(long sequence, String type, String symbol, double amount, double price, Double profitLoss,
+                       LocalDateTime timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.symbol = symbol;
+        this.amount = amount;
+        this.price = price;
+        this.total = amount * price;
+        this.profitLoss = profitLoss;
+        this.timestamp = timestamp;
+    }
+
     /* Getters and setters */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
     public String getType() {
         return type;
     }
@@ -0,0 +1,244 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The TransactionHistory class stores the transactions of an account in a bounded, column-oriented ring buffer.
+ * <p>
+ * Each column is a primitive array (type, symbol id, amount, price, profit/loss, epoch nanoseconds), so recording a
+ * trade allocates nothing once the buffer has grown. Every transaction gets a sequence number that increases by one
+ * per trade; when the ring is full the oldest entries are overwritten. The arrays start small and double up to the
+ * configured capacity, so idle accounts stay cheap.
+ * </p>
+ * <p>
+ * {@link Transaction} objects are only materialized for the page being read.
+ * </p>
+ */
+public class TransactionHistory {
+
+    /* Transaction types stored in the type column */
+    public static final byte TYPE_BUY = 0;
+    public static final byte TYPE_SELL = 1;
+
+    /* Initial size of the columns */
+    private static final int INITIAL_SIZE = 16;
+
+    /* Maximum number of retained transactions */
+    private final int capacity;
+
+    /* Columns */
+    private byte[] types;
+    private int[] symbolIds;
+    private double[] amounts;
+    private double[] prices;
+    private double[] profitLosses; // NaN for buys
+    private long[] epochNanos;
+
+    /* Sequence number of the next transaction, i.e. the number of transactions ever recorded */
+    private long nextSequence;
+
+    /* Sequence number of the first transaction appended to this instance, stored in slot 0 */
+    private long baseSequence;
+
+    /**
+     * Constructs an empty TransactionHistory.
+     *
+     * @param capacity the maximum number of retained transactions, older ones are dropped
+     */
+    public TransactionHistory(int capacity) {
+        this.capacity = capacity;
+        int size = Math.min(capacity, INITIAL_SIZE);
+        this.types = new byte[size];
+        this.symbolIds = new int[size];
+        this.amounts = new double[size];
+        this.prices = new double[size];
+        this.profitLosses = new double[size];
+        this.epochNanos = new long[size];
+    }
+
+    /**
+     * Records a transaction.
+     *
+     * @param type {@link #TYPE_BUY} or {@link #TYPE_SELL}
+     * @param symbolId the price store id of the traded symbol
+     * @param amount the traded amount
+     * @param price the execution price
+     * @param profitLoss the realized profit or loss, NaN for buys
+     * @param nanos the execution time in nanoseconds since the epoch
+     * @return the sequence number of the recorded transaction
+     */
+    public long append(byte type, int symbolId, double amount, double price, double profitLoss, long nanos) {
+        long sequence = nextSequence++;
+        if (capacity == 0) {
+            return sequence;
+        }
+        long appended = sequence - baseSequence;
+        if (appended < capacity && appended == types.length) {
+            grow();
+        }
+        int slot = slot(sequence);
+        types[slot] = type;
+        symbolIds[slot] = symbolId;
+        amounts[slot] = amount;
+        prices[slot] = price;
+        profitLosses[slot] = profitLoss;
+        epochNanos[slot] = nanos;
+        return sequence;
+    }
+
+    private int slot(long sequence) {
+        return (int) ((sequence - baseSequence) % types.length);
+    }
+
+    private void grow() {
+        int size = Math.min(capacity, types.length * 2);
+        types = Arrays.copyOf(types, size);
+        symbolIds = Arrays.copyOf(symbolIds, size);
+        amounts = Arrays.copyOf(amounts, size);
+        prices = Arrays.copyOf(prices, size);
+        profitLosses = Arrays.copyOf(profitLosses, size);
+        epochNanos = Arrays.copyOf(epochNanos, size);
+    }
+
+    /**
+     * Reads a page of transactions, newest first.
+     *
+     * @param before exclusive upper bound of the sequence numbers to return, or a negative value for the newest
+     * @param limit the maximum number of transactions to return
+     * @param symbols function resolving a symbol id to its symbol
+     * @return the transactions with sequence numbers below {@code before}, newest first
+     */
+    public List<Transaction> page(long before, int limit, IntFunction<String> symbols) {
+        long end = before < 0 ? nextSequence : Math.min(before, nextSequence);
+        long start = Math.max(getFirstSequence(), end - Math.max(0, limit));
+        List<Transaction> page = new ArrayList<>((int) Math.max(0, end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            page.add(get(sequence, symbols));
+        }
+        return page;
+    }
+
+    /**
+     * Materializes a retained transaction.
+     *
+     * @param sequence the sequence number of the transaction
+     * @param symbols function resolving a symbol id to its symbol
+     * @return the transaction, or null if it is not retained, e.g. because the capacity is zero
+     */
+    public Transaction get(long sequence, IntFunction<String> symbols) {
+        if (!isRetained(sequence)) {
+            return null;
+        }
+        int slot = slot(sequence);
+        double profitLoss = profitLosses[slot];
+        return new Transaction(sequence, types[slot] == TYPE_BUY ? "buy" : "sell", symbols.apply(symbolIds[slot]),
+                amounts[slot], prices[slot], Double.isNaN(profitLoss) ? null : profitLoss,
+                toLocalDateTime(epochNanos[slot]));
+    }
+
+    /**
+     * Checks whether a transaction is still retained.
+     *
+     * @param sequence the sequence number of the transaction
+     * @return true if the transaction is retained and can be read
+     */
+    public boolean isRetained(long sequence) {
+        return sequence >= getFirstSequence() && sequence < nextSequence;
+    }
+
+    /* Column accessors for a retained transaction, by sequence number */
+    public byte typeAt(long sequence) {
+        return types[slot(sequence)];
+    }
+
+    public int symbolIdAt(long sequence) {
+        return symbolIds[slot(sequence)];
+    }
+
+    public double amountAt(long sequence) {
+        return amounts[slot(sequence)];
+    }
+
+    public double priceAt(long sequence) {
+        return prices[slot(sequence)];
+    }
+
+    public double profitLossAt(long sequence) {
+        return profitLosses[slot(sequence)];
+    }
+
+    public long nanosAt(long sequence) {
+        return epochNanos[slot(sequence)];
+    }
+
+    /**
+     * Sets the sequence number of the first transaction recorded into an empty history, used when restoring a
+     * history whose older transactions were dropped.
+     *
+     * @param sequence the sequence number the next appended transaction receives
+     */
+    public void startAt(long sequence) {
+        if (nextSequence != 0) {
+            throw new IllegalStateException("History already contains transactions");
+        }
+        nextSequence = sequence;
+        baseSequence = sequence;
+    }
+
+    /**
+     * Gets the sequence number of the oldest retained transaction.
+     *
+     * @return the oldest retained sequence number, equal to {@link #getNextSequence()} if none is retained
+     */
+    public long getFirstSequence() {
+        return nextSequence - Math.min(nextSequence - baseSequence, Math.min(capacity, types.length));
+    }
+
+    /**
+     * Gets the sequence number the next transaction will receive, which is the number of transactions recorded.
+     *
+     * @return the next sequence number
+     */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Creates an empty history that keeps counting from this history's next sequence number but retains nothing.
+     * Used for account snapshots, which carry the transaction count but not the entries.
+     *
+     * @return a zero-capacity history with the same transaction count
+     */
+    public TransactionHistory countOnly() {
+        TransactionHistory copy = new TransactionHistory(0);
+        copy.startAt(nextSequence);
+        return copy;
+    }
+
+    /**
+     * Gets the current time in nanoseconds since the epoch.
+     *
+     * @return the current epoch nanoseconds
+     */
+    public static long nowNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * Converts epoch nanoseconds to a local date-time in the system time zone.
+     *
+     * @param nanos the time in nanoseconds since the epoch
+     * @return the local date-time
+     */
+    public static LocalDateTime toLocalDateTime(long nanos) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(nanos / 1_000_000_000L, nanos % 1_000_000_000L),
+                ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,47 @@
+package com.cryptotrading.cryptotrading_simulator.Model;
+
+import java.util.List;
+
+/**
+ * The TransactionPage class represents one page of an account's transaction history, newest first.
+ * <p>
+ * {@code nextCursor} is passed as the {@code before} parameter to read the next (older) page; it is null when
+ * there are no older retained transactions.
+ * </p>
+ */
+public class TransactionPage {
+
+    /* Transactions of this page, newest first */
+    private List<Transaction> transactions;
+
+    /* Cursor of the next page, null on the last page */
+    private Long nextCursor;
+
+    /**
+     * Constructor to initialize a page of transactions.
+     *
+     * @param transactions the transactions of the page, newest first
+     * @param nextCursor the cursor of the next page, or null if this is the last page
+     */
+    public TransactionPage(List<Transaction> transactions, Long nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    /* Getters and setters */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,378 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * An AccountShard owns a disjoint subset of the trading accounts and is the only thread allowed to mutate them.
+ * <p>
+ * Every shard runs a single-threaded event loop. Work for an account is submitted to the shard that owns it and
+ * executed in submission order, so account state never needs locking and shards never contend with each other.
+ * The account map itself is only touched from the shard thread.
+ * </p>
+ * <p>
+ * When persistence is enabled, every account change is appended to the shard's own {@link TradeJournal}. The
+ * flush batches a task's records belong to are collected while the task runs, so the caller can wait for
+ * durability after the shard has moved on to the next task.
+ * </p>
+ */
+public class AccountShard {
+
+    /* Index of this shard within the engine */
+    private final int index;
+
+    /* Initial balance for accounts created on this shard */
+    private final double initialBalance;
+
+    /* Maximum number of transactions retained per account */
+    private final int historyCapacity;
+
+    /* Symbols the account positions are indexed by */
+    private final SymbolTable symbols;
+
+    /* Single writer thread for the accounts on this shard */
+    private final ExecutorService executor;
+
+    /* Accounts owned by this shard, keyed by account id (shard thread only) */
+    private final Map<String, Account> accounts = new HashMap<>();
+
+    /* Write-ahead journal of this shard, null if persistence is disabled */
+    private TradeJournal journal;
+
+    /* Keeps the market value of the accounts up to date */
+    private PortfolioValuator valuator;
+
+    /* Off-heap accounts of this shard, null if the accounts are kept on the heap */
+    private OffHeapAccountStore offHeapStore;
+
+    /* Ranks the accounts of this shard (shard thread only) */
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    /* Remembers the trades executed for client order ids on this shard (shard thread only) */
+    private ClientOrderCache clientOrders;
+
+    /* Flush batch the records of the running task belong to (shard thread only) */
+    private CompletableFuture<Void> pendingDurability;
+
+    /**
+     * Constructs an AccountShard with its own event loop thread.
+     *
+     * @param index the index of this shard, used to name its thread
+     * @param initialBalance the balance given to newly created accounts
+     * @param historyCapacity the maximum number of transactions retained per account
+     * @param symbols the symbols the account positions are indexed by
+     */
+    public AccountShard(int index, double initialBalance, int historyCapacity, SymbolTable symbols) {
+        this.index = index;
+        this.initialBalance = initialBalance;
+        this.historyCapacity = historyCapacity;
+        this.symbols = symbols;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a task to this shard's event loop.
+     *
+     * @param task the task to run on the shard thread
+     * @return a future completed with the task result
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Submits a task to this shard's event loop. The returned future completes once the task has run and all journal
+     * records it appended are on disk.
+     *
+     * @param task the task to run on the shard thread
+     * @return a future completed with the task result once it is durable
+     */
+    public <T> CompletableFuture<T> submitDurable(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            T result = task.get();
+            CompletableFuture<Void> durability = pendingDurability;
+            pendingDurability = null;
+            return durability == null
+                    ? CompletableFuture.completedFuture(result)
+                    : durability.thenApply(ignored -> result);
+        }, executor).thenCompose(future -> future);
+    }
+
+    /**
+     * Runs a task on this shard's event loop and waits for its result and for the journal records it appended to be
+     * on disk.
+     *
+     * @param task the task to run on the shard thread
+     * @return the task result
+     */
+    public <T> T execute(Supplier<T> task) {
+        try {
+            return submitDurable(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the account with the given id, creating it with the initial balance if it does not exist yet.
+     * Must only be called from the shard thread.
+     *
+     * @param accountId the account id
+     * @return the account owned by this shard
+     */
+    Account account(String accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new Account(initialBalance, historyCapacity, symbols));
+    }
+
+    /**
+     * Returns the account with the given id without creating it. Must only be called from the shard thread.
+     *
+     * @param accountId the account id
+     * @return the account owned by this shard, or null if it does not exist
+     */
+    Account findAccount(String accountId) {
+        return accounts.get(accountId);
+    }
+
+    /**
+     * Replaces the account with the given id by a fresh account holding the initial balance. The order rate bucket
+     * is carried over, so resetting does not lift a throttle. Must only be called from the shard thread.
+     *
+     * @param accountId the account id
+     * @return the new account
+     */
+    Account resetAccount(String accountId) {
+        Account account = new Account(initialBalance, historyCapacity, symbols);
+        Account previous = accounts.put(accountId, account);
+        if (previous != null) {
+            account.setOrderBucketNanos(previous.getOrderBucketNanos());
+        }
+        return account;
+    }
+
+    /**
+     * Restores an account recovered from a snapshot or journal. Must only be called from the shard thread.
+     *
+     * @param accountId the account id
+     * @param account the recovered account
+     */
+    void restoreAccount(String accountId, Account account) {
+        accounts.put(accountId, account);
+    }
+
+    /**
+     * Visits every account of this shard. Must only be called from the shard thread.
+     *
+     * @param visitor the visitor receiving account id and account
+     */
+    void forEachAccount(BiConsumer<String, Account> visitor) {
+        accounts.forEach(visitor);
+    }
+
+    /**
+     * Gets the number of accounts owned by this shard. Must only be called from the shard thread.
+     *
+     * @return the number of accounts
+     */
+    int accountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Attaches the journal that account changes are appended to.
+     *
+     * @param journal the journal of this shard
+     */
+    void setJournal(TradeJournal journal) {
+        this.journal = journal;
+    }
+
+    TradeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Attaches the valuator keeping the market value of this shard's accounts up to date.
+     *
+     * @param valuator the valuator of this shard
+     */
+    void setValuator(PortfolioValuator valuator) {
+        this.valuator = valuator;
+    }
+
+    PortfolioValuator getValuator() {
+        return valuator;
+    }
+
+    /**
+     * Attaches the store keeping this shard's accounts off-heap.
+     *
+     * @param offHeapStore the off-heap store of this shard
+     */
+    void setOffHeapStore(OffHeapAccountStore offHeapStore) {
+        this.offHeapStore = offHeapStore;
+    }
+
+    OffHeapAccountStore getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Attaches the cache remembering the trades executed for client order ids on this shard.
+     *
+     * @param clientOrders the client order cache of this shard
+     */
+    void setClientOrders(ClientOrderCache clientOrders) {
+        this.clientOrders = clientOrders;
+    }
+
+    ClientOrderCache getClientOrders() {
+        return clientOrders;
+    }
+
+    /**
+     * Gets the flush batch the journal records appended so far by the running task belong to. Must only be called
+     * from the shard thread.
+     *
+     * @return the flush batch, or null if the task has not journaled anything
+     */
+    CompletableFuture<Void> getPendingDurability() {
+        return pendingDurability;
+    }
+
+    /**
+     * Makes the running task complete only once an earlier flush batch is on disk, e.g. the one holding the trade a
+     * replayed request is answered with. Must only be called from the shard thread.
+     *
+     * @param durability the flush batch to wait for, or null
+     */
+    void awaitDurability(CompletableFuture<Void> durability) {
+        if (durability != null && !durability.isDone()) {
+            pendingDurability = pendingDurability == null ? durability : CompletableFuture.allOf(pendingDurability,
+                    durability);
+        }
+    }
+
+    /**
+     * Journals a buy or sell. Must only be called from the shard thread.
+     *
+     * @param type {@link TradeJournal#TYPE_BUY} or {@link TradeJournal#TYPE_SELL}
+     * @param accountId the id of the account
+     * @param symbol the traded symbol
+     * @param amount the traded amount
+     * @param price the execution price
+     * @param nanos the execution time in epoch nanoseconds
+     */
+    void journalTrade(byte type, String accountId, String symbol, double amount, double price, long nanos) {
+        if (journal != null) {
+            pendingDurability = journal.appendTrade(type, accountId, symbol, amount, price, nanos);
+        }
+    }
+
+    /**
+     * Journals the legs of a trade batch as one atomic record. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param count the number of legs
+     * @param types the leg types, {@link TradeJournal#TYPE_BUY} or {@link TradeJournal#TYPE_SELL}
+     * @param symbols the traded symbols
+     * @param amounts the traded amounts
+     * @param prices the execution prices
+     * @param nanos the execution time in epoch nanoseconds
+     */
+    void journalBatch(String accountId, int count, byte[] types, String[] symbols, double[] amounts, double[] prices,
+                      long nanos) {
+        if (journal != null) {
+            pendingDurability = journal.appendBatch(accountId, count, types, symbols, amounts, prices, nanos);
+        }
+    }
+
+    /**
+     * Journals an account reset. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param nanos the reset time in epoch nanoseconds
+     */
+    void journalReset(String accountId, long nanos) {
+        if (journal != null) {
+            pendingDurability = journal.appendReset(accountId, nanos);
+        }
+    }
+
+    /**
+     * Journals a newly placed resting order. Must only be called from the shard thread.
+     *
+     * @param order the open order
+     */
+    void journalOrder(Order order) {
+        if (journal != null) {
+            pendingDurability = journal.appendOrder(order);
+        }
+    }
+
+    /**
+     * Journals the removal of a resting order from its account. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param orderId the id of the order
+     * @param nanos the time the order was closed in epoch nanoseconds
+     */
+    void journalOrderDone(String accountId, long orderId, long nanos) {
+        if (journal != null) {
+            pendingDurability = journal.appendOrderDone(accountId, orderId, nanos);
+        }
+    }
+
+    /**
+     * Journals that the stop price of a resting stop-limit order was reached. Must only be called from the shard
+     * thread.
+     *
+     * @param accountId the id of the account
+     * @param orderId the id of the order
+     * @param nanos the time the order was triggered in epoch nanoseconds
+     */
+    void journalOrderTriggered(String accountId, long orderId, long nanos) {
+        if (journal != null) {
+            pendingDurability = journal.appendOrderTriggered(accountId, orderId, nanos);
+        }
+    }
+
+    /* Getters */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Stops the event loop after the already submitted tasks have run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+import com.cryptotrading.cryptotrading_simulator.Model.TransactionHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The AccountSnapshotCodec writes accounts to and reads them from the compact binary snapshot format.
+ * <p>
+ * Symbols are written as strings so that snapshots stay valid if symbol ids change between runs. Only the retained
+ * part of the transaction history is written; its sequence numbers are preserved. Open orders follow the history
+ * since format version 2, the realized profit or loss since version 3. Since version 4 the balance is written in
+ * exact fixed-point units. Since version 5 every position is written as its quantity in fixed-point units and its
+ * cost; older versions wrote a holdings map and an average buy prices map. Since version 7 the peak total value
+ * checked by the drawdown limit follows the realized profit or loss; accounts of older snapshots start their peak
+ * at their value at cost.
+ * </p>
+ */
+final class AccountSnapshotCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountSnapshotCodec.class);
+
+    private AccountSnapshotCodec() {
+    }
+
+    /**
+     * Writes an account.
+     *
+     * @param out the stream to write to
+     * @param account the account
+     * @param symbols function resolving a symbol id to its symbol
+     * @throws IOException if writing fails
+     */
+    static void write(DataOutputStream out, Account account, IntFunction<String> symbols) throws IOException {
+        out.writeLong(account.getBalanceUnits());
+        int positions = 0;
+        for (int id = 0; id < account.getPositionSlots(); id++) {
+            if (account.getQuantityUnits(id) > 0) {
+                positions++;
+            }
+        }
+        out.writeInt(positions);
+        for (int id = 0; id < account.getPositionSlots(); id++) {
+            if (account.getQuantityUnits(id) > 0) {
+                out.writeUTF(symbols.apply(id));
+                out.writeLong(account.getQuantityUnits(id));
+                out.writeDouble(account.getPositionCost(id));
+            }
+        }
+
+        TransactionHistory history = account.getHistory();
+        long first = history.getFirstSequence();
+        long next = history.getNextSequence();
+        out.writeLong(first);
+        out.writeInt((int) (next - first));
+        for (long sequence = first; sequence < next; sequence++) {
+            String symbol = symbols.apply(history.symbolIdAt(sequence));
+            out.writeByte(history.typeAt(sequence));
+            out.writeUTF(symbol == null ? "" : symbol);
+            out.writeDouble(history.amountAt(sequence));
+            out.writeDouble(history.priceAt(sequence));
+            out.writeDouble(history.profitLossAt(sequence));
+            out.writeLong(history.nanosAt(sequence));
+        }
+
+        out.writeInt(account.getOpenOrders().size());
+        for (Order order : account.getOpenOrders().values()) {
+            out.writeLong(order.getId());
+            out.writeUTF(order.getSide());
+            out.writeUTF(order.getSymbol());
+            out.writeUTF(order.getOrderType());
+            out.writeDouble(order.getAmount());
+            out.writeDouble(order.getLimitPrice() == null ? Double.NaN : order.getLimitPrice());
+            out.writeDouble(order.getStopPrice() == null ? Double.NaN : order.getStopPrice());
+            out.writeBoolean(order.isTriggered());
+            out.writeLong(order.getCreatedNanos());
+        }
+
+        out.writeDouble(account.getRealizedProfitLoss());
+        out.writeDouble(account.getPeakTotalValue());
+    }
+
+    /**
+     * Reads an account written by {@link #write}.
+     *
+     * @param in the stream to read from
+     * @param version the format version of the snapshot
+     * @param accountId the id of the account
+     * @param historyCapacity the history capacity of the restored account; older transactions are dropped
+     * @param symbols the listed symbols; positions in other symbols are dropped
+     * @return the restored account
+     * @throws IOException if reading fails
+     */
+    static Account read(DataInputStream in, int version, String accountId, int historyCapacity,
+                        SymbolTable symbols) throws IOException {
+        Account account = new Account(0, historyCapacity, symbols);
+        account.setBalanceUnits(version >= 4 ? in.readLong() : FixedPoint.toUnits(in.readDouble()));
+        if (version >= 5) {
+            int positions = in.readInt();
+            for (int i = 0; i < positions; i++) {
+                restorePosition(account, accountId, symbols, in.readUTF(), in.readLong(), in.readDouble());
+            }
+        } else {
+            Map<String, Double> holdings = readMap(in);
+            Map<String, Double> averageBuyPrices = readMap(in);
+            for (Map.Entry<String, Double> holding : holdings.entrySet()) {
+                double averageBuyPrice = averageBuyPrices.getOrDefault(holding.getKey(), 0.0);
+                restorePosition(account, accountId, symbols, holding.getKey(),
+                        FixedPoint.toUnits(holding.getValue()), holding.getValue() * averageBuyPrice);
+            }
+        }
+
+        long first = in.readLong();
+        int retained = in.readInt();
+        int skipped = Math.max(0, retained - historyCapacity);
+        TransactionHistory history = account.getHistory();
+        history.startAt(first + skipped);
+        for (int i = 0; i < retained; i++) {
+            byte type = in.readByte();
+            String symbol = in.readUTF();
+            double amount = in.readDouble();
+            double price = in.readDouble();
+            double profitLoss = in.readDouble();
+            long nanos = in.readLong();
+            if (i >= skipped) {
+                history.append(type, symbols.idOf(symbol), amount, price, profitLoss, nanos);
+            }
+        }
+
+        int orders = version >= 2 ? in.readInt() : 0;
+        for (int i = 0; i < orders; i++) {
+            long id = in.readLong();
+            String side = in.readUTF();
+            String symbol = in.readUTF();
+            String orderType = in.readUTF();
+            double amount = in.readDouble();
+            double limit = in.readDouble();
+            double stop = in.readDouble();
+            boolean triggered = in.readBoolean();
+            Order order = new Order(id, accountId, side, symbol, amount, orderType,
+                    Double.isNaN(limit) ? null : limit, Double.isNaN(stop) ? null : stop, in.readLong());
+            order.setTriggered(triggered);
+            account.getOpenOrders().put(id, order);
+        }
+
+        if (version >= 3) {
+            account.setRealizedProfitLoss(in.readDouble());
+        }
+        if (version >= 7) {
+            account.setPeakTotalValue(in.readDouble());
+        } else {
+            double valueAtCost = account.getBalance();
+            for (int id = 0; id < account.getPositionSlots(); id++) {
+                valueAtCost += account.getPositionCost(id);
+            }
+            account.setPeakTotalValue(valueAtCost);
+        }
+        return account;
+    }
+
+    private static void restorePosition(Account account, String accountId, SymbolTable symbols, String symbol,
+                                        long quantity, double cost) {
+        int symbolId = symbols.idOf(symbol);
+        if (symbolId < 0) {
+            log.warn("Dropping position of account {} in unlisted symbol {}", accountId, symbol);
+            return;
+        }
+        account.setPosition(symbolId, quantity, cost);
+    }
+
+    private static Map<String, Double> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Double> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(in.readUTF(), in.readDouble());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,200 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+
+import java.util.Arrays;
+
+/**
+ * The BacktestContext is the market and account of one backtest run as seen by its {@link TradingStrategy}: the
+ * latest price of every symbol up to the current tick and a simulated account.
+ * <p>
+ * Trades are market trades executed at the current price of their symbol, with the same checks and the same
+ * balance, holdings and average price accounting as {@link CryptoService}. The context also tracks the equity of
+ * the account on every tick, so the run's maximum drawdown is known without revaluing the holdings.
+ * </p>
+ */
+public final class BacktestContext {
+
+    /* Symbols of the run */
+    private final SymbolTable symbols;
+
+    /* Simulated account */
+    private final Account account;
+
+    /* Latest price and held amount per symbol id; prices are NaN until the first tick */
+    private final double[] prices;
+    private final double[] positions;
+
+    /* Value of the holdings at the latest prices */
+    private double marketValue;
+
+    /* Highest equity so far and the largest relative drop from it */
+    private double peakEquity;
+    private double maxDrawdown;
+
+    /* Time of the current tick in epoch milliseconds */
+    private long timestamp;
+
+    /* Executed and rejected trades */
+    private long trades;
+    private long rejected;
+
+    /**
+     * Constructs a BacktestContext.
+     *
+     * @param symbols the symbols of the run
+     * @param initialBalance the starting balance of the account
+     * @param historyCapacity the maximum number of transactions retained in the account's history
+     */
+    BacktestContext(SymbolTable symbols, double initialBalance, int historyCapacity) {
+        this.symbols = symbols;
+        this.account = new Account(initialBalance, historyCapacity, symbols);
+        this.prices = new double[symbols.size()];
+        this.positions = new double[symbols.size()];
+        Arrays.fill(prices, Double.NaN);
+        this.peakEquity = initialBalance;
+    }
+
+    /**
+     * Moves the market to a new tick and updates the equity and drawdown.
+     *
+     * @param symbolId the id of the ticked symbol
+     * @param timestamp the time of the tick in epoch milliseconds
+     * @param price the tick price
+     */
+    void onTick(int symbolId, long timestamp, double price) {
+        this.timestamp = timestamp;
+        if (positions[symbolId] != 0) {
+            marketValue += positions[symbolId] * (price - prices[symbolId]);
+        }
+        prices[symbolId] = price;
+        double equity = getEquity();
+        if (equity > peakEquity) {
+            peakEquity = equity;
+        } else if (peakEquity > 0 && (peakEquity - equity) / peakEquity > maxDrawdown) {
+            maxDrawdown = (peakEquity - equity) / peakEquity;
+        }
+    }
+
+    /**
+     * Executes a market trade at the current price of its symbol.
+     *
+     * @param request the trade, with type "buy" or "sell", symbol and amount
+     * @return true if the trade was executed, false if it was rejected
+     */
+    public boolean trade(TradeRequest request) {
+        double amount = request.getAmount();
+        int symbolId = getSymbolId(request.getSymbol());
+        long quantity = FixedPoint.toUnits(amount);
+        if (quantity <= 0 || symbolId < 0 || Double.isNaN(prices[symbolId])) {
+            rejected++;
+            return false;
+        }
+        double price = prices[symbolId];
+        long nanos = timestamp * 1_000_000;
+        if ("buy".equalsIgnoreCase(request.getType())) {
+            if (FixedPoint.multiply(FixedPoint.toUnits(price), quantity) > account.getBalanceUnits()) {
+                rejected++;
+                return false;
+            }
+            CryptoService.applyBuy(account, symbolId, amount, price, nanos);
+        } else if ("sell".equalsIgnoreCase(request.getType())) {
+            if (quantity > account.getQuantityUnits(symbolId)) {
+                rejected++;
+                return false;
+            }
+            CryptoService.applySell(account, symbolId, amount, price, nanos);
+        } else {
+            rejected++;
+            return false;
+        }
+        double position = account.getQuantity(symbolId);
+        marketValue += (position - positions[symbolId]) * price;
+        positions[symbolId] = position;
+        trades++;
+        return true;
+    }
+
+    /**
+     * Gets the id of a symbol.
+     *
+     * @param symbol the cryptocurrency symbol
+     * @return the symbol id, or -1 if the recorded ticks do not contain the symbol
+     */
+    public int getSymbolId(String symbol) {
+        return symbols.idOf(symbol);
+    }
+
+    /**
+     * Gets the symbol of a symbol id.
+     *
+     * @param symbolId the symbol id
+     * @return the cryptocurrency symbol
+     */
+    public String getSymbol(int symbolId) {
+        return symbols.symbolOf(symbolId);
+    }
+
+    /**
+     * Gets the latest price of a symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the price, or NaN before the first tick of the symbol
+     */
+    public double getPrice(int symbolId) {
+        return prices[symbolId];
+    }
+
+    /**
+     * Gets the held amount of a symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the held amount, 0 if none
+     */
+    public double getPosition(int symbolId) {
+        return positions[symbolId];
+    }
+
+    /**
+     * Gets the simulated account. Strategies must only change it through {@link #trade(TradeRequest)}.
+     *
+     * @return the account
+     */
+    public Account getAccount() {
+        return account;
+    }
+
+    /**
+     * Gets the balance plus the value of the holdings at the latest prices.
+     *
+     * @return the equity of the account
+     */
+    public double getEquity() {
+        return account.getBalance() + marketValue;
+    }
+
+    /**
+     * Gets the largest drop of the equity from its previous high, relative to that high.
+     *
+     * @return the maximum drawdown as a fraction, between 0 and 1
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    /* Getters */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
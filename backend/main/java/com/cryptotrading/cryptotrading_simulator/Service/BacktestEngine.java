@@ -0,0 +1,215 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.BacktestResult;
+import com.cryptotrading.cryptotrading_simulator.Model.Candle;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The BacktestEngine runs {@link TradingStrategy}s over recorded {@link TickTape}s, e.g. the tapes written by the
+ * {@link TickRecorder}.
+ * <p>
+ * A run replays the ticks of all tapes in order into a {@link BacktestContext} with a fresh account, aggregates
+ * them into candles of one interval and calls the strategy back for every tick and completed candle. Trades use the
+ * same accounting as live trading. Runs share nothing but the read-only tapes, which every run maps on its own, so
+ * a parameter sweep runs one backtest per parameter set in parallel on a fork-join pool.
+ * </p>
+ */
+public class BacktestEngine {
+
+    /* Transactions retained per backtest account; older ones are only counted */
+    private static final int HISTORY_CAPACITY = 1024;
+
+    /* Tapes to replay, in time order */
+    private final List<Path> tapes;
+
+    /* Symbols of all tapes */
+    private final SymbolTable symbols = new SymbolTable();
+
+    /* Symbol id per symbol index, per tape */
+    private final int[][] tapeSymbolIds;
+
+    /* Starting balance of every run */
+    private final double initialBalance;
+
+    /* Length of the candles passed to the strategies, 0 for none */
+    private final long candleMillis;
+
+    /**
+     * Constructs a BacktestEngine, reading the symbol tables of the tapes.
+     *
+     * @param tapes the tapes to replay, in time order
+     * @param initialBalance the starting balance of every run
+     * @param candleMillis the length of the candles passed to the strategies in milliseconds, 0 for none
+     * @throws UncheckedIOException if a tape cannot be read
+     */
+    public BacktestEngine(List<Path> tapes, double initialBalance, long candleMillis) {
+        this.tapes = new ArrayList<>(tapes);
+        this.initialBalance = initialBalance;
+        this.candleMillis = candleMillis;
+        this.tapeSymbolIds = new int[tapes.size()][];
+        for (int t = 0; t < tapes.size(); t++) {
+            try (TickTape.Reader tape = TickTape.open(tapes.get(t))) {
+                String[] tapeSymbols = tape.getSymbols();
+                tapeSymbolIds[t] = new int[tapeSymbols.length];
+                for (int i = 0; i < tapeSymbols.length; i++) {
+                    tapeSymbolIds[t][i] = symbols.intern(tapeSymbols[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading tick tape " + tapes.get(t), e);
+            }
+        }
+    }
+
+    /**
+     * Runs a strategy over all tapes.
+     *
+     * @param strategy the strategy to run
+     * @param parameters the description of the strategy's parameters, for the result
+     * @return the result of the run
+     * @throws UncheckedIOException if a tape cannot be read
+     */
+    public BacktestResult run(TradingStrategy strategy, String parameters) {
+        long start = System.nanoTime();
+        BacktestContext context = new BacktestContext(symbols, initialBalance, HISTORY_CAPACITY);
+        long[] candleStart = new long[symbols.size()];
+        double[] open = new double[symbols.size()];
+        double[] high = new double[symbols.size()];
+        double[] low = new double[symbols.size()];
+        double[] close = new double[symbols.size()];
+        double[] volume = new double[symbols.size()];
+        Arrays.fill(candleStart, Long.MIN_VALUE);
+        long ticks = 0;
+
+        strategy.onStart(context);
+        for (int t = 0; t < tapes.size(); t++) {
+            int[] ids = tapeSymbolIds[t];
+            try (TickTape.Reader tape = TickTape.open(tapes.get(t))) {
+                while (tape.next()) {
+                    int index = tape.getSymbolIndex();
+                    if (index < 0 || index >= ids.length) {
+                        continue;
+                    }
+                    int id = ids[index];
+                    long timestamp = tape.getTimestamp();
+                    double price = tape.getPrice();
+                    if (candleMillis > 0) {
+                        long bucket = timestamp - Math.floorMod(timestamp, candleMillis);
+                        if (bucket != candleStart[id]) {
+                            if (candleStart[id] != Long.MIN_VALUE) {
+                                strategy.onCandle(context, id, new Candle(candleStart[id], open[id], high[id],
+                                        low[id], close[id], volume[id]));
+                            }
+                            candleStart[id] = bucket;
+                            open[id] = price;
+                            high[id] = price;
+                            low[id] = price;
+                            volume[id] = 0;
+                        }
+                        high[id] = Math.max(high[id], price);
+                        low[id] = Math.min(low[id], price);
+                        close[id] = price;
+                        volume[id] += tape.getVolume();
+                    }
+                    context.onTick(id, timestamp, price);
+                    strategy.onTick(context, id, timestamp, price);
+                    ticks++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading tick tape " + tapes.get(t), e);
+            }
+        }
+
+        return new BacktestResult(parameters, initialBalance, context.getEquity(),
+                context.getAccount().getRealizedProfitLoss(), context.getMaxDrawdown(), context.getTrades(),
+                context.getRejected(), ticks, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Runs a strategy once per parameter set, in parallel on the common fork-join pool.
+     *
+     * @param parameters the parameter sets
+     * @param factory creates a fresh strategy for a parameter set
+     * @param <P> the type of a parameter set; its {@code toString()} describes it in the result
+     * @return the results, in the order of the parameter sets
+     */
+    public <P> List<BacktestResult> sweep(List<P> parameters, Function<P, TradingStrategy> factory) {
+        return sweep(parameters, factory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs a strategy once per parameter set, in parallel on the given fork-join pool.
+     *
+     * @param parameters the parameter sets
+     * @param factory creates a fresh strategy for a parameter set
+     * @param pool the pool running the backtests
+     * @param <P> the type of a parameter set; its {@code toString()} describes it in the result
+     * @return the results, in the order of the parameter sets
+     */
+    public <P> List<BacktestResult> sweep(List<P> parameters, Function<P, TradingStrategy> factory,
+                                          ForkJoinPool pool) {
+        BacktestResult[] results = new BacktestResult[parameters.size()];
+        if (results.length > 0) {
+            pool.invoke(new SweepTask<>(parameters, factory, results, 0, results.length));
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Gets the symbols of the tapes.
+     *
+     * @return the symbols, indexed by the symbol ids of the backtest contexts
+     */
+    public String[] getSymbols() {
+        String[] all = new String[symbols.size()];
+        for (int id = 0; id < all.length; id++) {
+            all[id] = symbols.symbolOf(id);
+        }
+        return all;
+    }
+
+    /**
+     * Splits a range of parameter sets in halves until a single backtest is left, which it runs.
+     */
+    private final class SweepTask<P> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<P> parameters;
+        private final Function<P, TradingStrategy> factory;
+        private final BacktestResult[] results;
+        private final int from;
+        private final int to;
+
+        SweepTask(List<P> parameters, Function<P, TradingStrategy> factory, BacktestResult[] results,
+                  int from, int to) {
+            this.parameters = parameters;
+            this.factory = factory;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                P parameter = parameters.get(from);
+                results[from] = run(factory.apply(parameter), String.valueOf(parameter));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask<>(parameters, factory, results, from, middle),
+                    new SweepTask<>(parameters, factory, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Candle;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CandleSeries holds the most recent OHLCV bars of one symbol at one interval in a fixed-size ring of primitive
+ * columns.
+ * <p>
+ * A bar is stored in the slot {@code barIndex % capacity}, where {@code barIndex} is the bar's start time divided by
+ * the interval; the slot remembers which bar it holds, so intervals without ticks are simply absent and old bars
+ * are overwritten in place. Memory is fixed at construction.
+ * </p>
+ * <p>
+ * Writers are serialized by the series' monitor. Readers never lock: they use the series version as a seqlock, an
+ * odd version meaning a write is in progress, and retry if the version changed while they were copying.
+ * </p>
+ */
+final class CandleSeries {
+
+    /* Length of a bar in milliseconds */
+    private final long intervalMillis;
+
+    /* Number of bars retained */
+    private final int capacity;
+
+    /* Columns, by slot */
+    private final long[] barIndexes;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final double[] volumes;
+
+    /* Index of the newest bar, -1 while empty */
+    private long newestBar = -1;
+
+    /* Seqlock version, odd while a write is in progress */
+    private volatile long version;
+
+    /**
+     * Constructs an empty CandleSeries.
+     *
+     * @param intervalMillis the length of a bar in milliseconds
+     * @param capacity the number of bars retained
+     */
+    CandleSeries(long intervalMillis, int capacity) {
+        this.intervalMillis = intervalMillis;
+        this.capacity = capacity;
+        this.barIndexes = new long[capacity];
+        this.opens = new double[capacity];
+        this.highs = new double[capacity];
+        this.lows = new double[capacity];
+        this.closes = new double[capacity];
+        this.volumes = new double[capacity];
+        Arrays.fill(barIndexes, -1);
+    }
+
+    /**
+     * Adds a tick to the bar it falls into, starting a new bar if needed. A late tick for an older, still retained
+     * bar only extends its high, low and volume.
+     *
+     * @param timestamp the tick time in epoch milliseconds
+     * @param price the tick price
+     * @param volume the traded volume of the tick
+     */
+    synchronized void record(long timestamp, double price, double volume) {
+        long bar = Math.floorDiv(timestamp, intervalMillis);
+        if (bar < newestBar - capacity + 1) {
+            return; // older than anything retained
+        }
+        int slot = (int) Math.floorMod(bar, (long) capacity);
+        long v = version;
+        version = v + 1;
+        VarHandle.storeStoreFence();
+        if (barIndexes[slot] != bar) {
+            barIndexes[slot] = bar;
+            opens[slot] = price;
+            highs[slot] = price;
+            lows[slot] = price;
+            closes[slot] = price;
+            volumes[slot] = volume;
+        } else {
+            highs[slot] = Math.max(highs[slot], price);
+            lows[slot] = Math.min(lows[slot], price);
+            volumes[slot] += volume;
+            if (bar >= newestBar) {
+                closes[slot] = price;
+            }
+        }
+        newestBar = Math.max(newestBar, bar);
+        version = v + 2;
+    }
+
+    /**
+     * Reads the bars starting within {@code [from, to]}, oldest first. If more than {@code limit} bars match, the
+     * newest ones are returned. Only the requested range is read.
+     *
+     * @param from the inclusive start of the range in epoch milliseconds
+     * @param to the inclusive end of the range in epoch milliseconds
+     * @param limit the maximum number of bars to return
+     * @return the bars in the range, oldest first
+     */
+    List<Candle> range(long from, long to, int limit) {
+        while (true) {
+            long v = version;
+            if ((v & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            List<Candle> candles = read(from, to, limit);
+            VarHandle.loadLoadFence();
+            if (version == v) {
+                return candles;
+            }
+        }
+    }
+
+    private List<Candle> read(long from, long to, int limit) {
+        long newest = newestBar;
+        long first = Math.max(Math.floorDiv(from, intervalMillis), newest - capacity + 1);
+        long last = Math.min(Math.floorDiv(to, intervalMillis), newest);
+        List<Candle> candles = new ArrayList<>((int) Math.max(0, Math.min(limit, last - first + 1)));
+        // Walk back from the newest bar in range so that the limit keeps the newest bars
+        for (long bar = last; bar >= first && candles.size() < limit; bar--) {
+            int slot = (int) Math.floorMod(bar, (long) capacity);
+            if (barIndexes[slot] == bar) {
+                candles.add(new Candle(bar * intervalMillis, opens[slot], highs[slot], lows[slot], closes[slot],
+                        volumes[slot]));
+            }
+        }
+        Collections.reverse(candles);
+        return candles;
+    }
+}
@@ -0,0 +1,80 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Candle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The CandleStore aggregates price ticks into OHLCV candles at the 1s, 1m, 5m and 1h intervals.
+ * <p>
+ * Every symbol has one {@link CandleSeries} per interval with a fixed number of retained bars (one hour of 1s bars,
+ * one day of 1m bars, one week of 5m bars and 90 days of 1h bars), so memory per symbol is bounded at roughly
+ * 450 KB no matter how long the application runs. Range queries read only the requested bars.
+ * </p>
+ */
+public class CandleStore {
+
+    /* Supported intervals, their length and the number of retained bars */
+    private static final List<String> INTERVALS = Arrays.asList("1s", "1m", "5m", "1h");
+    private static final long[] INTERVAL_MILLIS = {1000L, 60_000L, 300_000L, 3_600_000L};
+    private static final int[] CAPACITIES = {3600, 1440, 2016, 2160};
+
+    /* Candle series by symbol id and interval */
+    private final CandleSeries[][] series;
+
+    /**
+     * Constructs an empty CandleStore.
+     *
+     * @param symbolCount the number of symbols in the price store
+     */
+    public CandleStore(int symbolCount) {
+        this.series = new CandleSeries[symbolCount][INTERVALS.size()];
+        for (int id = 0; id < symbolCount; id++) {
+            for (int i = 0; i < INTERVALS.size(); i++) {
+                series[id][i] = new CandleSeries(INTERVAL_MILLIS[i], CAPACITIES[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds a tick to the candles of its symbol at every interval.
+     *
+     * @param symbolId the id of the symbol
+     * @param timestamp the tick time in epoch milliseconds
+     * @param price the tick price
+     * @param volume the traded volume of the tick, 0 if unknown
+     */
+    public void record(int symbolId, long timestamp, double price, double volume) {
+        if (symbolId < 0 || symbolId >= series.length) {
+            return;
+        }
+        for (CandleSeries candles : series[symbolId]) {
+            candles.record(timestamp, price, volume);
+        }
+    }
+
+    /**
+     * Reads the candles of a symbol starting within a time range, oldest first.
+     *
+     * @param symbolId the id of the symbol
+     * @param interval the interval label: "1s", "1m", "5m" or "1h"
+     * @param from the inclusive start of the range in epoch milliseconds
+     * @param to the inclusive end of the range in epoch milliseconds
+     * @param limit the maximum number of candles; the newest ones are returned if the range holds more
+     * @return the candles, oldest first
+     */
+    public List<Candle> query(int symbolId, String interval, long from, long to, int limit) {
+        return series[symbolId][INTERVALS.indexOf(interval)].range(from, to, limit);
+    }
+
+    /**
+     * Checks whether an interval label is supported.
+     *
+     * @param interval the interval label
+     * @return true for "1s", "1m", "5m" and "1h"
+     */
+    public static boolean isSupported(String interval) {
+        return INTERVALS.contains(interval);
+    }
+}
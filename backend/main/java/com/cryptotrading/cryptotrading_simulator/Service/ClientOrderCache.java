@@ -0,0 +1,160 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A ClientOrderCache remembers the trades executed for client order ids on the accounts of one {@link AccountShard},
+ * so a retried request is answered with the original response instead of being executed again.
+ * <p>
+ * Every account keeps its remembered trades in a hash map, so looking up a client order id takes constant time. Its
+ * trades are also queued in execution order, and so are the trades of the whole shard. Entries leave the cache in
+ * that order, in constant time per entry, once they are older than the time to live, once their account holds more
+ * than its share of entries, or once the shard holds more than its share. The cache therefore never grows beyond a
+ * fixed number of entries, however fast trades arrive; at rates beyond that bound, entries are forgotten before their
+ * time to live.
+ * </p>
+ * <p>
+ * The cache is owned by the shard thread.
+ * </p>
+ */
+public final class ClientOrderCache {
+
+    /* Time an executed trade is remembered, in nanoseconds */
+    private final long ttlNanos;
+
+    /* Most trades remembered per account */
+    private final int maxPerAccount;
+
+    /* Most trades remembered on the shard */
+    private final int maxEntries;
+
+    /* Remembered trades of each account, keyed by account id (shard thread only) */
+    private final Map<String, AccountEntries> accounts = new HashMap<>();
+
+    /* Remembered trades of all accounts in execution order, including ones already evicted from their account */
+    private final ArrayDeque<Entry> expiry = new ArrayDeque<>();
+
+    /**
+     * Constructs a ClientOrderCache.
+     *
+     * @param ttlMillis the time an executed trade is remembered, in milliseconds
+     * @param maxPerAccount the most trades remembered per account
+     * @param maxEntries the most trades remembered on the shard
+     */
+    public ClientOrderCache(long ttlMillis, int maxPerAccount, int maxEntries) {
+        this.ttlNanos = Math.max(0, ttlMillis) * 1_000_000L;
+        this.maxPerAccount = Math.max(1, maxPerAccount);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Looks up the trade executed for a client order id.
+     *
+     * @param accountId the id of the account
+     * @param clientOrderId the client order id
+     * @param nanos the current {@link System#nanoTime()}
+     * @return the remembered trade, or null if the id was not used or is forgotten
+     */
+    Entry get(String accountId, String clientOrderId, long nanos) {
+        expire(nanos);
+        AccountEntries entries = accounts.get(accountId);
+        return entries == null ? null : entries.byId.get(clientOrderId);
+    }
+
+    /**
+     * Remembers the trade executed for a client order id.
+     *
+     * @param accountId the id of the account
+     * @param clientOrderId the client order id, not yet remembered for the account
+     * @param response the response of the executed trade
+     * @param durability the flush batch the trade was journaled in, or null if it is not journaled
+     * @param nanos the current {@link System#nanoTime()}
+     */
+    void put(String accountId, String clientOrderId, TradeResponse response, CompletableFuture<Void> durability,
+             long nanos) {
+        AccountEntries entries = accounts.get(accountId);
+        if (entries == null) {
+            entries = new AccountEntries();
+            accounts.put(accountId, entries);
+        }
+        Entry entry = new Entry(accountId, clientOrderId, response, durability, nanos);
+        entries.byId.put(clientOrderId, entry);
+        entries.order.addLast(entry);
+        expiry.addLast(entry);
+        if (entries.order.size() > maxPerAccount) {
+            Entry oldest = entries.order.pollFirst();
+            entries.byId.remove(oldest.clientOrderId);
+            oldest.evicted = true;
+        }
+        while (expiry.size() > maxEntries) {
+            evict(expiry.pollFirst());
+        }
+    }
+
+    /**
+     * Gets the number of remembered trades, including ones evicted from their account but not yet dropped from the
+     * shard's queue.
+     *
+     * @return the number of entries held by the cache
+     */
+    int size() {
+        return expiry.size();
+    }
+
+    /* Forgets the trades older than the time to live */
+    private void expire(long nanos) {
+        Entry oldest;
+        while ((oldest = expiry.peekFirst()) != null && nanos - oldest.nanos > ttlNanos) {
+            evict(expiry.pollFirst());
+        }
+    }
+
+    /* Removes the oldest trade of the shard from its account, unless the account evicted it already */
+    private void evict(Entry entry) {
+        if (entry.evicted) {
+            return;
+        }
+        AccountEntries entries = accounts.get(entry.accountId);
+        entries.order.pollFirst();
+        entries.byId.remove(entry.clientOrderId);
+        if (entries.order.isEmpty()) {
+            accounts.remove(entry.accountId);
+        }
+    }
+
+    /**
+     * A trade remembered for a client order id.
+     */
+    static final class Entry {
+
+        final String accountId;
+        final String clientOrderId;
+        final TradeResponse response;
+        final CompletableFuture<Void> durability;
+        final long nanos;
+        boolean evicted;
+
+        Entry(String accountId, String clientOrderId, TradeResponse response, CompletableFuture<Void> durability,
+              long nanos) {
+            this.accountId = accountId;
+            this.clientOrderId = clientOrderId;
+            this.response = response;
+            this.durability = durability;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * The remembered trades of one account, by client order id and in execution order.
+     */
+    private static final class AccountEntries {
+
+        final Map<String, Entry> byId = new HashMap<>();
+        final ArrayDeque<Entry> order = new ArrayDeque<>();
+    }
+}
@@ -1,45 +1,363 @@
 package com.cryptotrading.cryptotrading_simulator.Service;
 
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
 import com.cryptotrading.cryptotrading_simulator.Model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
 
 /**
  * The CryptoService class is responsible for handling all the business logic related to cryptocurrency trading.
  * It manages the list of cryptocurrencies, allows for executing trades (buying and selling), simulates price updates,
- * and manages the user's account and transaction history.
+ * and manages the trading accounts and their transaction history.
  * <p>
- * This service uses simulated data for cryptocurrency prices and provides functionality for performing trades,
- * updating prices, and resetting or retrieving account information.
+ * Accounts are keyed by id and partitioned across a fixed number of {@link AccountShard}s. Each shard is the single
+ * writer for the accounts it owns, so trades on different accounts run in parallel without a global lock while
+ * trades on the same account are applied one at a time in arrival order.
+ * </p>
+ * <p>
+ * When persistence is enabled, every account change is journaled by its shard and acknowledged once the journal's
+ * group commit has made it durable. Accounts are snapshotted periodically; on startup the latest snapshot is loaded
+ * and the journal tail replayed.
+ * </p>
+ * <p>
+ * Resting limit, stop and stop-limit orders are handled by the {@link OrderService}, which executes the orders a tick
+ * crosses through the same trade path on the shards owning their accounts.
+ * </p>
+ * <p>
+ * Every trade passes the {@link RiskService} before funds and holdings are checked. A rejected trade carries the
+ * reason code of the failed check.
+ * </p>
+ * <p>
+ * Every shard values its accounts incrementally: a tick only revalues the accounts holding the ticked symbol.
+ * Valuation changes of watched accounts are passed to the registered {@link ValuationListener}s.
+ * </p>
+ * <p>
+ * Every valuation change also moves the account on its shard's {@link Leaderboard}, which ranks the accounts by total
+ * value and by realized profit or loss. Leaderboard queries merge the per-shard rankings, so neither the top
+ * accounts nor the rank of an account require sorting all accounts.
+ * </p>
+ * <p>
+ * For simulations with millions of accounts, {@code trading.accounts.off-heap.enabled} keeps the accounts in an
+ * {@link OffHeapAccountStore} per shard instead. Trades, account reads and resets work the same way; batches,
+ * resting orders, transaction history and persistence are not available for off-heap accounts.
  * </p>
  */
 @Service
 public class CryptoService {
 
-    /* List of the top 20 cryptocurrencies */
-    private final List<Cryptocurrency> cryptocurrencies = new ArrayList<>();
+    /* Id of the account used by the single-account endpoints */
+    public static final String DEFAULT_ACCOUNT_ID = "default";
+
+    /* Balance of a newly created or reset account */
+    private static final double INITIAL_BALANCE = 10000.0;
+
+    /* Largest page of transactions returned at once */
+    private static final int MAX_PAGE_SIZE = 500;
+
+    /* Largest number of candles returned at once */
+    private static final int MAX_CANDLES = 1000;
+
+    /* Largest number of legs in a trade batch */
+    private static final int MAX_BATCH_LEGS = 1000;
+
+    /* Largest number of accounts returned by a leaderboard query */
+    private static final int MAX_LEADERBOARD_SIZE = 1000;
+
+    /* Longest client order id remembered for a trade */
+    private static final int MAX_CLIENT_ORDER_ID_LENGTH = 64;
+
+    /* Longest account id that trades, orders or resets are accepted for, so every id fits a journal record */
+    static final int MAX_ACCOUNT_ID_LENGTH = TradeJournal.MAX_STRING_BYTES / 4;
+
+    private static final Logger log = LoggerFactory.getLogger(CryptoService.class);
+
+    /* Latest price tick of the top 20 cryptocurrencies */
+    private final PriceSnapshotStore priceStore = new PriceSnapshotStore();
+
+    /* Latency and outcome metrics of the trading and feed hot paths */
+    private final TradingMetrics metrics;
+
+    /* OHLCV candles built from the published ticks */
+    private final CandleStore candleStore;
+
+    /* Account shards, each owning the accounts whose id hashes to it */
+    private final AccountShard[] shards;
 
-    /* Map of the cryptocurrency symbol to the cryptocurrency */
-    private final Map<String, Cryptocurrency> cryptoMap = new ConcurrentHashMap<>();
+    /* Maximum number of transactions retained per account */
+    private final int historyCapacity;
 
-    /* Account */
-    private Account account = new Account(10000.0);
+    /* Whether the accounts are kept in the off-heap stores of the shards */
+    private final boolean offHeapAccounts;
+
+    /* Journal and snapshot storage */
+    private final PersistenceService persistence;
+
+    /* Pre-trade risk checks */
+    private final RiskService riskService;
+
+    /* Epoch of the journals currently written */
+    private long journalEpoch;
+
+    /* Watched account ids and their number of watchers */
+    private final Map<String, Integer> watchedAccounts = new ConcurrentHashMap<>();
+
+    /* Listeners receiving the valuations of watched accounts */
+    private final List<ValuationListener> valuationListeners = new CopyOnWriteArrayList<>();
+
+    /* Listeners told about the open orders cancelled by account resets */
+    private final List<Consumer<Order>> orderCancelListeners = new CopyOnWriteArrayList<>();
 
     /* Random ID */
     private final Random random = new Random();
 
-    /* Indicator whether to use simulated data */
-    private boolean useSimulatedData = true;
+    /* Whether the live feed (1) or the simulator (0) currently prices a symbol, by symbol id */
+    private final AtomicIntegerArray liveSymbols;
+
+    /* Recorder capturing every published tick, null while recording is off */
+    private volatile TickRecorder tickRecorder;
 
     /**
-     * Initializes the CryptoService with sample cryptocurrency data.
-     * Adds top 20 cryptocurrencies with predefined values for price and 24h change.
+     * Initializes the CryptoService with sample cryptocurrency data and its account shards.
+     * Adds top 20 cryptocurrencies with predefined values for price and 24h change, followed by the given number of
+     * synthetic symbols for load testing.
+     *
+     * @param properties the trading settings of the shards, history, off-heap accounts and client order ids
+     * @param persistence the journal and snapshot storage; accounts are recovered from it before the service is used
+     * @param metrics the metrics recording trade and feed latencies
+     * @param riskService the pre-trade risk checks
+     * @param syntheticSymbols the number of synthetic symbols to add, priced by the {@link SyntheticMarketData} source
      */
-    public CryptoService() {
+    public CryptoService(TradingProperties properties, PersistenceService persistence, TradingMetrics metrics,
+                         RiskService riskService, @Value("${market-data.synthetic.symbols:0}") int syntheticSymbols) {
         initializeCryptos();
+        for (int i = 1; i <= syntheticSymbols; i++) {
+            addCrypto("Synthetic " + i, "SYN" + i, 100.0, 0.0);
+        }
+        this.liveSymbols = new AtomicIntegerArray(priceStore.size());
+        this.metrics = metrics;
+        metrics.bindPriceStore(priceStore);
+        metrics.bindPersistence(persistence);
+        this.candleStore = new CandleStore(priceStore.size());
+        this.historyCapacity = properties.getHistory().getCapacity();
+        this.persistence = persistence;
+        this.riskService = riskService;
+        this.offHeapAccounts = properties.getAccounts().getOffHeap().isEnabled();
+        String offHeapDirectory = properties.getAccounts().getOffHeap().getDirectory();
+        TradingProperties.ClientOrders clientOrders = properties.getClientOrders();
+        int shardCount = properties.getEngine().getShards();
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new AccountShard[count];
+        for (int i = 0; i < count; i++) {
+            AccountShard shard = new AccountShard(i, INITIAL_BALANCE, historyCapacity, priceStore.getSymbols());
+            shard.setValuator(new PortfolioValuator(shard, priceStore,
+                    (accountId, account, tick) -> publishValuation(shard, accountId, account, tick)));
+            shard.setClientOrders(new ClientOrderCache(clientOrders.getTtlMs(), clientOrders.getMaxPerAccount(),
+                    clientOrders.getMaxPerShard()));
+            shards[i] = shard;
+            if (offHeapAccounts) {
+                shards[i].setOffHeapStore(new OffHeapAccountStore(priceStore.size(),
+                        FixedPoint.toUnits(INITIAL_BALANCE),
+                        offHeapDirectory.isEmpty() ? null : Paths.get(offHeapDirectory), "accounts-" + i));
+            }
+        }
+        if (offHeapAccounts) {
+            log.info("Keeping accounts off-heap{}; they are not persisted",
+                    offHeapDirectory.isEmpty() ? "" : " in " + offHeapDirectory);
+        } else if (persistence.isEnabled()) {
+            recoverAccounts();
+        }
+        // The single-account endpoints read the default account, which therefore always exists
+        AccountShard defaultShard = shardFor(DEFAULT_ACCOUNT_ID);
+        defaultShard.execute(() -> offHeapAccounts
+                ? defaultShard.getOffHeapStore().findOrCreate(DEFAULT_ACCOUNT_ID)
+                : defaultShard.account(DEFAULT_ACCOUNT_ID));
+        priceStore.addListener(this::revalueHoldings);
+    }
+
+    /**
+     * Recovers the accounts from the latest snapshot and the journal tail written after it, then starts a new
+     * journal epoch: a fresh snapshot of the recovered accounts is written and new, empty journals are opened.
+     */
+    private void recoverAccounts() {
+        long start = System.nanoTime();
+        Map<String, Account> recovered = new HashMap<>();
+        List<Long> journalPositions = new ArrayList<>();
+        int[] snapshotVersion = new int[1];
+        long epoch = persistence.readSnapshot((version, shard, position, accountCount, in) -> {
+            snapshotVersion[0] = version;
+            journalPositions.add(position);
+            for (int i = 0; i < accountCount; i++) {
+                String accountId = in.readUTF();
+                recovered.put(accountId,
+                        AccountSnapshotCodec.read(in, version, accountId, historyCapacity, priceStore.getSymbols()));
+            }
+        });
+        long snapshotAccounts = recovered.size();
+        long replayed = 0;
+        long[] skipped = new long[1];
+        if (epoch >= 0) {
+            TradeJournal.ReplayHandler handler = new TradeJournal.ReplayHandler() {
+                @Override
+                public void onTrade(byte type, String accountId, String symbol, double amount, double price,
+                                    long nanos) {
+                    Account account = recovered.computeIfAbsent(accountId,
+                            id -> new Account(INITIAL_BALANCE, historyCapacity, priceStore.getSymbols()));
+                    int symbolId = priceStore.idOf(symbol);
+                    if (symbolId < 0) {
+                        skipped[0]++;
+                        log.debug("Skipping journaled trade of unlisted symbol {}", symbol);
+                    } else if (type == TradeJournal.TYPE_BUY) {
+                        applyBuy(account, symbolId, amount, price, nanos);
+                    } else {
+                        applySell(account, symbolId, amount, price, nanos);
+                    }
+                }
+
+                @Override
+                public void onReset(String accountId, long nanos) {
+                    recovered.put(accountId, new Account(INITIAL_BALANCE, historyCapacity, priceStore.getSymbols()));
+                }
+
+                @Override
+                public void onOrder(Order order) {
+                    recovered.computeIfAbsent(order.getAccountId(),
+                            id -> new Account(INITIAL_BALANCE, historyCapacity, priceStore.getSymbols()))
+                            .getOpenOrders().put(order.getId(), order);
+                }
+
+                @Override
+                public void onOrderDone(String accountId, long orderId, long nanos) {
+                    Account account = recovered.get(accountId);
+                    if (account != null) {
+                        account.getOpenOrders().remove(orderId);
+                    }
+                }
+
+                @Override
+                public void onOrderTriggered(String accountId, long orderId, long nanos) {
+                    Account account = recovered.get(accountId);
+                    Order order = account == null ? null : account.getOpenOrders().get(orderId);
+                    if (order != null) {
+                        order.setTriggered(true);
+                    }
+                }
+            };
+            for (int shard = 0; shard < journalPositions.size(); shard++) {
+                replayed += persistence.replayJournal(snapshotVersion[0], shard, epoch, journalPositions.get(shard),
+                        handler);
+            }
+        }
+
+        // Drop the open orders of symbols that are no longer listed; the order service books the others
+        long openOrders = 0;
+        for (Account account : recovered.values()) {
+            Iterator<Order> orders = account.getOpenOrders().values().iterator();
+            while (orders.hasNext()) {
+                if (priceStore.idOf(orders.next().getSymbol()) < 0) {
+                    orders.remove();
+                } else {
+                    openOrders++;
+                }
+            }
+        }
+
+        // Hand the accounts to their owning shards
+        Map<AccountShard, Map<String, Account>> byShard = new HashMap<>();
+        recovered.forEach((id, account) ->
+                byShard.computeIfAbsent(shardFor(id), shard -> new HashMap<>()).put(id, account));
+        byShard.forEach((shard, accounts) -> shard.execute(() -> {
+            accounts.forEach((id, account) -> {
+                shard.restoreAccount(id, account);
+                shard.getValuator().trackAll(id, account);
+                shard.getValuator().revalue(id, account);
+            });
+            return null;
+        }));
+
+        // Start a new epoch so the old journals are no longer needed
+        journalEpoch = epoch + 1;
+        snapshotAccounts();
+        persistence.deleteStaleJournals(journalEpoch);
+        for (AccountShard shard : shards) {
+            TradeJournal journal = persistence.openJournal(shard.getIndex(), journalEpoch);
+            shard.execute(() -> {
+                shard.setJournal(journal);
+                return null;
+            });
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (skipped[0] > 0) {
+            log.warn("Skipped {} journaled trades of symbols that are no longer listed", skipped[0]);
+        }
+        log.info("Recovered {} accounts ({} from snapshot, {} journal records replayed) and {} open orders in {} ms",
+                recovered.size(), snapshotAccounts, replayed, openOrders, millis);
+    }
+
+    /**
+     * Writes a snapshot of all accounts. Every shard encodes its accounts on its own thread together with its
+     * current journal position; journal segments before that position are deleted once the snapshot is in place.
+     */
+    @Scheduled(fixedDelayString = "${trading.persistence.snapshot-interval-ms:60000}",
+            initialDelayString = "${trading.persistence.snapshot-interval-ms:60000}")
+    public void snapshotAccounts() {
+        if (!persistence.isEnabled() || offHeapAccounts) {
+            return;
+        }
+        List<CompletableFuture<PersistenceService.SnapshotSection>> futures = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            futures.add(shard.submit(() -> encodeShard(shard)));
+        }
+        List<PersistenceService.SnapshotSection> sections = new ArrayList<>();
+        for (CompletableFuture<PersistenceService.SnapshotSection> future : futures) {
+            sections.add(future.join());
+        }
+        persistence.writeSnapshot(journalEpoch, sections);
+        for (int i = 0; i < shards.length; i++) {
+            TradeJournal journal = shards[i].getJournal();
+            if (journal != null) {
+                journal.deleteSegmentsBefore(sections.get(i).getJournalPosition());
+            }
+        }
+    }
+
+    /**
+     * Encodes the accounts of a shard. Must only be called from the shard thread.
+     *
+     * @param shard the shard
+     * @return the snapshot section of the shard
+     */
+    private PersistenceService.SnapshotSection encodeShard(AccountShard shard) {
+        TradeJournal journal = shard.getJournal();
+        long position = journal == null ? 0 : journal.getWritePosition();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        shard.forEachAccount((id, account) -> {
+            try {
+                out.writeUTF(id);
+                AccountSnapshotCodec.write(out, account, this::symbolOf);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return new PersistenceService.SnapshotSection(position, shard.accountCount(), bytes.toByteArray());
     }
 
     /**
@@ -71,7 +389,7 @@ public class CryptoService {
     }
 
     /**
-     * Adds a new cryptocurrency to the list and map.
+     * Registers a new cryptocurrency in the price store.
      *
      * @param name the name of the cryptocurrency
      * @param symbol the symbol of the cryptocurrency (e.g., "BTC")
@@ -79,9 +397,7 @@ public class CryptoService {
      * @param change24h the percentage change in the price over the last 24 hours
      */
     private void addCrypto(String name, String symbol, double price, double change24h) {
-        Cryptocurrency crypto = new Cryptocurrency(name, symbol, price, change24h);
-        cryptocurrencies.add(crypto);
-        cryptoMap.put(symbol, crypto);
+        priceStore.register(new Cryptocurrency(name, symbol, price, change24h));
     }
 
     /**
@@ -92,33 +408,129 @@ public class CryptoService {
      * @param change24h the new 24-hour price change percentage
      */
     public void updateCryptoPrice(String symbol, double price, double change24h) {
-        Cryptocurrency crypto = cryptoMap.get(symbol);
-        if (crypto != null) {
-            crypto.setPrice(price);
-            crypto.setChange24h(change24h);
-            useSimulatedData = false;
+        int id = priceStore.idOf(symbol);
+        if (id >= 0) {
+            updateCryptoPrice(id, price, change24h);
         }
     }
 
     /**
-     * Simulates price updates for all cryptocurrencies in the system every 10 seconds.
-     * This method is scheduled to run periodically and simulates price changes between -2% and +2%.
+     * Updates the price and 24-hour price change of a cryptocurrency identified by its price store id.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     * @param price the new price of the cryptocurrency
+     * @param change24h the new 24-hour price change percentage
+     */
+    public void updateCryptoPrice(int id, double price, double change24h) {
+        updateCryptoPrice(id, price, change24h, 0.0);
+    }
+
+    /**
+     * Updates the price and 24-hour price change of a cryptocurrency identified by its price store id, together with
+     * the volume traded at that price. The symbol is priced by the live feed from now on, until it is handed back to
+     * the simulator with {@link #useSimulatedPrices(int)}.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     * @param price the new price of the cryptocurrency
+     * @param change24h the new 24-hour price change percentage
+     * @param volume the volume of the trade that set the price, 0 if unknown
+     */
+    public void updateCryptoPrice(int id, double price, double change24h, double volume) {
+        updateCryptoPrice(id, price, change24h, volume, System.currentTimeMillis());
+    }
+
+    /**
+     * Updates the price and 24-hour price change of a cryptocurrency identified by its price store id with a tick
+     * that happened at the given time, e.g. a replayed tick. The tick and its candles carry that time.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     * @param price the new price of the cryptocurrency
+     * @param change24h the new 24-hour price change percentage
+     * @param volume the volume of the trade that set the price, 0 if unknown
+     * @param timestamp the time of the tick in epoch milliseconds
+     */
+    public void updateCryptoPrice(int id, double price, double change24h, double volume, long timestamp) {
+        publish(id, price, change24h, volume, timestamp);
+        if (liveSymbols.get(id) == 0) {
+            liveSymbols.set(id, 1);
+        }
+    }
+
+    /**
+     * Hands a cryptocurrency back to the price simulator, e.g. because the live feed stopped pricing it.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     */
+    public void useSimulatedPrices(int id) {
+        liveSymbols.set(id, 0);
+    }
+
+    /**
+     * Hands all cryptocurrencies back to the price simulator, e.g. because the live feed disconnected.
+     */
+    public void useSimulatedPrices() {
+        for (int id = 0; id < liveSymbols.length(); id++) {
+            liveSymbols.set(id, 0);
+        }
+    }
+
+    /**
+     * Checks whether a cryptocurrency is currently priced by the live feed.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     * @return true if the live feed prices the symbol, false if the simulator does
+     */
+    public boolean isLive(int id) {
+        return liveSymbols.get(id) != 0;
+    }
+
+    /**
+     * Publishes a new tick to the price store, adds it to the candles of its symbol and hands it to the tick
+     * recorder, if one is set.
+     *
+     * @param id the symbol id of the cryptocurrency in the price store
+     * @param price the new price
+     * @param change24h the new 24-hour price change percentage
+     * @param volume the traded volume, 0 if unknown
+     * @param timestamp the time of the tick in epoch milliseconds
+     */
+    private void publish(int id, double price, double change24h, double volume, long timestamp) {
+        Cryptocurrency tick = priceStore.publish(id, price, change24h, timestamp);
+        candleStore.record(id, tick.getTimestamp(), price, volume);
+        TickRecorder recorder = tickRecorder;
+        if (recorder != null) {
+            recorder.record(id, tick.getTimestamp(), price, change24h, volume);
+        }
+    }
+
+    /**
+     * Sets the recorder that every published tick is handed to.
+     *
+     * @param tickRecorder the recorder, or null to stop recording
+     */
+    public void setTickRecorder(TickRecorder tickRecorder) {
+        this.tickRecorder = tickRecorder;
+    }
+
+    /**
+     * Simulates one price update for all cryptocurrencies not priced by the live feed, with price changes between -2%
+     * and +2%. Driven periodically by the {@link SimulatedMarketData} source.
      */
-    @Scheduled(fixedRate = 10000) // Every 10 seconds
     public void updatePrices() {
-        if (useSimulatedData) {
-            for (Cryptocurrency crypto : cryptocurrencies) {
+        for (int id = 0; id < priceStore.size(); id++) {
+            if (liveSymbols.get(id) == 0) {
+                Cryptocurrency crypto = priceStore.get(id);
+
                 // Simulate price changes between -2% and +2%
                 double changePercent = (random.nextDouble() * 4) - 2;
                 double newPrice = crypto.getPrice() * (1 + (changePercent / 100));
-                crypto.setPrice(newPrice);
 
                 // Update 24h change (would be more complex in real app)
                 double new24hChange = crypto.getChange24h() + ((random.nextDouble() * 1) - 0.5);
                 // Keep 24h change within reasonable bounds
                 if (new24hChange > 10) new24hChange = 10;
                 if (new24hChange < -10) new24hChange = -10;
-                crypto.setChange24h(new24hChange);
+                publish(id, newPrice, new24hChange, 0.0, System.currentTimeMillis());
             }
         }
     }
@@ -126,129 +538,934 @@ public class CryptoService {
     /**
      * Gets a list of all cryptocurrencies currently available in the system.
      *
-     * @return a list of all cryptocurrencies
+     * @return a snapshot of the latest tick of every cryptocurrency
      */
     public List<Cryptocurrency> getAllCryptos() {
-        return cryptocurrencies;
+        return priceStore.snapshot();
+    }
+
+    /**
+     * Gets the OHLCV candles of a cryptocurrency starting within a time range, oldest first.
+     *
+     * @param symbol the symbol of the cryptocurrency
+     * @param interval the candle interval: "1s", "1m", "5m" or "1h"
+     * @param from the inclusive start of the range in epoch milliseconds
+     * @param to the inclusive end of the range in epoch milliseconds
+     * @param limit the maximum number of candles; the newest ones are returned if the range holds more
+     * @return the candles, or null if the symbol or the interval is unknown
+     */
+    public List<Candle> getCandles(String symbol, String interval, long from, long to, int limit) {
+        int symbolId = priceStore.idOf(symbol);
+        if (symbolId < 0 || !CandleStore.isSupported(interval)) {
+            return null;
+        }
+        return candleStore.query(symbolId, interval, from, to, Math.max(1, Math.min(limit, MAX_CANDLES)));
+    }
+
+    /**
+     * Gets the metrics recording trade and feed latencies.
+     *
+     * @return the trading metrics
+     */
+    public TradingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the store holding the latest price tick of every cryptocurrency.
+     *
+     * @return the price store
+     */
+    public PriceSnapshotStore getPriceStore() {
+        return priceStore;
+    }
+
+    /**
+     * Gets the account shards.
+     *
+     * @return the shards, in index order
+     */
+    List<AccountShard> getShards() {
+        return Collections.unmodifiableList(Arrays.asList(shards));
+    }
+
+    /**
+     * Gets whether the accounts are kept in the off-heap stores of the shards.
+     *
+     * @return true for off-heap accounts
+     */
+    boolean hasOffHeapAccounts() {
+        return offHeapAccounts;
+    }
+
+    /**
+     * Gets the epoch of the journals currently written, 0 while persistence is disabled.
+     *
+     * @return the journal epoch
+     */
+    long getJournalEpoch() {
+        return journalEpoch;
+    }
+
+    /**
+     * Gets the shard that owns the account with the given id.
+     *
+     * @param accountId the account id
+     * @return the owning shard
+     */
+    AccountShard shardFor(String accountId) {
+        int hash = accountId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    /**
+     * Executes a trade (buy or sell) on the default account.
+     *
+     * @param request the trade request containing trade details (type, symbol, amount, etc.)
+     * @return a response indicating the success or failure of the trade along with the changes to the account
+     */
+    public TradeResponse executeTrade(TradeRequest request) {
+        return executeTrade(DEFAULT_ACCOUNT_ID, request);
+    }
+
+    /**
+     * Executes a trade (buy or sell) on the given account. The trade runs on the shard owning the account.
+     *
+     * @param accountId the id of the account to trade on
+     * @param request the trade request containing trade details (type, symbol, amount, etc.)
+     * @return a response indicating the success or failure of the trade along with the changes to the account
+     */
+    public TradeResponse executeTrade(String accountId, TradeRequest request) {
+        long start = System.nanoTime();
+        AccountShard shard = shardFor(accountId);
+        TradeResponse response = shard.execute(() -> executeTrade(shard, accountId, request));
+        metrics.recordTrade(response, System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Executes a trade (buy or sell) on the given account without waiting for it. The trade is handed to the shard
+     * owning the account, and the calling thread returns right away instead of blocking until the shard has executed
+     * the trade and the journal has made it durable.
+     *
+     * @param accountId the id of the account to trade on
+     * @param request the trade request containing trade details (type, symbol, amount, etc.)
+     * @return a future completed with the response once the trade is executed and durable
+     */
+    public CompletableFuture<TradeResponse> executeTradeAsync(String accountId, TradeRequest request) {
+        long start = System.nanoTime();
+        AccountShard shard = shardFor(accountId);
+        return shard.submitDurable(() -> executeTrade(shard, accountId, request)).thenApply(response -> {
+            metrics.recordTrade(response, System.nanoTime() - start);
+            return response;
+        });
+    }
+
+    /**
+     * Executes a trade on a heap or an off-heap account. Must only be called from the shard thread owning the
+     * account.
+     * <p>
+     * If the request carries a client order id that already executed a trade on the account, the trade is not
+     * executed again; the response of the original trade is returned once the original is durable. Only executed
+     * trades are remembered, so a request that was rejected may be retried with the same id.
+     * </p>
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param request the trade request containing trade details (type, symbol, amount, etc.)
+     * @return a response indicating the success or failure of the trade along with the changes to the account
+     */
+    private TradeResponse executeTrade(AccountShard shard, String accountId, TradeRequest request) {
+        if (accountId.length() > MAX_ACCOUNT_ID_LENGTH) {
+            return new TradeResponse(TradeResponse.REASON_INVALID_ACCOUNT,
+                    "Account id exceeds " + MAX_ACCOUNT_ID_LENGTH + " chars", 0.0, 0.0);
+        }
+        String clientOrderId = request.getClientOrderId();
+        if (clientOrderId == null) {
+            return offHeapAccounts
+                    ? executeOffHeapTrade(shard, accountId, request)
+                    : executeTrade(shard, accountId, shard.account(accountId), request);
+        }
+        if (clientOrderId.isEmpty() || clientOrderId.length() > MAX_CLIENT_ORDER_ID_LENGTH) {
+            return new TradeResponse(TradeResponse.REASON_INVALID_CLIENT_ORDER_ID,
+                    "Client order id must have 1 to " + MAX_CLIENT_ORDER_ID_LENGTH + " chars", 0.0, 0.0);
+        }
+        long nanos = System.nanoTime();
+        ClientOrderCache.Entry original = shard.getClientOrders().get(accountId, clientOrderId, nanos);
+        if (original != null) {
+            shard.awaitDurability(original.durability);
+            metrics.recordReplay();
+            return original.response;
+        }
+        TradeResponse response = offHeapAccounts
+                ? executeOffHeapTrade(shard, accountId, request)
+                : executeTrade(shard, accountId, shard.account(accountId), request);
+        response.setClientOrderId(clientOrderId);
+        if (response.isSuccess()) {
+            shard.getClientOrders().put(accountId, clientOrderId, response, shard.getPendingDurability(), nanos);
+        }
+        return response;
     }
 
     /**
      * Executes a trade (buy or sell) based on the provided trade request.
      * Validates inputs, checks for sufficient funds or holdings, and updates the account balance and holdings accordingly.
+     * Must only be called from the shard thread owning the account.
      *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account to trade on
      * @param request the trade request containing trade details (type, symbol, amount, etc.)
-     * @return a response indicating the success or failure of the trade along with the updated account
+     * @return a response indicating the success or failure of the trade along with the changes to the account
      */
-    public TradeResponse executeTrade(TradeRequest request) {
+    private TradeResponse executeTrade(AccountShard shard, String accountId, Account account, TradeRequest request) {
         String type = request.getType();
         String symbol = request.getSymbol();
         double amount = request.getAmount();
+        int symbolId = priceStore.idOf(symbol);
 
-        // Validate inputs
-        if (amount <= 0) {
-            return new TradeResponse(false, "Amount must be positive", account);
+        // Every submitted trade counts against the order rate, even if it is invalid
+        String risk = riskService.checkOrderRate(account);
+        if (risk != null) {
+            return reject(account, symbolId, risk, RiskEngine.describe(risk));
         }
 
-        Cryptocurrency crypto = cryptoMap.get(symbol);
-        if (crypto == null) {
-            return new TradeResponse(false, "Cryptocurrency not found", account);
+        // Validate inputs; amounts below the smallest quantity unit round to zero
+        if (FixedPoint.toUnits(amount) <= 0) {
+            return reject(account, symbolId, TradeResponse.REASON_INVALID_AMOUNT, "Amount must be positive");
         }
 
-        double price = crypto.getPrice();
-        double total = price * amount;
+        // Read the tick once so price and total come from the same snapshot
+        if (symbolId < 0) {
+            return reject(account, symbolId, TradeResponse.REASON_UNKNOWN_SYMBOL, "Cryptocurrency not found");
+        }
+        Cryptocurrency crypto = priceStore.get(symbolId);
+        return executeAtPrice(shard, accountId, account, type, symbolId, symbol, amount, crypto.getPrice());
+    }
+
+    /**
+     * Executes a validated buy or sell at the given price. Must only be called from the shard thread owning the
+     * account.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account to trade on
+     * @param type the trade type, "buy" or "sell"
+     * @param symbolId the price store id of the cryptocurrency
+     * @param symbol the symbol of the cryptocurrency
+     * @param amount the amount to trade
+     * @param price the execution price
+     * @return a response indicating the success or failure of the trade along with the changes to the account
+     */
+    TradeResponse executeAtPrice(AccountShard shard, String accountId, Account account, String type, int symbolId,
+                                 String symbol, double amount, double price) {
+        long total = FixedPoint.multiply(FixedPoint.toUnits(price), FixedPoint.toUnits(amount));
 
         if ("buy".equalsIgnoreCase(type)) {
-            return executeBuy(symbol, amount, price, total);
+            return executeBuy(shard, accountId, account, symbolId, symbol, amount, price, total);
         } else if ("sell".equalsIgnoreCase(type)) {
-            return executeSell(symbol, amount, price, total);
+            return executeSell(shard, accountId, account, symbolId, symbol, amount, price, total);
         } else {
-            return new TradeResponse(false, "Invalid trade type", account);
+            return reject(account, symbolId, TradeResponse.REASON_INVALID_TYPE, "Invalid trade type");
+        }
+    }
+
+    /**
+     * Executes a batch of trades on the given account all-or-nothing. The batch runs as one task on the shard
+     * owning the account.
+     *
+     * @param accountId the id of the account to trade on
+     * @param legs the trades of the batch, executed in order
+     * @return a response with the changes to the account, or naming the first leg that could not be executed
+     */
+    public BatchTradeResponse executeBatch(String accountId, List<TradeRequest> legs) {
+        if (accountId.length() > MAX_ACCOUNT_ID_LENGTH) {
+            return new BatchTradeResponse(false, "Account id exceeds " + MAX_ACCOUNT_ID_LENGTH + " chars", null, 0.0,
+                    0.0, Collections.emptyMap(), Collections.emptyList());
         }
+        AccountShard shard = shardFor(accountId);
+        return shard.execute(() -> offHeapAccounts
+                ? new BatchTradeResponse(false, "Batches are not supported for off-heap accounts", null, 0.0, 0.0,
+                        Collections.emptyMap(), Collections.emptyList())
+                : executeBatch(shard, accountId, shard.account(accountId), legs));
     }
 
     /**
-     * Executes a buy transaction, checking for sufficient funds and updating account balances and holdings.
+     * Executes a batch of trades. All legs are priced from the ticks read once at the start of the batch and checked
+     * in order against the running balance and holdings, so a leg may be funded by an earlier sell. The batch counts
+     * as one order: once against the order rate, and with the notional of all legs so far against the order notional
+     * limit. Each leg is checked against the position and total value the earlier legs leave. Only if every leg
+     * passes are they applied and journaled as one record. Must only be called from the shard thread owning the
+     * account.
      *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account to trade on
+     * @param legs the trades of the batch
+     * @return a response with the changes to the account, or naming the first leg that could not be executed
+     */
+    private BatchTradeResponse executeBatch(AccountShard shard, String accountId, Account account,
+                                            List<TradeRequest> legs) {
+        int count = legs == null ? 0 : legs.size();
+        if (count == 0) {
+            return rejectBatch(account, null, "Batch is empty");
+        }
+        if (count > MAX_BATCH_LEGS) {
+            return rejectBatch(account, null, "Batch exceeds " + MAX_BATCH_LEGS + " legs");
+        }
+        String risk = riskService.checkOrderRate(account);
+        if (risk != null) {
+            return rejectBatch(account, null, RiskEngine.describe(risk));
+        }
+
+        byte[] types = new byte[count];
+        int[] symbolIds = new int[count];
+        String[] symbols = new String[count];
+        double[] amounts = new double[count];
+        double[] prices = new double[count];
+        double[] snapshot = new double[priceStore.size()];
+        Arrays.fill(snapshot, Double.NaN);
+
+        // Price and check every leg against the running balance, holdings, notional and total value without
+        // touching the account
+        long balance = account.getBalanceUnits();
+        long notional = 0;
+        double totalValue = account.getTotalValue();
+        long[] holdings = new long[priceStore.size()];
+        Arrays.fill(holdings, -1);
+        for (int i = 0; i < count; i++) {
+            TradeRequest leg = legs.get(i);
+            String symbol = leg.getSymbol();
+            int symbolId = priceStore.idOf(symbol);
+            long quantity = FixedPoint.toUnits(leg.getAmount());
+            if (quantity <= 0) {
+                return rejectBatch(account, i, "Amount must be positive");
+            }
+            if (symbolId < 0) {
+                return rejectBatch(account, i, "Cryptocurrency not found");
+            }
+            if (Double.isNaN(snapshot[symbolId])) {
+                snapshot[symbolId] = priceStore.get(symbolId).getPrice();
+            }
+            double price = snapshot[symbolId];
+            long total = FixedPoint.multiply(FixedPoint.toUnits(price), quantity);
+            long holding = holdings[symbolId] >= 0 ? holdings[symbolId] : account.getQuantityUnits(symbolId);
+            notional += total;
+            risk = riskService.checkTrade("buy".equalsIgnoreCase(leg.getType()), FixedPoint.toUnits(price), notional,
+                    holding, quantity, totalValue, account.getPeakTotalValue());
+            if (risk != null) {
+                return rejectBatch(account, i, RiskEngine.describe(risk));
+            }
+            // The traded quantity is valued at the execution price, so the total value only moves by the rounding
+            // of the notional
+            double valueChange = FixedPoint.toDouble(quantity) * price - FixedPoint.toDouble(total);
+            if ("buy".equalsIgnoreCase(leg.getType())) {
+                if (total > balance) {
+                    return rejectBatch(account, i, "Insufficient funds");
+                }
+                types[i] = TradeJournal.TYPE_BUY;
+                balance -= total;
+                holding += quantity;
+                totalValue += valueChange;
+            } else if ("sell".equalsIgnoreCase(leg.getType())) {
+                if (quantity > holding) {
+                    return rejectBatch(account, i, "Insufficient holdings");
+                }
+                types[i] = TradeJournal.TYPE_SELL;
+                balance += total;
+                holding -= quantity;
+                totalValue -= valueChange;
+            } else {
+                return rejectBatch(account, i, "Invalid trade type");
+            }
+            holdings[symbolId] = holding;
+            symbolIds[i] = symbolId;
+            symbols[i] = symbol;
+            amounts[i] = leg.getAmount();
+            prices[i] = price;
+        }
+
+        // Every leg passed: apply them all and journal them as one record
+        long initialBalance = account.getBalanceUnits();
+        long nanos = TransactionHistory.nowNanos();
+        long[] sequences = new long[count];
+        for (int i = 0; i < count; i++) {
+            sequences[i] = types[i] == TradeJournal.TYPE_BUY
+                    ? applyBuy(account, symbolIds[i], amounts[i], prices[i], nanos)
+                    : applySell(account, symbolIds[i], amounts[i], prices[i], nanos);
+        }
+        shard.journalBatch(accountId, count, types, symbols, amounts, prices, nanos);
+        Map<String, Double> tradedHoldings = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (tradedHoldings.put(symbols[i], account.getQuantity(symbolIds[i])) == null) {
+                shard.getValuator().track(accountId, account, symbolIds[i]);
+            }
+        }
+        shard.getValuator().revalue(accountId, account);
+
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (long sequence : sequences) {
+            Transaction transaction = account.getHistory().get(sequence, this::symbolOf);
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+        return new BatchTradeResponse(true, "Batch executed", null, account.getBalance(),
+                FixedPoint.toDouble(account.getBalanceUnits() - initialBalance), tradedHoldings, transactions);
+    }
+
+    /**
+     * Creates the response for a rejected batch, leaving the account unchanged.
+     *
+     * @param account the account the batch was requested on
+     * @param failedLeg the index of the leg that failed, or null if the batch as a whole is invalid
+     * @param message the rejection reason
+     * @return a failed batch response
+     */
+    private BatchTradeResponse rejectBatch(Account account, Integer failedLeg, String message) {
+        String reason = failedLeg == null ? message : "Leg " + failedLeg + ": " + message;
+        return new BatchTradeResponse(false, reason, failedLeg, account.getBalance(), 0.0,
+                account.getHoldings(), Collections.emptyList());
+    }
+
+    /**
+     * Creates the response for a rejected trade, leaving the account unchanged.
+     *
+     * @param account the account the trade was requested on
+     * @param symbolId the price store id of the requested symbol, -1 if it is not listed
+     * @param reasonCode the reason code of the rejection
+     * @param message the rejection reason
+     * @return a failed trade response
+     */
+    private TradeResponse reject(Account account, int symbolId, String reasonCode, String message) {
+        return new TradeResponse(reasonCode, message, account.getBalance(), account.getQuantity(symbolId));
+    }
+
+    /**
+     * Executes a buy transaction, checking the risk limits and for sufficient funds and updating account balances
+     * and holdings.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account to buy for
+     * @param symbolId the price store id of the cryptocurrency
      * @param symbol the symbol of the cryptocurrency to buy
      * @param amount the amount of cryptocurrency to buy
      * @param price the price at which to buy the cryptocurrency
-     * @param total the total cost of the purchase (price * amount)
+     * @param total the total cost of the purchase (price * amount) in fixed-point units
      * @return a response indicating whether the buy was successful
      */
-    private TradeResponse executeBuy(String symbol, double amount, double price, double total) {
-        // Check if user has enough balance
-        if (total > account.getBalance()) {
-            return new TradeResponse(false, "Insufficient funds", account);
+    private TradeResponse executeBuy(AccountShard shard, String accountId, Account account, int symbolId,
+                                     String symbol, double amount, double price, long total) {
+        String risk = riskService.checkTrade(account, symbolId, true, FixedPoint.toUnits(price), total,
+                FixedPoint.toUnits(amount));
+        if (risk != null) {
+            return reject(account, symbolId, risk, RiskEngine.describe(risk));
         }
 
-        // Update account balance
-        account.setBalance(account.getBalance() - total);
-
-        // Update holdings
-        Map<String, Double> holdings = account.getHoldings();
-        double currentHolding = holdings.getOrDefault(symbol, 0.0);
-        holdings.put(symbol, currentHolding + amount);
-
-        // Update average buy price for P/L calculation
-        Map<String, Double> avgPrices = account.getAverageBuyPrices();
-        double currentTotal = currentHolding * (avgPrices.getOrDefault(symbol, 0.0));
-        double newTotal = currentTotal + total;
-        double newAmount = currentHolding + amount;
-        avgPrices.put(symbol, newTotal / newAmount);
+        // Check if user has enough balance
+        if (total > account.getBalanceUnits()) {
+            return reject(account, symbolId, TradeResponse.REASON_INSUFFICIENT_FUNDS, "Insufficient funds");
+        }
 
-        // Add transaction record
-        account.getTransactions().add(new Transaction("buy", symbol, amount, price, null));
+        long nanos = TransactionHistory.nowNanos();
+        long sequence = applyBuy(account, symbolId, amount, price, nanos);
+        shard.journalTrade(TradeJournal.TYPE_BUY, accountId, symbol, amount, price, nanos);
+        shard.getValuator().track(accountId, account, symbolId);
+        shard.getValuator().revalue(accountId, account);
 
-        return new TradeResponse(true, "Purchase successful", account);
+        return new TradeResponse(true, "Purchase successful", account.getBalance(), -FixedPoint.toDouble(total),
+                account.getQuantity(symbolId), account.getHistory().get(sequence, this::symbolOf));
     }
 
     /**
-     * Executes a sell transaction, checking for sufficient holdings and updating account balances and holdings.
+     * Executes a sell transaction, checking the risk limits and for sufficient holdings and updating account
+     * balances and holdings.
      *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account to sell from
+     * @param symbolId the price store id of the cryptocurrency
      * @param symbol the symbol of the cryptocurrency to sell
      * @param amount the amount of cryptocurrency to sell
      * @param price the price at which to sell the cryptocurrency
-     * @param total the total revenue from the sale (price * amount)
+     * @param total the total revenue from the sale (price * amount) in fixed-point units
      * @return a response indicating whether the sell was successful
      */
-    private TradeResponse executeSell(String symbol, double amount, double price, double total) {
-        // Check if user has enough of the cryptocurrency
-        Map<String, Double> holdings = account.getHoldings();
-        double currentHolding = holdings.getOrDefault(symbol, 0.0);
+    private TradeResponse executeSell(AccountShard shard, String accountId, Account account, int symbolId,
+                                      String symbol, double amount, double price, long total) {
+        String risk = riskService.checkTrade(account, symbolId, false, FixedPoint.toUnits(price), total,
+                FixedPoint.toUnits(amount));
+        if (risk != null) {
+            return reject(account, symbolId, risk, RiskEngine.describe(risk));
+        }
 
-        if (amount > currentHolding) {
-            return new TradeResponse(false, "Insufficient holdings", account);
+        // Check if user has enough of the cryptocurrency
+        if (FixedPoint.toUnits(amount) > account.getQuantityUnits(symbolId)) {
+            return reject(account, symbolId, TradeResponse.REASON_INSUFFICIENT_HOLDINGS, "Insufficient holdings");
         }
 
-        // Calculate profit/loss
-        Map<String, Double> avgPrices = account.getAverageBuyPrices();
-        double avgBuyPrice = avgPrices.getOrDefault(symbol, price);
-        double profitLoss = (price - avgBuyPrice) * amount;
+        long nanos = TransactionHistory.nowNanos();
+        long sequence = applySell(account, symbolId, amount, price, nanos);
+        shard.journalTrade(TradeJournal.TYPE_SELL, accountId, symbol, amount, price, nanos);
+        shard.getValuator().track(accountId, account, symbolId);
+        shard.getValuator().revalue(accountId, account);
+
+        return new TradeResponse(true, "Sale successful", account.getBalance(), FixedPoint.toDouble(total),
+                account.getQuantity(symbolId), account.getHistory().get(sequence, this::symbolOf));
+    }
+
+    /**
+     * Applies a validated buy to an account: updates balance, holdings and average buy price and records the
+     * transaction. Balance and holdings change by exact fixed-point amounts, with the amount and price rounded to
+     * the {@link FixedPoint} grid. Shared by live trading, journal replay and the {@link BacktestEngine}.
+     *
+     * @param account the account to buy for
+     * @param symbolId the price store id of the cryptocurrency
+     * @param amount the amount bought
+     * @param price the execution price
+     * @param nanos the execution time in epoch nanoseconds
+     * @return the sequence number of the recorded transaction
+     */
+    static long applyBuy(Account account, int symbolId, double amount, double price, long nanos) {
+        long quantity = FixedPoint.toUnits(amount);
+        long priceUnits = FixedPoint.toUnits(price);
+        long total = FixedPoint.multiply(priceUnits, quantity);
 
         // Update account balance
-        account.setBalance(account.getBalance() + total);
+        account.setBalanceUnits(account.getBalanceUnits() - total);
 
-        // Update holdings
-        holdings.put(symbol, currentHolding - amount);
-        if (holdings.get(symbol) <= 0) {
-            holdings.remove(symbol);
-            avgPrices.remove(symbol);
-        }
+        // Update the position; its cost gives the average buy price for P/L calculation
+        account.setPosition(symbolId, account.getQuantityUnits(symbolId) + quantity,
+                account.getPositionCost(symbolId) + FixedPoint.toDouble(total));
 
         // Add transaction record
-        account.getTransactions().add(new Transaction("sell", symbol, amount, price, profitLoss));
+        return account.getHistory().append(TransactionHistory.TYPE_BUY, symbolId, FixedPoint.toDouble(quantity),
+                FixedPoint.toDouble(priceUnits), Double.NaN, nanos);
+    }
+
+    /**
+     * Applies a validated sell to an account: realizes the profit or loss against the average buy price, updates
+     * balance and holdings and records the transaction. Balance and holdings change by exact fixed-point amounts, so
+     * selling the whole position leaves exactly zero. Shared by live trading, journal replay and the
+     * {@link BacktestEngine}.
+     *
+     * @param account the account to sell from
+     * @param symbolId the price store id of the cryptocurrency
+     * @param amount the amount sold
+     * @param price the execution price
+     * @param nanos the execution time in epoch nanoseconds
+     * @return the sequence number of the recorded transaction
+     */
+    static long applySell(Account account, int symbolId, double amount, double price, long nanos) {
+        long quantity = FixedPoint.toUnits(amount);
+        long priceUnits = FixedPoint.toUnits(price);
+        long total = FixedPoint.multiply(priceUnits, quantity);
+        long currentHolding = account.getQuantityUnits(symbolId);
+
+        // Calculate profit/loss
+        double averagePrice = currentHolding > 0 ? account.getAverageBuyPrice(symbolId) : price;
+        double sold = FixedPoint.toDouble(quantity);
+        double profitLoss = FixedPoint.toDouble(total) - averagePrice * sold;
 
-        return new TradeResponse(true, "Sale successful", account);
+        // Update account balance and realized P/L
+        account.setBalanceUnits(account.getBalanceUnits() + total);
+        account.setRealizedProfitLoss(account.getRealizedProfitLoss() + profitLoss);
+
+        // Update the position, keeping its average buy price
+        long newHolding = currentHolding - quantity;
+        account.setPosition(symbolId, newHolding, averagePrice * FixedPoint.toDouble(newHolding));
+
+        // Add transaction record
+        return account.getHistory().append(TransactionHistory.TYPE_SELL, symbolId, sold,
+                FixedPoint.toDouble(priceUnits), profitLoss, nanos);
     }
 
-    /** Reset account to initial state */
+    /**
+     * Executes a market trade on an off-heap account with the same checks and the same balance, holdings and average
+     * price accounting as {@link #applyBuy} and {@link #applySell}. Off-heap accounts are not valued, so the drawdown
+     * limit does not apply to them. Must only be called from the shard thread owning the store.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param request the trade request containing type, symbol and amount
+     * @return a response indicating the success or failure of the trade along with the changes to the account
+     */
+    private TradeResponse executeOffHeapTrade(AccountShard shard, String accountId, TradeRequest request) {
+        if (accountId.length() > OffHeapAccountStore.MAX_ID_LENGTH) {
+            return new TradeResponse(TradeResponse.REASON_INVALID_ACCOUNT,
+                    "Account id exceeds " + OffHeapAccountStore.MAX_ID_LENGTH + " chars", 0.0, 0.0);
+        }
+        OffHeapAccountStore store = shard.getOffHeapStore();
+        int slot = store.findOrCreate(accountId);
+        int symbolId = priceStore.idOf(request.getSymbol());
+        long quantity = FixedPoint.toUnits(request.getAmount());
+        long holding = store.getQuantityUnits(slot, symbolId);
+        long balance = store.getBalanceUnits(slot);
+        String risk = riskService.checkOrderRate(store, slot);
+        if (risk != null) {
+            return new TradeResponse(risk, RiskEngine.describe(risk), FixedPoint.toDouble(balance),
+                    FixedPoint.toDouble(holding));
+        }
+        if (quantity <= 0) {
+            return new TradeResponse(TradeResponse.REASON_INVALID_AMOUNT, "Amount must be positive",
+                    FixedPoint.toDouble(balance), FixedPoint.toDouble(holding));
+        }
+        if (symbolId < 0) {
+            return new TradeResponse(TradeResponse.REASON_UNKNOWN_SYMBOL, "Cryptocurrency not found",
+                    FixedPoint.toDouble(balance), 0.0);
+        }
+        long price = FixedPoint.toUnits(priceStore.get(symbolId).getPrice());
+        long total = FixedPoint.multiply(price, quantity);
+        double cost = store.getPositionCost(slot, symbolId);
+        boolean buy = "buy".equalsIgnoreCase(request.getType());
+        risk = riskService.checkTrade(buy, price, total, holding, quantity, Double.NaN, Double.NaN);
+        if (risk != null) {
+            return new TradeResponse(risk, RiskEngine.describe(risk), FixedPoint.toDouble(balance),
+                    FixedPoint.toDouble(holding));
+        }
+        Double profitLoss = null;
+        if (buy) {
+            if (total > balance) {
+                return new TradeResponse(TradeResponse.REASON_INSUFFICIENT_FUNDS, "Insufficient funds",
+                        FixedPoint.toDouble(balance), FixedPoint.toDouble(holding));
+            }
+            balance -= total;
+            holding += quantity;
+            cost += FixedPoint.toDouble(total);
+        } else if ("sell".equalsIgnoreCase(request.getType())) {
+            if (quantity > holding) {
+                return new TradeResponse(TradeResponse.REASON_INSUFFICIENT_HOLDINGS, "Insufficient holdings",
+                        FixedPoint.toDouble(balance), FixedPoint.toDouble(holding));
+            }
+            double averagePrice = cost / FixedPoint.toDouble(holding);
+            profitLoss = FixedPoint.toDouble(total) - averagePrice * FixedPoint.toDouble(quantity);
+            store.setRealizedProfitLoss(slot, store.getRealizedProfitLoss(slot) + profitLoss);
+            balance += total;
+            holding -= quantity;
+            cost = averagePrice * FixedPoint.toDouble(holding);
+        } else {
+            return new TradeResponse(TradeResponse.REASON_INVALID_TYPE, "Invalid trade type",
+                    FixedPoint.toDouble(balance), FixedPoint.toDouble(holding));
+        }
+        store.setBalanceUnits(slot, balance);
+        store.setPosition(slot, symbolId, holding, cost);
+        long sequence = store.nextTransaction(slot);
+
+        Transaction transaction = new Transaction(sequence, buy ? "buy" : "sell", request.getSymbol(),
+                FixedPoint.toDouble(quantity), FixedPoint.toDouble(price), profitLoss, LocalDateTime.now());
+        return new TradeResponse(true, buy ? "Purchase successful" : "Sale successful", FixedPoint.toDouble(balance),
+                FixedPoint.toDouble(buy ? -total : total), FixedPoint.toDouble(Math.max(holding, 0)), transaction);
+    }
+
+    /** Reset the default account to its initial state */
     public Account resetAccount() {
-        account = new Account(10000.0);
-        return account;
+        return resetAccount(DEFAULT_ACCOUNT_ID);
+    }
+
+    /**
+     * Resets the given account to its initial state.
+     *
+     * @param accountId the id of the account to reset
+     * @return a snapshot of the reset account
+     * @throws IllegalArgumentException if the account id is too long
+     */
+    public Account resetAccount(String accountId) {
+        if (accountId.length() > MAX_ACCOUNT_ID_LENGTH) {
+            throw new IllegalArgumentException("Account id exceeds " + MAX_ACCOUNT_ID_LENGTH + " chars");
+        }
+        AccountShard shard = shardFor(accountId);
+        return shard.execute(() -> {
+            if (offHeapAccounts) {
+                OffHeapAccountStore store = shard.getOffHeapStore();
+                store.reset(store.findOrCreate(accountId));
+                return snapshot(shard, accountId);
+            }
+            for (Order order : shard.account(accountId).getOpenOrders().values()) {
+                order.close(Order.STATUS_CANCELLED, "Account reset", null);
+                for (Consumer<Order> listener : orderCancelListeners) {
+                    listener.accept(order);
+                }
+            }
+            shard.getValuator().untrack(accountId);
+            Account account = shard.resetAccount(accountId);
+            shard.journalReset(accountId, TransactionHistory.nowNanos());
+            shard.getValuator().revalue(accountId, account);
+            return account.copy();
+        });
+    }
+
+    /**
+     * Registers a listener told about every open order an account reset cancels. The listener is called on the
+     * shard thread owning the account.
+     *
+     * @param listener the listener
+     */
+    void addOrderCancelListener(Consumer<Order> listener) {
+        orderCancelListeners.add(listener);
+    }
+
+    /**
+     * Passes a new tick to the valuators of all shards, which revalue the accounts holding the symbol.
+     *
+     * @param symbolId the id of the symbol
+     * @param tick the new tick
+     */
+    private void revalueHoldings(int symbolId, Cryptocurrency tick) {
+        for (AccountShard shard : shards) {
+            shard.getValuator().offer(symbolId, tick.getPrice());
+        }
+    }
+
+    /**
+     * Registers a listener receiving the valuations of watched accounts.
+     *
+     * @param listener the listener
+     */
+    public void addValuationListener(ValuationListener listener) {
+        valuationListeners.add(listener);
+    }
+
+    /**
+     * Starts reporting valuation changes of an account to the valuation listeners. The current valuation is reported
+     * right away, on the account's shard, so that it is ordered with all later changes; an account that does not
+     * exist yet is first reported once it trades.
+     *
+     * @param accountId the id of the account
+     */
+    public void watchAccount(String accountId) {
+        watchedAccounts.merge(accountId, 1, Integer::sum);
+        AccountShard shard = shardFor(accountId);
+        shard.execute(() -> {
+            Account account = offHeapAccounts ? snapshot(shard, accountId) : shard.findAccount(accountId);
+            if (account != null) {
+                publishValuation(shard, accountId, account, false);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Stops reporting valuation changes of an account for one watcher.
+     *
+     * @param accountId the id of the account
+     */
+    public void unwatchAccount(String accountId) {
+        watchedAccounts.computeIfPresent(accountId, (id, watchers) -> watchers > 1 ? watchers - 1 : null);
+    }
+
+    /**
+     * Moves an account to its new scores on the shard's leaderboard and its peak value in the shard's risk engine,
+     * and reports its valuation to the listeners if the account is watched. Called on the shard thread owning the
+     * account. Scores changed by a price tick are deferred to the next leaderboard query, so a tick does not re-key
+     * every holder in the rankings.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param account the account
+     * @param tick whether a price tick changed the valuation
+     */
+    private void publishValuation(AccountShard shard, String accountId, Account account, boolean tick) {
+        if (!offHeapAccounts) {
+            if (tick) {
+                shard.getLeaderboard().defer(accountId, account.getTotalValue(), account.getRealizedProfitLoss());
+            } else {
+                shard.getLeaderboard().update(accountId, account.getTotalValue(), account.getRealizedProfitLoss());
+            }
+            riskService.onValuation(account);
+        }
+        if (watchedAccounts.isEmpty() || !watchedAccounts.containsKey(accountId)) {
+            return;
+        }
+        PortfolioValuation valuation = PortfolioValuation.of(account);
+        for (ValuationListener listener : valuationListeners) {
+            listener.onValuation(accountId, valuation);
+        }
+    }
+
+    /**
+     * Lists the best ranked accounts. Every shard lists its own best accounts on its thread, and the lists are
+     * merged, so the result reflects each shard at the moment it answered.
+     *
+     * @param metric {@link Leaderboard#TOTAL_VALUE} or {@link Leaderboard#REALIZED_PROFIT_LOSS}
+     * @param limit the maximum number of accounts to list
+     * @return the best accounts with their ranks, best first; empty for off-heap accounts, which are not ranked
+     */
+    public List<LeaderboardEntry> getLeaderboard(String metric, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LEADERBOARD_SIZE));
+        List<CompletableFuture<List<LeaderboardEntry>>> tops = new ArrayList<>(shards.length);
+        for (AccountShard shard : shards) {
+            tops.add(shard.submit(() -> shard.getLeaderboard().top(metric, size)));
+        }
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        for (CompletableFuture<List<LeaderboardEntry>> top : tops) {
+            entries.addAll(top.join());
+        }
+        return Leaderboard.rank(metric, entries, size);
+    }
+
+    /**
+     * Gets the rank of an account. An account that has not been valued yet, e.g. one that was just reset, is ranked
+     * at its initial balance first. The scores are read on the owning shard, then every shard counts the accounts
+     * ranked ahead of them in parallel.
+     *
+     * @param metric {@link Leaderboard#TOTAL_VALUE} or {@link Leaderboard#REALIZED_PROFIT_LOSS}
+     * @param accountId the id of the account
+     * @return the rank and scores of the account, or null if the account does not exist or accounts are kept
+     *         off-heap, where they are not ranked
+     */
+    public LeaderboardEntry getRank(String metric, String accountId) {
+        if (offHeapAccounts) {
+            return null;
+        }
+        AccountShard owner = shardFor(accountId);
+        LeaderboardEntry entry = owner.execute(() -> {
+            Account account = owner.findAccount(accountId);
+            if (account == null) {
+                return null;
+            }
+            if (owner.getLeaderboard().entryOf(accountId) == null) {
+                owner.getValuator().revalue(accountId, account);
+            }
+            return owner.getLeaderboard().entryOf(accountId);
+        });
+        if (entry == null) {
+            return null;
+        }
+        double score = Leaderboard.score(metric, entry);
+        List<CompletableFuture<Long>> counts = new ArrayList<>(shards.length);
+        for (AccountShard shard : shards) {
+            counts.add(shard.submit(() -> shard.getLeaderboard().countAhead(metric, score, accountId)));
+        }
+        long rank = 1;
+        for (CompletableFuture<Long> count : counts) {
+            rank += count.join();
+        }
+        return new LeaderboardEntry(rank, accountId, entry.getTotalValue(), entry.getRealizedProfitLoss());
+    }
+
+    /**
+     * Gets a counter of leaderboard changes, used to skip pushing leaderboards that did not change. May be called
+     * from any thread.
+     *
+     * @return a counter that grows whenever the score of any account changes
+     */
+    public long getLeaderboardVersion() {
+        long version = 0;
+        for (AccountShard shard : shards) {
+            version += shard.getLeaderboard().getVersion();
+        }
+        return version;
+    }
+
+    /**
+     * Reads a page of the transaction history of the given account, newest first. Only the requested page is
+     * materialized.
+     *
+     * @param accountId the account id
+     * @param before exclusive upper bound of the sequence numbers to return, or null for the newest transactions
+     * @param limit the maximum number of transactions to return
+     * @return the page of transactions together with the cursor of the next page, or null if the account does not
+     *         exist
+     */
+    public TransactionPage getTransactions(String accountId, Long before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        AccountShard shard = shardFor(accountId);
+        return shard.execute(() -> {
+            if (offHeapAccounts) {
+                return shard.getOffHeapStore().find(accountId) < 0
+                        ? null : new TransactionPage(Collections.emptyList(), null);
+            }
+            Account account = shard.findAccount(accountId);
+            if (account == null) {
+                return null;
+            }
+            TransactionHistory history = account.getHistory();
+            List<Transaction> page = history.page(before == null ? -1 : before, pageSize, this::symbolOf);
+            Long nextCursor = null;
+            if (!page.isEmpty()) {
+                long oldest = page.get(page.size() - 1).getSequence();
+                nextCursor = oldest > history.getFirstSequence() ? oldest : null;
+            }
+            return new TransactionPage(page, nextCursor);
+        });
     }
 
-    /** Get account information */
+    /**
+     * Resolves a price store symbol id to its symbol.
+     *
+     * @param symbolId the symbol id
+     * @return the symbol, or null for -1 (a symbol that is no longer listed)
+     */
+    private String symbolOf(int symbolId) {
+        return symbolId < 0 ? null : priceStore.get(symbolId).getSymbol();
+    }
+
+    /** Get the default account information */
     public Account getAccount() {
+        return getAccount(DEFAULT_ACCOUNT_ID);
+    }
+
+    /**
+     * Gets the given account. Accounts are created by their first trade, order or reset, not by reading them.
+     *
+     * @param accountId the account id
+     * @return a snapshot of the account taken on its owning shard, or null if it does not exist
+     */
+    public Account getAccount(String accountId) {
+        AccountShard shard = shardFor(accountId);
+        return shard.execute(() -> snapshot(shard, accountId));
+    }
+
+    /**
+     * Takes a snapshot of an account. Off-heap accounts are materialized and valued at the latest prices. Must only
+     * be called from the shard thread owning the account.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the account id
+     * @return a snapshot of the account, or null if it does not exist
+     */
+    private Account snapshot(AccountShard shard, String accountId) {
+        if (!offHeapAccounts) {
+            Account account = shard.findAccount(accountId);
+            return account == null ? null : account.copy();
+        }
+        OffHeapAccountStore store = shard.getOffHeapStore();
+        int slot = store.find(accountId);
+        if (slot < 0) {
+            return null;
+        }
+        Account account = new Account(0, 0, priceStore.getSymbols());
+        account.setBalanceUnits(store.getBalanceUnits(slot));
+        account.setRealizedProfitLoss(store.getRealizedProfitLoss(slot));
+        account.getHistory().startAt(store.getTransactionCount(slot));
+        double marketValue = 0;
+        double costBasis = 0;
+        for (int symbolId = 0; symbolId < store.getSymbolCount(); symbolId++) {
+            long quantity = store.getQuantityUnits(slot, symbolId);
+            if (quantity > 0) {
+                double cost = store.getPositionCost(slot, symbolId);
+                account.setPosition(symbolId, quantity, cost);
+                marketValue += FixedPoint.toDouble(quantity) * priceStore.get(symbolId).getPrice();
+                costBasis += cost;
+            }
+        }
+        account.setMarketValue(marketValue);
+        account.setCostBasis(costBasis);
         return account;
     }
+
+    /**
+     * Snapshots the accounts and stops the account shards when the application is shutting down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshotAccounts();
+        for (AccountShard shard : shards) {
+            shard.shutdown();
+            if (shard.getOffHeapStore() != null) {
+                shard.getOffHeapStore().close();
+            }
+        }
+    }
 }
@@ -0,0 +1,263 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The FeedConnectionManager keeps a market data connection alive and hands the prices over to the simulator while
+ * it is not.
+ * <p>
+ * Connection attempts run on the manager's own thread. A failed attempt or a lost connection schedules the next
+ * attempt with exponential backoff and jitter, starting at the initial backoff and doubling up to the maximum; a
+ * successful connection resets the backoff. The connector subscribes again on every new connection.
+ * </p>
+ * <p>
+ * A watchdog checks the connection every second. Kraken sends a heartbeat whenever a second passes without data, so
+ * a connection without any message for the heartbeat timeout is considered dead and closed, which triggers the
+ * reconnect. A symbol without a tick for the staleness limit is handed back to the simulator while the connection
+ * stays up, and taken back by the feed with its next tick. When the connection is lost, every symbol is handed to the
+ * simulator at once. The time from losing the connection to the first live tick afterwards is recorded as the
+ * recovery latency.
+ * </p>
+ */
+final class FeedConnectionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedConnectionManager.class);
+
+    /**
+     * Opens and closes the underlying connection.
+     */
+    interface Connector {
+
+        /**
+         * Opens a new connection and subscribes to the feed. Must report the new connection through
+         * {@link #onOpen()} and its loss through {@link #onClose(String)}.
+         *
+         * @throws Exception if the connection cannot be opened
+         */
+        void connect() throws Exception;
+
+        /**
+         * Closes the current connection, if any.
+         */
+        void close();
+    }
+
+    /* Interval of the watchdog in milliseconds */
+    private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+
+    /* Service whose symbols are priced by the feed or the simulator */
+    private final CryptoService cryptoService;
+
+    /* Metrics recording disconnects and recovery latency */
+    private final TradingMetrics metrics;
+
+    /* Opens and closes the connection */
+    private final Connector connector;
+
+    /* Reconnect backoff bounds and liveness limits in milliseconds */
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long heartbeatTimeoutMillis;
+    private final long symbolStaleMillis;
+
+    /* Thread running connection attempts and the watchdog */
+    private final ScheduledExecutorService executor;
+
+    /* Time of the last message and of the last tick per symbol id, in System.nanoTime() */
+    private volatile long lastMessageNanos;
+    private final AtomicLongArray lastTickNanos;
+
+    /* Whether a connection is open, and whether the next attempt is already scheduled */
+    private volatile boolean connected;
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+
+    /* Number of failed attempts since the last successful connection, manager thread only */
+    private int attempts;
+
+    /* Time the connection was lost, 0 once the feed recovered */
+    private volatile long disconnectedNanos;
+
+    /* Whether the manager was stopped; no more attempts are made */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a FeedConnectionManager.
+     *
+     * @param cryptoService the service whose symbols are priced by the feed or the simulator
+     * @param connector opens and closes the connection
+     * @param initialBackoffMillis the delay before the first reconnect attempt
+     * @param maxBackoffMillis the longest delay between reconnect attempts
+     * @param heartbeatTimeoutMillis the time without any message after which the connection is considered dead
+     * @param symbolStaleMillis the time without a tick after which a symbol is handed to the simulator
+     */
+    FeedConnectionManager(CryptoService cryptoService, Connector connector, long initialBackoffMillis,
+                          long maxBackoffMillis, long heartbeatTimeoutMillis, long symbolStaleMillis) {
+        this.cryptoService = cryptoService;
+        this.metrics = cryptoService.getMetrics();
+        this.connector = connector;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        this.symbolStaleMillis = symbolStaleMillis;
+        this.lastTickNanos = new AtomicLongArray(cryptoService.getPriceStore().size());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "feed-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Makes the first connection attempt and starts the watchdog.
+     */
+    void start() {
+        reconnectScheduled.set(true);
+        executor.execute(this::attempt);
+        executor.scheduleWithFixedDelay(this::watch, WATCHDOG_INTERVAL_MILLIS, WATCHDOG_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reconnecting and closes the connection.
+     */
+    void stop() {
+        stopped = true;
+        executor.shutdownNow();
+        connector.close();
+    }
+
+    /**
+     * Reports a newly opened connection.
+     */
+    void onOpen() {
+        lastMessageNanos = System.nanoTime();
+        connected = true;
+        log.info("Feed connected");
+    }
+
+    /**
+     * Reports a received message of any kind, including heartbeats. Called from the feed thread.
+     */
+    void onMessage() {
+        lastMessageNanos = System.nanoTime();
+    }
+
+    /**
+     * Reports a received tick. Called from the feed pipeline's apply thread before the tick is published, since
+     * publishing hands the symbol to the feed: the watchdog must never see a live symbol with the tick time of an
+     * earlier live period, or it would hand the symbol straight back to the simulator.
+     *
+     * @param symbolId the id of the ticked symbol
+     */
+    void onTick(int symbolId) {
+        long now = System.nanoTime();
+        lastTickNanos.set(symbolId, now);
+        long since = disconnectedNanos;
+        if (since != 0) {
+            disconnectedNanos = 0;
+            metrics.recordFeedRecovery(now - since);
+            log.info("Feed recovered after {} ms", TimeUnit.NANOSECONDS.toMillis(now - since));
+        }
+    }
+
+    /**
+     * Reports a lost connection: hands all symbols to the simulator and schedules a reconnect.
+     *
+     * @param reason the reason the connection was lost
+     */
+    void onClose(String reason) {
+        if (stopped) {
+            return;
+        }
+        if (connected) {
+            connected = false;
+            if (disconnectedNanos == 0) {
+                disconnectedNanos = System.nanoTime();
+            }
+            metrics.recordFeedDisconnect();
+            cryptoService.useSimulatedPrices();
+            log.warn("Feed disconnected ({}), using simulated prices until it recovers", reason);
+        }
+        scheduleReconnect();
+    }
+
+    /**
+     * Checks whether the manager currently holds an open connection.
+     *
+     * @return true if connected
+     */
+    boolean isConnected() {
+        return connected;
+    }
+
+    private void attempt() {
+        reconnectScheduled.set(false);
+        if (stopped || connected) {
+            return;
+        }
+        try {
+            connector.connect();
+            attempts = 0;
+        } catch (Exception e) {
+            // Only the first failure of a run is a warning, so a long outage does not flood the log
+            if (attempts <= 1) {
+                log.warn("Error connecting feed, retrying with backoff: {}", e.getMessage());
+            } else {
+                log.debug("Error connecting feed on attempt {}: {}", attempts, e.getMessage());
+            }
+            if (disconnectedNanos == 0) {
+                disconnectedNanos = System.nanoTime();
+            }
+            cryptoService.useSimulatedPrices();
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (stopped || !reconnectScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempts, 20));
+        attempts++;
+        // Jitter between half and the full backoff so that restarted instances do not reconnect in lockstep
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        try {
+            executor.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            reconnectScheduled.set(false); // stopped concurrently
+        }
+    }
+
+    private void watch() {
+        try {
+            if (!connected) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - lastMessageNanos > TimeUnit.MILLISECONDS.toNanos(heartbeatTimeoutMillis)) {
+                log.warn("No feed message for {} ms, reconnecting", heartbeatTimeoutMillis);
+                connector.close();
+                onClose("heartbeat timeout");
+                return;
+            }
+            long staleNanos = TimeUnit.MILLISECONDS.toNanos(symbolStaleMillis);
+            for (int id = 0; id < lastTickNanos.length(); id++) {
+                if (cryptoService.isLive(id) && now - lastTickNanos.get(id) > staleNanos) {
+                    log.warn("No tick for {} for {} ms, using simulated prices",
+                            cryptoService.getPriceStore().get(id).getSymbol(), symbolStaleMillis);
+                    cryptoService.useSimulatedPrices(id);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Error checking feed", e);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * The FeedPipeline moves Kraken ticker frames from the WebSocket callback thread to the {@link CryptoService} in
+ * stages, so the network thread never waits for decoding, the price store or its listeners.
+ * <p>
+ * The stages are connected by preallocated single-producer, single-consumer rings:
+ * </p>
+ * <ol>
+ *     <li>The network thread copies the raw frame into the frame ring and returns. If the ring is full, because the
+ *     stages behind it cannot keep up, the frame is dropped and counted; a ticker frame carries the full state of
+ *     its pair, so the next frame of the pair supersedes it.</li>
+ *     <li>The decode thread drains the frame ring in batches, decodes each frame with the
+ *     {@link KrakenTickerDecoder}, normalizes it into a tick with the 24-hour change, and copies the tick into the
+ *     tick ring, one column per field. It waits while the tick ring is full, so backpressure ends at the frame
+ *     ring.</li>
+ *     <li>The apply thread drains the tick ring in batches and publishes every tick, in order, to the price store,
+ *     whose listeners fan it out to the order books, the account shards and the price stream subscribers. The
+ *     listeners only hand the tick to their own threads or queues, so fan-out adds no further stage here.</li>
+ * </ol>
+ * <p>
+ * A ring slot is published by advancing the ring's published sequence after its columns are written, and released
+ * by advancing the consumed sequence, so the rings neither lock nor allocate. The number of frames and ticks waiting
+ * in each ring is exposed as the backlog of the stage reading it.
+ * </p>
+ */
+public class FeedPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedPipeline.class);
+
+    /* Number of empty polls a stage spins before it parks */
+    private static final int IDLE_SPINS = 1000;
+
+    /* Time a stage parks while its ring stays empty, or while the next ring stays full */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /* Service the ticks are published to */
+    private final CryptoService cryptoService;
+
+    /* Decoder for ticker frames, owned by the decode thread */
+    private final KrakenTickerDecoder tickerDecoder;
+
+    /* Metrics recording the decode and apply latency of every message */
+    private final TradingMetrics metrics;
+
+    /* Called on the apply thread with the symbol id of every tick before it is published */
+    private final IntConsumer onTick;
+
+    /* Maximum number of slots a stage drains before releasing them */
+    private final int batchSize;
+
+    /* Ring of received frames */
+    private final Ring frameRing;
+    private final String[] frames;
+
+    /* Ring of decoded ticks, one column per field */
+    private final Ring tickRing;
+    private final int[] symbolIds;
+    private final double[] prices;
+    private final double[] changes;
+    private final double[] volumes;
+    private final long[] timestamps;
+
+    /* Frames dropped because the frame ring was full */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /* Stage threads, null while stopped */
+    private Thread decodeThread;
+    private Thread applyThread;
+
+    /* Set to stop the stages */
+    private volatile boolean stopping;
+
+    /**
+     * Constructs a FeedPipeline.
+     *
+     * @param cryptoService the service the ticks are published to
+     * @param tickerDecoder the decoder for ticker frames, used by the decode thread only
+     * @param onTick called on the apply thread with the symbol id of every tick, right before it is published
+     * @param frameCapacity the number of frames the frame ring holds, rounded up to a power of two
+     * @param tickCapacity the number of ticks the tick ring holds, rounded up to a power of two
+     * @param batchSize the maximum number of frames or ticks a stage drains at once
+     */
+    public FeedPipeline(CryptoService cryptoService, KrakenTickerDecoder tickerDecoder, IntConsumer onTick,
+                        int frameCapacity, int tickCapacity, int batchSize) {
+        this.cryptoService = cryptoService;
+        this.tickerDecoder = tickerDecoder;
+        this.metrics = cryptoService.getMetrics();
+        this.onTick = onTick;
+        this.batchSize = Math.max(1, batchSize);
+        this.frameRing = new Ring(frameCapacity);
+        this.frames = new String[frameRing.capacity()];
+        this.tickRing = new Ring(tickCapacity);
+        int ticks = tickRing.capacity();
+        this.symbolIds = new int[ticks];
+        this.prices = new double[ticks];
+        this.changes = new double[ticks];
+        this.volumes = new double[ticks];
+        this.timestamps = new long[ticks];
+    }
+
+    /**
+     * Starts the decode and apply threads.
+     */
+    public synchronized void start() {
+        if (decodeThread != null) {
+            return;
+        }
+        stopping = false;
+        decodeThread = new Thread(this::runDecode, "feed-decode");
+        decodeThread.setDaemon(true);
+        applyThread = new Thread(this::runApply, "feed-apply");
+        applyThread.setDaemon(true);
+        decodeThread.start();
+        applyThread.start();
+    }
+
+    /**
+     * Stops the decode and apply threads. Frames and ticks still in the rings are not processed.
+     */
+    public synchronized void stop() {
+        if (decodeThread == null) {
+            return;
+        }
+        stopping = true;
+        try {
+            decodeThread.join(TimeUnit.SECONDS.toMillis(5));
+            applyThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        decodeThread = null;
+        applyThread = null;
+    }
+
+    /**
+     * Hands a received frame to the decode stage. Called on the network thread, by one thread at a time; never
+     * blocks.
+     *
+     * @param frame the raw WebSocket frame
+     * @return true if the frame was queued, false if it was dropped because the frame ring is full
+     */
+    public boolean offer(String frame) {
+        long sequence = frameRing.claim();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        frames[frameRing.slot(sequence)] = frame;
+        frameRing.publish(sequence);
+        return true;
+    }
+
+    /**
+     * Decodes and normalizes the queued frames into ticks until stopped.
+     */
+    private void runDecode() {
+        long next = frameRing.consumed();
+        int idle = 0;
+        while (!stopping) {
+            long end = Math.min(frameRing.published(), next + batchSize);
+            if (next == end) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (; next < end && !stopping; next++) {
+                int slot = frameRing.slot(next);
+                String frame = frames[slot];
+                frames[slot] = null;
+                decode(frame);
+            }
+            frameRing.release(next);
+        }
+    }
+
+    /**
+     * Decodes one frame and, if it is a ticker update of a known pair, queues its tick for the apply stage.
+     *
+     * @param frame the raw WebSocket frame
+     */
+    private void decode(String frame) {
+        long start = System.nanoTime();
+        boolean ticker = tickerDecoder.decode(frame);
+        metrics.recordFeedDecode(System.nanoTime() - start);
+        if (!ticker) {
+            return;
+        }
+        double price = tickerDecoder.getPrice();
+        double open24h = tickerDecoder.getOpen();
+        double change24h = ((price - open24h) / open24h) * 100;
+        long sequence;
+        int idle = 0;
+        while ((sequence = tickRing.claim()) < 0) {
+            if (stopping) {
+                return;
+            }
+            idle = idle(idle);
+        }
+        int slot = tickRing.slot(sequence);
+        symbolIds[slot] = tickerDecoder.getSymbolId();
+        prices[slot] = price;
+        changes[slot] = change24h;
+        volumes[slot] = tickerDecoder.getVolume();
+        timestamps[slot] = System.currentTimeMillis();
+        tickRing.publish(sequence);
+    }
+
+    /**
+     * Publishes the queued ticks until stopped.
+     */
+    private void runApply() {
+        long next = tickRing.consumed();
+        int idle = 0;
+        while (!stopping) {
+            long end = Math.min(tickRing.published(), next + batchSize);
+            if (next == end) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (; next < end; next++) {
+                int slot = tickRing.slot(next);
+                long start = System.nanoTime();
+                try {
+                    onTick.accept(symbolIds[slot]);
+                    cryptoService.updateCryptoPrice(symbolIds[slot], prices[slot], changes[slot], volumes[slot],
+                            timestamps[slot]);
+                    metrics.recordFeedApply(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    log.error("Error applying feed tick", e);
+                }
+            }
+            tickRing.release(next);
+        }
+    }
+
+    /* Spins, then parks, while a stage has nothing to do; returns the next idle count */
+    private static int idle(int idle) {
+        if (idle < IDLE_SPINS) {
+            Thread.onSpinWait();
+            return idle + 1;
+        }
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+        return idle;
+    }
+
+    /**
+     * Gets the number of received frames waiting to be decoded.
+     *
+     * @return the backlog of the decode stage
+     */
+    public long getDecodeBacklog() {
+        return frameRing.backlog();
+    }
+
+    /**
+     * Gets the number of decoded ticks waiting to be published.
+     *
+     * @return the backlog of the apply stage
+     */
+    public long getApplyBacklog() {
+        return tickRing.backlog();
+    }
+
+    /**
+     * Gets the number of frames dropped because the frame ring was full.
+     *
+     * @return the dropped frame count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * The sequences of a single-producer, single-consumer ring; the slots themselves are kept by the owner.
+     */
+    private static final class Ring {
+
+        /* Mask to turn a sequence into a slot; the capacity is a power of two */
+        private final int mask;
+
+        /* Sequence of the next slot the producer publishes; slots before it may be read */
+        private final AtomicLong published = new AtomicLong();
+
+        /* Sequence of the next slot the consumer reads; slots before it may be reused */
+        private final AtomicLong consumed = new AtomicLong();
+
+        Ring(int capacity) {
+            this.mask = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        int slot(long sequence) {
+            return (int) sequence & mask;
+        }
+
+        /* Claims the next slot for the producer, or returns -1 if the ring is full */
+        long claim() {
+            long sequence = published.get();
+            return sequence - consumed.get() > mask ? -1 : sequence;
+        }
+
+        void publish(long sequence) {
+            published.lazySet(sequence + 1);
+        }
+
+        long published() {
+            return published.get();
+        }
+
+        long consumed() {
+            return consumed.get();
+        }
+
+        void release(long sequence) {
+            consumed.lazySet(sequence);
+        }
+
+        long backlog() {
+            return published.get() - consumed.get();
+        }
+    }
+}
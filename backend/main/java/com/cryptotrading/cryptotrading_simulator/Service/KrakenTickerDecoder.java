@@ -0,0 +1,311 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import java.util.Map;
+
+/**
+ * A streaming decoder for Kraken WebSocket ticker frames.
+ * <p>
+ * Ticker frames have the form {@code [channelId,{"a":[..],"b":[..],"c":["price","volume"],..,"o":["today","24h"]},
+ * "ticker","XBT/USD"]}. The decoder walks the frame once, character by character, and extracts only the last trade
+ * price and lot volume ({@code c[0]}, {@code c[1]}), the opening price ({@code o[0]}) and the pair name. Results are
+ * written to reusable primitive fields instead of objects, and the pair is resolved to a symbol id through a
+ * pre-built open-addressing table that compares characters in place, so decoding a frame does not allocate.
+ * </p>
+ * <p>
+ * A decoder instance is not thread-safe; it is meant to be owned by the feed thread.
+ * </p>
+ */
+public class KrakenTickerDecoder {
+
+    /* Exact powers of ten for the fast decimal parsing path */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* Largest mantissa that a double represents exactly (2^53) */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /* Kraken pairs of the reverse index, by hash slot */
+    private final String[] pairs;
+
+    /* Symbol ids of the reverse index, by hash slot */
+    private final int[] symbolIds;
+
+    /* Mask to turn a hash into a slot */
+    private final int mask;
+
+    /* Frame being decoded and the read position within it */
+    private String frame;
+    private int pos;
+
+    /* Decoded fields of the last ticker frame */
+    private int symbolId;
+    private double price;
+    private double volume;
+    private double open;
+
+    /**
+     * Constructs a KrakenTickerDecoder.
+     *
+     * @param pairToSymbolId map of Kraken pair names (e.g. "XBT/USD") to internal symbol ids
+     */
+    public KrakenTickerDecoder(Map<String, Integer> pairToSymbolId) {
+        int capacity = Integer.highestOneBit(Math.max(2, pairToSymbolId.size() * 4) - 1) << 1;
+        this.pairs = new String[capacity];
+        this.symbolIds = new int[capacity];
+        this.mask = capacity - 1;
+        for (Map.Entry<String, Integer> entry : pairToSymbolId.entrySet()) {
+            int slot = spread(entry.getKey().hashCode()) & mask;
+            while (pairs[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            pairs[slot] = entry.getKey();
+            symbolIds[slot] = entry.getValue();
+        }
+    }
+
+    /**
+     * Decodes a frame. If the frame is a ticker update for a known pair, the decoded values are available from
+     * {@link #getSymbolId()}, {@link #getPrice()}, {@link #getVolume()} and {@link #getOpen()} until the next call.
+     *
+     * @param message the raw WebSocket frame
+     * @return true if the frame was a ticker update for a known pair, false for any other frame
+     */
+    public boolean decode(String message) {
+        this.frame = message;
+        this.pos = 0;
+        this.symbolId = -1;
+        this.price = Double.NaN;
+        this.volume = 0.0;
+        this.open = Double.NaN;
+        boolean decoded = decodeTicker();
+        this.frame = null;
+        return decoded;
+    }
+
+    /**
+     * Walks a ticker frame: channel id, ticker object, channel name and pair.
+     */
+    private boolean decodeTicker() {
+        if (!consume('[')) {
+            return false; // event frames (heartbeat, subscription status) are JSON objects
+        }
+        // Channel id
+        while (pos < frame.length() && frame.charAt(pos) != ',') {
+            pos++;
+        }
+        if (!consume(',') || !consume('{') || !decodeTickerObject()) {
+            return false;
+        }
+        // Channel name
+        if (!consume(',') || !consume('"') || !frame.startsWith("ticker", pos)) {
+            return false;
+        }
+        if (skipStringBody() < 0 || !consume(',') || !consume('"')) {
+            return false;
+        }
+        // Pair name
+        int start = pos;
+        int end = skipStringBody();
+        if (end < 0) {
+            return false;
+        }
+        symbolId = lookup(start, end - start);
+        return symbolId >= 0 && !Double.isNaN(price) && !Double.isNaN(open);
+    }
+
+    /**
+     * Walks the ticker object after its opening brace, extracting c[0], c[1] and o[0] and skipping all other fields.
+     */
+    private boolean decodeTickerObject() {
+        while (pos < frame.length()) {
+            if (consume('}')) {
+                return true;
+            }
+            if (!consume('"')) {
+                return false;
+            }
+            int keyStart = pos;
+            int keyEnd = skipStringBody();
+            if (keyEnd < 0 || !consume(':') || !consume('[')) {
+                return false;
+            }
+            boolean isClose = keyEnd - keyStart == 1 && frame.charAt(keyStart) == 'c';
+            boolean isOpen = keyEnd - keyStart == 1 && frame.charAt(keyStart) == 'o';
+            int index = 0;
+            while (!consume(']')) {
+                if (pos >= frame.length()) {
+                    return false;
+                }
+                if (index == 0 && (isClose || isOpen)) {
+                    double value = parseValue();
+                    if (isClose) {
+                        price = value;
+                    } else {
+                        open = value;
+                    }
+                } else if (index == 1 && isClose) {
+                    double value = parseValue();
+                    volume = Double.isNaN(value) ? 0.0 : value;
+                } else {
+                    skipValue();
+                }
+                index++;
+                consume(',');
+            }
+            consume(',');
+        }
+        return false;
+    }
+
+    /**
+     * Parses a number that may be quoted, as Kraken sends prices as decimal strings.
+     */
+    private double parseValue() {
+        boolean quoted = consume('"');
+        int start = pos;
+        while (pos < frame.length() && frame.charAt(pos) != '"' && frame.charAt(pos) != ','
+                && frame.charAt(pos) != ']') {
+            pos++;
+        }
+        double value = parseDecimal(start, pos);
+        if (quoted) {
+            consume('"');
+        }
+        return value;
+    }
+
+    /**
+     * Skips a scalar array element (quoted string or bare number).
+     */
+    private void skipValue() {
+        if (consume('"')) {
+            skipStringBody();
+            return;
+        }
+        while (pos < frame.length() && frame.charAt(pos) != ',' && frame.charAt(pos) != ']') {
+            pos++;
+        }
+    }
+
+    /**
+     * Skips the body of a string whose opening quote has been consumed, including the closing quote.
+     *
+     * @return the position of the closing quote, or -1 if the string is not terminated
+     */
+    private int skipStringBody() {
+        while (pos < frame.length()) {
+            char c = frame.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == '"') {
+                return pos++;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Consumes the expected character if it is next in the frame.
+     */
+    private boolean consume(char expected) {
+        if (pos < frame.length() && frame.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses a plain decimal number (optional sign, digits, optional fraction). Numbers with at most 15 significant
+     * digits are converted exactly from a long mantissa; anything else falls back to {@link Double#parseDouble}.
+     */
+    private double parseDecimal(int start, int end) {
+        int i = start;
+        boolean negative = i < end && frame.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = frame.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    fractionDigits++;
+                }
+                if (digits > 15) {
+                    return slowParse(start, end);
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return slowParse(start, end);
+            }
+        }
+        if (i == start || mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParse(start, end);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private double slowParse(int start, int end) {
+        try {
+            return Double.parseDouble(frame.substring(start, end));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Resolves a pair name given as a range of the frame to its symbol id without creating a string.
+     *
+     * @return the symbol id, or -1 if the pair is unknown
+     */
+    private int lookup(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + frame.charAt(i);
+        }
+        int slot = spread(hash) & mask;
+        String pair;
+        while ((pair = pairs[slot]) != null) {
+            if (pair.length() == length && pair.regionMatches(0, frame, start, length)) {
+                return symbolIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /* Getters for the last decoded ticker frame */
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+}
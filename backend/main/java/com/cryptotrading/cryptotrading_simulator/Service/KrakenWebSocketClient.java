@@ -1,44 +1,101 @@
 package com.cryptotrading.cryptotrading_simulator.Service;
 
-import com.cryptotrading.cryptotrading_simulator.Model.Cryptocurrency;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A WebSocket client that connects to Kraken's WebSocket API to receive real-time cryptocurrency ticker updates.
+ * A {@link MarketDataSource} that connects to Kraken's WebSocket API to receive real-time cryptocurrency ticker
+ * updates.
  * It subscribes to ticker updates for a predefined set of cryptocurrency pairs and updates the cryptocurrency data
- * in the {@link CryptoService}.
+ * in the {@link CryptoService}. A {@link FeedConnectionManager} reconnects with backoff after the connection is lost
+ * or goes silent, and hands the prices to the simulator in the meantime. Received frames are handed to a
+ * {@link FeedPipeline}, which decodes and publishes them on its own threads.
  */
 @Service
 @ClientEndpoint
-public class KrakenWebSocketClient {
+public class KrakenWebSocketClient implements MarketDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(KrakenWebSocketClient.class);
+
+    /* Kraken WebSocket API */
+    private static final String KRAKEN_URI = "wss://ws.kraken.com";
+
+    /* WebSocket API the client connects to */
+    private final URI uri;
 
     /* Crypto service */
     private final CryptoService cryptoService;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private Session session;
+    private volatile Session session;
 
     /* Map cryptocurrency symbol to kraken symbols */
     private final Map<String, String> symbolMap = new HashMap<>();
 
+    /* Decodes and publishes the received frames */
+    private final FeedPipeline pipeline;
+
+    /* Reconnects the feed and fails over to the simulator */
+    private final FeedConnectionManager connectionManager;
+
     /**
-     * Constructs a KrakenWebSocketClient.
+     * Constructs a KrakenWebSocketClient with the default reconnect and liveness settings.
      *
      * @param cryptoService the service that handles cryptocurrency data and updates
      */
     public KrakenWebSocketClient(CryptoService cryptoService) {
+        this(cryptoService, KRAKEN_URI, 1000, 60000, 10000, 60000, 4096, 4096, 256);
+    }
+
+    /**
+     * Constructs a KrakenWebSocketClient.
+     *
+     * @param cryptoService the service that handles cryptocurrency data and updates
+     * @param uri the WebSocket API to connect to, Kraken's unless a test points the client elsewhere
+     * @param initialBackoffMillis the delay before the first reconnect attempt, doubled on every failed attempt
+     * @param maxBackoffMillis the longest delay between reconnect attempts
+     * @param heartbeatTimeoutMillis the time without any message after which the connection is reopened
+     * @param symbolStaleMillis the time without a tick after which a pair is priced by the simulator
+     * @param frameBufferSize the number of received frames buffered for decoding; frames beyond it are dropped
+     * @param tickBufferSize the number of decoded ticks buffered for publishing
+     * @param batchSize the maximum number of frames or ticks a pipeline stage processes at once
+     */
+    @Autowired
+    public KrakenWebSocketClient(CryptoService cryptoService,
+                                 @Value("${feed.kraken.uri:" + KRAKEN_URI + "}") String uri,
+                                 @Value("${feed.reconnect.initial-backoff-ms:1000}") long initialBackoffMillis,
+                                 @Value("${feed.reconnect.max-backoff-ms:60000}") long maxBackoffMillis,
+                                 @Value("${feed.heartbeat-timeout-ms:10000}") long heartbeatTimeoutMillis,
+                                 @Value("${feed.symbol-stale-ms:60000}") long symbolStaleMillis,
+                                 @Value("${feed.pipeline.frame-buffer-size:4096}") int frameBufferSize,
+                                 @Value("${feed.pipeline.tick-buffer-size:4096}") int tickBufferSize,
+                                 @Value("${feed.pipeline.batch-size:256}") int batchSize) {
         this.cryptoService = cryptoService;
+        this.uri = URI.create(uri);
         initializeSymbolMap();
+        this.connectionManager = new FeedConnectionManager(cryptoService, new FeedConnectionManager.Connector() {
+            @Override
+            public void connect() throws Exception {
+                openSession();
+            }
+
+            @Override
+            public void close() {
+                closeSession();
+            }
+        }, initialBackoffMillis, maxBackoffMillis, heartbeatTimeoutMillis, symbolStaleMillis);
+        this.pipeline = new FeedPipeline(cryptoService, new KrakenTickerDecoder(buildPairIndex()),
+                connectionManager::onTick, frameBufferSize, tickBufferSize, batchSize);
+        cryptoService.getMetrics().bindFeedPipeline(pipeline);
     }
 
     /**
@@ -68,39 +125,99 @@ public class KrakenWebSocketClient {
     }
 
     /**
-     * Establishes a connection to the Kraken WebSocket server. This method is invoked after the bean is constructed
-     * and the application context is ready. It attempts to connect to the WebSocket server and log any errors.
+     * Builds the reverse index from Kraken pair names to the symbol ids of the price store, so ticker frames can be
+     * mapped to a symbol in constant time.
+     *
+     * @return map of Kraken pair names to symbol ids
      */
-    @PostConstruct
-    public void connect() {
-        try {
-            // Create a standard javax WebSocket client
-            WebSocketContainer container = javax.websocket.ContainerProvider.getWebSocketContainer();
+    private Map<String, Integer> buildPairIndex() {
+        PriceSnapshotStore priceStore = cryptoService.getPriceStore();
+        Map<String, Integer> pairIndex = new HashMap<>();
+        for (Map.Entry<String, String> entry : symbolMap.entrySet()) {
+            int id = priceStore.idOf(entry.getKey());
+            if (id >= 0) {
+                pairIndex.put(entry.getValue(), id);
+            }
+        }
+        return pairIndex;
+    }
 
-            // Connect to the WebSocket server
-            this.session = container.connectToServer(
-                    this,  // this class uses @ClientEndpoint
-                    new URI("wss://ws.kraken.com")
-            );
+    @Override
+    public String getName() {
+        return "kraken";
+    }
 
-            System.out.println("Connected to Kraken WebSocket");
+    /**
+     * Starts the pipeline and connecting to the Kraken WebSocket server. The connection is made and kept alive in the
+     * background; prices are simulated until it delivers ticks.
+     */
+    @Override
+    public void start() {
+        pipeline.start();
+        connectionManager.start();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error connecting to Kraken WebSocket: " + e.getMessage());
-            e.printStackTrace();
-            // Fall back to simulated data
+    /**
+     * Stops reconnecting, closes the WebSocket connection and stops the pipeline.
+     */
+    @Override
+    public void stop() {
+        connectionManager.stop();
+        pipeline.stop();
+    }
+
+    /**
+     * Symbols are simulated while the connection is down or a pair has gone stale.
+     *
+     * @return true
+     */
+    @Override
+    public boolean usesSimulatorFallback() {
+        return true;
+    }
+
+    /**
+     * Opens a connection to the Kraken WebSocket server. Called by the connection manager.
+     *
+     * @throws Exception if the connection cannot be opened
+     */
+    private void openSession() throws Exception {
+        // Create a standard javax WebSocket client
+        WebSocketContainer container = javax.websocket.ContainerProvider.getWebSocketContainer();
+
+        // Connect to the WebSocket server
+        this.session = container.connectToServer(
+                this,  // this class uses @ClientEndpoint
+                uri
+        );
+
+        log.info("Connected to Kraken WebSocket");
+    }
+
+    /**
+     * Closes the current connection, if any. Called by the connection manager.
+     */
+    private void closeSession() {
+        Session current = this.session;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Error closing WebSocket connection", e);
+            }
         }
     }
 
     /**
      * Called when the WebSocket connection is successfully established.
-     * Subscribes to ticker updates for all supported cryptocurrency pairs.
+     * Subscribes to ticker updates for all supported cryptocurrency pairs, again on every reconnect.
      *
      * @param session the WebSocket session
      */
     @OnOpen
     public void onOpen(Session session) {
         this.session = session;
+        connectionManager.onOpen();
         // Subscribe to tickers once connected
         subscribeToTickers();
     }
@@ -116,57 +233,30 @@ public class KrakenWebSocketClient {
             subscription.put("name", "ticker");
 
             Map<String, Object> message = new HashMap<>();
-            message.put("method", "subscribe");
-            message.put("params", new Object[]{subscription, symbolMap.values().toArray()});
+            message.put("event", "subscribe");
+            message.put("pair", symbolMap.values().toArray());
+            message.put("subscription", subscription);
 
             String subscriptionMessage = objectMapper.writeValueAsString(message);
             this.session.getBasicRemote().sendText(subscriptionMessage);
-            System.out.println("Subscribed to tickers");
+            log.info("Subscribed to tickers");
         } catch (Exception e) {
-            System.err.println("Error subscribing to tickers: " + e.getMessage());
+            log.error("Error subscribing to tickers", e);
         }
     }
 
     /**
      * Called when a message is received from the Kraken WebSocket server.
-     * It processes the message and updates the cryptocurrency data in the {@link CryptoService}.
+     * The message counts as a sign of life of the connection and is handed to the {@link FeedPipeline}, which
+     * decodes ticker frames and publishes their prices to the {@link CryptoService} on its own threads; all other
+     * frames are ignored there.
      *
      * @param message the WebSocket message in JSON format
      */
     @OnMessage
     public void onMessage(String message) {
-        try {
-            JsonNode root = objectMapper.readTree(message);
-
-            // Check if this is a ticker update (not a subscription confirmation)
-            if (root.isArray() && root.size() > 1 && root.get(1).isObject() && root.get(2).isArray()) {
-                String pair = root.get(3).asText();
-                JsonNode tickerData = root.get(1);
-
-                // Find our symbol from Kraken's pair
-                String ourSymbol = null;
-                for (Map.Entry<String, String> entry : symbolMap.entrySet()) {
-                    if (entry.getValue().equals(pair)) {
-                        ourSymbol = entry.getKey();
-                        break;
-                    }
-                }
-
-                if (ourSymbol != null) {
-                    // Extract price from ticker data
-                    double price = tickerData.get("c").get(0).asDouble();
-
-                    // Calculate 24h change
-                    double open24h = tickerData.get("o").get(0).asDouble();
-                    double change24h = ((price - open24h) / open24h) * 100;
-
-                    // Update our cryptocurrency data
-                    cryptoService.updateCryptoPrice(ourSymbol, price, change24h);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error processing WebSocket message: " + e.getMessage());
-        }
+        connectionManager.onMessage();
+        pipeline.offer(message);
     }
 
     /**
@@ -177,7 +267,8 @@ public class KrakenWebSocketClient {
      */
     @OnClose
     public void onClose(Session session, CloseReason reason) {
-        System.out.println("Disconnected from Kraken WebSocket: " + reason);
+        log.info("Disconnected from Kraken WebSocket: {}", reason);
+        connectionManager.onClose(String.valueOf(reason));
     }
 
     /**
@@ -188,21 +279,10 @@ public class KrakenWebSocketClient {
      */
     @OnError
     public void onError(Session session, Throwable error) {
-        System.err.println("WebSocket error: " + error.getMessage());
-    }
-
-    /**
-     * Closes the WebSocket connection when the application is shutting down.
-     * This method is invoked before the bean is destroyed.
-     */
-    @PreDestroy
-    public void disconnect() {
-        if (this.session != null && this.session.isOpen()) {
-            try {
-                this.session.close();
-            } catch (IOException e) {
-                System.err.println("Error closing WebSocket connection: " + e.getMessage());
-            }
+        log.warn("WebSocket error", error);
+        if (!session.isOpen()) {
+            connectionManager.onClose("error: " + error.getMessage());
         }
     }
+
 }
\ No newline at end of file
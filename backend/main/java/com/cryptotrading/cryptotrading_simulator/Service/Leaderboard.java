@@ -0,0 +1,419 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.LeaderboardEntry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A Leaderboard ranks the accounts of one {@link AccountShard} by total value and by realized profit or loss.
+ * <p>
+ * Each ranking is an order-statistic treap: a randomized balanced search tree whose nodes also count the nodes in
+ * their subtree. Moving an account to a new score, counting the accounts ranked ahead of a score and walking the top
+ * of the ranking take O(log n), so the rankings follow every trade and revaluation instead of being sorted per
+ * query. Accounts are ordered by descending score and then by id, so the order is total and the same on every
+ * shard: the global rank of an account is one plus the number of accounts ranked ahead of it on all shards, and the
+ * global top N is the merge of the top N of every shard.
+ * </p>
+ * <p>
+ * Trades move an account right away. Revaluations by price ticks are deferred instead: a tick only stores the new
+ * scores on each holder and queues it once, in O(1) per holder, and the queued accounts are moved in one batch before
+ * the next query. The leaderboard push reads the rankings once per interval, so a symbol ticking k times with h
+ * holders costs O(k * h) for the stores plus O(h log n) per push for the moves, instead of O(k * h log n); queries
+ * still see every tick, and the version still grows with every deferred change.
+ * </p>
+ * <p>
+ * The leaderboard is owned by the shard thread; other threads submit their queries to the shard.
+ * </p>
+ */
+public final class Leaderboard {
+
+    /* Metric ranking accounts by cash balance plus market value */
+    public static final String TOTAL_VALUE = "totalValue";
+
+    /* Metric ranking accounts by realized profit or loss */
+    public static final String REALIZED_PROFIT_LOSS = "realizedProfitLoss";
+
+    /* Ranked accounts, keyed by account id (shard thread only) */
+    private final Map<String, Ranked> accounts = new HashMap<>();
+
+    /* Rankings by total value and by realized profit or loss (shard thread only) */
+    private final Ranking byTotalValue = new Ranking();
+    private final Ranking byRealizedProfitLoss = new Ranking();
+
+    /* Source of the node priorities (shard thread only) */
+    private final SplittableRandom priorities = new SplittableRandom();
+
+    /* Accounts with deferred scores not moved yet, each queued once (shard thread only) */
+    private final List<Ranked> deferred = new ArrayList<>();
+
+    /* Number of changes so far, read by other threads to skip pushing unchanged leaderboards */
+    private volatile long version;
+
+    /**
+     * Checks whether accounts can be ranked by a metric.
+     *
+     * @param metric the metric, {@link #TOTAL_VALUE} or {@link #REALIZED_PROFIT_LOSS}
+     * @return true if the metric is supported
+     */
+    public static boolean isSupported(String metric) {
+        return TOTAL_VALUE.equals(metric) || REALIZED_PROFIT_LOSS.equals(metric);
+    }
+
+    /**
+     * Gets the score an entry is ranked by.
+     *
+     * @param metric the supported metric
+     * @param entry the entry
+     * @return the total value or the realized profit or loss of the entry
+     */
+    public static double score(String metric, LeaderboardEntry entry) {
+        return TOTAL_VALUE.equals(metric) ? entry.getTotalValue() : entry.getRealizedProfitLoss();
+    }
+
+    /**
+     * Ranks the merged top entries of all shards.
+     *
+     * @param metric the supported metric
+     * @param entries the top entries of every shard, in any order
+     * @param limit the maximum number of entries to return
+     * @return the best entries with their global ranks, best first
+     */
+    static List<LeaderboardEntry> rank(String metric, List<LeaderboardEntry> entries, int limit) {
+        entries.sort(Comparator.comparingDouble((LeaderboardEntry entry) -> score(metric, entry)).reversed()
+                .thenComparing(LeaderboardEntry::getAccountId));
+        List<LeaderboardEntry> ranked = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            LeaderboardEntry entry = entries.get(i);
+            ranked.add(new LeaderboardEntry(i + 1, entry.getAccountId(), entry.getTotalValue(),
+                    entry.getRealizedProfitLoss()));
+        }
+        return ranked;
+    }
+
+    /**
+     * Moves an account to its current scores, ranking it if it was not ranked yet.
+     *
+     * @param accountId the id of the account
+     * @param totalValue the cash balance plus the market value of the holdings
+     * @param realizedProfitLoss the profit or loss realized by all sales
+     */
+    void update(String accountId, double totalValue, double realizedProfitLoss) {
+        Ranked ranked = accounts.get(accountId);
+        if (ranked == null) {
+            ranked = new Ranked(accountId, priorities);
+            accounts.put(accountId, ranked);
+            ranked.totalValue.score = totalValue;
+            ranked.realizedProfitLoss.score = realizedProfitLoss;
+            byTotalValue.insert(ranked.totalValue);
+            byRealizedProfitLoss.insert(ranked.realizedProfitLoss);
+        } else {
+            ranked.deferred = false;
+            boolean moved = byTotalValue.move(ranked.totalValue, totalValue);
+            if (!byRealizedProfitLoss.move(ranked.realizedProfitLoss, realizedProfitLoss) && !moved) {
+                return;
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Stores the new scores of an account revalued by a price tick, to be moved to in a batch before the next query.
+     * An account that is not ranked yet is ranked right away.
+     *
+     * @param accountId the id of the account
+     * @param totalValue the cash balance plus the market value of the holdings
+     * @param realizedProfitLoss the profit or loss realized by all sales
+     */
+    void defer(String accountId, double totalValue, double realizedProfitLoss) {
+        Ranked ranked = accounts.get(accountId);
+        if (ranked == null) {
+            update(accountId, totalValue, realizedProfitLoss);
+            return;
+        }
+        ranked.deferredTotalValue = totalValue;
+        ranked.deferredRealizedProfitLoss = realizedProfitLoss;
+        if (!ranked.deferred) {
+            ranked.deferred = true;
+            deferred.add(ranked);
+        }
+        version++;
+    }
+
+    /**
+     * Moves the accounts with deferred scores to them.
+     */
+    private void applyDeferred() {
+        for (Ranked ranked : deferred) {
+            if (ranked.deferred) {
+                ranked.deferred = false;
+                byTotalValue.move(ranked.totalValue, ranked.deferredTotalValue);
+                byRealizedProfitLoss.move(ranked.realizedProfitLoss, ranked.deferredRealizedProfitLoss);
+            }
+        }
+        deferred.clear();
+    }
+
+    /**
+     * Gets the number of accounts with deferred scores not moved yet.
+     *
+     * @return the number of queued accounts, including ones a trade moved since
+     */
+    int deferredCount() {
+        return deferred.size();
+    }
+
+    /**
+     * Gets the scores of an account, without its global rank.
+     *
+     * @param accountId the id of the account
+     * @return the entry of the account with rank 0, or null if the account is not ranked
+     */
+    LeaderboardEntry entryOf(String accountId) {
+        applyDeferred();
+        Ranked ranked = accounts.get(accountId);
+        return ranked == null ? null : ranked.toEntry(0);
+    }
+
+    /**
+     * Counts the accounts ranked ahead of a score.
+     *
+     * @param metric the supported metric
+     * @param score the score
+     * @param accountId the id of the account holding the score, which breaks ties
+     * @return the number of accounts on this shard ranked ahead
+     */
+    long countAhead(String metric, double score, String accountId) {
+        applyDeferred();
+        return ranking(metric).countAhead(score, accountId);
+    }
+
+    /**
+     * Lists the best accounts of this shard.
+     *
+     * @param metric the supported metric
+     * @param limit the maximum number of accounts to list
+     * @return the best accounts with their rank on this shard, best first
+     */
+    List<LeaderboardEntry> top(String metric, int limit) {
+        applyDeferred();
+        return ranking(metric).top(limit);
+    }
+
+    /**
+     * Gets the number of ranked accounts.
+     *
+     * @return the number of accounts on this shard's leaderboard
+     */
+    int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Gets the number of changes so far. May be called from any thread.
+     *
+     * @return a counter that grows whenever a score changes
+     */
+    long getVersion() {
+        return version;
+    }
+
+    private Ranking ranking(String metric) {
+        return TOTAL_VALUE.equals(metric) ? byTotalValue : byRealizedProfitLoss;
+    }
+
+    /**
+     * A ranked account and its node in each ranking.
+     */
+    private static final class Ranked {
+
+        final String accountId;
+        final Node totalValue;
+        final Node realizedProfitLoss;
+
+        /* Scores stored by a tick, and whether they are still to be moved to */
+        double deferredTotalValue;
+        double deferredRealizedProfitLoss;
+        boolean deferred;
+
+        Ranked(String accountId, SplittableRandom priorities) {
+            this.accountId = accountId;
+            this.totalValue = new Node(this, priorities.nextInt());
+            this.realizedProfitLoss = new Node(this, priorities.nextInt());
+        }
+
+        LeaderboardEntry toEntry(long rank) {
+            return new LeaderboardEntry(rank, accountId, totalValue.score, realizedProfitLoss.score);
+        }
+    }
+
+    /**
+     * A node of a ranking: an account's score, its heap priority and the size of its subtree.
+     */
+    private static final class Node {
+
+        final Ranked account;
+        final int priority;
+        double score;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(Ranked account, int priority) {
+            this.account = account;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * A treap ordered by descending score and ascending account id, with the highest priority at the root.
+     */
+    private static final class Ranking {
+
+        private Node root;
+
+        void insert(Node node) {
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+            root = insert(root, node);
+        }
+
+        /**
+         * Moves a node to a new score.
+         *
+         * @return false if the score did not change
+         */
+        boolean move(Node node, double score) {
+            if (Double.compare(node.score, score) == 0) {
+                return false;
+            }
+            root = remove(root, node);
+            node.score = score;
+            insert(node);
+            return true;
+        }
+
+        long countAhead(double score, String accountId) {
+            long count = 0;
+            Node tree = root;
+            while (tree != null) {
+                if (ahead(tree.score, tree.account.accountId, score, accountId)) {
+                    count += size(tree.left) + 1;
+                    tree = tree.right;
+                } else {
+                    tree = tree.left;
+                }
+            }
+            return count;
+        }
+
+        List<LeaderboardEntry> top(int limit) {
+            List<LeaderboardEntry> top = new ArrayList<>(Math.min(limit, size(root)));
+            Deque<Node> path = new ArrayDeque<>();
+            Node tree = root;
+            while (top.size() < limit && (tree != null || !path.isEmpty())) {
+                if (tree != null) {
+                    path.push(tree);
+                    tree = tree.left;
+                } else {
+                    Node node = path.pop();
+                    top.add(node.account.toEntry(top.size() + 1));
+                    tree = node.right;
+                }
+            }
+            return top;
+        }
+
+        private static Node insert(Node tree, Node node) {
+            if (tree == null) {
+                return node;
+            }
+            if (ahead(node, tree)) {
+                tree.left = insert(tree.left, node);
+                if (tree.left.priority > tree.priority) {
+                    return rotateRight(tree);
+                }
+            } else {
+                tree.right = insert(tree.right, node);
+                if (tree.right.priority > tree.priority) {
+                    return rotateLeft(tree);
+                }
+            }
+            resize(tree);
+            return tree;
+        }
+
+        private static Node remove(Node tree, Node node) {
+            if (tree == node) {
+                return merge(tree.left, tree.right);
+            }
+            if (ahead(node, tree)) {
+                tree.left = remove(tree.left, node);
+            } else {
+                tree.right = remove(tree.right, node);
+            }
+            resize(tree);
+            return tree;
+        }
+
+        /* Joins two treaps where every node of the first is ranked ahead of every node of the second */
+        private static Node merge(Node first, Node second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null) {
+                return first;
+            }
+            if (first.priority > second.priority) {
+                first.right = merge(first.right, second);
+                resize(first);
+                return first;
+            }
+            second.left = merge(first, second.left);
+            resize(second);
+            return second;
+        }
+
+        private static Node rotateRight(Node tree) {
+            Node left = tree.left;
+            tree.left = left.right;
+            left.right = tree;
+            resize(tree);
+            resize(left);
+            return left;
+        }
+
+        private static Node rotateLeft(Node tree) {
+            Node right = tree.right;
+            tree.right = right.left;
+            right.left = tree;
+            resize(tree);
+            resize(right);
+            return right;
+        }
+
+        private static void resize(Node tree) {
+            tree.size = size(tree.left) + size(tree.right) + 1;
+        }
+
+        private static int size(Node tree) {
+            return tree == null ? 0 : tree.size;
+        }
+
+        private static boolean ahead(Node node, Node other) {
+            return ahead(node.score, node.account.accountId, other.score, other.account.accountId);
+        }
+
+        private static boolean ahead(double score, String accountId, double otherScore, String otherAccountId) {
+            int order = Double.compare(score, otherScore);
+            return order > 0 || order == 0 && accountId.compareTo(otherAccountId) < 0;
+        }
+    }
+}
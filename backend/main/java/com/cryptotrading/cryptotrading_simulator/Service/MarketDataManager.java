@@ -0,0 +1,88 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The MarketDataManager starts the {@link MarketDataSource} selected by the {@code market-data.source} property
+ * ("kraken", "simulator", "replay" or "synthetic") once the application context is ready, together with the
+ * simulator if the selected source falls back to it, and stops them on shutdown.
+ */
+@Component
+public class MarketDataManager {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataManager.class);
+
+    /* All available sources */
+    private final List<MarketDataSource> sources;
+
+    /* Fallback for sources that do not price every symbol all the time */
+    private final SimulatedMarketData simulator;
+
+    /* Name of the selected source */
+    private final String sourceName;
+
+    /* Selected source, null until started */
+    private MarketDataSource source;
+
+    /**
+     * Constructs a MarketDataManager.
+     *
+     * @param sources all available sources
+     * @param simulator the simulator source, also used as fallback
+     * @param sourceName the name of the source to start
+     */
+    public MarketDataManager(List<MarketDataSource> sources, SimulatedMarketData simulator,
+                             @Value("${market-data.source:kraken}") String sourceName) {
+        this.sources = sources;
+        this.simulator = simulator;
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Starts the selected source, and the simulator as its fallback if it uses one.
+     *
+     * @throws IllegalStateException if no source has the configured name
+     */
+    @PostConstruct
+    public void start() {
+        source = sources.stream()
+                .filter(candidate -> candidate.getName().equals(sourceName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown market data source '" + sourceName
+                        + "', expected one of " + sources.stream().map(MarketDataSource::getName)
+                        .collect(Collectors.toList())));
+        if (source.usesSimulatorFallback()) {
+            simulator.start();
+        }
+        source.start();
+        log.info("Market data source: {}", source.getName());
+    }
+
+    /**
+     * Stops the selected source and the simulator.
+     */
+    @PreDestroy
+    public void stop() {
+        if (source != null) {
+            source.stop();
+        }
+        simulator.stop();
+    }
+
+    /**
+     * Gets the selected source.
+     *
+     * @return the running source, or null before start
+     */
+    public MarketDataSource getSource() {
+        return source;
+    }
+}
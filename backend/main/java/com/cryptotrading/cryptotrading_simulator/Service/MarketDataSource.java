@@ -0,0 +1,35 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+/**
+ * A MarketDataSource feeds prices into the {@link CryptoService}. Exactly one source is selected by the
+ * {@code market-data.source} property and started by the {@link MarketDataManager}.
+ */
+public interface MarketDataSource {
+
+    /**
+     * Gets the name the source is selected by.
+     *
+     * @return the source name, e.g. "kraken"
+     */
+    String getName();
+
+    /**
+     * Starts feeding prices. Must not block; sources feed from their own threads.
+     */
+    void start();
+
+    /**
+     * Stops feeding prices and releases the source's resources.
+     */
+    void stop();
+
+    /**
+     * Whether the simulator should price the symbols this source does not currently price, e.g. while a network
+     * feed is disconnected.
+     *
+     * @return true to run the simulator alongside this source
+     */
+    default boolean usesSimulatorFallback() {
+        return false;
+    }
+}
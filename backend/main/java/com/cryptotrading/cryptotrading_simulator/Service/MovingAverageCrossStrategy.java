@@ -0,0 +1,103 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Candle;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+
+/**
+ * A sample {@link TradingStrategy} trading one symbol on a moving average crossover of candle closes: it buys when
+ * the fast average crosses above the slow one and sells the whole position when it crosses back below.
+ */
+public class MovingAverageCrossStrategy implements TradingStrategy {
+
+    /* Traded symbol */
+    private final String symbol;
+
+    /* Number of candles in the fast and the slow average */
+    private final int fast;
+    private final int slow;
+
+    /* Fraction of the balance spent on a buy */
+    private final double fraction;
+
+    /* The last slow closes in a ring, and the sums of the last fast and slow ones */
+    private final double[] closes;
+    private int count;
+    private double fastSum;
+    private double slowSum;
+
+    /* Whether the fast average was above the slow one at the previous candle */
+    private boolean wasAbove;
+
+    /* Id of the traded symbol in the context */
+    private int symbolId = -1;
+
+    /* Reused trade request */
+    private final TradeRequest request = new TradeRequest();
+
+    /**
+     * Constructs a MovingAverageCrossStrategy.
+     *
+     * @param symbol the traded symbol
+     * @param fast the number of candles in the fast average
+     * @param slow the number of candles in the slow average, greater than fast
+     * @param fraction the fraction of the balance spent on a buy
+     * @throws IllegalArgumentException if the averages are not 0 &lt; fast &lt; slow
+     */
+    public MovingAverageCrossStrategy(String symbol, int fast, int slow, double fraction) {
+        if (fast <= 0 || slow <= fast) {
+            throw new IllegalArgumentException("Expected 0 < fast < slow, got " + fast + " and " + slow);
+        }
+        this.symbol = symbol;
+        this.fast = fast;
+        this.slow = slow;
+        this.fraction = fraction;
+        this.closes = new double[slow];
+        request.setSymbol(symbol);
+    }
+
+    @Override
+    public void onStart(BacktestContext context) {
+        symbolId = context.getSymbolId(symbol);
+    }
+
+    @Override
+    public void onTick(BacktestContext context, int symbolId, long timestamp, double price) {
+    }
+
+    @Override
+    public void onCandle(BacktestContext context, int symbolId, Candle candle) {
+        if (symbolId != this.symbolId) {
+            return;
+        }
+        double close = candle.getClose();
+        if (count >= fast) {
+            fastSum -= closes[(count - fast) % slow];
+        }
+        if (count >= slow) {
+            slowSum -= closes[count % slow];
+        }
+        closes[count % slow] = close;
+        fastSum += close;
+        slowSum += close;
+        count++;
+        if (count < slow) {
+            return;
+        }
+
+        boolean above = fastSum / fast > slowSum / slow;
+        if (count == slow) {
+            wasAbove = above; // only trade on crossovers, not on the first full window
+            return;
+        }
+        if (above && !wasAbove && context.getPosition(symbolId) == 0) {
+            request.setType("buy");
+            request.setAmount(context.getAccount().getBalance() * fraction / close);
+            context.trade(request);
+        } else if (!above && wasAbove && context.getPosition(symbolId) > 0) {
+            request.setType("sell");
+            request.setAmount(context.getPosition(symbolId));
+            context.trade(request);
+        }
+        wasAbove = above;
+    }
+}
@@ -0,0 +1,424 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The OffHeapAccountStore keeps trading accounts as fixed-layout records outside the Java heap, for simulations
+ * with millions of accounts.
+ * <p>
+ * Every account is one record: balance in fixed-point units, realized profit or loss, transaction count, the account
+ * id, the order rate bucket of the risk limits, and one quantity/cost pair per symbol id. Records live in direct buffers, or in memory-mapped files if a
+ * directory is given, allocated in chunks of a fixed number of records as accounts are added. Account ids are found
+ * through an open-addressing hash index that is off-heap as well, so the number of heap objects and the work of the
+ * garbage collector do not grow with the number of accounts.
+ * </p>
+ * <p>
+ * The store keeps no transaction history, open orders or valuations, and is not journaled. Like the accounts of an
+ * {@link AccountShard}, a store must only be used from the thread of its shard.
+ * </p>
+ */
+public final class OffHeapAccountStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapAccountStore.class);
+
+    /* Longest account id in chars */
+    public static final int MAX_ID_LENGTH = 32;
+
+    /* Record layout: fixed header followed by one quantity/cost pair per symbol */
+    private static final int BALANCE = 0;
+    private static final int REALIZED_PROFIT_LOSS = 8;
+    private static final int TRANSACTION_COUNT = 16;
+    private static final int ID_LENGTH = 24;
+    private static final int ID_CHARS = 26;
+    private static final int ORDER_BUCKET = 96;
+    private static final int HEADER_SIZE = 104;
+    private static final int POSITION_SIZE = 16;
+
+    /* Target size of a record chunk */
+    private static final int CHUNK_BYTES = 32 * 1024 * 1024;
+
+    /* Initial number of index entries; the index is kept at most half full */
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    /* Number of symbol ids with a position slot */
+    private final int symbolCount;
+
+    /* Balance of new and reset accounts in fixed-point units */
+    private final long initialBalance;
+
+    /* Directory of the memory-mapped chunk files, null for direct buffers */
+    private final Path directory;
+
+    /* Prefix of the chunk file names */
+    private final String name;
+
+    /* Record size and records per chunk, a power of two */
+    private final int recordSize;
+    private final int chunkShift;
+    private final int chunkMask;
+
+    /* Record chunks; chunk i holds the records of slots i << chunkShift and up */
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /* Index entries: the id hash in the high and slot + 1 in the low 32 bits, 0 for an empty entry */
+    private ByteBuffer index;
+    private int indexMask;
+
+    /* Number of accounts */
+    private int size;
+
+    /**
+     * Constructs an OffHeapAccountStore.
+     *
+     * @param symbolCount the number of symbol ids with a position slot
+     * @param initialBalance the balance of new and reset accounts in fixed-point units
+     * @param directory the directory of the memory-mapped chunk files, or null to use direct buffers
+     * @param name the prefix of the chunk file names, unique per directory
+     */
+    public OffHeapAccountStore(int symbolCount, long initialBalance, Path directory, String name) {
+        this.symbolCount = symbolCount;
+        this.initialBalance = initialBalance;
+        this.directory = directory;
+        this.name = name;
+        this.recordSize = HEADER_SIZE + symbolCount * POSITION_SIZE;
+        int chunkRecords = Integer.highestOneBit(Math.max(1, CHUNK_BYTES / recordSize));
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkRecords);
+        this.chunkMask = chunkRecords - 1;
+        this.index = allocateIndex(INITIAL_INDEX_SIZE);
+        this.indexMask = INITIAL_INDEX_SIZE - 1;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error creating account store directory " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Finds an account.
+     *
+     * @param accountId the account id
+     * @return the slot of the account, or -1 if it does not exist
+     */
+    public int find(String accountId) {
+        int hash = hash(accountId);
+        for (int i = hash & indexMask; ; i = (i + 1) & indexMask) {
+            long entry = index.getLong(i * 8);
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && idEquals(slot, accountId)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Finds an account, creating it with the initial balance if it does not exist yet.
+     *
+     * @param accountId the account id, at most {@value #MAX_ID_LENGTH} chars
+     * @return the slot of the account
+     * @throws IllegalArgumentException if the account id is too long
+     */
+    public int findOrCreate(String accountId) {
+        int slot = find(accountId);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (accountId.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Account id exceeds " + MAX_ID_LENGTH + " chars");
+        }
+        slot = size;
+        if ((slot >>> chunkShift) == chunks.length) {
+            addChunk();
+        }
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putShort(offset + ID_LENGTH, (short) accountId.length());
+        for (int i = 0; i < accountId.length(); i++) {
+            chunk.putChar(offset + ID_CHARS + 2 * i, accountId.charAt(i));
+        }
+        reset(slot);
+        chunk.putLong(offset + ORDER_BUCKET, RiskEngine.BUCKET_FULL);
+        size++;
+        if (size * 2 > indexMask + 1) {
+            resizeIndex();
+        }
+        insert(hash(accountId), slot);
+        return slot;
+    }
+
+    /**
+     * Gets the id of the account in a slot.
+     *
+     * @param slot the slot of the account
+     * @return the account id
+     */
+    public String getAccountId(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        char[] id = new char[chunk.getShort(offset + ID_LENGTH)];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = chunk.getChar(offset + ID_CHARS + 2 * i);
+        }
+        return new String(id);
+    }
+
+    /**
+     * Resets an account to the initial balance, without positions, realized profit or loss and transactions. The
+     * order rate bucket is kept, so resetting does not lift a throttle.
+     *
+     * @param slot the slot of the account
+     */
+    public void reset(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + BALANCE, initialBalance);
+        chunk.putDouble(offset + REALIZED_PROFIT_LOSS, 0);
+        chunk.putLong(offset + TRANSACTION_COUNT, 0);
+        for (int position = offset + HEADER_SIZE; position < offset + recordSize; position += 8) {
+            chunk.putLong(position, 0);
+        }
+    }
+
+    /**
+     * Gets the balance of an account.
+     *
+     * @param slot the slot of the account
+     * @return the balance in fixed-point units
+     */
+    public long getBalanceUnits(int slot) {
+        return chunk(slot).getLong(offset(slot) + BALANCE);
+    }
+
+    /**
+     * Sets the balance of an account.
+     *
+     * @param slot the slot of the account
+     * @param balance the balance in fixed-point units
+     */
+    public void setBalanceUnits(int slot, long balance) {
+        chunk(slot).putLong(offset(slot) + BALANCE, balance);
+    }
+
+    public double getRealizedProfitLoss(int slot) {
+        return chunk(slot).getDouble(offset(slot) + REALIZED_PROFIT_LOSS);
+    }
+
+    public void setRealizedProfitLoss(int slot, double realizedProfitLoss) {
+        chunk(slot).putDouble(offset(slot) + REALIZED_PROFIT_LOSS, realizedProfitLoss);
+    }
+
+    /**
+     * Gets the number of transactions of an account, which is also the sequence number of its next transaction.
+     *
+     * @param slot the slot of the account
+     * @return the transaction count
+     */
+    public long getTransactionCount(int slot) {
+        return chunk(slot).getLong(offset(slot) + TRANSACTION_COUNT);
+    }
+
+    /**
+     * Counts a new transaction of an account.
+     *
+     * @param slot the slot of the account
+     * @return the sequence number of the transaction
+     */
+    public long nextTransaction(int slot) {
+        long sequence = getTransactionCount(slot);
+        chunk(slot).putLong(offset(slot) + TRANSACTION_COUNT, sequence + 1);
+        return sequence;
+    }
+
+    /**
+     * Gets the time the order rate bucket of an account is full again.
+     *
+     * @param slot the slot of the account
+     * @return the {@link System#nanoTime()} the bucket is full again, or {@link RiskEngine#BUCKET_FULL}
+     */
+    public long getOrderBucketNanos(int slot) {
+        return chunk(slot).getLong(offset(slot) + ORDER_BUCKET);
+    }
+
+    public void setOrderBucketNanos(int slot, long orderBucketNanos) {
+        chunk(slot).putLong(offset(slot) + ORDER_BUCKET, orderBucketNanos);
+    }
+
+    /**
+     * Gets the held quantity of a symbol.
+     *
+     * @param slot the slot of the account
+     * @param symbolId the symbol id
+     * @return the quantity in fixed-point units, 0 if there is no position
+     */
+    public long getQuantityUnits(int slot, int symbolId) {
+        if (symbolId < 0 || symbolId >= symbolCount) {
+            return 0;
+        }
+        return chunk(slot).getLong(offset(slot) + HEADER_SIZE + symbolId * POSITION_SIZE);
+    }
+
+    /**
+     * Gets the cost of the position in a symbol, i.e. the held quantity at its buy prices.
+     *
+     * @param slot the slot of the account
+     * @param symbolId the symbol id
+     * @return the cost, 0 if there is no position
+     */
+    public double getPositionCost(int slot, int symbolId) {
+        if (symbolId < 0 || symbolId >= symbolCount) {
+            return 0;
+        }
+        return chunk(slot).getDouble(offset(slot) + HEADER_SIZE + symbolId * POSITION_SIZE + 8);
+    }
+
+    /**
+     * Sets the position in a symbol. A quantity of 0 or less closes the position.
+     *
+     * @param slot the slot of the account
+     * @param symbolId the symbol id
+     * @param quantity the held quantity in fixed-point units
+     * @param cost the cost of the held quantity
+     */
+    public void setPosition(int slot, int symbolId, long quantity, double cost) {
+        int position = offset(slot) + HEADER_SIZE + symbolId * POSITION_SIZE;
+        ByteBuffer chunk = chunk(slot);
+        chunk.putLong(position, Math.max(quantity, 0));
+        chunk.putDouble(position + 8, quantity > 0 ? cost : 0);
+    }
+
+    /**
+     * Gets the number of symbol ids with a position slot.
+     *
+     * @return the symbol count
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Gets the number of accounts.
+     *
+     * @return the account count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the off-heap memory reserved for records and index.
+     *
+     * @return the reserved bytes
+     */
+    public long getReservedBytes() {
+        return (long) chunks.length * (chunkMask + 1) * recordSize + index.capacity();
+    }
+
+    /**
+     * Releases the store. Its buffers are freed once unreachable; the chunk files are deleted right away.
+     */
+    public void close() {
+        chunks = new ByteBuffer[0];
+        size = 0;
+        if (directory != null) {
+            for (int i = 0; ; i++) {
+                try {
+                    if (!Files.deleteIfExists(chunkFile(i))) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    log.warn("Error deleting account store file", e);
+                    break;
+                }
+            }
+        }
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> chunkShift];
+    }
+
+    private int offset(int slot) {
+        return (slot & chunkMask) * recordSize;
+    }
+
+    private boolean idEquals(int slot, String accountId) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        if (chunk.getShort(offset + ID_LENGTH) != accountId.length()) {
+            return false;
+        }
+        for (int i = 0; i < accountId.length(); i++) {
+            if (chunk.getChar(offset + ID_CHARS + 2 * i) != accountId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addChunk() {
+        int bytes = (chunkMask + 1) * recordSize;
+        ByteBuffer chunk;
+        if (directory == null) {
+            chunk = ByteBuffer.allocateDirect(bytes);
+        } else {
+            Path file = chunkFile(chunks.length);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error mapping account store file " + file, e);
+            }
+        }
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = chunk.order(ByteOrder.nativeOrder());
+    }
+
+    private Path chunkFile(int chunk) {
+        return directory.resolve(name + "-" + chunk + ".bin");
+    }
+
+    private void insert(int hash, int slot) {
+        int i = hash & indexMask;
+        while (index.getLong(i * 8) != 0) {
+            i = (i + 1) & indexMask;
+        }
+        index.putLong(i * 8, (long) hash << 32 | (slot + 1L));
+    }
+
+    private void resizeIndex() {
+        ByteBuffer old = index;
+        int entries = (indexMask + 1) * 2;
+        index = allocateIndex(entries);
+        indexMask = entries - 1;
+        for (int i = 0; i < old.capacity() / 8; i++) {
+            long entry = old.getLong(i * 8);
+            if (entry != 0) {
+                insert((int) (entry >>> 32), (int) entry - 1);
+            }
+        }
+    }
+
+    private static ByteBuffer allocateIndex(int entries) {
+        return ByteBuffer.allocateDirect(entries * 8).order(ByteOrder.nativeOrder());
+    }
+
+    private static int hash(String accountId) {
+        int hash = accountId.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
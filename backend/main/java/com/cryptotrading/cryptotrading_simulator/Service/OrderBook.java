@@ -0,0 +1,115 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The OrderBook holds the resting orders of one symbol, indexed by the price that triggers them.
+ * <p>
+ * Each kind of trigger has its own {@link OrderHeap} ordered so that the order closest to being crossed is on top:
+ * </p>
+ * <ul>
+ *     <li>buy limits, highest limit first, fill when the price falls to or below the limit</li>
+ *     <li>sell limits, lowest limit first, fill when the price rises to or above the limit</li>
+ *     <li>buy stops, lowest stop first, trigger when the price rises to or above the stop</li>
+ *     <li>sell stops, highest stop first, trigger when the price falls to or below the stop</li>
+ * </ul>
+ * <p>
+ * A tick therefore only pops the orders it crosses and stops at the first one it does not, so matching costs
+ * O(k log n) for k crossed orders regardless of how many orders rest in the book. Cancelled orders are removed
+ * lazily: they are skipped when they reach the top, and the heaps are compacted once they make up half the book.
+ * </p>
+ */
+final class OrderBook {
+
+    /* Minimum number of cancelled entries before the heaps are compacted */
+    private static final int MIN_COMPACTION = 1024;
+
+    /* Resting orders by trigger */
+    private final OrderHeap buyLimits = new OrderHeap(true);
+    private final OrderHeap sellLimits = new OrderHeap(false);
+    private final OrderHeap buyStops = new OrderHeap(false);
+    private final OrderHeap sellStops = new OrderHeap(true);
+
+    /* Estimated number of closed orders still in the heaps */
+    private int closed;
+
+    /**
+     * Adds an open order to the book.
+     *
+     * @param order the order
+     */
+    synchronized void add(Order order) {
+        boolean buy = "buy".equals(order.getSide());
+        if (order.isWaitingForStop()) {
+            (buy ? buyStops : sellStops).push(order.getStopPrice(), order);
+        } else {
+            (buy ? buyLimits : sellLimits).push(order.getLimitPrice(), order);
+        }
+    }
+
+    /**
+     * Removes the orders crossed by a new price. Stop and limit orders that are crossed are returned for execution.
+     * Stop-limit orders whose stop is reached are returned still waiting for their stop: the shard owning the account
+     * marks them triggered, journals the trigger and adds them back, on the limit side. The book itself never changes
+     * an order.
+     *
+     * @param price the new market price
+     * @return the orders to execute at the market price or to trigger, in trigger order
+     */
+    synchronized List<Order> match(double price) {
+        List<Order> crossed = null;
+        while (!buyStops.isEmpty() && price >= buyStops.peekPrice()) {
+            crossed = collect(buyStops.pop(), crossed);
+        }
+        while (!sellStops.isEmpty() && price <= sellStops.peekPrice()) {
+            crossed = collect(sellStops.pop(), crossed);
+        }
+        while (!buyLimits.isEmpty() && price <= buyLimits.peekPrice()) {
+            crossed = collect(buyLimits.pop(), crossed);
+        }
+        while (!sellLimits.isEmpty() && price >= sellLimits.peekPrice()) {
+            crossed = collect(sellLimits.pop(), crossed);
+        }
+        return crossed == null ? Collections.emptyList() : crossed;
+    }
+
+    private List<Order> collect(Order order, List<Order> crossed) {
+        if (!order.isOpen()) {
+            closed = Math.max(0, closed - 1);
+            return crossed;
+        }
+        if (crossed == null) {
+            crossed = new ArrayList<>();
+        }
+        crossed.add(order);
+        return crossed;
+    }
+
+    /**
+     * Records that an order of this book was closed without being matched, e.g. cancelled. Compacts the heaps once
+     * closed orders make up half of them.
+     */
+    synchronized void onClosed() {
+        closed++;
+        if (closed >= MIN_COMPACTION && closed * 2 >= size()) {
+            buyLimits.removeIf(order -> !order.isOpen());
+            sellLimits.removeIf(order -> !order.isOpen());
+            buyStops.removeIf(order -> !order.isOpen());
+            sellStops.removeIf(order -> !order.isOpen());
+            closed = 0;
+        }
+    }
+
+    /**
+     * Gets the number of entries in the book, including closed orders not yet removed.
+     *
+     * @return the number of entries
+     */
+    synchronized int size() {
+        return buyLimits.size() + sellLimits.size() + buyStops.size() + sellStops.size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * An OrderHeap is a binary heap of orders keyed by a price, kept in a primitive {@code double[]} next to the order
+ * array so that comparisons never unbox or dereference an order.
+ * <p>
+ * A descending heap returns the highest price first; it is implemented by storing negated keys. Not thread-safe;
+ * the owning {@link OrderBook} synchronizes access.
+ * </p>
+ */
+final class OrderHeap {
+
+    /* Initial capacity of the arrays */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /* Whether the highest key is at the top */
+    private final boolean descending;
+
+    /* Heap-ordered keys (negated if descending) and their orders */
+    private double[] keys = new double[INITIAL_CAPACITY];
+    private Order[] orders = new Order[INITIAL_CAPACITY];
+
+    /* Number of orders in the heap */
+    private int size;
+
+    /**
+     * Constructs an empty OrderHeap.
+     *
+     * @param descending true to return the highest key first, false for the lowest
+     */
+    OrderHeap(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * Adds an order in O(log n).
+     *
+     * @param price the key of the order
+     * @param order the order
+     */
+    void push(double price, Order order) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            orders = Arrays.copyOf(orders, size * 2);
+        }
+        keys[size] = descending ? -price : price;
+        orders[size] = order;
+        siftUp(size++);
+    }
+
+    /**
+     * Gets the key at the top of the heap. The heap must not be empty.
+     *
+     * @return the lowest key, or the highest if descending
+     */
+    double peekPrice() {
+        return descending ? -keys[0] : keys[0];
+    }
+
+    /**
+     * Removes the order at the top of the heap in O(log n). The heap must not be empty.
+     *
+     * @return the removed order
+     */
+    Order pop() {
+        Order top = orders[0];
+        size--;
+        keys[0] = keys[size];
+        orders[0] = orders[size];
+        orders[size] = null;
+        if (size > 0) {
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes all orders matching a predicate and restores the heap order in O(n).
+     *
+     * @param filter the predicate selecting the orders to remove
+     * @return the number of removed orders
+     */
+    int removeIf(Predicate<Order> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(orders[i])) {
+                keys[kept] = keys[i];
+                orders[kept++] = orders[i];
+            }
+        }
+        Arrays.fill(orders, kept, size, null);
+        int removed = size - kept;
+        size = kept;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        double key = keys[index];
+        Order order = orders[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[index] = keys[parent];
+            orders[index] = orders[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        orders[index] = order;
+    }
+
+    private void siftDown(int index) {
+        double key = keys[index];
+        Order order = orders[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[index] = keys[child];
+            orders[index] = orders[child];
+            index = child;
+        }
+        keys[index] = key;
+        orders[index] = order;
+    }
+}
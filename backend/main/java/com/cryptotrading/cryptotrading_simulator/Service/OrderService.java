@@ -0,0 +1,287 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.*;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The OrderService places, cancels and executes resting limit, stop and stop-limit orders.
+ * <p>
+ * Resting orders are kept per symbol in an {@link OrderBook}. Every published tick pops the orders it crosses and
+ * hands them to the shards owning their accounts, where they are executed at the tick price through the trade path
+ * of the {@link CryptoService}, like a market trade. The open orders themselves live on their accounts, so they are
+ * snapshotted, journaled and recovered with them; on startup the books are filled from the recovered accounts.
+ * </p>
+ */
+@Service
+public class OrderService {
+
+    /* Accounts, prices and the trade path the orders execute through */
+    private final CryptoService cryptoService;
+
+    /* Pre-trade risk checks of orders before they rest */
+    private final RiskService riskService;
+
+    /* Latest price tick of every symbol */
+    private final PriceSnapshotStore priceStore;
+
+    /* Resting orders, indexed by symbol id */
+    private final OrderBook[] orderBooks;
+
+    /* Id of the next order; the journal epoch in the upper bits keeps ids unique across restarts */
+    private final AtomicLong nextOrderId;
+
+    /**
+     * Constructs an OrderService, books the open orders of the recovered accounts and starts matching the published
+     * ticks.
+     *
+     * @param cryptoService the service owning the accounts and executing trades
+     * @param riskService the pre-trade risk checks
+     */
+    public OrderService(CryptoService cryptoService, RiskService riskService) {
+        this.cryptoService = cryptoService;
+        this.riskService = riskService;
+        this.priceStore = cryptoService.getPriceStore();
+        this.orderBooks = new OrderBook[priceStore.size()];
+        for (int i = 0; i < orderBooks.length; i++) {
+            orderBooks[i] = new OrderBook();
+        }
+        this.nextOrderId = new AtomicLong((cryptoService.getJournalEpoch() << 40) + 1);
+        for (AccountShard shard : cryptoService.getShards()) {
+            shard.execute(() -> {
+                shard.forEachAccount((accountId, account) -> {
+                    for (Order order : account.getOpenOrders().values()) {
+                        bookOf(order).add(order);
+                    }
+                });
+                return null;
+            });
+        }
+        cryptoService.addOrderCancelListener(order -> bookOf(order).onClosed());
+        priceStore.addListener(this::matchOrders);
+    }
+
+    /**
+     * Places a resting limit, stop or stop-limit order on the given account. The order is validated and journaled on
+     * the shard owning the account and then added to the order book of its symbol; an order that the current price
+     * already crosses is executed right away. Funds and holdings are not reserved: they are checked when the order
+     * is executed, and an order that cannot be covered then is rejected.
+     *
+     * @param accountId the id of the account placing the order
+     * @param request the order details (type, symbol, amount, order type, limit and stop price)
+     * @return the placed order, or a rejected order if the request is invalid
+     */
+    public Order placeOrder(String accountId, TradeRequest request) {
+        AccountShard shard = cryptoService.shardFor(accountId);
+        return shard.execute(() -> placeOrder(shard, accountId, request));
+    }
+
+    /**
+     * Validates and places an order. Must only be called from the shard thread owning the account.
+     *
+     * @param shard the shard owning the account
+     * @param accountId the id of the account
+     * @param request the order details
+     * @return the placed or rejected order
+     */
+    private Order placeOrder(AccountShard shard, String accountId, TradeRequest request) {
+        String side = request.getType() == null ? null : request.getType().toLowerCase();
+        String orderType = request.getOrderType() == null ? null : request.getOrderType().toLowerCase();
+        Double limitPrice = request.getLimitPrice();
+        Double stopPrice = request.getStopPrice();
+        if (Order.TYPE_LIMIT.equals(orderType)) {
+            stopPrice = null;
+        } else if (Order.TYPE_STOP.equals(orderType)) {
+            limitPrice = null;
+        }
+        Order order = new Order(nextOrderId.getAndIncrement(), accountId, side, request.getSymbol(),
+                request.getAmount(), orderType, limitPrice, stopPrice, TransactionHistory.nowNanos());
+
+        int symbolId = priceStore.idOf(request.getSymbol());
+        // The account is only created once the order is accepted, so rejected orders leave no account behind
+        Account account = cryptoService.hasOffHeapAccounts() ? null : shard.findAccount(accountId);
+        String error = null;
+        if (cryptoService.hasOffHeapAccounts()) {
+            error = "Orders are not supported for off-heap accounts";
+        } else if (accountId.length() > CryptoService.MAX_ACCOUNT_ID_LENGTH) {
+            error = "Account id exceeds " + CryptoService.MAX_ACCOUNT_ID_LENGTH + " chars";
+        } else if (!"buy".equals(side) && !"sell".equals(side)) {
+            error = "Invalid trade type";
+        } else if (FixedPoint.toUnits(request.getAmount()) <= 0) {
+            error = "Amount must be positive";
+        } else if (symbolId < 0) {
+            error = "Cryptocurrency not found";
+        } else if (!Order.TYPE_LIMIT.equals(orderType) && !Order.TYPE_STOP.equals(orderType)
+                && !Order.TYPE_STOP_LIMIT.equals(orderType)) {
+            error = "Invalid order type";
+        } else if (!Order.TYPE_STOP.equals(orderType) && (limitPrice == null || limitPrice <= 0)) {
+            error = "Limit price must be positive";
+        } else if (!Order.TYPE_LIMIT.equals(orderType) && (stopPrice == null || stopPrice <= 0)) {
+            error = "Stop price must be positive";
+        } else {
+            String risk = riskService.checkRestingOrder(account, priceStore.get(symbolId).getPrice(), limitPrice,
+                    stopPrice);
+            error = risk == null ? null : RiskEngine.describe(risk);
+        }
+        if (error != null) {
+            order.close(Order.STATUS_REJECTED, error, null);
+            return order;
+        }
+
+        if (account == null) {
+            account = shard.account(accountId);
+            // Counts the order against the order rate of the new account, whose bucket is full
+            riskService.checkOrderRate(account);
+        }
+        account.getOpenOrders().put(order.getId(), order);
+        shard.journalOrder(order);
+        OrderBook book = orderBooks[symbolId];
+        book.add(order);
+        Cryptocurrency tick = priceStore.get(symbolId);
+        dispatchOrders(book.match(tick.getPrice()), tick.getPrice());
+        return order;
+    }
+
+    /**
+     * Gets the open orders of the given account in placement order.
+     *
+     * @param accountId the account id
+     * @return the open orders, or null if the account does not exist
+     */
+    public List<Order> getOpenOrders(String accountId) {
+        AccountShard shard = cryptoService.shardFor(accountId);
+        return shard.execute(() -> {
+            if (cryptoService.hasOffHeapAccounts()) {
+                return shard.getOffHeapStore().find(accountId) < 0 ? null : new ArrayList<>();
+            }
+            Account account = shard.findAccount(accountId);
+            return account == null ? null : new ArrayList<>(account.getOpenOrders().values());
+        });
+    }
+
+    /**
+     * Cancels an open order of the given account.
+     *
+     * @param accountId the account id
+     * @param orderId the id of the order to cancel
+     * @return the cancelled order, or null if the account has no open order with that id
+     */
+    public Order cancelOrder(String accountId, long orderId) {
+        AccountShard shard = cryptoService.shardFor(accountId);
+        return shard.execute(() -> {
+            Account account = cryptoService.hasOffHeapAccounts() ? null : shard.findAccount(accountId);
+            Order order = account == null ? null : account.getOpenOrders().remove(orderId);
+            if (order == null) {
+                return null;
+            }
+            order.close(Order.STATUS_CANCELLED, "Order cancelled", null);
+            shard.journalOrderDone(accountId, orderId, TransactionHistory.nowNanos());
+            bookOf(order).onClosed();
+            return order;
+        });
+    }
+
+    /**
+     * Gets the order book of an order's symbol.
+     *
+     * @param order the order, of a listed symbol
+     * @return the order book
+     */
+    private OrderBook bookOf(Order order) {
+        return orderBooks[priceStore.idOf(order.getSymbol())];
+    }
+
+    /**
+     * Matches a new tick against the order book of its symbol. Called by the price store on the publishing thread;
+     * crossed orders are executed asynchronously on their shards so that the feed never waits for an account.
+     *
+     * @param symbolId the id of the symbol
+     * @param tick the new tick
+     */
+    private void matchOrders(int symbolId, Cryptocurrency tick) {
+        if (symbolId < orderBooks.length) {
+            dispatchOrders(orderBooks[symbolId].match(tick.getPrice()), tick.getPrice());
+        }
+    }
+
+    /**
+     * Submits crossed orders for execution, and stop-limit orders whose stop was reached for triggering, to the shards
+     * owning their accounts, as one task per shard.
+     *
+     * @param orders the crossed orders
+     * @param price the price that crossed them
+     */
+    private void dispatchOrders(List<Order> orders, double price) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<AccountShard, List<Order>> byShard = new HashMap<>();
+        for (Order order : orders) {
+            byShard.computeIfAbsent(cryptoService.shardFor(order.getAccountId()), shard -> new ArrayList<>())
+                    .add(order);
+        }
+        byShard.forEach((shard, shardOrders) -> shard.submitDurable(() -> {
+            for (Order order : shardOrders) {
+                if (Order.TYPE_STOP_LIMIT.equals(order.getOrderType()) && order.isWaitingForStop()) {
+                    triggerOrder(shard, order);
+                } else {
+                    fillOrder(shard, order, price);
+                }
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Turns a stop-limit order whose stop price was reached into a limit order, unless it was cancelled in the
+     * meantime: the trigger is journaled, and the order is added back to its book on the limit side and matched
+     * against the last tick. Must only be called from the shard thread owning the account.
+     *
+     * @param shard the shard owning the account
+     * @param order the order whose stop price was reached
+     */
+    private void triggerOrder(AccountShard shard, Order order) {
+        if (!shard.account(order.getAccountId()).getOpenOrders().containsKey(order.getId())) {
+            return;
+        }
+        order.setTriggered(true);
+        shard.journalOrderTriggered(order.getAccountId(), order.getId(), TransactionHistory.nowNanos());
+        int symbolId = priceStore.idOf(order.getSymbol());
+        OrderBook book = orderBooks[symbolId];
+        book.add(order);
+        Cryptocurrency tick = priceStore.get(symbolId);
+        dispatchOrders(book.match(tick.getPrice()), tick.getPrice());
+    }
+
+    /**
+     * Executes a crossed order at the given price, unless it was cancelled in the meantime.
+     * Must only be called from the shard thread owning the account.
+     *
+     * @param shard the shard owning the account
+     * @param order the crossed order
+     * @param price the execution price
+     * @return the trade response, or null if the order was no longer open
+     */
+    private TradeResponse fillOrder(AccountShard shard, Order order, double price) {
+        String accountId = order.getAccountId();
+        Account account = shard.account(accountId);
+        if (account.getOpenOrders().remove(order.getId()) == null) {
+            return null;
+        }
+        int symbolId = priceStore.idOf(order.getSymbol());
+        TradeResponse response = cryptoService.executeAtPrice(shard, accountId, account, order.getSide(), symbolId,
+                order.getSymbol(), order.getAmount(), price);
+        if (response.isSuccess()) {
+            order.close(Order.STATUS_FILLED, response.getMessage(), price);
+        } else {
+            order.close(Order.STATUS_REJECTED, response.getMessage(), null);
+        }
+        shard.journalOrderDone(accountId, order.getId(), TransactionHistory.nowNanos());
+        return response;
+    }
+}
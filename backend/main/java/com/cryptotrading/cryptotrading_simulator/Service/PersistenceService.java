@@ -0,0 +1,334 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PersistenceService manages the on-disk state of the trading accounts: the per-shard {@link TradeJournal}s,
+ * the thread that group-commits them and the account snapshot file.
+ * <p>
+ * The snapshot file {@code snapshot.bin} holds, for every shard, the accounts and the journal position they
+ * include, together with the journal epoch. Journals of other epochs are ignored on recovery, so a new snapshot
+ * becomes effective by atomically renaming it into place.
+ * </p>
+ */
+@Service
+public class PersistenceService {
+
+    /* Snapshot file header */
+    private static final int SNAPSHOT_MAGIC = 0x43545353; // "CTSS"
+    private static final int SNAPSHOT_VERSION = 7;
+
+    /* First snapshot version whose journals carry record checksums */
+    private static final int CHECKSUMMED_JOURNAL_VERSION = 6;
+
+    /* Name of the snapshot file */
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private static final Logger log = LoggerFactory.getLogger(PersistenceService.class);
+
+    /* Whether persistence is enabled */
+    private final boolean enabled;
+
+    /* Directory holding the journal and snapshot files */
+    private final Path directory;
+
+    /* Size of a journal segment in bytes */
+    private final int segmentSize;
+
+    /* Open journals, forced by the flusher */
+    private final List<TradeJournal> journals = new CopyOnWriteArrayList<>();
+
+    /* Thread group-committing the journals */
+    private final ScheduledExecutorService flusher;
+
+    /* Number of failed journal flushes, and whether the last flush failed (written by the flusher thread only) */
+    private final LongAdder flushFailures = new LongAdder();
+    private volatile boolean flushFailing;
+
+    /**
+     * Constructs a PersistenceService from the {@code trading.persistence.*} settings.
+     *
+     * @param properties the trading settings
+     */
+    public PersistenceService(TradingProperties properties) {
+        TradingProperties.Persistence settings = properties.getPersistence();
+        this.enabled = settings.isEnabled();
+        this.directory = Paths.get(settings.getDirectory());
+        this.segmentSize = settings.getSegmentSizeMb() * 1024 * 1024;
+        if (!enabled) {
+            this.flusher = null;
+            return;
+        }
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creating persistence directory " + directory, e);
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushIntervalMillis = settings.getFlushIntervalMs();
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens a new journal for a shard and registers it with the flusher.
+     *
+     * @param shard the index of the shard
+     * @param epoch the epoch of the journal
+     * @return the new journal
+     */
+    public TradeJournal openJournal(int shard, long epoch) {
+        TradeJournal journal = new TradeJournal(directory, shard, epoch, segmentSize);
+        journals.add(journal);
+        return journal;
+    }
+
+    /**
+     * Gets the number of journal flushes that failed. Every failure is counted, but only the first of a run of
+     * failures is logged, as the flusher retries every few milliseconds.
+     *
+     * @return the failed flush count
+     */
+    public long getFlushFailures() {
+        return flushFailures.sum();
+    }
+
+    /**
+     * Tells whether the last journal flush failed. Trades journaled since the last successful flush wait until a
+     * retried flush succeeds.
+     *
+     * @return true while journal flushes are failing
+     */
+    public boolean isFlushFailing() {
+        return flushFailing;
+    }
+
+    private void flushAll() {
+        boolean failed = false;
+        for (TradeJournal journal : journals) {
+            try {
+                journal.flush();
+            } catch (RuntimeException e) {
+                failed = true;
+                flushFailures.increment();
+                if (!flushFailing) {
+                    log.error("Error flushing trade journal, journaled trades wait until a retried flush succeeds", e);
+                }
+            }
+        }
+        if (flushFailing && !failed) {
+            log.info("Trade journal flushes succeed again after {} failures", flushFailures.sum());
+        }
+        flushFailing = failed;
+    }
+
+    /**
+     * Replays a journal written by a previous run.
+     *
+     * @param snapshotVersion the format version of the snapshot the journal pairs with
+     * @param shard the index of the shard that wrote the journal
+     * @param epoch the epoch of the journal
+     * @param from the position recorded in the snapshot
+     * @param handler the handler receiving the records
+     * @return the number of replayed records
+     */
+    public long replayJournal(int snapshotVersion, int shard, long epoch, long from,
+                              TradeJournal.ReplayHandler handler) {
+        return TradeJournal.replay(directory, shard, epoch, from, snapshotVersion >= CHECKSUMMED_JOURNAL_VERSION,
+                handler);
+    }
+
+    /**
+     * Deletes all journal segments of epochs other than the given one.
+     *
+     * @param currentEpoch the epoch of the journals in use
+     */
+    public void deleteStaleJournals(long currentEpoch) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String[] parts = file.getFileName().toString().split("-");
+                if (parts.length == 4 && Long.parseLong(parts[2]) != currentEpoch) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Error deleting stale journals", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot and atomically replaces the previous one. The rename is made durable by forcing the
+     * directory, so the journals of older epochs may be deleted once this returns.
+     *
+     * @param epoch the journal epoch the snapshot pairs with
+     * @param sections the encoded accounts of every shard, indexed by shard
+     */
+    public void writeSnapshot(long epoch, List<SnapshotSection> sections) {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(epoch);
+            out.writeInt(sections.size());
+            for (SnapshotSection section : sections) {
+                out.writeLong(section.getJournalPosition());
+                out.writeInt(section.getAccountCount());
+                out.writeInt(section.getData().length);
+                out.write(section.getData());
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing account snapshot", e);
+        }
+        try {
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error replacing account snapshot", e);
+        }
+    }
+
+    /* Forces the directory entries to disk; directories cannot be opened as channels on Windows */
+    private void forceDirectory() throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the current snapshot.
+     *
+     * @param reader the reader receiving the snapshot content
+     * @return the journal epoch of the snapshot, or -1 if there is no snapshot
+     */
+    public long readSnapshot(SnapshotReader reader) {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long epoch = in.readLong();
+            int shardCount = in.readInt();
+            for (int shard = 0; shard < shardCount; shard++) {
+                long position = in.readLong();
+                int accountCount = in.readInt();
+                in.readInt(); // section length
+                reader.onShard(version, shard, position, accountCount, in);
+            }
+            return epoch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading account snapshot", e);
+        }
+    }
+
+    /**
+     * Forces all journals one last time and stops the flusher.
+     */
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushAll();
+        }
+    }
+
+    /**
+     * The encoded accounts of one shard together with the journal position they include.
+     */
+    public static class SnapshotSection {
+        private final long journalPosition;
+        private final int accountCount;
+        private final byte[] data;
+
+        public SnapshotSection(long journalPosition, int accountCount, byte[] data) {
+            this.journalPosition = journalPosition;
+            this.accountCount = accountCount;
+            this.data = data;
+        }
+
+        public long getJournalPosition() {
+            return journalPosition;
+        }
+
+        public int getAccountCount() {
+            return accountCount;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Receives the sections of a snapshot file.
+     */
+    public interface SnapshotReader {
+
+        /**
+         * Called for every shard section of the snapshot. The reader must consume exactly the section's accounts.
+         *
+         * @param version the format version of the snapshot; version 1 snapshots carry no open orders, versions 1 and 2
+         *                no realized profit or loss, versions before 4 write the balance as a double and versions
+         *                before 5 write holdings and average buy prices as maps; the journals of snapshots before
+         *                version 6 carry no record checksums, and snapshots before version 7 carry no peak total
+         *                values
+         * @param shard the index of the shard that wrote the section
+         * @param journalPosition the journal position included in the section
+         * @param accountCount the number of accounts in the section
+         * @param in the stream positioned at the first account of the section
+         * @throws IOException if the section cannot be read
+         */
+        void onShard(int version, int shard, long journalPosition, int accountCount, DataInputStream in)
+                throws IOException;
+    }
+}
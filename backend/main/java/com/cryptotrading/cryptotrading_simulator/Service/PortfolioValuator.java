@@ -0,0 +1,198 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The PortfolioValuator keeps the market value of the accounts of one {@link AccountShard} up to date as prices
+ * move.
+ * <p>
+ * The valuator keeps a symbol to holders index, so a tick only touches the accounts holding the ticked symbol: each
+ * holder's market value is adjusted by {@code holding * (price - previous price)}. Every account is valued at the
+ * shard's mark of each symbol; a trade recomputes the account's value from its holdings, so rounding does not
+ * accumulate across trades.
+ * </p>
+ * <p>
+ * Ticks are offered from the feed thread and conflated per symbol: at most one revaluation task per symbol is
+ * queued on the shard, and it applies the latest offered price. Everything else runs on the shard thread.
+ * </p>
+ */
+final class PortfolioValuator {
+
+    /**
+     * Receives the valuation changes of the valued accounts.
+     */
+    interface ChangeListener {
+
+        /**
+         * Called on the shard thread whenever the valuation of an account changed.
+         *
+         * @param accountId the id of the account
+         * @param account the account
+         * @param tick true if a price tick moved the value of the holdings, false if the account was revalued from
+         *             its holdings, e.g. after a trade
+         */
+        void onChange(String accountId, Account account, boolean tick);
+    }
+
+    /* Shard owning the valued accounts */
+    private final AccountShard shard;
+
+    /* Called on the shard thread for every account whose valuation changed */
+    private final ChangeListener onChange;
+
+    /* Price every holder of a symbol is currently valued at, by symbol id (shard thread only) */
+    private final double[] marks;
+
+    /* Accounts holding a symbol, keyed by account id, by symbol id (shard thread only) */
+    private final List<Map<String, Account>> holders;
+
+    /* Number of holders per symbol, read by the feed thread to skip symbols nobody here holds */
+    private final AtomicIntegerArray holderCounts;
+
+    /* Latest offered price per symbol as raw double bits */
+    private final AtomicLongArray offeredMarks;
+
+    /* Whether a revaluation task is queued per symbol */
+    private final AtomicIntegerArray queued;
+
+    /**
+     * Constructs a PortfolioValuator valuing at the current prices of the store.
+     *
+     * @param shard the shard owning the valued accounts
+     * @param priceStore the store providing the symbols and their initial prices
+     * @param onChange called on the shard thread whenever a valuation changed
+     */
+    PortfolioValuator(AccountShard shard, PriceSnapshotStore priceStore, ChangeListener onChange) {
+        this.shard = shard;
+        this.onChange = onChange;
+        int symbols = priceStore.size();
+        this.marks = new double[symbols];
+        this.holders = new ArrayList<>(symbols);
+        this.holderCounts = new AtomicIntegerArray(symbols);
+        this.offeredMarks = new AtomicLongArray(symbols);
+        this.queued = new AtomicIntegerArray(symbols);
+        for (int id = 0; id < symbols; id++) {
+            marks[id] = priceStore.get(id).getPrice();
+            offeredMarks.set(id, Double.doubleToRawLongBits(marks[id]));
+            holders.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Offers a new price of a symbol. Called from the publishing thread; queues a revaluation on the shard only if
+     * the shard has holders of the symbol and no revaluation of it is queued yet.
+     *
+     * @param symbolId the id of the symbol
+     * @param price the new price
+     */
+    void offer(int symbolId, double price) {
+        if (symbolId >= marks.length) {
+            return;
+        }
+        offeredMarks.set(symbolId, Double.doubleToRawLongBits(price));
+        if (holderCounts.get(symbolId) > 0 && queued.compareAndSet(symbolId, 0, 1)) {
+            shard.submit(() -> {
+                queued.set(symbolId, 0);
+                applyMark(symbolId);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Revalues the holders of a symbol at its latest offered price. Must only be called from the shard thread.
+     *
+     * @param symbolId the id of the symbol
+     */
+    private void applyMark(int symbolId) {
+        double price = Double.longBitsToDouble(offeredMarks.get(symbolId));
+        double delta = price - marks[symbolId];
+        if (delta == 0) {
+            return;
+        }
+        marks[symbolId] = price;
+        for (Map.Entry<String, Account> holder : holders.get(symbolId).entrySet()) {
+            Account account = holder.getValue();
+            account.setMarketValue(account.getMarketValue() + account.getQuantity(symbolId) * delta);
+            onChange.onChange(holder.getKey(), account, true);
+        }
+    }
+
+    /**
+     * Updates the holders index after an account's holding of a symbol changed. Must only be called from the shard
+     * thread.
+     *
+     * @param accountId the id of the account
+     * @param account the account
+     * @param symbolId the id of the symbol whose holding changed
+     */
+    void track(String accountId, Account account, int symbolId) {
+        if (symbolId < 0 || symbolId >= marks.length) {
+            return;
+        }
+        Map<String, Account> symbolHolders = holders.get(symbolId);
+        if (account.getQuantityUnits(symbolId) > 0) {
+            if (symbolHolders.put(accountId, account) == null) {
+                holderCounts.incrementAndGet(symbolId);
+            }
+        } else if (symbolHolders.remove(accountId) != null) {
+            holderCounts.decrementAndGet(symbolId);
+        }
+    }
+
+    /**
+     * Indexes all holdings of an account, e.g. after it was restored. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param account the account
+     */
+    void trackAll(String accountId, Account account) {
+        for (int id = 0; id < account.getPositionSlots(); id++) {
+            track(accountId, account, id);
+        }
+    }
+
+    /**
+     * Removes an account from the holders index, e.g. before it is reset. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     */
+    void untrack(String accountId) {
+        for (int id = 0; id < marks.length; id++) {
+            if (holders.get(id).remove(accountId) != null) {
+                holderCounts.decrementAndGet(id);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the market value and cost basis of an account from its holdings at the current marks, and reports
+     * the change. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param account the account
+     */
+    void revalue(String accountId, Account account) {
+        double marketValue = 0;
+        double costBasis = 0;
+        int slots = Math.min(account.getPositionSlots(), marks.length);
+        for (int symbolId = 0; symbolId < slots; symbolId++) {
+            if (account.getQuantityUnits(symbolId) > 0) {
+                // Catch up with a price offered while nobody on this shard held the symbol
+                applyMark(symbolId);
+                marketValue += account.getQuantity(symbolId) * marks[symbolId];
+                costBasis += account.getPositionCost(symbolId);
+            }
+        }
+        account.setMarketValue(marketValue);
+        account.setCostBasis(costBasis);
+        onChange.onChange(accountId, account, false);
+    }
+}
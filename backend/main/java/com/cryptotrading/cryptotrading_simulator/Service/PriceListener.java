@@ -0,0 +1,21 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Cryptocurrency;
+
+/**
+ * A PriceListener is notified of every tick published to the {@link PriceSnapshotStore}.
+ * <p>
+ * Listeners are called on the publishing thread (the feed or simulator thread), so implementations must only
+ * record the tick or hand it off and return quickly.
+ * </p>
+ */
+public interface PriceListener {
+
+    /**
+     * Called after a new tick has been published.
+     *
+     * @param symbolId the id of the symbol in the price store
+     * @param tick the published tick
+     */
+    void onTick(int symbolId, Cryptocurrency tick);
+}
@@ -0,0 +1,243 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import java.util.SplittableRandom;
+
+/**
+ * The PriceModel moves the prices of many symbols by geometric Brownian motion with a common market factor, jumps
+ * and volatility regimes. State is kept in primitive arrays indexed by symbol, and one step updates a contiguous
+ * range of symbols in a tight loop.
+ * <p>
+ * Per step of {@code dt} years, the log return of symbol {@code i} is
+ * {@code (mu - s^2 / 2) dt + s sqrt(dt) (sqrt(rho) Z + sqrt(1 - rho) e_i) + J_i}, where {@code s} is the symbol's
+ * volatility scaled by the current regime, {@code Z} the market factor shared by all symbols, {@code e_i} the
+ * symbol's own shock and {@code J_i} a normally distributed jump that occurs with probability
+ * {@code jumpIntensity * dt}. The market switches between a calm and a turbulent regime as a two-state Markov chain.
+ * </p>
+ * <p>
+ * The symbols are split into {@link Slice}s that are stepped independently, e.g. one per thread. Every slice draws
+ * its own shocks from its own generator split off the seed, and replays the market factor and regime from a
+ * generator seeded identically in every slice, so all slices see the same market without sharing any state.
+ * </p>
+ */
+public class PriceModel {
+
+    /* Length of a year and a day in milliseconds */
+    private static final double YEAR_MILLIS = 365.25 * 24 * 3600 * 1000;
+    private static final long DAY_MILLIS = 24 * 3600 * 1000;
+
+    /* Current and 24-hour reference price per symbol */
+    private final double[] prices;
+    private final double[] references;
+
+    /* Annual volatility per symbol in the calm regime */
+    private final double[] volatilities;
+
+    /* Annual drift */
+    private final double drift;
+
+    /* Weights of the market factor and the symbol's own shock */
+    private final double marketWeight;
+    private final double ownWeight;
+
+    /* Probability of a jump per step, and mean and standard deviation of the jump's log return */
+    private final double jumpProbability;
+    private final double jumpMean;
+    private final double jumpStdDev;
+
+    /* Volatility multiplier of the turbulent regime and the probabilities per step of entering and leaving it */
+    private final double turbulentMultiplier;
+    private final double enterTurbulence;
+    private final double leaveTurbulence;
+
+    /* Length of a step in years and in milliseconds, and the steps per simulated day */
+    private final double dt;
+    private final double sqrtDt;
+    private final long stepsPerDay;
+
+    /* Seed of all generators */
+    private final long seed;
+
+    /**
+     * Constructs a PriceModel. Rates are per year of simulated time.
+     *
+     * @param initialPrices the starting price per symbol
+     * @param seed the seed of all generators
+     * @param stepMillis the simulated time per step in milliseconds
+     * @param drift the annual drift
+     * @param volatility the mean annual volatility; symbols get between half and one and a half times of it
+     * @param correlation the correlation of any two symbols' shocks, between 0 and 1
+     * @param jumpIntensity the expected number of jumps per symbol and year
+     * @param jumpMean the mean log return of a jump
+     * @param jumpStdDev the standard deviation of the log return of a jump
+     * @param turbulentMultiplier the factor the volatility is multiplied by in the turbulent regime
+     * @param turbulencePerYear the expected number of turbulent periods per year
+     * @param turbulenceDays the expected length of a turbulent period in days
+     */
+    public PriceModel(double[] initialPrices, long seed, long stepMillis, double drift, double volatility,
+                      double correlation, double jumpIntensity, double jumpMean, double jumpStdDev,
+                      double turbulentMultiplier, double turbulencePerYear, double turbulenceDays) {
+        int count = initialPrices.length;
+        this.prices = initialPrices.clone();
+        this.references = initialPrices.clone();
+        this.volatilities = new double[count];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            volatilities[i] = volatility * (0.5 + random.nextDouble());
+        }
+        this.seed = seed;
+        this.dt = stepMillis / YEAR_MILLIS;
+        this.sqrtDt = Math.sqrt(dt);
+        this.stepsPerDay = Math.max(1, DAY_MILLIS / stepMillis);
+        this.drift = drift;
+        this.marketWeight = Math.sqrt(correlation);
+        this.ownWeight = Math.sqrt(1 - correlation);
+        this.jumpProbability = jumpIntensity * dt;
+        this.jumpMean = jumpMean;
+        this.jumpStdDev = jumpStdDev;
+        this.turbulentMultiplier = turbulentMultiplier;
+        this.enterTurbulence = turbulencePerYear * dt;
+        this.leaveTurbulence = stepMillis / (turbulenceDays * DAY_MILLIS);
+    }
+
+    /**
+     * Creates a slice stepping a range of symbols. Slices must not overlap.
+     *
+     * @param index the index of the slice, selecting its generator
+     * @param from the first symbol of the slice
+     * @param to the symbol after the last one of the slice
+     * @return the slice
+     */
+    public Slice slice(int index, int from, int to) {
+        return new Slice(index, from, to);
+    }
+
+    /**
+     * Gets the number of symbols.
+     *
+     * @return the symbol count
+     */
+    public int size() {
+        return prices.length;
+    }
+
+    /**
+     * Gets the current price of a symbol. Must only be read by the thread stepping the symbol's slice.
+     *
+     * @param symbol the index of the symbol
+     * @return the price
+     */
+    public double getPrice(int symbol) {
+        return prices[symbol];
+    }
+
+    /**
+     * Gets the change of a symbol's price against its price at the start of the simulated day. Must only be read by
+     * the thread stepping the symbol's slice.
+     *
+     * @param symbol the index of the symbol
+     * @return the change in percent
+     */
+    public double getChange24h(int symbol) {
+        return (prices[symbol] / references[symbol] - 1) * 100;
+    }
+
+    /**
+     * A Slice steps a contiguous range of symbols. A slice is not thread-safe; every slice is meant to be stepped by
+     * one thread.
+     */
+    public final class Slice {
+
+        /* Range of symbols */
+        private final int from;
+        private final int to;
+
+        /* Generator of the symbols' own shocks and jumps */
+        private final Gaussian own;
+
+        /* Generator of the market factor and regime, identical in every slice */
+        private final Gaussian market;
+
+        /* Whether the market is turbulent */
+        private boolean turbulent;
+
+        /* Steps taken */
+        private long steps;
+
+        private Slice(int index, int from, int to) {
+            this.from = from;
+            this.to = to;
+            SplittableRandom ownRandom = new SplittableRandom(seed);
+            for (int i = 0; i <= index; i++) {
+                ownRandom = ownRandom.split();
+            }
+            this.own = new Gaussian(ownRandom);
+            this.market = new Gaussian(new SplittableRandom(~seed));
+        }
+
+        /**
+         * Advances the prices of the slice's symbols by one step.
+         */
+        public void step() {
+            double z = market.next();
+            double u = market.random.nextDouble();
+            turbulent = turbulent ? u >= leaveTurbulence : u < enterTurbulence;
+            double regime = turbulent ? turbulentMultiplier : 1.0;
+            double marketShock = marketWeight * z;
+            boolean newDay = ++steps % stepsPerDay == 0;
+
+            for (int i = from; i < to; i++) {
+                double sigma = volatilities[i] * regime;
+                double shock = marketShock + ownWeight * own.next();
+                double logReturn = (drift - 0.5 * sigma * sigma) * dt + sigma * sqrtDt * shock;
+                if (own.random.nextDouble() < jumpProbability) {
+                    logReturn += jumpMean + jumpStdDev * own.next();
+                }
+                prices[i] *= Math.exp(logReturn);
+                if (newDay) {
+                    references[i] = prices[i];
+                }
+            }
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+    }
+
+    /**
+     * Draws standard normal numbers from a SplittableRandom with the polar method, keeping the second number of
+     * every pair for the next call.
+     */
+    private static final class Gaussian {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Gaussian(SplittableRandom random) {
+            this.random = random;
+        }
+
+        double next() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double x;
+            double y;
+            double s;
+            do {
+                x = 2 * random.nextDouble() - 1;
+                y = 2 * random.nextDouble() - 1;
+                s = x * x + y * y;
+            } while (s >= 1 || s == 0);
+            double scale = Math.sqrt(-2 * Math.log(s) / s);
+            spare = y * scale;
+            hasSpare = true;
+            return x * scale;
+        }
+    }
+}
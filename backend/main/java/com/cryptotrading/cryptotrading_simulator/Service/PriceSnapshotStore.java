@@ -0,0 +1,167 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Cryptocurrency;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The PriceSnapshotStore holds the latest price tick of every supported cryptocurrency.
+ * <p>
+ * Symbols are registered once at startup and interned to dense ids in a {@link SymbolTable}. Each symbol has one
+ * slot holding an immutable {@link Cryptocurrency} tick; updates publish a new tick into the slot atomically, so
+ * readers never lock and always see a complete price/change pair together with its sequence number and timestamp.
+ * </p>
+ * <p>
+ * Every published tick is passed to the registered {@link PriceListener}s on the publishing thread.
+ * </p>
+ */
+public class PriceSnapshotStore {
+
+    /* Ids of the registered symbols */
+    private final SymbolTable symbols = new SymbolTable();
+
+    /* Latest tick per symbol id */
+    private volatile AtomicReferenceArray<Cryptocurrency> ticks = new AtomicReferenceArray<>(0);
+
+    /* Listeners notified of every published tick */
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a cryptocurrency with its initial price. Registration happens during startup, before any
+     * price is published or read.
+     *
+     * @param crypto the initial tick of the cryptocurrency
+     * @return the id assigned to the symbol
+     */
+    public synchronized int register(Cryptocurrency crypto) {
+        AtomicReferenceArray<Cryptocurrency> current = ticks;
+        int id = symbols.intern(crypto.getSymbol());
+        if (id < current.length()) {
+            current.set(id, crypto);
+            return id;
+        }
+        AtomicReferenceArray<Cryptocurrency> grown = new AtomicReferenceArray<>(id + 1);
+        for (int i = 0; i < id; i++) {
+            grown.set(i, current.get(i));
+        }
+        grown.set(id, crypto);
+        ticks = grown;
+        return id;
+    }
+
+    /**
+     * Gets the id of a symbol.
+     *
+     * @param symbol the cryptocurrency symbol (e.g., "BTC")
+     * @return the symbol id, or -1 if the symbol is not registered
+     */
+    public int idOf(String symbol) {
+        return symbols.idOf(symbol);
+    }
+
+    /**
+     * Gets the table of the registered symbols, shared by the accounts to name their positions.
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the number of registered symbols. Ids range from 0 to size - 1.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return ticks.length();
+    }
+
+    /**
+     * Gets the latest tick of a symbol.
+     *
+     * @param id the symbol id
+     * @return the latest tick
+     */
+    public Cryptocurrency get(int id) {
+        return ticks.get(id);
+    }
+
+    /**
+     * Gets the latest tick of a symbol.
+     *
+     * @param symbol the cryptocurrency symbol
+     * @return the latest tick, or null if the symbol is not registered
+     */
+    public Cryptocurrency get(String symbol) {
+        int id = idOf(symbol);
+        return id < 0 ? null : ticks.get(id);
+    }
+
+    /**
+     * Publishes a new price for a symbol. The new tick gets the next sequence number of the symbol, so concurrent
+     * publishers for the same symbol never lose or reorder sequence numbers.
+     *
+     * @param id the symbol id
+     * @param price the new price
+     * @param change24h the new 24-hour change percentage
+     * @return the published tick
+     */
+    public Cryptocurrency publish(int id, double price, double change24h) {
+        return publish(id, price, change24h, System.currentTimeMillis());
+    }
+
+    /**
+     * Publishes a new price for a symbol with the given timestamp instead of the current time, e.g. for a replayed
+     * tick.
+     *
+     * @param id the symbol id
+     * @param price the new price
+     * @param change24h the new 24-hour change percentage
+     * @param timestamp the time of the tick in epoch milliseconds
+     * @return the published tick
+     */
+    public Cryptocurrency publish(int id, double price, double change24h, long timestamp) {
+        Cryptocurrency tick = ticks.updateAndGet(id, previous -> previous.next(price, change24h, timestamp));
+        for (PriceListener listener : listeners) {
+            listener.onTick(id, tick);
+        }
+        return tick;
+    }
+
+    /**
+     * Registers a listener to be notified of every published tick.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(PriceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(PriceListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Takes a snapshot of the latest tick of every symbol, in registration order.
+     *
+     * @return the list of the latest ticks
+     */
+    public List<Cryptocurrency> snapshot() {
+        AtomicReferenceArray<Cryptocurrency> current = ticks;
+        List<Cryptocurrency> snapshot = new ArrayList<>(current.length());
+        for (int i = 0; i < current.length(); i++) {
+            snapshot.add(current.get(i));
+        }
+        return snapshot;
+    }
+}
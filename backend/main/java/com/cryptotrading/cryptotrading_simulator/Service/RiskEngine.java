@@ -0,0 +1,209 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+
+/**
+ * A RiskEngine checks orders against the pre-trade risk limits. The {@link RiskService} shares one engine across
+ * all shards.
+ * <p>
+ * The limits are:
+ * </p>
+ * <ul>
+ *     <li>the largest notional of a single order,</li>
+ *     <li>the largest notional of the position in one symbol a buy may leave,</li>
+ *     <li>the number of orders an account may submit per second, as a token bucket holding one second's worth of
+ *     orders but at least one,</li>
+ *     <li>the largest drop of an account's total value from its peak before buys are blocked; sells that reduce the
+ *     risk stay allowed,</li>
+ *     <li>the band around the last tick that limit and stop prices must lie in, catching fat-fingered prices.</li>
+ * </ul>
+ * <p>
+ * Every check compares the order with a limit or with a counter kept on the account: the time its order bucket is
+ * full again and its peak total value, which is moved by the valuation changes the shard already computes. No check
+ * walks the account's positions or history, so each runs in constant time, and the engine itself keeps no state per
+ * account. A limit of zero disables its check.
+ * </p>
+ * <p>
+ * The order bucket is kept as the time it will be full again (the generic cell rate algorithm): an order is admitted
+ * if adding its share of a second to that time keeps it within one bucket of the current time. One long per account
+ * therefore replaces the token count and refill time.
+ * </p>
+ */
+public final class RiskEngine {
+
+    /* Time of an order bucket that never admitted an order, as new accounts start with */
+    public static final long BUCKET_FULL = Long.MIN_VALUE;
+
+    /* Result of admitting an order into a bucket that has no room for it */
+    private static final long REJECTED = Long.MIN_VALUE;
+
+    /* Largest notional of a single order in fixed-point units, 0 if unlimited */
+    private final long maxOrderNotional;
+
+    /* Largest notional of a position after a buy in fixed-point units, 0 if unlimited */
+    private final long maxPositionNotional;
+
+    /* Nanoseconds of order bucket an order takes, 0 if the order rate is unlimited */
+    private final long orderIntervalNanos;
+
+    /* Nanoseconds of orders the bucket holds, one second's worth but at least one order */
+    private final long orderBucketNanos;
+
+    /* Largest drop of the total value from its peak as a fraction, 0 if unlimited */
+    private final double maxDrawdown;
+
+    /* Largest distance of a limit or stop price from the last tick as a fraction, 0 if unlimited */
+    private final double priceBand;
+
+    /**
+     * Constructs a RiskEngine. A limit of zero or less disables its check.
+     *
+     * @param maxOrderNotional the largest notional of a single order
+     * @param maxPositionNotional the largest notional of the position in one symbol after a buy
+     * @param maxOrdersPerSecond the number of orders an account may submit per second; rates below one allow one
+     *                           order every {@code 1 / rate} seconds
+     * @param maxDrawdownPercent the largest drop of the total value from its peak before buys are blocked, in percent
+     * @param priceBandPercent the largest distance of a limit or stop price from the last tick, in percent
+     */
+    public RiskEngine(double maxOrderNotional, double maxPositionNotional, double maxOrdersPerSecond,
+                      double maxDrawdownPercent, double priceBandPercent) {
+        this.maxOrderNotional = FixedPoint.toUnits(Math.max(0.0, maxOrderNotional));
+        this.maxPositionNotional = FixedPoint.toUnits(Math.max(0.0, maxPositionNotional));
+        this.orderIntervalNanos = maxOrdersPerSecond > 0 ? Math.max(1, Math.round(1e9 / maxOrdersPerSecond)) : 0;
+        this.orderBucketNanos = (long) (Math.max(1.0, maxOrdersPerSecond) * orderIntervalNanos);
+        this.maxDrawdown = Math.max(0.0, maxDrawdownPercent) / 100;
+        this.priceBand = Math.max(0.0, priceBandPercent) / 100;
+    }
+
+    /**
+     * Describes a rejection reason raised by the risk engine.
+     *
+     * @param reasonCode the reason code returned by a check
+     * @return the message of the rejection
+     */
+    public static String describe(String reasonCode) {
+        switch (reasonCode) {
+            case TradeResponse.REASON_ORDER_RATE:
+                return "Order rate limit exceeded";
+            case TradeResponse.REASON_MAX_ORDER_NOTIONAL:
+                return "Order notional exceeds limit";
+            case TradeResponse.REASON_MAX_POSITION:
+                return "Position notional exceeds limit";
+            case TradeResponse.REASON_MAX_DRAWDOWN:
+                return "Drawdown limit reached, only sells are allowed";
+            case TradeResponse.REASON_PRICE_BAND:
+                return "Price outside the allowed band around the last tick";
+            default:
+                return reasonCode;
+        }
+    }
+
+    /**
+     * Counts an order submitted by an account against its order rate. Orders filled later from the order book are
+     * counted when they are placed, not when they fill.
+     *
+     * @param account the account
+     * @param nanos the current {@link System#nanoTime()}
+     * @return {@link TradeResponse#REASON_ORDER_RATE} if the account exceeded its order rate, otherwise null
+     */
+    String checkOrderRate(Account account, long nanos) {
+        if (orderIntervalNanos == 0) {
+            return null;
+        }
+        long bucket = admit(account.getOrderBucketNanos(), nanos);
+        if (bucket == REJECTED) {
+            return TradeResponse.REASON_ORDER_RATE;
+        }
+        account.setOrderBucketNanos(bucket);
+        return null;
+    }
+
+    /**
+     * Counts an order submitted by an off-heap account against its order rate.
+     *
+     * @param store the store holding the account
+     * @param slot the slot of the account
+     * @param nanos the current {@link System#nanoTime()}
+     * @return {@link TradeResponse#REASON_ORDER_RATE} if the account exceeded its order rate, otherwise null
+     */
+    String checkOrderRate(OffHeapAccountStore store, int slot, long nanos) {
+        if (orderIntervalNanos == 0) {
+            return null;
+        }
+        long bucket = admit(store.getOrderBucketNanos(slot), nanos);
+        if (bucket == REJECTED) {
+            return TradeResponse.REASON_ORDER_RATE;
+        }
+        store.setOrderBucketNanos(slot, bucket);
+        return null;
+    }
+
+    /**
+     * Admits an order into a bucket.
+     *
+     * @param bucketNanos the time the bucket is full again, or {@link #BUCKET_FULL} if it never admitted an order
+     * @param nanos the current {@link System#nanoTime()}
+     * @return the time the bucket is full again after the order, or {@link #REJECTED} if there is no room for it
+     */
+    private long admit(long bucketNanos, long nanos) {
+        long start = bucketNanos == BUCKET_FULL || bucketNanos - nanos < 0 ? nanos : bucketNanos;
+        long next = start + orderIntervalNanos;
+        return next - nanos <= orderBucketNanos ? next : REJECTED;
+    }
+
+    /**
+     * Checks a buy or sell at a known price against the notional, position and drawdown limits.
+     *
+     * @param buy whether the order buys
+     * @param price the execution price in fixed-point units
+     * @param total the notional of the order in fixed-point units
+     * @param holding the held quantity of the symbol before the order in fixed-point units
+     * @param quantity the quantity of the order in fixed-point units
+     * @param totalValue the total value of the account before the order, or NaN if it is not valued
+     * @param peakTotalValue the peak total value of the account
+     * @return the reason code of the first limit the order breaches, or null if it passes
+     */
+    String checkOrder(boolean buy, long price, long total, long holding, long quantity, double totalValue,
+                      double peakTotalValue) {
+        if (maxOrderNotional > 0 && total > maxOrderNotional) {
+            return TradeResponse.REASON_MAX_ORDER_NOTIONAL;
+        }
+        if (!buy) {
+            return null;
+        }
+        if (maxPositionNotional > 0 && FixedPoint.multiply(price, holding + quantity) > maxPositionNotional) {
+            return TradeResponse.REASON_MAX_POSITION;
+        }
+        if (maxDrawdown > 0 && totalValue < peakTotalValue * (1 - maxDrawdown)) {
+            return TradeResponse.REASON_MAX_DRAWDOWN;
+        }
+        return null;
+    }
+
+    /**
+     * Checks a limit or stop price against the band around the last tick.
+     *
+     * @param price the limit or stop price
+     * @param lastPrice the price of the last tick
+     * @return {@link TradeResponse#REASON_PRICE_BAND} if the price lies outside the band, otherwise null
+     */
+    String checkPriceBand(double price, double lastPrice) {
+        if (priceBand == 0 || Math.abs(price - lastPrice) <= lastPrice * priceBand) {
+            return null;
+        }
+        return TradeResponse.REASON_PRICE_BAND;
+    }
+
+    /**
+     * Moves the peak total value of an account. Called with every valuation change of the account.
+     *
+     * @param account the account
+     */
+    void onValuation(Account account) {
+        if (maxDrawdown > 0 && account.getTotalValue() > account.getPeakTotalValue()) {
+            account.setPeakTotalValue(account.getTotalValue());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import org.springframework.stereotype.Service;
+
+/**
+ * The RiskService runs the pre-trade risk checks of market trades, batches and resting orders against the
+ * {@code trading.risk.*} limits.
+ * <p>
+ * The limits themselves are checked by one {@link RiskEngine} shared by all shards: it keeps no state per account,
+ * so the checks read and move only counters kept on the accounts. Every check must therefore be called from the
+ * shard thread owning the account.
+ * </p>
+ */
+@Service
+public class RiskService {
+
+    /* Checker of the configured limits */
+    private final RiskEngine riskEngine;
+
+    /**
+     * Constructs a RiskService from the {@code trading.risk.*} settings.
+     *
+     * @param properties the trading settings
+     */
+    public RiskService(TradingProperties properties) {
+        TradingProperties.Risk risk = properties.getRisk();
+        this.riskEngine = new RiskEngine(risk.getMaxOrderNotional(), risk.getMaxPositionNotional(),
+                risk.getMaxOrdersPerSecond(), risk.getMaxDrawdownPercent(), risk.getPriceBandPercent());
+    }
+
+    /**
+     * Counts an order submitted by an account against its order rate.
+     *
+     * @param account the account
+     * @return the reason code of the rejection if the account exceeded its order rate, otherwise null
+     */
+    String checkOrderRate(Account account) {
+        return riskEngine.checkOrderRate(account, System.nanoTime());
+    }
+
+    /**
+     * Counts an order submitted by an off-heap account against its order rate.
+     *
+     * @param store the store holding the account
+     * @param slot the slot of the account
+     * @return the reason code of the rejection if the account exceeded its order rate, otherwise null
+     */
+    String checkOrderRate(OffHeapAccountStore store, int slot) {
+        return riskEngine.checkOrderRate(store, slot, System.nanoTime());
+    }
+
+    /**
+     * Checks a buy or sell on an account at a known price against the notional, position and drawdown limits.
+     *
+     * @param account the account
+     * @param symbolId the price store id of the symbol
+     * @param buy whether the trade buys
+     * @param price the execution price in fixed-point units
+     * @param total the notional of the trade in fixed-point units
+     * @param quantity the quantity of the trade in fixed-point units
+     * @return the reason code of the first limit the trade breaches, or null if it passes
+     */
+    String checkTrade(Account account, int symbolId, boolean buy, long price, long total, long quantity) {
+        return riskEngine.checkOrder(buy, price, total, account.getQuantityUnits(symbolId), quantity,
+                account.getTotalValue(), account.getPeakTotalValue());
+    }
+
+    /**
+     * Checks a buy or sell against the notional, position and drawdown limits for a position and total value that
+     * are not the account's own yet, e.g. those the earlier legs of a batch leave.
+     *
+     * @param buy whether the trade buys
+     * @param price the execution price in fixed-point units
+     * @param total the notional counted against the order notional limit in fixed-point units
+     * @param holding the held quantity of the symbol before the trade in fixed-point units
+     * @param quantity the quantity of the trade in fixed-point units
+     * @param totalValue the total value of the account before the trade, or NaN if it is not valued
+     * @param peakTotalValue the peak total value of the account
+     * @return the reason code of the first limit the trade breaches, or null if it passes
+     */
+    String checkTrade(boolean buy, long price, long total, long holding, long quantity, double totalValue,
+                      double peakTotalValue) {
+        return riskEngine.checkOrder(buy, price, total, holding, quantity, totalValue, peakTotalValue);
+    }
+
+    /**
+     * Runs the risk checks of a valid order before it rests: its limit and stop prices must lie in the band around
+     * the last tick, and the order counts against the account's order rate. The notional and position limits are
+     * checked when the order fills.
+     *
+     * @param account the account placing the order, or null if it does not exist yet; the first order of an account
+     *                always fits its order rate, and is counted by the caller once the account is created
+     * @param lastPrice the price of the last tick of the symbol
+     * @param limitPrice the limit price, or null for stop orders
+     * @param stopPrice the stop price, or null for limit orders
+     * @return the reason code of the breached limit, or null if the order passes
+     */
+    String checkRestingOrder(Account account, double lastPrice, Double limitPrice, Double stopPrice) {
+        String risk = null;
+        if (limitPrice != null) {
+            risk = riskEngine.checkPriceBand(limitPrice, lastPrice);
+        }
+        if (risk == null && stopPrice != null) {
+            risk = riskEngine.checkPriceBand(stopPrice, lastPrice);
+        }
+        if (risk == null && account != null) {
+            risk = checkOrderRate(account);
+        }
+        return risk;
+    }
+
+    /**
+     * Moves the peak total value of an account. Called with every valuation change of the account.
+     *
+     * @param account the account
+     */
+    void onValuation(Account account) {
+        riskEngine.onValuation(account);
+    }
+}
@@ -0,0 +1,73 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A MarketDataSource moving the prices by a random walk: every interval, each symbol not priced by a live source
+ * changes by -2% to +2% (see {@link CryptoService#updatePrices()}).
+ */
+@Service
+public class SimulatedMarketData implements MarketDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedMarketData.class);
+
+    /* Service whose prices are simulated */
+    private final CryptoService cryptoService;
+
+    /* Time between two simulated updates */
+    private final long intervalMillis;
+
+    /* Thread running the updates, null while stopped */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a SimulatedMarketData source.
+     *
+     * @param cryptoService the service whose prices are simulated
+     * @param intervalMillis the time between two simulated updates
+     */
+    public SimulatedMarketData(CryptoService cryptoService,
+                               @Value("${market-data.simulator.interval-ms:10000}") long intervalMillis) {
+        this.cryptoService = cryptoService;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "simulator";
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-data-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                cryptoService.updatePrices();
+            } catch (RuntimeException e) {
+                log.error("Error simulating prices", e);
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
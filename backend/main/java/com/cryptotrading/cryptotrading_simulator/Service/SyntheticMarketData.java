@@ -0,0 +1,198 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A MarketDataSource generating ticks for every symbol of the price store from a {@link PriceModel}, to load test
+ * the engine.
+ * <p>
+ * The symbols are split evenly across the generator threads; every thread steps its slice of the model and
+ * publishes one tick per symbol and step. The total tick rate is paced to {@code market-data.synthetic.rate}
+ * ticks per second, or unthrottled at rate 0, and the achieved rate is logged every few seconds. Synthetic symbols
+ * beyond the top 20 are added to the price store with {@code market-data.synthetic.symbols}.
+ * </p>
+ */
+@Service
+public class SyntheticMarketData implements MarketDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticMarketData.class);
+
+    /* Time between two rate reports */
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /* Service the ticks are published to */
+    private final CryptoService cryptoService;
+
+    /* Target ticks per second over all threads, 0 for unthrottled */
+    private final double rate;
+
+    /* Number of generator threads */
+    private final int threadCount;
+
+    /* Model parameters, see PriceModel */
+    private final long seed;
+    private final long stepMillis;
+    private final double drift;
+    private final double volatility;
+    private final double correlation;
+    private final double jumpIntensity;
+    private final double jumpMean;
+    private final double jumpStdDev;
+    private final double turbulentMultiplier;
+    private final double turbulencePerYear;
+    private final double turbulenceDays;
+
+    /* Ticks published since start */
+    private final LongAdder published = new LongAdder();
+
+    /* Generator threads, null while stopped */
+    private Thread[] threads;
+
+    /**
+     * Constructs a SyntheticMarketData source.
+     *
+     * @param cryptoService the service the ticks are published to
+     * @param rate the target ticks per second over all threads, 0 for unthrottled
+     * @param threadCount the number of generator threads, 0 for one per available processor
+     * @param seed the seed of the model
+     * @param stepMillis the simulated time per step in milliseconds
+     * @param drift the annual drift
+     * @param volatility the mean annual volatility
+     * @param correlation the correlation of any two symbols
+     * @param jumpIntensity the expected number of jumps per symbol and year
+     * @param jumpMean the mean log return of a jump
+     * @param jumpStdDev the standard deviation of the log return of a jump
+     * @param turbulentMultiplier the volatility multiplier of the turbulent regime
+     * @param turbulencePerYear the expected number of turbulent periods per year
+     * @param turbulenceDays the expected length of a turbulent period in days
+     */
+    public SyntheticMarketData(CryptoService cryptoService,
+                               @Value("${market-data.synthetic.rate:1000}") double rate,
+                               @Value("${market-data.synthetic.threads:0}") int threadCount,
+                               @Value("${market-data.synthetic.seed:42}") long seed,
+                               @Value("${market-data.synthetic.step-ms:1000}") long stepMillis,
+                               @Value("${market-data.synthetic.drift:0.0}") double drift,
+                               @Value("${market-data.synthetic.volatility:0.8}") double volatility,
+                               @Value("${market-data.synthetic.correlation:0.5}") double correlation,
+                               @Value("${market-data.synthetic.jumps-per-year:20}") double jumpIntensity,
+                               @Value("${market-data.synthetic.jump-mean:0.0}") double jumpMean,
+                               @Value("${market-data.synthetic.jump-stddev:0.05}") double jumpStdDev,
+                               @Value("${market-data.synthetic.turbulent-multiplier:3.0}") double turbulentMultiplier,
+                               @Value("${market-data.synthetic.turbulence-per-year:4}") double turbulencePerYear,
+                               @Value("${market-data.synthetic.turbulence-days:7}") double turbulenceDays) {
+        this.cryptoService = cryptoService;
+        this.rate = rate;
+        this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        this.seed = seed;
+        this.stepMillis = stepMillis;
+        this.drift = drift;
+        this.volatility = volatility;
+        this.correlation = correlation;
+        this.jumpIntensity = jumpIntensity;
+        this.jumpMean = jumpMean;
+        this.jumpStdDev = jumpStdDev;
+        this.turbulentMultiplier = turbulentMultiplier;
+        this.turbulencePerYear = turbulencePerYear;
+        this.turbulenceDays = turbulenceDays;
+    }
+
+    @Override
+    public String getName() {
+        return "synthetic";
+    }
+
+    @Override
+    public synchronized void start() {
+        if (threads != null) {
+            return;
+        }
+        PriceSnapshotStore priceStore = cryptoService.getPriceStore();
+        int symbols = priceStore.size();
+        double[] initialPrices = new double[symbols];
+        for (int id = 0; id < symbols; id++) {
+            initialPrices[id] = priceStore.get(id).getPrice();
+        }
+        PriceModel model = new PriceModel(initialPrices, seed, stepMillis, drift, volatility, correlation,
+                jumpIntensity, jumpMean, jumpStdDev, turbulentMultiplier, turbulencePerYear, turbulenceDays);
+
+        int count = Math.min(threadCount, symbols);
+        threads = new Thread[count];
+        long startNanos = System.nanoTime();
+        for (int t = 0; t < count; t++) {
+            PriceModel.Slice slice = model.slice(t, symbols * t / count, symbols * (t + 1) / count);
+            // Every thread runs the same number of steps per second, so the slices stay in step
+            long stepNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * symbols / rate) : 0;
+            boolean reporter = t == 0;
+            threads[t] = new Thread(() -> run(model, slice, startNanos, stepNanos, reporter),
+                    "market-data-synthetic-" + t);
+            threads[t].setDaemon(true);
+            threads[t].start();
+        }
+        log.info("Generating synthetic ticks for {} symbols on {} threads at {}", symbols, count,
+                rate > 0 ? rate + " ticks/s" : "full speed");
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (threads == null) {
+            return;
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads = null;
+    }
+
+    /**
+     * Steps a slice of the model and publishes its ticks until interrupted.
+     */
+    private void run(PriceModel model, PriceModel.Slice slice, long startNanos, long stepNanos, boolean reporter) {
+        long nextReport = startNanos + REPORT_NANOS;
+        long reportedTicks = 0;
+        for (long step = 1; !Thread.currentThread().isInterrupted(); step++) {
+            slice.step();
+            for (int id = slice.getFrom(); id < slice.getTo(); id++) {
+                cryptoService.updateCryptoPrice(id, model.getPrice(id), model.getChange24h(id), 0.0);
+            }
+            published.add(slice.getTo() - slice.getFrom());
+
+            long now = System.nanoTime();
+            if (stepNanos > 0) {
+                long wait = startNanos + step * stepNanos - now;
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (reporter && now >= nextReport) {
+                long ticks = published.sum();
+                log.info("Synthetic ticks: {} ticks/s",
+                        (ticks - reportedTicks) * TimeUnit.SECONDS.toNanos(1) / (now - nextReport + REPORT_NANOS));
+                reportedTicks = ticks;
+                nextReport = now + REPORT_NANOS;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of ticks published since start.
+     *
+     * @return the published tick count
+     */
+    public long getPublished() {
+        return published.sum();
+    }
+}
@@ -0,0 +1,148 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A MarketDataSource replaying the ticks of a {@link TickTape} into the {@link CryptoService}.
+ * <p>
+ * Ticks are published with their recorded timestamps, so candles and tick times match the recording. At speed 1
+ * the ticks are spaced as recorded, at speed 10 ten times faster, and at speed 0 they are published as fast as the
+ * engine accepts them, without reading the clock. Symbols of the tape that are not listed are skipped.
+ * </p>
+ */
+@Service
+public class TapeReplaySource implements MarketDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(TapeReplaySource.class);
+
+    /* Records between two checks for a stop request when replaying as fast as possible */
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+
+    /* Service the ticks are published to */
+    private final CryptoService cryptoService;
+
+    /* Tape to replay */
+    private final String file;
+
+    /* Replay speed relative to the recording, 0 for as fast as possible */
+    private final double speed;
+
+    /* Whether to start over at the end of the tape */
+    private final boolean loop;
+
+    /* Thread replaying the tape, null while stopped */
+    private Thread thread;
+
+    /**
+     * Constructs a TapeReplaySource.
+     *
+     * @param cryptoService the service the ticks are published to
+     * @param file the tape to replay
+     * @param speed the replay speed relative to the recording, 0 for as fast as possible
+     * @param loop whether to start over at the end of the tape
+     */
+    public TapeReplaySource(CryptoService cryptoService,
+                            @Value("${market-data.replay.file:ticks.tape}") String file,
+                            @Value("${market-data.replay.speed:1.0}") double speed,
+                            @Value("${market-data.replay.loop:false}") boolean loop) {
+        this.cryptoService = cryptoService;
+        this.file = file;
+        this.speed = speed;
+        this.loop = loop;
+    }
+
+    @Override
+    public String getName() {
+        return "replay";
+    }
+
+    @Override
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "market-data-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private void run() {
+        try (TickTape.Reader tape = TickTape.open(Paths.get(file))) {
+            String[] symbols = tape.getSymbols();
+            int[] symbolIds = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                symbolIds[i] = cryptoService.getPriceStore().idOf(symbols[i]);
+            }
+            log.info("Replaying {} ticks from {} at {}", tape.getCount(), file,
+                    speed > 0 ? speed + "x" : "full speed");
+            do {
+                long start = System.nanoTime();
+                long replayed = replay(tape, symbolIds);
+                long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                log.info("Replayed {} ticks in {} ms ({} ticks/s)", replayed, millis, replayed * 1000 / millis);
+                tape.rewind();
+            } while (loop && !Thread.currentThread().isInterrupted());
+        } catch (IOException e) {
+            log.error("Error replaying {}", file, e);
+        }
+    }
+
+    /**
+     * Publishes the ticks of the tape from its current position to its end, or until the thread is interrupted.
+     *
+     * @param tape the tape to read
+     * @param symbolIds the price store id per symbol index of the tape, -1 for unlisted symbols
+     * @return the number of published ticks
+     */
+    private long replay(TickTape.Reader tape, int[] symbolIds) {
+        long startNanos = System.nanoTime();
+        long firstTimestamp = 0;
+        long published = 0;
+        for (long record = 0; tape.next(); record++) {
+            if (speed > 0) {
+                if (record == 0) {
+                    firstTimestamp = tape.getTimestamp();
+                }
+                long due = startNanos + (long) ((tape.getTimestamp() - firstTimestamp) * 1_000_000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            } else if ((record & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            int index = tape.getSymbolIndex();
+            int id = index >= 0 && index < symbolIds.length ? symbolIds[index] : -1;
+            if (id >= 0) {
+                cryptoService.updateCryptoPrice(id, tape.getPrice(), tape.getChange24h(), tape.getVolume(),
+                        tape.getTimestamp());
+                published++;
+            }
+        }
+        return published;
+    }
+}
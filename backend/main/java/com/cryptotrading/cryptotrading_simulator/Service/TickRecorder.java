@@ -0,0 +1,286 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The TickRecorder captures every tick published by the {@link CryptoService}, from the Kraken feed and the
+ * simulator alike, into {@link TickTape} files that the {@link TapeReplaySource} can replay.
+ * <p>
+ * Publishing threads only copy the tick into a preallocated ring and return: a slot is claimed with a CAS on the
+ * claim sequence and published by storing its sequence number, so recording neither locks nor allocates. If the
+ * ring is full, because the disk cannot keep up, the tick is dropped and counted instead of blocking the feed.
+ * A background writer thread drains the ring in batches into the current tape, flushing it whenever the ring is
+ * empty, and rotates to a new tape named {@code ticks-<start millis>-<index>.tape} once the tape exceeds its size
+ * limit or has been written for the rotation interval.
+ * </p>
+ * <p>
+ * The symbol table of every tape lists the symbols of the price store in id order, so a record's symbol index is
+ * the price store id of its symbol.
+ * </p>
+ */
+@Service
+public class TickRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(TickRecorder.class);
+
+    /* Time the writer parks while the ring is empty */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /* Service whose ticks are recorded */
+    private final CryptoService cryptoService;
+
+    /* Whether recording is enabled */
+    private final boolean enabled;
+
+    /* Directory the tapes are written to */
+    private final Path directory;
+
+    /* Size after which the writer rotates to a new tape, in bytes */
+    private final long maxFileBytes;
+
+    /* Time after which the writer rotates to a new tape, in milliseconds */
+    private final long rotateMillis;
+
+    /* Ring of recorded ticks, one column per field; the capacity is a power of two */
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] symbolIds;
+    private final double[] prices;
+    private final double[] changes;
+    private final double[] volumes;
+
+    /* Sequence number of the tick held by each slot once it is fully written, -1 before the first */
+    private final AtomicLongArray published;
+
+    /* Sequence number the next publisher claims */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /* Sequence number of the next tick the writer reads; slots before it may be reused */
+    private volatile long consumed;
+
+    /* Ticks dropped because the ring was full, and ticks written to a tape */
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long recorded;
+
+    /* Symbol table of the tapes */
+    private String[] symbols;
+
+    /* Writer thread, null while stopped */
+    private Thread thread;
+
+    /* Set to stop the writer once it has drained the ring */
+    private volatile boolean stopping;
+
+    /* Tape currently written and its rotation state (writer thread only) */
+    private TickTape.Writer tape;
+    private long tapeStartMillis;
+    private int tapeIndex;
+
+    /**
+     * Constructs a TickRecorder.
+     *
+     * @param cryptoService the service whose ticks are recorded
+     * @param enabled whether ticks are recorded
+     * @param directory the directory the tapes are written to
+     * @param maxFileMb the size after which a new tape is started, in megabytes
+     * @param rotateMinutes the time after which a new tape is started, in minutes
+     * @param capacity the number of ticks the ring holds, rounded up to a power of two
+     */
+    public TickRecorder(CryptoService cryptoService,
+                        @Value("${market-data.record.enabled:false}") boolean enabled,
+                        @Value("${market-data.record.directory:ticks}") String directory,
+                        @Value("${market-data.record.max-file-mb:256}") long maxFileMb,
+                        @Value("${market-data.record.rotate-minutes:60}") long rotateMinutes,
+                        @Value("${market-data.record.buffer-size:65536}") int capacity) {
+        this.cryptoService = cryptoService;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.rotateMillis = TimeUnit.MINUTES.toMillis(rotateMinutes);
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.symbolIds = new int[size];
+        this.prices = new double[size];
+        this.changes = new double[size];
+        this.volumes = new double[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Starts the writer thread and registers the recorder with the CryptoService, if recording is enabled.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || thread != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creating tick tape directory " + directory, e);
+        }
+        PriceSnapshotStore priceStore = cryptoService.getPriceStore();
+        symbols = new String[priceStore.size()];
+        for (int id = 0; id < symbols.length; id++) {
+            symbols[id] = priceStore.get(id).getSymbol();
+        }
+        stopping = false;
+        thread = new Thread(this::run, "tick-recorder");
+        thread.setDaemon(true);
+        thread.start();
+        cryptoService.getMetrics().bindTickRecorder(this);
+        cryptoService.setTickRecorder(this);
+        log.info("Recording ticks to {}", directory.toAbsolutePath());
+    }
+
+    /**
+     * Unregisters the recorder, writes the remaining ticks and closes the current tape.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        cryptoService.setTickRecorder(null);
+        stopping = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Records a tick. Called on the publishing thread; never blocks. The tick is dropped if the ring is full.
+     *
+     * @param symbolId the id of the symbol in the price store
+     * @param timestamp the time of the tick in epoch milliseconds
+     * @param price the price
+     * @param change24h the 24-hour change percentage
+     * @param volume the traded volume, 0 if unknown
+     */
+    public void record(int symbolId, long timestamp, double price, double change24h, double volume) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        timestamps[slot] = timestamp;
+        symbolIds[slot] = symbolId;
+        prices[slot] = price;
+        changes[slot] = change24h;
+        volumes[slot] = volume;
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Drains the ring into the current tape until stopped, flushing the tape whenever the ring is empty.
+     */
+    private void run() {
+        long next = consumed;
+        boolean dirty = false;
+        while (true) {
+            int slot = (int) next & mask;
+            if (published.get(slot) == next) {
+                try {
+                    write(slot);
+                    dirty = true;
+                } catch (IOException e) {
+                    log.error("Error recording tick", e);
+                    closeTape();
+                }
+                next++;
+                consumed = next;
+                continue;
+            }
+            if (dirty && tape != null) {
+                try {
+                    tape.flush();
+                } catch (IOException e) {
+                    log.error("Error flushing tick tape", e);
+                }
+                dirty = false;
+            }
+            // Every claimed tick is published shortly after its claim, so stop once the ring is drained
+            if (stopping && next == claimed.get()) {
+                break;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        closeTape();
+    }
+
+    /**
+     * Writes the tick of a slot to the current tape, rotating to a new tape first if necessary.
+     */
+    private void write(int slot) throws IOException {
+        long now = System.currentTimeMillis();
+        if (tape != null && (tape.size() >= maxFileBytes || now - tapeStartMillis >= rotateMillis)) {
+            closeTape();
+        }
+        if (tape == null) {
+            tapeStartMillis = now;
+            tape = TickTape.create(directory.resolve(String.format("ticks-%d-%06d.tape", now, tapeIndex++)),
+                    symbols);
+        }
+        tape.append(timestamps[slot], symbolIds[slot], prices[slot], changes[slot], volumes[slot]);
+        recorded++;
+    }
+
+    private void closeTape() {
+        if (tape != null) {
+            try {
+                tape.close();
+            } catch (IOException e) {
+                log.warn("Error closing tick tape", e);
+            }
+            tape = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the number of ticks dropped because the writer could not keep up.
+     *
+     * @return the dropped tick count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of ticks written to a tape.
+     *
+     * @return the recorded tick count
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+}
@@ -0,0 +1,311 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A TickTape is a binary file of recorded price ticks.
+ * <p>
+ * All values are little-endian. The header holds the magic number {@code "TICK"}, the format version and the symbol
+ * table: the number of symbols followed by each symbol as a 2-byte length and its UTF-8 bytes. It is followed by
+ * fixed-size records of {@value #RECORD_SIZE} bytes in time order:
+ * </p>
+ * <pre>
+ *  0  long   timestamp in epoch milliseconds
+ *  8  int    index of the symbol in the symbol table
+ * 12  int    reserved, 0
+ * 16  double price
+ * 24  double 24-hour change percentage
+ * 32  double traded volume, 0 if unknown
+ * </pre>
+ * <p>
+ * The record count follows from the file size, so a tape that is still being written, or was cut short by a crash,
+ * can be read up to its last complete record. Tapes are written by a {@link Writer}, e.g. the {@link TickRecorder}.
+ * </p>
+ */
+public final class TickTape {
+
+    /* Magic number of a tape, "TICK" */
+    public static final int MAGIC = 0x4B434954;
+
+    /* Version of the tape format */
+    public static final int VERSION = 1;
+
+    /* Size of one tick record in bytes */
+    public static final int RECORD_SIZE = 40;
+
+    /* Records per mapped segment; a power of two so a record index splits into segment and offset by shifting */
+    private static final int SEGMENT_SHIFT = 24;
+    private static final long RECORDS_PER_SEGMENT = 1L << SEGMENT_SHIFT;
+
+    private TickTape() {
+    }
+
+    /**
+     * Opens a tape for reading.
+     *
+     * @param path the tape file
+     * @return a reader positioned before the first record
+     * @throws IOException if the file cannot be read or is not a tape
+     */
+    public static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    /**
+     * Creates a tape, replacing an existing file, and writes its header.
+     *
+     * @param path the tape file
+     * @param symbols the symbol table; a record's symbol index points into it
+     * @return a writer appending records after the header
+     * @throws IOException if the file cannot be written
+     */
+    public static Writer create(Path path, String[] symbols) throws IOException {
+        return new Writer(path, symbols);
+    }
+
+    /**
+     * A Writer appends records to a tape through a direct buffer, so appending does not allocate and only a full
+     * buffer or an explicit {@link #flush()} reaches the file. A writer is not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        /* Records buffered before they are written to the file */
+        private static final int BUFFERED_RECORDS = 1024;
+
+        /* Channel of the tape file */
+        private final FileChannel channel;
+
+        /* Records not yet written to the file */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFERED_RECORDS * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        /* Size of the tape including buffered records, in bytes */
+        private long size;
+
+        private Writer(Path path, String[] symbols) throws IOException {
+            byte[][] names = new byte[symbols.length][];
+            int headerSize = 3 * Integer.BYTES;
+            for (int i = 0; i < symbols.length; i++) {
+                names[i] = symbols[i].getBytes(StandardCharsets.UTF_8);
+                headerSize += Short.BYTES + names[i].length;
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(symbols.length);
+            for (byte[] name : names) {
+                header.putShort((short) name.length).put(name);
+            }
+            header.flip();
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            try {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            this.size = headerSize;
+        }
+
+        /**
+         * Appends a record.
+         *
+         * @param timestamp the time of the tick in epoch milliseconds
+         * @param symbolIndex the index of the symbol in the symbol table
+         * @param price the price
+         * @param change24h the 24-hour change percentage
+         * @param volume the traded volume, 0 if unknown
+         * @throws IOException if the buffer was full and could not be written
+         */
+        public void append(long timestamp, int symbolIndex, double price, double change24h, double volume)
+                throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putLong(timestamp).putInt(symbolIndex).putInt(0)
+                    .putDouble(price).putDouble(change24h).putDouble(volume);
+            size += RECORD_SIZE;
+        }
+
+        /**
+         * Writes the buffered records to the file, making them visible to readers.
+         *
+         * @throws IOException if the records could not be written
+         */
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Gets the size of the tape including the records not yet flushed.
+         *
+         * @return the size in bytes
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Flushes the buffered records and closes the file.
+         *
+         * @throws IOException if the records could not be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * A Reader walks the records of a memory-mapped tape. The fields of the current record are exposed through
+     * getters, so reading does not allocate. A reader is not thread-safe.
+     */
+    public static final class Reader implements Closeable {
+
+        /* Channel of the tape file */
+        private final FileChannel channel;
+
+        /* Symbol table of the tape */
+        private final String[] symbols;
+
+        /* Mapped records, RECORDS_PER_SEGMENT per segment except the last */
+        private final MappedByteBuffer[] segments;
+
+        /* Number of complete records */
+        private final long count;
+
+        /* Index of the next record */
+        private long position;
+
+        /* Fields of the current record */
+        private long timestamp;
+        private int symbolIndex;
+        private double price;
+        private double change24h;
+        private double volume;
+
+        private Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 1 << 20))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (header.remaining() < 12 || header.getInt() != MAGIC) {
+                    throw new IOException(path + " is not a tick tape");
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported tick tape version " + version);
+                }
+                this.symbols = new String[header.getInt()];
+                for (int i = 0; i < symbols.length; i++) {
+                    byte[] bytes = new byte[header.getShort() & 0xFFFF];
+                    header.get(bytes);
+                    symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                long dataStart = header.position();
+                this.count = (size - dataStart) / RECORD_SIZE;
+                int segmentCount = (int) ((count + RECORDS_PER_SEGMENT - 1) >>> SEGMENT_SHIFT);
+                this.segments = new MappedByteBuffer[segmentCount];
+                for (int i = 0; i < segmentCount; i++) {
+                    long first = (long) i << SEGMENT_SHIFT;
+                    long records = Math.min(RECORDS_PER_SEGMENT, count - first);
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + first * RECORD_SIZE,
+                            records * RECORD_SIZE);
+                    segments[i].order(ByteOrder.LITTLE_ENDIAN);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return true if there was a next record, false at the end of the tape
+         */
+        public boolean next() {
+            if (position == count) {
+                return false;
+            }
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int offset = (int) (position & (RECORDS_PER_SEGMENT - 1)) * RECORD_SIZE;
+            timestamp = segment.getLong(offset);
+            symbolIndex = segment.getInt(offset + 8);
+            price = segment.getDouble(offset + 16);
+            change24h = segment.getDouble(offset + 24);
+            volume = segment.getDouble(offset + 32);
+            position++;
+            return true;
+        }
+
+        /**
+         * Moves back before the first record.
+         */
+        public void rewind() {
+            position = 0;
+        }
+
+        /**
+         * Gets the symbol table; a record's symbol index points into it.
+         *
+         * @return the symbols of the tape
+         */
+        public String[] getSymbols() {
+            return symbols.clone();
+        }
+
+        /**
+         * Gets the number of complete records of the tape.
+         *
+         * @return the record count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /* Getters of the current record */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getSymbolIndex() {
+            return symbolIndex;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getChange24h() {
+            return change24h;
+        }
+
+        public double getVolume() {
+            return volume;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
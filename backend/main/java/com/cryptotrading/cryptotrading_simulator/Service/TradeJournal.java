@@ -0,0 +1,553 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32C;
+
+/**
+ * The TradeJournal is the append-only write-ahead log of one account shard.
+ * <p>
+ * Records are appended by the shard thread into memory-mapped segment files named
+ * {@code journal-<shard>-<epoch>-<segment>.log}. A record becomes visible to replay only once its length prefix
+ * is written, which happens after the body, so a crash never exposes a half-written record. Every record also carries
+ * a CRC-32C of its body; replay stops at the first record whose checksum does not match, because the pages of a
+ * mapped segment may reach the disk in any order.
+ * </p>
+ * <p>
+ * Durability uses group commit: appends return the future of the current flush batch, and the flusher thread
+ * periodically forces everything written so far to disk with one {@code force()} and completes the batch. All
+ * trades of a batch therefore share one fsync. Segments the shard thread rolled over from are forced by the flusher
+ * too, so the shard thread never waits for the disk.
+ * </p>
+ * <p>
+ * Positions are encoded as {@code segment << 32 | offset}, so they do not depend on the segment size. Strings are
+ * written with a short length prefix; appending a string longer than {@link #MAX_STRING_BYTES} bytes throws an
+ * {@link IllegalArgumentException} before anything is written.
+ * </p>
+ */
+public class TradeJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeJournal.class);
+
+    /* Record types */
+    public static final byte TYPE_BUY = 1;
+    public static final byte TYPE_SELL = 2;
+    public static final byte TYPE_RESET = 3;
+    public static final byte TYPE_ORDER = 4;
+    public static final byte TYPE_ORDER_DONE = 5;
+    public static final byte TYPE_BATCH = 6;
+    public static final byte TYPE_ORDER_TRIGGERED = 7;
+
+    /* Most bytes of a string field, whose length is written as a short */
+    public static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    /* Bytes of the length prefix of every record */
+    private static final int LENGTH_PREFIX = Integer.BYTES;
+
+    /* Bytes of the length prefix and checksum preceding the body of every record */
+    private static final int HEADER = LENGTH_PREFIX + Integer.BYTES;
+
+    /* Directory holding the segment files */
+    private final Path directory;
+
+    /* Index of the owning shard */
+    private final int shard;
+
+    /* Epoch of this journal, pairing it with a snapshot */
+    private final long epoch;
+
+    /* Size of a segment file in bytes */
+    private final int segmentSize;
+
+    /* Segment currently written, its index and a view of it for checksumming (shard thread only) */
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private ByteBuffer checksumView;
+
+    /* Checksum of the record being committed (shard thread only) */
+    private final CRC32C checksum = new CRC32C();
+
+    /* Segment the flusher must force, updated on rollover */
+    private volatile MappedByteBuffer flushSegment;
+
+    /* Segments rolled over from that the flusher has not forced yet */
+    private final Queue<MappedByteBuffer> retiredSegments = new ConcurrentLinkedQueue<>();
+
+    /* Position after the last complete record, written by the shard thread */
+    private volatile long writePosition;
+
+    /* Position up to which the journal is known to be on disk */
+    private volatile long durablePosition;
+
+    /* Flush batch that records appended now will be part of */
+    private final AtomicReference<CompletableFuture<Void>> nextFlush =
+            new AtomicReference<>(new CompletableFuture<>());
+
+    /* Flush batches taken by flushes that have not succeeded yet (flusher thread only) */
+    private final List<CompletableFuture<Void>> unflushedBatches = new ArrayList<>();
+
+    /**
+     * Creates a new, empty journal starting at segment 0.
+     *
+     * @param directory the directory holding the segment files
+     * @param shard the index of the owning shard
+     * @param epoch the epoch of the journal
+     * @param segmentSize the size of a segment file in bytes
+     */
+    public TradeJournal(Path directory, int shard, long epoch, int segmentSize) {
+        this.directory = directory;
+        this.shard = shard;
+        this.epoch = epoch;
+        this.segmentSize = segmentSize;
+        this.segment = map(0);
+        this.checksumView = segment.duplicate();
+        this.flushSegment = segment;
+    }
+
+    /**
+     * Appends a buy or sell record. Must only be called from the shard thread.
+     *
+     * @param type {@link #TYPE_BUY} or {@link #TYPE_SELL}
+     * @param accountId the id of the account
+     * @param symbol the traded symbol
+     * @param amount the traded amount
+     * @param price the execution price
+     * @param nanos the execution time in epoch nanoseconds
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendTrade(byte type, String accountId, String symbol, double amount, double price,
+                                               long nanos) {
+        byte[] id = encode(accountId);
+        byte[] sym = encode(symbol);
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + Short.BYTES + sym.length + 2 * Double.BYTES;
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(type).putLong(nanos)
+                .putShort((short) id.length).put(id)
+                .putShort((short) sym.length).put(sym)
+                .putDouble(amount).putDouble(price);
+        return commit(start, length);
+    }
+
+    /**
+     * Appends the legs of a trade batch as a single record, so that replay applies either all of them or none.
+     * Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param count the number of legs
+     * @param types the leg types, {@link #TYPE_BUY} or {@link #TYPE_SELL}
+     * @param symbols the traded symbols
+     * @param amounts the traded amounts
+     * @param prices the execution prices
+     * @param nanos the execution time in epoch nanoseconds
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendBatch(String accountId, int count, byte[] types, String[] symbols,
+                                               double[] amounts, double[] prices, long nanos) {
+        byte[] id = encode(accountId);
+        byte[][] syms = new byte[count][];
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + Short.BYTES;
+        for (int i = 0; i < count; i++) {
+            syms[i] = encode(symbols[i]);
+            length += 1 + Short.BYTES + syms[i].length + 2 * Double.BYTES;
+        }
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(TYPE_BATCH).putLong(nanos).putShort((short) id.length).put(id).putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            segment.put(types[i]).putShort((short) syms[i].length).put(syms[i])
+                    .putDouble(amounts[i]).putDouble(prices[i]);
+        }
+        return commit(start, length);
+    }
+
+    /**
+     * Appends an account reset record. Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param nanos the reset time in epoch nanoseconds
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendReset(String accountId, long nanos) {
+        byte[] id = encode(accountId);
+        int length = 1 + Long.BYTES + Short.BYTES + id.length;
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(TYPE_RESET).putLong(nanos).putShort((short) id.length).put(id);
+        return commit(start, length);
+    }
+
+    /**
+     * Appends a record for a newly placed resting order. Must only be called from the shard thread.
+     *
+     * @param order the open order
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendOrder(Order order) {
+        byte[] id = encode(order.getAccountId());
+        byte[] side = encode(order.getSide());
+        byte[] sym = encode(order.getSymbol());
+        byte[] orderType = encode(order.getOrderType());
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + Long.BYTES + Short.BYTES + side.length
+                + Short.BYTES + sym.length + Short.BYTES + orderType.length + 3 * Double.BYTES;
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(TYPE_ORDER).putLong(order.getCreatedNanos())
+                .putShort((short) id.length).put(id)
+                .putLong(order.getId())
+                .putShort((short) side.length).put(side)
+                .putShort((short) sym.length).put(sym)
+                .putShort((short) orderType.length).put(orderType)
+                .putDouble(order.getAmount())
+                .putDouble(order.getLimitPrice() == null ? Double.NaN : order.getLimitPrice())
+                .putDouble(order.getStopPrice() == null ? Double.NaN : order.getStopPrice());
+        return commit(start, length);
+    }
+
+    /**
+     * Appends a record removing a resting order from its account, because it was filled, rejected or cancelled.
+     * Must only be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param orderId the id of the order
+     * @param nanos the time the order was closed in epoch nanoseconds
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendOrderDone(String accountId, long orderId, long nanos) {
+        byte[] id = encode(accountId);
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + Long.BYTES;
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(TYPE_ORDER_DONE).putLong(nanos).putShort((short) id.length).put(id).putLong(orderId);
+        return commit(start, length);
+    }
+
+    /**
+     * Encodes a string field, checking that its length fits the short it is written with.
+     *
+     * @param value the string
+     * @return the UTF-8 bytes of the string
+     * @throws IllegalArgumentException if the string exceeds {@value #MAX_STRING_BYTES} bytes
+     */
+    private static byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Journal field exceeds " + MAX_STRING_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Appends a record for a stop-limit order whose stop price was reached, turning it into a limit order. Must only
+     * be called from the shard thread.
+     *
+     * @param accountId the id of the account
+     * @param orderId the id of the order
+     * @param nanos the time the order was triggered in epoch nanoseconds
+     * @return the future of the flush batch that makes the record durable
+     */
+    public CompletableFuture<Void> appendOrderTriggered(String accountId, long orderId, long nanos) {
+        byte[] id = encode(accountId);
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + Long.BYTES;
+        int start = reserve(length);
+        segment.position(start + HEADER);
+        segment.put(TYPE_ORDER_TRIGGERED).putLong(nanos).putShort((short) id.length).put(id).putLong(orderId);
+        return commit(start, length);
+    }
+
+    /**
+     * Makes room for a record, rolling over to a new segment if the current one is full. The segment rolled over
+     * from is left to the flusher to force.
+     *
+     * @return the offset of the record within the current segment
+     */
+    private int reserve(int length) {
+        int start = offset(writePosition);
+        // Keep room for the terminating zero length prefix
+        if (start + HEADER + length + LENGTH_PREFIX > segmentSize) {
+            retiredSegments.add(segment);
+            segmentIndex++;
+            segment = map(segmentIndex);
+            checksumView = segment.duplicate();
+            flushSegment = segment;
+            writePosition = position(segmentIndex, 0);
+            start = 0;
+        }
+        return start;
+    }
+
+    /**
+     * Publishes a written record by storing its checksum and length prefix and advancing the write position.
+     */
+    private CompletableFuture<Void> commit(int start, int length) {
+        segment.putInt(start + LENGTH_PREFIX, checksum(checksum, checksumView, start + HEADER, length));
+        segment.putInt(start, length);
+        writePosition = position(segmentIndex, start + HEADER + length);
+        return nextFlush.get();
+    }
+
+    /**
+     * Computes the CRC-32C of a record body.
+     *
+     * @param checksum the checksum to compute with
+     * @param buffer a view of the segment, whose position and limit are changed
+     * @param offset the offset of the body
+     * @param length the length of the body
+     * @return the checksum
+     */
+    private static int checksum(CRC32C checksum, ByteBuffer buffer, int offset, int length) {
+        checksum.reset();
+        buffer.clear().position(offset).limit(offset + length);
+        checksum.update(buffer);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Forces everything written so far to disk and completes the pending flush batch. If forcing fails, the batch
+     * stays pending and is completed by the next flush that succeeds, so no append waits on a batch that is lost.
+     * Called periodically by the flusher thread.
+     */
+    public void flush() {
+        if (writePosition == durablePosition) {
+            return;
+        }
+        unflushedBatches.add(nextFlush.getAndSet(new CompletableFuture<>()));
+        long position = writePosition;
+        // Read after the position: a segment rolled over from since is already queued
+        MappedByteBuffer current = flushSegment;
+        MappedByteBuffer retired;
+        // A retired segment leaves the queue only once it is forced, so a failed flush forces it again
+        while ((retired = retiredSegments.peek()) != null) {
+            force(retired);
+            retiredSegments.poll();
+        }
+        force(current);
+        durablePosition = position;
+        for (CompletableFuture<Void> batch : unflushedBatches) {
+            batch.complete(null);
+        }
+        unflushedBatches.clear();
+    }
+
+    /**
+     * Forces a segment to disk.
+     *
+     * @param buffer the mapped segment
+     */
+    void force(MappedByteBuffer buffer) {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the segment files that lie entirely before the given position, i.e. that are covered by a snapshot.
+     *
+     * @param position the journal position recorded in the snapshot
+     */
+    public void deleteSegmentsBefore(long position) {
+        for (int index = segmentOf(position) - 1; index >= 0; index--) {
+            try {
+                if (!Files.deleteIfExists(segmentPath(directory, shard, epoch, index))) {
+                    break; // older segments were deleted by an earlier snapshot
+                }
+            } catch (IOException e) {
+                log.warn("Error deleting journal segment {}", index, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the position after the last appended record. Must only be called from the shard thread.
+     *
+     * @return the current write position
+     */
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    private MappedByteBuffer map(int index) {
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, shard, epoch, index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error mapping journal segment " + index, e);
+        }
+    }
+
+    /**
+     * Replays the records of a journal from the given position. Replay stops at the first record whose checksum
+     * does not match, as the records after it may be lost.
+     *
+     * @param directory the directory holding the segment files
+     * @param shard the index of the shard that wrote the journal
+     * @param epoch the epoch of the journal
+     * @param from the position to start from, as recorded in the snapshot
+     * @param checksummed whether the records carry checksums; journals paired with snapshots before format
+     *                    version 6 do not
+     * @param handler the handler receiving the records
+     * @return the number of replayed records
+     */
+    public static long replay(Path directory, int shard, long epoch, long from, boolean checksummed,
+                              ReplayHandler handler) {
+        int header = checksummed ? HEADER : LENGTH_PREFIX;
+        CRC32C checksum = new CRC32C();
+        long records = 0;
+        int offset = offset(from);
+        for (int index = segmentOf(from); Files.exists(segmentPath(directory, shard, epoch, index)); index++) {
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, shard, epoch, index),
+                    StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                ByteBuffer view = buffer.duplicate();
+                while (offset + header <= buffer.limit()) {
+                    int length = buffer.getInt(offset);
+                    if (length <= 0 || offset + header + length > buffer.limit()) {
+                        break;
+                    }
+                    if (checksummed && buffer.getInt(offset + LENGTH_PREFIX)
+                            != checksum(checksum, view, offset + header, length)) {
+                        log.warn("Checksum mismatch in journal segment {} of shard {} at offset {}, "
+                                + "stopping replay", index, shard, offset);
+                        return records;
+                    }
+                    buffer.position(offset + header);
+                    readRecord(buffer, handler);
+                    records++;
+                    offset += header + length;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error replaying journal segment " + index, e);
+            }
+            offset = 0;
+        }
+        return records;
+    }
+
+    private static void readRecord(MappedByteBuffer buffer, ReplayHandler handler) {
+        byte type = buffer.get();
+        long nanos = buffer.getLong();
+        String accountId = readString(buffer);
+        if (type == TYPE_RESET) {
+            handler.onReset(accountId, nanos);
+        } else if (type == TYPE_ORDER) {
+            long orderId = buffer.getLong();
+            String side = readString(buffer);
+            String symbol = readString(buffer);
+            String orderType = readString(buffer);
+            double amount = buffer.getDouble();
+            double limit = buffer.getDouble();
+            double stop = buffer.getDouble();
+            handler.onOrder(new Order(orderId, accountId, side, symbol, amount, orderType,
+                    Double.isNaN(limit) ? null : limit, Double.isNaN(stop) ? null : stop, nanos));
+        } else if (type == TYPE_ORDER_DONE) {
+            handler.onOrderDone(accountId, buffer.getLong(), nanos);
+        } else if (type == TYPE_ORDER_TRIGGERED) {
+            handler.onOrderTriggered(accountId, buffer.getLong(), nanos);
+        } else if (type == TYPE_BATCH) {
+            int count = buffer.getShort();
+            for (int i = 0; i < count; i++) {
+                byte legType = buffer.get();
+                String symbol = readString(buffer);
+                double amount = buffer.getDouble();
+                double price = buffer.getDouble();
+                handler.onTrade(legType, accountId, symbol, amount, price, nanos);
+            }
+        } else {
+            String symbol = readString(buffer);
+            double amount = buffer.getDouble();
+            double price = buffer.getDouble();
+            handler.onTrade(type, accountId, symbol, amount, price, nanos);
+        }
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the path of a segment file.
+     */
+    static Path segmentPath(Path directory, int shard, long epoch, int index) {
+        return directory.resolve(String.format("journal-%d-%d-%06d.log", shard, epoch, index));
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Receives the records of a journal during replay.
+     */
+    public interface ReplayHandler {
+
+        /**
+         * Called for a buy or sell record, and for every leg of a batch record.
+         *
+         * @param type {@link #TYPE_BUY} or {@link #TYPE_SELL}
+         * @param accountId the id of the account
+         * @param symbol the traded symbol
+         * @param amount the traded amount
+         * @param price the execution price
+         * @param nanos the execution time in epoch nanoseconds
+         */
+        void onTrade(byte type, String accountId, String symbol, double amount, double price, long nanos);
+
+        /**
+         * Called for an account reset record.
+         *
+         * @param accountId the id of the account
+         * @param nanos the reset time in epoch nanoseconds
+         */
+        void onReset(String accountId, long nanos);
+
+        /**
+         * Called for a newly placed resting order.
+         *
+         * @param order the open order
+         */
+        void onOrder(Order order);
+
+        /**
+         * Called when a resting order was filled, rejected or cancelled.
+         *
+         * @param accountId the id of the account
+         * @param orderId the id of the order
+         * @param nanos the time the order was closed in epoch nanoseconds
+         */
+        void onOrderDone(String accountId, long orderId, long nanos);
+
+        /**
+         * Called when the stop price of a resting stop-limit order was reached.
+         *
+         * @param accountId the id of the account
+         * @param orderId the id of the order
+         * @param nanos the time the order was triggered in epoch nanoseconds
+         */
+        void onOrderTriggered(String accountId, long orderId, long nanos);
+    }
+}
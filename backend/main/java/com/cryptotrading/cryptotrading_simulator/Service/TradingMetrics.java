@@ -0,0 +1,228 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TradingMetrics records the latency and outcome of the trading and feed hot paths in a Micrometer registry, which
+ * the actuator exposes at {@code /actuator/prometheus}.
+ * <p>
+ * Latencies are recorded as timers publishing both a percentile histogram, so percentiles can be aggregated by the
+ * scraper, and HDR histogram based client-side percentiles. Meters are created once and cached, so recording only
+ * costs the timer or counter update itself.
+ * </p>
+ */
+@Component
+public class TradingMetrics {
+
+    /* Registry the meters are registered with */
+    private final MeterRegistry registry;
+
+    /* End-to-end latency of executeTrade, including the wait for the owning shard, by outcome */
+    private final Timer tradesExecuted;
+    private final Timer tradesRejected;
+
+    /* Rejected trades by reason code */
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    /* Trades answered with the response of an earlier trade with the same client order id */
+    private final Counter tradesReplayed;
+
+    /* Time to decode one feed message, and to apply a decoded tick to the price store and its listeners */
+    private final Timer feedDecode;
+    private final Timer feedApply;
+
+    /* Time from publishing a tick to sending it to a price stream client */
+    private final Timer tickToPublish;
+
+    /* Lost feed connections, and the time from losing the connection to the first live tick after reconnecting */
+    private final Counter feedDisconnects;
+    private final Timer feedRecovery;
+
+    /**
+     * Constructs TradingMetrics registering its meters with the given registry.
+     *
+     * @param registry the registry to record to
+     */
+    public TradingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tradesExecuted = latencyTimer("trading.trade.latency", "Latency of executed trades")
+                .tag("outcome", "executed").register(registry);
+        this.tradesRejected = latencyTimer("trading.trade.latency", "Latency of rejected trades")
+                .tag("outcome", "rejected").register(registry);
+        this.tradesReplayed = Counter.builder("trading.trade.replayed")
+                .description("Trades answered with the response of an earlier trade with the same client order id")
+                .register(registry);
+        this.feedDecode = latencyTimer("feed.message.decode", "Time to decode one feed message")
+                .register(registry);
+        this.feedApply = latencyTimer("feed.message.apply", "Time to publish a decoded tick")
+                .register(registry);
+        this.tickToPublish = Timer.builder("feed.tick.to.publish")
+                .description("Time from publishing a tick to sending it to a price stream client")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+        this.feedDisconnects = Counter.builder("feed.disconnects")
+                .description("Lost feed connections")
+                .register(registry);
+        this.feedRecovery = Timer.builder("feed.recovery")
+                .description("Time from losing the feed connection to the first live tick after reconnecting")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(100))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofSeconds(1));
+    }
+
+    /**
+     * Registers a gauge per symbol reporting the seconds since the symbol's last tick.
+     *
+     * @param priceStore the store holding the latest tick of every symbol
+     */
+    public void bindPriceStore(PriceSnapshotStore priceStore) {
+        for (int id = 0; id < priceStore.size(); id++) {
+            int symbolId = id;
+            Gauge.builder("feed.staleness", priceStore,
+                            store -> (System.currentTimeMillis() - store.get(symbolId).getTimestamp()) / 1000.0)
+                    .description("Seconds since the last tick of the symbol")
+                    .tag("symbol", priceStore.get(id).getSymbol())
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Registers counters of the ticks written and dropped by the tick recorder.
+     *
+     * @param recorder the recorder capturing the published ticks
+     */
+    public void bindTickRecorder(TickRecorder recorder) {
+        FunctionCounter.builder("feed.recorder.recorded", recorder, TickRecorder::getRecorded)
+                .description("Ticks written to a tick tape")
+                .register(registry);
+        FunctionCounter.builder("feed.recorder.dropped", recorder, TickRecorder::getDropped)
+                .description("Ticks dropped because the tick recorder could not keep up")
+                .register(registry);
+    }
+
+    /**
+     * Registers a counter of the journal flushes that failed and a gauge that is 1 while they keep failing.
+     *
+     * @param persistence the service flushing the trade journals
+     */
+    public void bindPersistence(PersistenceService persistence) {
+        FunctionCounter.builder("trading.journal.flush.failures", persistence, PersistenceService::getFlushFailures)
+                .description("Trade journal flushes that failed and were retried")
+                .register(registry);
+        Gauge.builder("trading.journal.flush.failing", persistence, service -> service.isFlushFailing() ? 1 : 0)
+                .description("Whether the last trade journal flush failed, holding journaled trades back")
+                .register(registry);
+    }
+
+    /**
+     * Registers gauges of the backlog of every feed pipeline stage and a counter of the frames it dropped.
+     *
+     * @param pipeline the pipeline between the feed connection and the price store
+     */
+    public void bindFeedPipeline(FeedPipeline pipeline) {
+        Gauge.builder("feed.pipeline.backlog", pipeline, FeedPipeline::getDecodeBacklog)
+                .description("Feed frames or ticks waiting for a pipeline stage")
+                .tag("stage", "decode")
+                .register(registry);
+        Gauge.builder("feed.pipeline.backlog", pipeline, FeedPipeline::getApplyBacklog)
+                .description("Feed frames or ticks waiting for a pipeline stage")
+                .tag("stage", "apply")
+                .register(registry);
+        FunctionCounter.builder("feed.pipeline.dropped", pipeline, FeedPipeline::getDropped)
+                .description("Feed frames dropped because the pipeline could not keep up")
+                .register(registry);
+    }
+
+    /**
+     * Records the outcome and latency of an executed or rejected trade.
+     *
+     * @param response the response of the trade
+     * @param nanos the time the trade took, in nanoseconds
+     */
+    public void recordTrade(TradeResponse response, long nanos) {
+        if (response.isSuccess()) {
+            tradesExecuted.record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            tradesRejected.record(nanos, TimeUnit.NANOSECONDS);
+            rejections.computeIfAbsent(response.getReasonCode(), reason -> Counter.builder("trading.trade.rejected")
+                    .description("Rejected trades by reason")
+                    .tag("reason", reason)
+                    .register(registry)).increment();
+        }
+    }
+
+    /**
+     * Records a trade answered with the response of an earlier trade with the same client order id.
+     */
+    public void recordReplay() {
+        tradesReplayed.increment();
+    }
+
+    /**
+     * Records the time to decode one feed message.
+     *
+     * @param nanos the decode time in nanoseconds
+     */
+    public void recordFeedDecode(long nanos) {
+        feedDecode.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time to publish a decoded tick to the price store and its listeners.
+     *
+     * @param nanos the apply time in nanoseconds
+     */
+    public void recordFeedApply(long nanos) {
+        feedApply.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a lost feed connection.
+     */
+    public void recordFeedDisconnect() {
+        feedDisconnects.increment();
+    }
+
+    /**
+     * Records the time from losing the feed connection to the first live tick after reconnecting.
+     *
+     * @param nanos the recovery time in nanoseconds
+     */
+    public void recordFeedRecovery(long nanos) {
+        feedRecovery.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time from publishing a tick to sending it to a price stream client.
+     *
+     * @param millis the time in milliseconds
+     */
+    public void recordTickToPublish(long millis) {
+        tickToPublish.record(millis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,43 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Candle;
+
+/**
+ * A TradingStrategy is run by the {@link BacktestEngine} over recorded ticks. It is called back for every tick and
+ * every completed candle and trades through its {@link BacktestContext}.
+ * <p>
+ * Every backtest run gets its own strategy instance and context, and all callbacks of a run come from one thread,
+ * so a strategy may keep plain mutable state.
+ * </p>
+ */
+public interface TradingStrategy {
+
+    /**
+     * Called once before the first tick.
+     *
+     * @param context the context of the run
+     */
+    default void onStart(BacktestContext context) {
+    }
+
+    /**
+     * Called for every tick, after the context has been updated to its price.
+     *
+     * @param context the context of the run
+     * @param symbolId the id of the symbol in the context
+     * @param timestamp the time of the tick in epoch milliseconds
+     * @param price the tick price
+     */
+    void onTick(BacktestContext context, int symbolId, long timestamp, double price);
+
+    /**
+     * Called when the first tick of a new interval completes the candle of the previous one, before that tick is
+     * passed to {@link #onTick}.
+     *
+     * @param context the context of the run
+     * @param symbolId the id of the symbol in the context
+     * @param candle the completed candle
+     */
+    default void onCandle(BacktestContext context, int symbolId, Candle candle) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.PortfolioValuation;
+
+/**
+ * A ValuationListener is notified whenever the valuation of a watched account changes, either because a price it
+ * holds moved or because the account traded.
+ * <p>
+ * Listeners are called on the shard thread owning the account, in the order the changes happened, so
+ * implementations must only record the valuation or hand it off and return quickly.
+ * </p>
+ */
+public interface ValuationListener {
+
+    /**
+     * Called after the valuation of a watched account changed.
+     *
+     * @param accountId the id of the account
+     * @param valuation the new valuation
+     */
+    void onValuation(String accountId, PortfolioValuation valuation);
+}
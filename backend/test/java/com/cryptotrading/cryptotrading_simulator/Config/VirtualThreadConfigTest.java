@@ -0,0 +1,50 @@
+package com.cryptotrading.cryptotrading_simulator.Config;
+
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that virtual threads are only configured with their profile, and only used where the runtime has them.
+ */
+class VirtualThreadConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadConfig.class);
+
+    @Test
+    void isInactiveWithoutItsProfile() {
+        contextRunner.run(context ->
+                assertEquals(0, context.getBeansOfType(TomcatProtocolHandlerCustomizer.class).size()));
+    }
+
+    @Test
+    void customizesTomcatWithItsProfile() {
+        contextRunner.withPropertyValues("spring.profiles.active=" + VirtualThreadConfig.PROFILE)
+                .run(context ->
+                        assertEquals(1, context.getBeansOfType(TomcatProtocolHandlerCustomizer.class).size()));
+    }
+
+    @Test
+    void runsRequestsOnVirtualThreadsOnlyWhereTheRuntimeHasThem() throws Exception {
+        Http11NioProtocol protocol = new Http11NioProtocol();
+        new VirtualThreadConfig().virtualThreadExecutor().customize(protocol);
+
+        if (Runtime.version().feature() < 21) {
+            assertNull(protocol.getExecutor());
+            return;
+        }
+        ExecutorService executor = (ExecutorService) protocol.getExecutor();
+        Future<Object> virtual = executor.submit(() ->
+                Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+        assertEquals(Boolean.TRUE, virtual.get());
+        executor.shutdown();
+    }
+}
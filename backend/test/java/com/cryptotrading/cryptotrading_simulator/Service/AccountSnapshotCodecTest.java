@@ -0,0 +1,63 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the {@link AccountSnapshotCodec} restores the risk state of an account, and derives it for snapshots
+ * written before it was stored.
+ */
+class AccountSnapshotCodecTest {
+
+    private static final int VERSION = 7;
+
+    @Test
+    void restoresThePeakTotalValue() throws IOException {
+        SymbolTable symbols = new SymbolTable();
+        symbols.intern("BTC");
+        Account account = new Account(10000.0, 10, symbols);
+        CryptoService.applyBuy(account, symbols.idOf("BTC"), 0.1, 40000.0, 1);
+        account.setPeakTotalValue(12500.0);
+
+        Account restored = AccountSnapshotCodec.read(input(account, symbols), VERSION, "alice", 10, symbols);
+
+        assertEquals(12500.0, restored.getPeakTotalValue());
+        assertEquals(account.getBalanceUnits(), restored.getBalanceUnits());
+        assertEquals(FixedPoint.toUnits(0.1), restored.getQuantityUnits(symbols.idOf("BTC")));
+    }
+
+    @Test
+    void startsThePeakOfOlderSnapshotsAtTheValueAtCost() throws IOException {
+        SymbolTable symbols = new SymbolTable();
+        symbols.intern("BTC");
+        Account account = new Account(10000.0, 10, symbols);
+        CryptoService.applyBuy(account, symbols.idOf("BTC"), 0.1, 40000.0, 1);
+        CryptoService.applySell(account, symbols.idOf("BTC"), 0.05, 30000.0, 2);
+
+        // A version 6 account is the same, without the trailing peak
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AccountSnapshotCodec.write(new DataOutputStream(bytes), account, symbols::symbolOf);
+        byte[] version6 = Arrays.copyOf(bytes.toByteArray(), bytes.size() - Double.BYTES);
+        Account restored = AccountSnapshotCodec.read(new DataInputStream(new ByteArrayInputStream(version6)), 6,
+                "alice", 10, symbols);
+
+        assertEquals(9500.0, restored.getPeakTotalValue(), 1e-9);
+    }
+
+    private static DataInputStream input(Account account, SymbolTable symbols) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AccountSnapshotCodec.write(new DataOutputStream(bytes), account, symbols::symbolOf);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
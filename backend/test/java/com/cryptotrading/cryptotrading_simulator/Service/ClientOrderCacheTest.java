@@ -0,0 +1,83 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link ClientOrderCache} answers lookups per account and stays within its bounds.
+ */
+class ClientOrderCacheTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    void remembersTradesPerAccountAndClientOrderId() {
+        ClientOrderCache cache = new ClientOrderCache(1000, 10, 100);
+        TradeResponse alice = response();
+        TradeResponse bob = response();
+        cache.put("alice", "order-1", alice, null, 0);
+        cache.put("bob", "order-1", bob, null, 0);
+
+        assertSame(alice, cache.get("alice", "order-1", 0).response);
+        assertSame(bob, cache.get("bob", "order-1", 0).response);
+        assertNull(cache.get("alice", "order-2", 0));
+        assertNull(cache.get("carol", "order-1", 0));
+    }
+
+    @Test
+    void forgetsTradesAfterTheTimeToLive() {
+        ClientOrderCache cache = new ClientOrderCache(1000, 10, 100);
+        cache.put("alice", "order-1", response(), null, 0);
+        cache.put("alice", "order-2", response(), null, 500 * MILLI);
+
+        assertNotNull(cache.get("alice", "order-1", 1000 * MILLI));
+        assertNull(cache.get("alice", "order-1", 1000 * MILLI + 1));
+        assertNotNull(cache.get("alice", "order-2", 1000 * MILLI + 1));
+        assertNull(cache.get("alice", "order-2", 1500 * MILLI + 1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void forgetsTheOldestTradesOfAFullAccount() {
+        ClientOrderCache cache = new ClientOrderCache(1000, 3, 100);
+        for (int i = 0; i < 5; i++) {
+            cache.put("alice", "order-" + i, response(), null, i);
+        }
+        cache.put("bob", "order-0", response(), null, 5);
+
+        assertNull(cache.get("alice", "order-0", 5));
+        assertNull(cache.get("alice", "order-1", 5));
+        for (int i = 2; i < 5; i++) {
+            assertNotNull(cache.get("alice", "order-" + i, 5));
+        }
+        assertNotNull(cache.get("bob", "order-0", 5));
+    }
+
+    @Test
+    void staysWithinItsBoundsAtAnyRate() {
+        ClientOrderCache cache = new ClientOrderCache(60_000, 50, 200);
+        SplittableRandom random = new SplittableRandom(7);
+        String accountId = null;
+        for (int i = 0; i < 100_000; i++) {
+            accountId = "account-" + random.nextInt(20);
+            cache.put(accountId, "order-" + i, response(), null, i);
+            assertTrue(cache.size() <= 200);
+        }
+
+        // The newest trade of the shard is still remembered
+        assertNotNull(cache.get(accountId, "order-99999", 100_000));
+        assertNull(cache.get(accountId, "order-0", 100_000));
+    }
+
+    private static TradeResponse response() {
+        return new TradeResponse(TradeResponse.REASON_INSUFFICIENT_FUNDS, "Insufficient funds", 0.0, 0.0);
+    }
+}
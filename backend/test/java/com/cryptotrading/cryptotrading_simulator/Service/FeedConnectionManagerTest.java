@@ -0,0 +1,96 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs the Kraken client against a {@link StubWebSocketServer} to check that the {@link FeedConnectionManager}
+ * reconnects after the connection drops or goes silent, and hands the prices to the simulator and back.
+ */
+class FeedConnectionManagerTest {
+
+    /* Heartbeat timeout of the client; the stub sends a heartbeat every 100 ms */
+    private static final long HEARTBEAT_TIMEOUT_MILLIS = 1000;
+
+    private StubWebSocketServer server;
+    private CryptoService cryptoService;
+    private KrakenWebSocketClient client;
+    private int btc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubWebSocketServer();
+        TradingProperties properties = new TradingProperties();
+        properties.getEngine().setShards(1);
+        properties.getHistory().setCapacity(100);
+        properties.getPersistence().setEnabled(false);
+        cryptoService = new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        btc = cryptoService.getPriceStore().idOf("BTC");
+        client = new KrakenWebSocketClient(cryptoService, server.getUri(), 50, 200, HEARTBEAT_TIMEOUT_MILLIS,
+                60000, 64, 64, 16);
+        client.start();
+        await("the client connects", () -> server.getConnectionCount() == 1);
+        server.sendTicker("XBT/USD", 50000.0);
+        await("BTC is priced by the feed", () -> cryptoService.isLive(btc));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.stop();
+        server.close();
+        cryptoService.shutdown();
+    }
+
+    @Test
+    void failsOverToTheSimulatorWhenTheConnectionDrops() throws Exception {
+        server.dropConnection();
+
+        await("BTC is handed to the simulator", () -> !cryptoService.isLive(btc));
+        await("the client reconnects", () -> server.getConnectionCount() == 2);
+    }
+
+    @Test
+    void reconnectsWhenTheFeedGoesSilent() throws Exception {
+        server.setSilent(true);
+
+        await("the watchdog closes the silent connection", () -> server.isClosed(0));
+        // The watchdog closes the connection before it hands the symbols to the simulator
+        await("BTC is handed to the simulator", () -> !cryptoService.isLive(btc));
+        server.setSilent(false);
+        await("the client reconnects", () -> server.getConnectionCount() == 2);
+        assertFalse(server.isClosed(1));
+    }
+
+    @Test
+    void failsBackFromTheSimulatorWhenTheFeedRecovers() throws Exception {
+        server.dropConnection();
+        await("BTC is handed to the simulator", () -> !cryptoService.isLive(btc));
+        await("the client reconnects", () -> server.getConnectionCount() == 2);
+
+        server.sendTicker("XBT/USD", 51000.0);
+
+        await("BTC is priced by the feed again", () -> cryptoService.isLive(btc));
+        assertEquals(51000.0, cryptoService.getPriceStore().get(btc).getPrice());
+    }
+
+    private static void await(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Timed out waiting until " + description);
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
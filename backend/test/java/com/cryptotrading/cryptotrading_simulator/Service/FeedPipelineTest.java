@@ -0,0 +1,113 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the single-producer single-consumer rings of the {@link FeedPipeline} hand every accepted frame
+ * through in order, across many wraps of small rings, and drop frames only while the frame ring is full.
+ */
+class FeedPipelineTest {
+
+    private static final String HEARTBEAT = "{\"event\":\"heartbeat\"}";
+
+    private CryptoService cryptoService;
+    private FeedPipeline pipeline;
+    private int btc;
+
+    @BeforeEach
+    void setUp() {
+        TradingProperties properties = new TradingProperties();
+        properties.getEngine().setShards(1);
+        properties.getHistory().setCapacity(100);
+        properties.getPersistence().setEnabled(false);
+        cryptoService = new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), new RiskService(properties), 0);
+        btc = cryptoService.getPriceStore().idOf("BTC");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+        cryptoService.shutdown();
+    }
+
+    @Test
+    void dropsFramesWhileTheFrameRingIsFull() {
+        pipeline = pipeline(4, new AtomicInteger());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.offer(ticker(1000.0 + i)));
+        }
+        assertFalse(pipeline.offer(ticker(2000.0)));
+        assertFalse(pipeline.offer(HEARTBEAT));
+
+        assertEquals(4, pipeline.getDecodeBacklog());
+        assertEquals(2, pipeline.getDropped());
+    }
+
+    @Test
+    void publishesEveryTickInOrderThroughSmallRings() throws InterruptedException {
+        List<Double> published = Collections.synchronizedList(new ArrayList<>());
+        cryptoService.getPriceStore().addListener((symbolId, tick) -> {
+            if (symbolId == btc) {
+                published.add(tick.getPrice());
+            }
+        });
+        AtomicInteger ticks = new AtomicInteger();
+        pipeline = pipeline(8, ticks);
+        pipeline.start();
+
+        List<Double> sent = new ArrayList<>();
+        int retries = 0;
+        for (int i = 0; i < 20000; i++) {
+            double price = 1000.0 + i;
+            boolean heartbeat = i % 10 == 9;
+            String frame = heartbeat ? HEARTBEAT : ticker(price);
+            // Retry until the decode stage frees a slot, so the rings wrap many times without losing a frame
+            while (!pipeline.offer(frame)) {
+                retries++;
+                Thread.onSpinWait();
+            }
+            if (!heartbeat) {
+                sent.add(price);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (published.size() < sent.size()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Only " + published.size() + " of " + sent.size() + " ticks were published");
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(sent, new ArrayList<>(published));
+        assertEquals(sent.size(), ticks.get());
+        assertEquals(retries, pipeline.getDropped());
+    }
+
+    private FeedPipeline pipeline(int capacity, AtomicInteger ticks) {
+        KrakenTickerDecoder decoder = new KrakenTickerDecoder(Map.of("XBT/USD", btc));
+        return new FeedPipeline(cryptoService, decoder, symbolId -> ticks.incrementAndGet(), capacity, capacity, 4);
+    }
+
+    private static String ticker(double price) {
+        return "[340,{\"c\":[\"" + price + "\",\"0.5\"],\"o\":[\"" + price + "\",\"" + price + "\"]},\"ticker\","
+                + "\"XBT/USD\"]";
+    }
+}
@@ -0,0 +1,109 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.LeaderboardEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the treaps of the {@link Leaderboard} against a sorted list of the same scores, through random sequences
+ * of immediate and deferred moves.
+ */
+class LeaderboardTest {
+
+    private static final String[] METRICS = {Leaderboard.TOTAL_VALUE, Leaderboard.REALIZED_PROFIT_LOSS};
+
+    @Test
+    void ranksLikeASortedListThroughRandomMoves() {
+        for (long seed = 0; seed < 20; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            Leaderboard leaderboard = new Leaderboard();
+            Map<String, double[]> scores = new HashMap<>();
+            for (int step = 0; step < 2000; step++) {
+                String accountId = "account-" + random.nextInt(200);
+                // Few distinct scores, so ties are broken by account id often
+                double totalValue = random.nextInt(50) * 100.0;
+                double realizedProfitLoss = random.nextInt(20) * 10.0 - 100.0;
+                if (random.nextBoolean()) {
+                    leaderboard.update(accountId, totalValue, realizedProfitLoss);
+                } else {
+                    leaderboard.defer(accountId, totalValue, realizedProfitLoss);
+                }
+                scores.put(accountId, new double[]{totalValue, realizedProfitLoss});
+                if (step % 100 == 99) {
+                    assertMatches(scores, leaderboard, random);
+                }
+            }
+            assertMatches(scores, leaderboard, random);
+        }
+    }
+
+    @Test
+    void defersTickMovesUntilTheNextQuery() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("a", 100.0, 0.0);
+        leaderboard.update("b", 200.0, 0.0);
+        long version = leaderboard.getVersion();
+
+        for (int tick = 1; tick <= 1000; tick++) {
+            leaderboard.defer("a", 100.0 + tick, 0.0);
+            leaderboard.defer("b", 200.0 - tick, 0.0);
+        }
+
+        // Every tick is visible to the pusher's version check, but each account is queued only once
+        assertEquals(version + 2000, leaderboard.getVersion());
+        assertEquals(2, leaderboard.deferredCount());
+        List<LeaderboardEntry> top = leaderboard.top(Leaderboard.TOTAL_VALUE, 2);
+        assertEquals(0, leaderboard.deferredCount());
+        assertEquals("a", top.get(0).getAccountId());
+        assertEquals(1100.0, top.get(0).getTotalValue());
+        assertEquals(-800.0, top.get(1).getTotalValue());
+    }
+
+    @Test
+    void tradeMoveOverridesADeferredTickMove() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("a", 100.0, 0.0);
+        leaderboard.defer("a", 150.0, 0.0);
+
+        leaderboard.update("a", 120.0, 5.0);
+
+        LeaderboardEntry entry = leaderboard.entryOf("a");
+        assertEquals(120.0, entry.getTotalValue());
+        assertEquals(5.0, entry.getRealizedProfitLoss());
+        assertNull(leaderboard.entryOf("b"));
+    }
+
+    private static void assertMatches(Map<String, double[]> scores, Leaderboard leaderboard,
+                                      SplittableRandom random) {
+        assertEquals(scores.size(), leaderboard.size());
+        for (int metric = 0; metric < METRICS.length; metric++) {
+            int index = metric;
+            List<String> sorted = new ArrayList<>(scores.keySet());
+            sorted.sort(Comparator.comparingDouble((String id) -> -scores.get(id)[index])
+                    .thenComparing(Comparator.naturalOrder()));
+
+            List<LeaderboardEntry> top = leaderboard.top(METRICS[metric], 25);
+            assertEquals(Math.min(25, sorted.size()), top.size());
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(sorted.get(i), top.get(i).getAccountId(), METRICS[metric] + " rank " + (i + 1));
+                assertEquals(i + 1, top.get(i).getRank());
+            }
+            for (int i = 0; i < 20; i++) {
+                int position = random.nextInt(sorted.size());
+                String accountId = sorted.get(position);
+                double score = Leaderboard.score(METRICS[metric], leaderboard.entryOf(accountId));
+                assertEquals(scores.get(accountId)[index], score);
+                assertEquals(position, leaderboard.countAhead(METRICS[metric], score, accountId));
+            }
+        }
+    }
+}
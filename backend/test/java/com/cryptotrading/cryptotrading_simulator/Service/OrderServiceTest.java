@@ -0,0 +1,74 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the risk checks of resting orders and that only accepted orders create accounts.
+ */
+class OrderServiceTest {
+
+    private CryptoService cryptoService;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        TradingProperties properties = new TradingProperties();
+        properties.getEngine().setShards(1);
+        properties.getHistory().setCapacity(100);
+        properties.getPersistence().setEnabled(false);
+        properties.getRisk().setMaxOrdersPerSecond(1);
+        properties.getRisk().setPriceBandPercent(5);
+        RiskService riskService = new RiskService(properties);
+        cryptoService = new CryptoService(properties, new PersistenceService(properties),
+                new TradingMetrics(new SimpleMeterRegistry()), riskService, 0);
+        orderService = new OrderService(cryptoService, riskService);
+        cryptoService.updateCryptoPrice("ETH", 2000.0, 0.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptoService.shutdown();
+    }
+
+    @Test
+    void rejectedOrdersCreateNoAccount() {
+        Order order = orderService.placeOrder("alice", limitBuy(1000.0));
+
+        assertEquals(Order.STATUS_REJECTED, order.getStatus());
+        assertEquals(RiskEngine.describe(TradeResponse.REASON_PRICE_BAND), order.getMessage());
+        assertNull(cryptoService.getAccount("alice"));
+        assertNull(orderService.getOpenOrders("alice"));
+    }
+
+    @Test
+    void acceptedOrdersCreateTheAccountAndCountAgainstItsOrderRate() {
+        Order first = orderService.placeOrder("alice", limitBuy(1950.0));
+        Order second = orderService.placeOrder("alice", limitBuy(1960.0));
+
+        assertEquals(Order.STATUS_OPEN, first.getStatus());
+        assertNotNull(cryptoService.getAccount("alice"));
+        assertEquals(Order.STATUS_REJECTED, second.getStatus());
+        assertEquals(1, orderService.getOpenOrders("alice").size());
+    }
+
+    private static TradeRequest limitBuy(double limitPrice) {
+        TradeRequest request = new TradeRequest();
+        request.setType("buy");
+        request.setSymbol("ETH");
+        request.setAmount(0.5);
+        request.setOrderType(Order.TYPE_LIMIT);
+        request.setLimitPrice(limitPrice);
+        return request;
+    }
+}
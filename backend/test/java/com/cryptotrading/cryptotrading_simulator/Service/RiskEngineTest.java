@@ -0,0 +1,139 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.SymbolTable;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the limits of the {@link RiskEngine}, with the order rate bucket driven by synthetic clock readings.
+ */
+class RiskEngineTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void admitsABurstAndThenRefillsAtTheRate() {
+        RiskEngine engine = new RiskEngine(0, 0, 5, 0, 0);
+        Account account = newAccount();
+        long start = 123 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(engine.checkOrderRate(account, start));
+        }
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, start));
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, start + SECOND / 5 - 1));
+
+        // Every interval of 1 / rate frees room for one more order
+        assertNull(engine.checkOrderRate(account, start + SECOND / 5));
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, start + SECOND / 5));
+
+        // A full second refills the whole burst
+        long later = start + 2 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertNull(engine.checkOrderRate(account, later));
+        }
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, later));
+    }
+
+    @Test
+    void admitsOneOrderPerIntervalBelowOneOrderPerSecond() {
+        RiskEngine engine = new RiskEngine(0, 0, 0.5, 0, 0);
+        Account account = newAccount();
+        // System.nanoTime() may be negative, and must not be confused with the never used bucket
+        long start = Long.MIN_VALUE + 1;
+
+        assertNull(engine.checkOrderRate(account, start));
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, start + SECOND));
+        assertEquals(TradeResponse.REASON_ORDER_RATE, engine.checkOrderRate(account, start + 2 * SECOND - 1));
+        assertNull(engine.checkOrderRate(account, start + 2 * SECOND));
+    }
+
+    @Test
+    void ignoresTheOrderRateWhenUnlimited() {
+        RiskEngine engine = new RiskEngine(0, 0, 0, 0, 0);
+        Account account = newAccount();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(engine.checkOrderRate(account, 0));
+        }
+        assertEquals(RiskEngine.BUCKET_FULL, account.getOrderBucketNanos());
+    }
+
+    @Test
+    void checksOrderAndPositionNotional() {
+        RiskEngine engine = new RiskEngine(1000, 5000, 0, 0, 0);
+        long price = FixedPoint.toUnits(100.0);
+
+        assertNull(engine.checkOrder(true, price, FixedPoint.toUnits(1000.0), 0, FixedPoint.toUnits(10.0),
+                Double.NaN, 0));
+        assertEquals(TradeResponse.REASON_MAX_ORDER_NOTIONAL, engine.checkOrder(true, price,
+                FixedPoint.toUnits(1000.01), 0, FixedPoint.toUnits(10.0001), Double.NaN, 0));
+        // Sells are bound by the order notional, but may always reduce a position
+        assertEquals(TradeResponse.REASON_MAX_ORDER_NOTIONAL, engine.checkOrder(false, price,
+                FixedPoint.toUnits(2000.0), FixedPoint.toUnits(80.0), FixedPoint.toUnits(20.0), Double.NaN, 0));
+        assertNull(engine.checkOrder(false, price, FixedPoint.toUnits(500.0), FixedPoint.toUnits(80.0),
+                FixedPoint.toUnits(5.0), Double.NaN, 0));
+
+        assertNull(engine.checkOrder(true, price, FixedPoint.toUnits(500.0), FixedPoint.toUnits(45.0),
+                FixedPoint.toUnits(5.0), Double.NaN, 0));
+        assertEquals(TradeResponse.REASON_MAX_POSITION, engine.checkOrder(true, price, FixedPoint.toUnits(500.0),
+                FixedPoint.toUnits(46.0), FixedPoint.toUnits(5.0), Double.NaN, 0));
+    }
+
+    @Test
+    void blocksBuysBeyondTheDrawdownFromThePeak() {
+        RiskEngine engine = new RiskEngine(0, 0, 0, 20, 0);
+        Account account = newAccount();
+        engine.onValuation(account);
+        assertEquals(10000.0, account.getPeakTotalValue());
+
+        long price = FixedPoint.toUnits(100.0);
+        long quantity = FixedPoint.toUnits(1.0);
+        assertNull(engine.checkOrder(true, price, price, 0, quantity, 8000.0, account.getPeakTotalValue()));
+        assertEquals(TradeResponse.REASON_MAX_DRAWDOWN,
+                engine.checkOrder(true, price, price, 0, quantity, 7999.0, account.getPeakTotalValue()));
+        assertNull(engine.checkOrder(false, price, price, quantity, quantity, 7999.0, account.getPeakTotalValue()));
+    }
+
+    @Test
+    void blocksBuysOfANewAccountBelowItsInitialBalance() {
+        RiskEngine engine = new RiskEngine(0, 0, 0, 20, 0);
+        Account account = newAccount();
+        long price = FixedPoint.toUnits(100.0);
+        long quantity = FixedPoint.toUnits(1.0);
+
+        // No valuation has moved the peak yet
+        assertEquals(TradeResponse.REASON_MAX_DRAWDOWN,
+                engine.checkOrder(true, price, price, 0, quantity, 7999.0, account.getPeakTotalValue()));
+    }
+
+    @Test
+    void checksPricesAgainstTheBandAroundTheLastTick() {
+        RiskEngine engine = new RiskEngine(0, 0, 0, 0, 10);
+
+        assertNull(engine.checkPriceBand(110.0, 100.0));
+        assertNull(engine.checkPriceBand(90.0, 100.0));
+        assertEquals(TradeResponse.REASON_PRICE_BAND, engine.checkPriceBand(110.5, 100.0));
+        assertEquals(TradeResponse.REASON_PRICE_BAND, engine.checkPriceBand(89.5, 100.0));
+        assertNull(new RiskEngine(0, 0, 0, 0, 0).checkPriceBand(1000.0, 100.0));
+    }
+
+    @Test
+    void disablesEveryCheckWithZeroLimits() {
+        RiskEngine engine = new RiskEngine(0, 0, 0, 0, 0);
+        long price = FixedPoint.toUnits(1e6);
+        long quantity = FixedPoint.toUnits(1e3);
+
+        assertNull(engine.checkOrder(true, price, FixedPoint.multiply(price, quantity), FixedPoint.toUnits(1e3),
+                quantity, 1.0, 1e9));
+    }
+
+    private static Account newAccount() {
+        return new Account(10000.0, 10, new SymbolTable());
+    }
+}
@@ -0,0 +1,261 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A StubWebSocketServer stands in for the Kraken WebSocket API in tests.
+ * <p>
+ * It accepts any number of connections on a loopback port, answers the opening handshake, discards what the client
+ * sends and sends a heartbeat every 100 ms on the newest connection. Tests make it send ticker frames, drop the
+ * connection without a close frame or go silent while the connection stays open. Only unfragmented frames are
+ * supported, which is all the feed client sends.
+ * </p>
+ */
+final class StubWebSocketServer implements Closeable {
+
+    /* Appended to the client's key to compute the accept header, per RFC 6455 */
+    private static final String HANDSHAKE_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /* Frame opcodes */
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_CLOSE = 0x8;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionThreads;
+    private final ScheduledExecutorService heartbeats;
+
+    /* Accepted connections in order, including closed ones */
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+    /* Whether the server stopped sending heartbeats */
+    private volatile boolean silent;
+
+    /**
+     * Constructs a StubWebSocketServer listening on a free loopback port.
+     *
+     * @throws IOException if the port cannot be opened
+     */
+    StubWebSocketServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.connectionThreads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-websocket");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stub-websocket-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connectionThreads.execute(this::accept);
+        heartbeats.scheduleAtFixedRate(this::heartbeat, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the URI clients connect to.
+     *
+     * @return the ws URI of the server
+     */
+    String getUri() {
+        return "ws://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort() + "/";
+    }
+
+    /**
+     * Gets the number of connections accepted so far.
+     *
+     * @return the number of connections, including closed ones
+     */
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Checks whether an accepted connection is closed, by either side.
+     *
+     * @param index the index of the connection in accept order
+     * @return true if the connection is closed
+     */
+    boolean isClosed(int index) {
+        return connections.get(index).isClosed();
+    }
+
+    /**
+     * Sends a ticker frame for a pair on the newest connection.
+     *
+     * @param pair the Kraken pair, e.g. XBT/USD
+     * @param price the last trade price
+     * @throws IOException if the frame cannot be sent
+     */
+    void sendTicker(String pair, double price) throws IOException {
+        String frame = "[340,{\"c\":[\"" + price + "\",\"0.5\"],\"o\":[\"" + price + "\",\"" + price + "\"]},"
+                + "\"ticker\",\"" + pair + "\"]";
+        send(newest(), OPCODE_TEXT, frame.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Drops the newest connection without a close frame, as a lost network path would.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    void dropConnection() throws IOException {
+        newest().close();
+    }
+
+    /**
+     * Stops or resumes the heartbeats while the connections stay open.
+     *
+     * @param silent whether the server stays silent
+     */
+    void setSilent(boolean silent) {
+        this.silent = silent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        heartbeats.shutdownNow();
+        connectionThreads.shutdownNow();
+        serverSocket.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    private Socket newest() {
+        return connections.get(connections.size() - 1);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    /* Answers the handshake, then reads and discards frames until the connection is closed */
+    private void serve(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            String key = readHandshakeKey(in);
+            String accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                    .digest((key + HANDSHAKE_GUID).getBytes(StandardCharsets.US_ASCII)));
+            OutputStream out = socket.getOutputStream();
+            synchronized (socket) {
+                out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                        + "Upgrade: websocket\r\n"
+                        + "Connection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+            connections.add(socket);
+            while (true) {
+                int opcode = in.readUnsignedByte() & 0x0F;
+                int second = in.readUnsignedByte();
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = in.readUnsignedShort();
+                } else if (length == 127) {
+                    length = in.readLong();
+                }
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    in.readFully(mask);
+                }
+                in.readFully(new byte[(int) length]);
+                if (opcode == OPCODE_CLOSE) {
+                    send(socket, OPCODE_CLOSE, new byte[0]);
+                    socket.close();
+                    return;
+                }
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    /* Reads the HTTP upgrade request and returns its Sec-WebSocket-Key header */
+    private static String readHandshakeKey(InputStream in) throws IOException {
+        String key = null;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            throw new IOException("Handshake without Sec-WebSocket-Key");
+        }
+        return key;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed during handshake");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private void heartbeat() {
+        if (silent || connections.isEmpty()) {
+            return;
+        }
+        try {
+            send(newest(), OPCODE_TEXT, "{\"event\":\"heartbeat\"}".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // the connection was dropped; the next one gets the heartbeats
+        }
+    }
+
+    /* Sends an unmasked, unfragmented frame, as servers do */
+    private static void send(Socket socket, int opcode, byte[] payload) throws IOException {
+        synchronized (socket) {
+            if (socket.isClosed()) {
+                throw new IOException("Connection closed");
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length);
+            }
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link TradeJournal} replays what it was given, across segment rollovers, and stops at a corrupted
+ * record.
+ */
+class TradeJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryRecordType() {
+        TradeJournal journal = new TradeJournal(directory, 0, 1, 1 << 16);
+        journal.appendTrade(TradeJournal.TYPE_BUY, "alice", "BTC", 0.5, 30000.0, 1);
+        journal.appendTrade(TradeJournal.TYPE_SELL, "alice", "BTC", 0.25, 31000.0, 2);
+        journal.appendBatch("bob", 2, new byte[]{TradeJournal.TYPE_BUY, TradeJournal.TYPE_SELL},
+                new String[]{"ETH", "SOL"}, new double[]{1.0, 3.0}, new double[]{2000.0, 150.0}, 3);
+        journal.appendOrder(new Order(7, "bob", "buy", "ETH", 2.0, Order.TYPE_LIMIT, 1900.0, null, 4));
+        journal.appendOrder(new Order(8, "bob", "sell", "ETH", 1.0, Order.TYPE_STOP_LIMIT, 1800.0, 1850.0, 5));
+        journal.appendOrderTriggered("bob", 8, 6);
+        journal.appendOrderDone("bob", 7, 7);
+        journal.appendReset("alice", 8);
+        journal.flush();
+
+        List<String> records = new ArrayList<>();
+        long count = TradeJournal.replay(directory, 0, 1, 0, true, recorder(records));
+
+        assertEquals(8, count);
+        assertEquals(List.of(
+                "trade 1 alice BTC 0.5 30000.0 1",
+                "trade 2 alice BTC 0.25 31000.0 2",
+                "trade 1 bob ETH 1.0 2000.0 3",
+                "trade 2 bob SOL 3.0 150.0 3",
+                "order 7 bob buy ETH 2.0 limit 1900.0 null 4",
+                "order 8 bob sell ETH 1.0 stop_limit 1800.0 1850.0 5",
+                "triggered bob 8 6",
+                "done bob 7 7",
+                "reset alice 8"), records);
+    }
+
+    @Test
+    void replaysAcrossSegmentsFromAPosition() {
+        TradeJournal journal = new TradeJournal(directory, 2, 5, 1024);
+        long middle = 0;
+        for (int i = 0; i < 500; i++) {
+            if (i == 250) {
+                middle = journal.getWritePosition();
+            }
+            journal.appendTrade(TradeJournal.TYPE_BUY, "account-" + i, "ETH", i, 2.5, i);
+        }
+        journal.flush();
+
+        List<String> records = new ArrayList<>();
+        assertEquals(500, TradeJournal.replay(directory, 2, 5, 0, true, recorder(records)));
+        assertTrue(middle >>> 32 > 0, "the records span several segments");
+        for (int i = 0; i < 500; i++) {
+            assertEquals("trade 1 account-" + i + " ETH " + (double) i + " 2.5 " + i, records.get(i));
+        }
+
+        records.clear();
+        assertEquals(250, TradeJournal.replay(directory, 2, 5, middle, true, recorder(records)));
+        assertEquals("trade 1 account-250 ETH 250.0 2.5 250", records.get(0));
+    }
+
+    @Test
+    void stopsReplayAtACorruptedRecord() throws IOException {
+        TradeJournal journal = new TradeJournal(directory, 0, 1, 1 << 16);
+        long corrupted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 6) {
+                corrupted = journal.getWritePosition();
+            }
+            journal.appendTrade(TradeJournal.TYPE_SELL, "alice", "BTC", i, 100.0, i);
+        }
+        journal.flush();
+
+        // Flip a bit in the symbol of the seventh record
+        try (FileChannel channel = FileChannel.open(TradeJournal.segmentPath(directory, 0, 1, 0),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            long offset = (int) corrupted + 8 + 1 + 8 + 2 + "alice".length() + 2;
+            channel.read(buffer, offset);
+            buffer.put(0, (byte) (buffer.get(0) ^ 1));
+            buffer.rewind();
+            channel.write(buffer, offset);
+        }
+
+        List<String> records = new ArrayList<>();
+        assertEquals(6, TradeJournal.replay(directory, 0, 1, 0, true, recorder(records)));
+        assertEquals("trade 2 alice BTC 5.0 100.0 5", records.get(5));
+    }
+
+    @Test
+    void completesAppendsWithTheNextFlush() {
+        TradeJournal journal = new TradeJournal(directory, 0, 1, 1 << 16);
+        CompletableFuture<Void> first = journal.appendReset("alice", 1);
+        CompletableFuture<Void> second = journal.appendOrderDone("alice", 3, 2);
+        assertFalse(first.isDone());
+
+        journal.flush();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(journal.appendReset("alice", 3).isDone());
+    }
+
+    @Test
+    void completesAppendsOfFailedFlushesWithTheNextFlushThatSucceeds() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<MappedByteBuffer> forced = new ArrayList<>();
+        TradeJournal journal = new TradeJournal(directory, 0, 1, 1024) {
+            @Override
+            void force(MappedByteBuffer buffer) {
+                if (failing.get()) {
+                    throw new UncheckedIOException(new IOException("No space left on device"));
+                }
+                forced.add(buffer);
+                super.force(buffer);
+            }
+        };
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            appends.add(journal.appendTrade(TradeJournal.TYPE_BUY, "account-" + i, "ETH", i, 2.5, i));
+        }
+        assertThrows(UncheckedIOException.class, journal::flush);
+        appends.add(journal.appendReset("alice", 50));
+        assertThrows(UncheckedIOException.class, journal::flush);
+        for (CompletableFuture<Void> append : appends) {
+            assertFalse(append.isDone());
+        }
+
+        failing.set(false);
+        journal.flush();
+
+        for (CompletableFuture<Void> append : appends) {
+            assertTrue(append.isDone());
+            assertFalse(append.isCompletedExceptionally());
+        }
+        // The two segments rolled over from before the failures are forced too, not dropped
+        assertEquals(3, forced.size());
+        assertEquals(51, TradeJournal.replay(directory, 0, 1, 0, true, recorder(new ArrayList<>())));
+    }
+
+    @Test
+    void rejectsStringsTooLongToEncode() {
+        TradeJournal journal = new TradeJournal(directory, 0, 1, 1 << 20);
+        long position = journal.getWritePosition();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> journal.appendReset("x".repeat(TradeJournal.MAX_STRING_BYTES + 1), 1));
+
+        assertEquals(position, journal.getWritePosition());
+        journal.appendReset("x".repeat(TradeJournal.MAX_STRING_BYTES), 2);
+        journal.flush();
+        assertEquals(1, TradeJournal.replay(directory, 0, 1, 0, true, recorder(new ArrayList<>())));
+    }
+
+    private static TradeJournal.ReplayHandler recorder(List<String> records) {
+        return new TradeJournal.ReplayHandler() {
+            @Override
+            public void onTrade(byte type, String accountId, String symbol, double amount, double price,
+                                long nanos) {
+                records.add("trade " + type + " " + accountId + " " + symbol + " " + amount + " " + price + " "
+                        + nanos);
+            }
+
+            @Override
+            public void onReset(String accountId, long nanos) {
+                records.add("reset " + accountId + " " + nanos);
+            }
+
+            @Override
+            public void onOrder(Order order) {
+                records.add("order " + order.getId() + " " + order.getAccountId() + " " + order.getSide() + " "
+                        + order.getSymbol() + " " + order.getAmount() + " " + order.getOrderType() + " "
+                        + order.getLimitPrice() + " " + order.getStopPrice() + " " + order.getCreatedNanos());
+            }
+
+            @Override
+            public void onOrderDone(String accountId, long orderId, long nanos) {
+                records.add("done " + accountId + " " + orderId + " " + nanos);
+            }
+
+            @Override
+            public void onOrderTriggered(String accountId, long orderId, long nanos) {
+                records.add("triggered " + accountId + " " + orderId + " " + nanos);
+            }
+        };
+    }
+}
@@ -0,0 +1,250 @@
+package com.cryptotrading.cryptotrading_simulator.Service;
+
+import com.cryptotrading.cryptotrading_simulator.Config.TradingProperties;
+import com.cryptotrading.cryptotrading_simulator.Model.Account;
+import com.cryptotrading.cryptotrading_simulator.Model.FixedPoint;
+import com.cryptotrading.cryptotrading_simulator.Model.Order;
+import com.cryptotrading.cryptotrading_simulator.Model.TradeRequest;
+import com.cryptotrading.cryptotrading_simulator.Model.Transaction;
+import com.cryptotrading.cryptotrading_simulator.Model.TransactionPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Drives accounts through random sequences of market trades, resting orders, batches, resets and price ticks, and
+ * checks that every account reconciles with its own transaction history and that journal replay rebuilds it.
+ */
+class TradeReconciliationTest {
+
+    private static final double INITIAL_BALANCE = 10000.0;
+    private static final String[] SYMBOLS = {"BTC", "ETH", "SOL", "DOGE"};
+    private static final int ACCOUNTS = 6;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void accountsReconcileWithTheirHistoryAndSurviveReplay() {
+        for (long seed = 0; seed < 5; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            TradingProperties properties = newProperties(directory.resolve("seed-" + seed));
+
+            PersistenceService persistence = new PersistenceService(properties);
+            CryptoService cryptoService = newService(properties, persistence);
+            OrderService orderService = new OrderService(cryptoService, new RiskService(properties));
+            for (int account = 0; account < ACCOUNTS; account++) {
+                cryptoService.resetAccount(accountId(account));
+            }
+            for (int step = 0; step < 1500; step++) {
+                step(random, cryptoService, orderService);
+            }
+            List<String> states = new ArrayList<>();
+            for (int account = 0; account < ACCOUNTS; account++) {
+                String accountId = accountId(account);
+                assertReconciles(cryptoService, accountId, "seed " + seed + " " + accountId);
+                states.add(describe(cryptoService, orderService, accountId));
+            }
+
+            // Crash: the journals are flushed, but no snapshot is taken
+            persistence.close();
+            PersistenceService recoveredPersistence = new PersistenceService(properties);
+            CryptoService recovered = newService(properties, recoveredPersistence);
+            OrderService recoveredOrders = new OrderService(recovered, new RiskService(properties));
+            for (int account = 0; account < ACCOUNTS; account++) {
+                String accountId = accountId(account);
+                assertEquals(states.get(account), describe(recovered, recoveredOrders, accountId),
+                        "seed " + seed + " " + accountId);
+            }
+
+            recovered.shutdown();
+            recoveredPersistence.close();
+            cryptoService.shutdown();
+        }
+    }
+
+    /**
+     * Runs one random operation: a market trade, a sell of a whole position, a resting order, a cancel, a batch, an
+     * account reset or a price tick, which may fill resting orders.
+     */
+    private static void step(SplittableRandom random, CryptoService cryptoService, OrderService orderService) {
+        String accountId = accountId(random.nextInt(ACCOUNTS));
+        String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+        double price = priceOf(cryptoService, symbol);
+        int operation = random.nextInt(100);
+        if (operation < 35) {
+            cryptoService.executeTrade(accountId, request(random.nextBoolean() ? "buy" : "sell", symbol,
+                    affordable(random, price)));
+        } else if (operation < 45) {
+            Account account = cryptoService.getAccount(accountId);
+            long quantity = account.getQuantityUnits(cryptoService.getPriceStore().idOf(symbol));
+            if (quantity > 0) {
+                cryptoService.executeTrade(accountId, request("sell", symbol, FixedPoint.toDouble(quantity)));
+            }
+        } else if (operation < 60) {
+            TradeRequest request = request(random.nextBoolean() ? "buy" : "sell", symbol,
+                    affordable(random, price));
+            // Limit orders rest on the far side of the last tick, stop orders on the near side
+            boolean buy = "buy".equals(request.getType());
+            double distance = 1 + (buy ? -1 : 1) * random.nextDouble(0.05);
+            if (random.nextBoolean()) {
+                request.setOrderType(Order.TYPE_LIMIT);
+                request.setLimitPrice(price * distance);
+            } else {
+                request.setOrderType(Order.TYPE_STOP);
+                request.setStopPrice(price / distance);
+            }
+            orderService.placeOrder(accountId, request);
+        } else if (operation < 65) {
+            List<Order> orders = orderService.getOpenOrders(accountId);
+            if (!orders.isEmpty()) {
+                orderService.cancelOrder(accountId, orders.get(random.nextInt(orders.size())).getId());
+            }
+        } else if (operation < 72) {
+            List<TradeRequest> legs = new ArrayList<>();
+            for (int leg = random.nextInt(1, 4); leg > 0; leg--) {
+                String legSymbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+                legs.add(request(random.nextBoolean() ? "buy" : "sell", legSymbol,
+                        affordable(random, priceOf(cryptoService, legSymbol)) / 2));
+            }
+            cryptoService.executeBatch(accountId, legs);
+        } else if (operation < 73) {
+            cryptoService.resetAccount(accountId);
+        } else {
+            cryptoService.updateCryptoPrice(symbol, price * (1 + random.nextDouble(-0.04, 0.04)), 0.0);
+        }
+    }
+
+    /**
+     * Replays the transaction history of an account from the initial balance and checks that it gives the account's
+     * cash and positions to the unit, its realized profit and loss, and that cash and cost basis add up with the
+     * realized profit and loss to the initial balance.
+     */
+    private static void assertReconciles(CryptoService cryptoService, String accountId, String message) {
+        Account account = cryptoService.getAccount(accountId);
+        int symbolCount = cryptoService.getPriceStore().size();
+        long cash = FixedPoint.toUnits(INITIAL_BALANCE);
+        long[] quantities = new long[symbolCount];
+        double[] costs = new double[symbolCount];
+        double realizedProfitLoss = 0;
+        for (Transaction transaction : history(cryptoService, accountId)) {
+            int symbolId = cryptoService.getPriceStore().idOf(transaction.getSymbol());
+            long quantity = FixedPoint.toUnits(transaction.getAmount());
+            long total = FixedPoint.multiply(FixedPoint.toUnits(transaction.getPrice()), quantity);
+            if ("buy".equals(transaction.getType())) {
+                cash -= total;
+                quantities[symbolId] += quantity;
+                costs[symbolId] += FixedPoint.toDouble(total);
+            } else {
+                double averagePrice = quantities[symbolId] > 0
+                        ? costs[symbolId] / FixedPoint.toDouble(quantities[symbolId]) : transaction.getPrice();
+                double profitLoss = FixedPoint.toDouble(total) - averagePrice * transaction.getAmount();
+                assertEquals(profitLoss, transaction.getProfitLoss(), 1e-6, message);
+                realizedProfitLoss += profitLoss;
+                cash += total;
+                quantities[symbolId] -= quantity;
+                costs[symbolId] = averagePrice * FixedPoint.toDouble(quantities[symbolId]);
+            }
+        }
+
+        assertEquals(cash, account.getBalanceUnits(), message);
+        assertEquals(realizedProfitLoss, account.getRealizedProfitLoss(), 1e-6, message);
+        double costBasis = 0;
+        for (int symbolId = 0; symbolId < symbolCount; symbolId++) {
+            assertEquals(quantities[symbolId], account.getQuantityUnits(symbolId), message);
+            assertEquals(costs[symbolId], account.getPositionCost(symbolId), 1e-6, message);
+            costBasis += account.getPositionCost(symbolId);
+        }
+        assertEquals(INITIAL_BALANCE, FixedPoint.toDouble(account.getBalanceUnits()) + costBasis
+                - account.getRealizedProfitLoss(), 1e-6, message);
+    }
+
+    /**
+     * Describes everything of an account that must survive a restart: cash, positions, realized profit and loss,
+     * transaction history and open orders.
+     */
+    private static String describe(CryptoService cryptoService, OrderService orderService, String accountId) {
+        Account account = cryptoService.getAccount(accountId);
+        assertNotNull(account, accountId);
+        StringBuilder state = new StringBuilder();
+        state.append(account.getBalanceUnits()).append(' ').append(account.getRealizedProfitLoss()).append('\n');
+        for (int symbolId = 0; symbolId < cryptoService.getPriceStore().size(); symbolId++) {
+            if (account.getQuantityUnits(symbolId) != 0 || account.getPositionCost(symbolId) != 0) {
+                state.append(symbolId).append(' ').append(account.getQuantityUnits(symbolId)).append(' ')
+                        .append(account.getPositionCost(symbolId)).append('\n');
+            }
+        }
+        for (Transaction transaction : history(cryptoService, accountId)) {
+            state.append(transaction.getSequence()).append(' ').append(transaction.getType()).append(' ')
+                    .append(transaction.getSymbol()).append(' ').append(transaction.getAmount()).append(' ')
+                    .append(transaction.getPrice()).append(' ').append(transaction.getProfitLoss()).append(' ')
+                    .append(transaction.getTimestamp()).append('\n');
+        }
+        for (Order order : orderService.getOpenOrders(accountId)) {
+            state.append("order ").append(order.getId()).append('\n');
+        }
+        return state.toString();
+    }
+
+    /**
+     * Pages through the transaction history of an account.
+     *
+     * @return the transactions, oldest first
+     */
+    private static List<Transaction> history(CryptoService cryptoService, String accountId) {
+        List<Transaction> transactions = new ArrayList<>();
+        Long before = null;
+        do {
+            TransactionPage page = cryptoService.getTransactions(accountId, before, 500);
+            transactions.addAll(page.getTransactions());
+            before = page.getNextCursor();
+        } while (before != null);
+        Collections.reverse(transactions);
+        return transactions;
+    }
+
+    /* An amount worth up to a fifth of the initial balance, off the fixed-point grid */
+    private static double affordable(SplittableRandom random, double price) {
+        return random.nextDouble(0.001, INITIAL_BALANCE / 5) / price;
+    }
+
+    private static double priceOf(CryptoService cryptoService, String symbol) {
+        PriceSnapshotStore priceStore = cryptoService.getPriceStore();
+        return priceStore.get(priceStore.idOf(symbol)).getPrice();
+    }
+
+    private static TradeRequest request(String type, String symbol, double amount) {
+        TradeRequest request = new TradeRequest();
+        request.setType(type);
+        request.setSymbol(symbol);
+        request.setAmount(amount);
+        return request;
+    }
+
+    private static String accountId(int account) {
+        return "trader-" + account;
+    }
+
+    private static TradingProperties newProperties(Path persistenceDirectory) {
+        TradingProperties properties = new TradingProperties();
+        properties.getEngine().setShards(2);
+        properties.getHistory().setCapacity(100000);
+        properties.getPersistence().setDirectory(persistenceDirectory.toString());
+        properties.getPersistence().setSegmentSizeMb(1);
+        return properties;
+    }
+
+    private static CryptoService newService(TradingProperties properties, PersistenceService persistence) {
+        return new CryptoService(properties, persistence, new TradingMetrics(new SimpleMeterRegistry()),
+                new RiskService(properties), 0);
+    }
+}
@@ -6,16 +6,21 @@ import TradeForm from './Components/TradeForm';
 import TransactionHistory from './Components/TransactionHistory';
 import './App.css';
 
+// Number of recent transactions shown in the history table
+const TRANSACTION_PAGE_SIZE = 50;
+
 function App() {
   // State to store the list of cryptocurrencies
   const [cryptos, setCryptos] = useState([]);
 
-  // State to store account information (balance, holdings, transactions)
+  // State to store account information (balance, holdings)
   const [account, setAccount] = useState({
     balance: 10000, // Starting balance for the account
-    holdings: {}, // Holds user's cryptocurrency amounts (e.g., BTC: 0.5, ETH: 1.2)
-    transactions: [] // Stores transaction history
+    holdings: {} // Holds user's cryptocurrency amounts (e.g., BTC: 0.5, ETH: 1.2)
   });
+
+  // State to store the most recent transactions, newest first
+  const [transactions, setTransactions] = useState([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
 
@@ -23,13 +28,51 @@ function App() {
     // Fetch initial crypto data
     fetchCryptos();
 
-    // Set up polling for price updates
-    const interval = setInterval(() => {
-      fetchCryptos();
-    }, 10000);
+    // Fetch the account and its latest transactions
+    fetchAccount();
+
+    // Subscribe to pushed price updates
+    let socket;
+    let reconnectTimer;
+    let closed = false;
+
+    const connect = () => {
+      socket = new WebSocket('ws://localhost:8080/ws/prices?account=default');
+
+      // Each message carries only the symbols that changed: [symbol, price, change24h, sequence, timestamp],
+      // and the account valuation if it changed
+      socket.onmessage = (event) => {
+        const { t: ticks, v: valuation } = JSON.parse(event.data);
+        if (valuation) {
+          setAccount(prevAccount => ({ ...prevAccount, ...valuation }));
+        }
+        setCryptos(prevCryptos => {
+          const updates = new Map(ticks.map(tick => [tick[0], tick]));
+          return prevCryptos.map(crypto => {
+            const tick = updates.get(crypto.symbol);
+            return tick
+              ? { ...crypto, price: tick[1], change24h: tick[2], sequence: tick[3], timestamp: tick[4] }
+              : crypto;
+          });
+        });
+      };
+
+      // Reconnect after a short delay if the connection drops
+      socket.onclose = () => {
+        if (!closed) {
+          reconnectTimer = setTimeout(connect, 5000);
+        }
+      };
+    };
 
-    // Clean up the interval
-    return () => clearInterval(interval);
+    connect();
+
+    // Close the stream
+    return () => {
+      closed = true;
+      clearTimeout(reconnectTimer);
+      socket.close();
+    };
   }, []);
 
   // Fetch cryptocurrency data from the backend
@@ -44,6 +87,20 @@ function App() {
     }
   };
 
+  // Fetch the account and the first page of its transaction history from the backend
+  const fetchAccount = async () => {
+    try {
+      const [accountResponse, transactionsResponse] = await Promise.all([
+        axios.get('http://localhost:8080/api/account'),
+        axios.get(`http://localhost:8080/api/transactions?limit=${TRANSACTION_PAGE_SIZE}`)
+      ]);
+      setAccount(accountResponse.data);
+      setTransactions(transactionsResponse.data.transactions);
+    } catch (err) {
+      setError('Failed to fetch account data');
+    }
+  };
+
   // Function to handle executing a trade (buy/sell)
   const executeTrade = async (type, symbol, amount) => {
     try {
@@ -57,7 +114,18 @@ function App() {
       });
 
       if (response.data.success) {
-        setAccount(response.data.account); // Update account state with the new data
+        // The response only carries the changes: new balance, new holding of the symbol and the transaction
+        const { balance, holding, transaction } = response.data;
+        setAccount(prevAccount => {
+          const holdings = { ...prevAccount.holdings };
+          if (holding > 0) {
+            holdings[symbol] = holding;
+          } else {
+            delete holdings[symbol];
+          }
+          return { ...prevAccount, balance, holdings };
+        });
+        setTransactions(prevTransactions => [transaction, ...prevTransactions].slice(0, TRANSACTION_PAGE_SIZE));
       } else {
         setError(response.data.message); // Show error message if trade fails
       }
@@ -73,6 +141,7 @@ function App() {
       const response = await axios.post('http://localhost:8080/api/reset');
       // Reset account data
       setAccount(response.data);
+      setTransactions([]);
     } catch (err) {
       setError('Error resetting account'); // Display error if reset fails
     }
@@ -94,6 +163,9 @@ function App() {
           <AccountBalance 
             balance={account.balance} 
             holdings={account.holdings} 
+            marketValue={account.marketValue}
+            unrealizedProfitLoss={account.unrealizedProfitLoss}
+            realizedProfitLoss={account.realizedProfitLoss}
             cryptos={cryptos} 
             onReset={resetAccount} 
           />
@@ -106,7 +178,7 @@ function App() {
         </div>
         <div className="data-container">
           <CryptoTable cryptos={cryptos} />
-          <TransactionHistory transactions={account.transactions} />
+          <TransactionHistory transactions={transactions} />
         </div>
       </main>
     </div>
@@ -3,7 +3,8 @@ import React, { useState } from 'react';
 /**
  * AccountBalance component that displays a user's account overview including:
  * - Cash balance
- * - Holdings value (calculated from cryptocurrency holdings)
+ * - Holdings value (valued by the backend, or calculated from cryptocurrency holdings until it is known)
+ * - Unrealized and realized profit/loss
  * - Total account value (cash balance + holdings value)
  * - Username field that can be edited
  * - Option to reset the account (clear username and reset state)
@@ -12,10 +13,13 @@ import React, { useState } from 'react';
  * @param {number} props.balance - The cash balance in the user's account
  * @param {Object} props.holdings - An object containing user's cryptocurrency holdings, 
  *                                    where keys are cryptocurrency symbols (e.g. "BTC") and values are the amounts owned
+ * @param {number} [props.marketValue] - The market value of the holdings as valued by the backend
+ * @param {number} [props.unrealizedProfitLoss] - The profit/loss of the holdings against their average buy prices
+ * @param {number} [props.realizedProfitLoss] - The profit/loss realized by all sales
  * @param {Array} props.cryptos - An array of cryptocurrency objects with 'symbol' and 'price' properties
  * @param {Function} props.onReset - A callback function to handle resetting the account
  */
-function AccountBalance({ balance, holdings, cryptos, onReset }) {
+function AccountBalance({ balance, holdings, marketValue, unrealizedProfitLoss, realizedProfitLoss, cryptos, onReset }) {
   // State for the user field
   const [username, setUsername] = useState('');
   const [isEditing, setIsEditing] = useState(true);
@@ -37,8 +41,8 @@ function AccountBalance({ balance, holdings, cryptos, onReset }) {
     return total;
   };
   
-  // Calculate the total holdings value
-  const holdingsValue = calculateHoldingsValue();
+  // Use the holdings value pushed by the backend, calculate it until it is known
+  const holdingsValue = marketValue ?? calculateHoldingsValue();
 
   // Calculate the total value (cash balance + holdings value)
   const totalValue = balance + holdingsValue;
@@ -112,6 +116,18 @@ function AccountBalance({ balance, holdings, cryptos, onReset }) {
           <span>Holdings Value:</span>
           <span>${holdingsValue.toFixed(2)}</span>
         </div>
+        {unrealizedProfitLoss !== undefined && (
+          <div className="balance-item">
+            <span>Unrealized P/L:</span>
+            <span>${unrealizedProfitLoss.toFixed(2)}</span>
+          </div>
+        )}
+        {realizedProfitLoss !== undefined && (
+          <div className="balance-item">
+            <span>Realized P/L:</span>
+            <span>${realizedProfitLoss.toFixed(2)}</span>
+          </div>
+        )}
         <div className="balance-total">
           <span>Total Value:</span>
           <span>${totalValue.toFixed(2)}</span>